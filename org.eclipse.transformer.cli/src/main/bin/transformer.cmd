@@ -0,0 +1,98 @@
+@echo off
+rem
+rem Copyright (c) 2020 Contributors to the Eclipse Foundation
+rem
+rem This program and the accompanying materials are made available under the
+rem terms of the Eclipse Public License 2.0 which is available at
+rem http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+rem which is available at https://www.apache.org/licenses/LICENSE-2.0.
+rem
+rem SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+rem
+rem Launch the Eclipse Transformer, using a class data sharing archive when
+rem the Java runtime supports one. See the "transformer" script.
+rem
+rem Archives are written to the "cds" directory of the distribution when that
+rem is writable, and are otherwise written to "%LOCALAPPDATA%\eclipse-transformer".
+rem Delete the archives after replacing the jars of the distribution.
+rem
+
+setlocal
+
+set "MAIN=org.eclipse.transformer.jakarta.JakartaTransformer"
+set "DIST=%~dp0"
+if "%DIST:~-1%"=="\" set "DIST=%DIST:~0,-1%"
+
+set "JAR="
+for %%j in ("%DIST%\org.eclipse.transformer.cli-*.jar") do set "JAR=%%~fj"
+if not defined JAR (
+	echo Transformer jar not found in [ %DIST% ] 1>&2
+	exit /b 1
+)
+
+if defined JAVA_HOME (
+	set "JAVA=%JAVA_HOME%\bin\java.exe"
+	set "JAVA_HOME_DIR=%JAVA_HOME%"
+) else (
+	for %%j in (java.exe) do set "JAVA=%%~$PATH:j"
+)
+if not defined JAVA (
+	echo Java not found: Set JAVA_HOME or add java to the path 1>&2
+	exit /b 1
+)
+if not defined JAVA_HOME_DIR (
+	for %%j in ("%JAVA%\..\..") do set "JAVA_HOME_DIR=%%~fj"
+)
+
+set "CDS_OPTS="
+if /i "%TRANSFORMER_CDS%"=="false" goto run
+
+rem Read the version of the Java runtime from its release file.
+set "RELEASE=%JAVA_HOME_DIR%\release"
+if not exist "%RELEASE%" goto run
+set "VERSION="
+set "RUNTIME="
+for /f "tokens=1,* delims==" %%a in ('findstr /b "JAVA_VERSION= JAVA_RUNTIME_VERSION=" "%RELEASE%"') do (
+	if "%%a"=="JAVA_VERSION" set "VERSION=%%~b"
+	if "%%a"=="JAVA_RUNTIME_VERSION" set "RUNTIME=%%~b"
+)
+if not defined VERSION goto run
+if not defined RUNTIME set "RUNTIME=%VERSION%"
+set "FEATURE="
+for /f "tokens=1,2 delims=.-+_" %%a in ("%VERSION%") do (
+	if "%%a"=="1" (set "FEATURE=%%b") else (set "FEATURE=%%a")
+)
+if not defined FEATURE goto run
+if %FEATURE% LSS 11 goto run
+
+if defined TRANSFORMER_CDS_DIR (
+	set "CDS_DIR=%TRANSFORMER_CDS_DIR%"
+) else (
+	set "CDS_DIR=%DIST%\cds"
+	if not exist "%DIST%\cds" mkdir "%DIST%\cds" 2>nul
+	copy /y nul "%DIST%\cds\.writable" >nul 2>&1 && del "%DIST%\cds\.writable" >nul 2>&1 || set "CDS_DIR=%LOCALAPPDATA%\eclipse-transformer"
+)
+if not exist "%CDS_DIR%" mkdir "%CDS_DIR%" 2>nul
+if not exist "%CDS_DIR%" goto run
+
+set "NAME=transformer-%RUNTIME:+=_%"
+set "CLASSLIST=%DIST%\cds\transformer.classlist"
+if exist "%CLASSLIST%" (
+	set "ARCHIVE=%CDS_DIR%\%NAME%.jsa"
+) else (
+	if %FEATURE% LSS 19 goto run
+	set "CDS_OPTS=-XX:+AutoCreateSharedArchive "-XX:SharedArchiveFile=%CDS_DIR%\%NAME%-dynamic.jsa""
+	goto cds
+)
+if not exist "%ARCHIVE%" (
+	"%JAVA%" -Xshare:dump "-XX:SharedClassListFile=%CLASSLIST%" "-XX:SharedArchiveFile=%ARCHIVE%.tmp" -cp "%JAR%" >nul 2>&1 && move /y "%ARCHIVE%.tmp" "%ARCHIVE%" >nul
+	if exist "%ARCHIVE%.tmp" del "%ARCHIVE%.tmp"
+)
+if exist "%ARCHIVE%" set "CDS_OPTS="-XX:SharedArchiveFile=%ARCHIVE%""
+
+:cds
+set "CDS_OPTS=-Xshare:auto -Xlog:disable -Xlog:all=warning:stderr %CDS_OPTS%"
+
+:run
+"%JAVA%" %CDS_OPTS% %JAVA_OPTS% -cp "%JAR%" %MAIN% %*
+exit /b %ERRORLEVEL%
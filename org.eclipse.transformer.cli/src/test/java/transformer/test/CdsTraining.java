@@ -0,0 +1,54 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import transformer.test.util.SyntheticArchives;
+
+/**
+ * Class data sharing training run: Transform small synthetic archives, so
+ * that the classes which a typical transform loads are recorded in the class
+ * list which is written by the JVM when the run exits.
+ * <p>
+ * The training is only run when the system property "transformer.cds" is
+ * "true", which is set by the "cds-training" execution. That execution
+ * writes the class list to "target/transformer.classlist", which is placed
+ * in the distribution, and which is used by the launcher to create a shared
+ * archive.
+ */
+@EnabledIfSystemProperty(named = "transformer.cds", matches = "true")
+public class CdsTraining {
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"training.jar", "training.war", "training.ear"
+	})
+	public void train(String archiveName, @TempDir Path tempDir) throws IOException {
+		Path inputPath = tempDir.resolve(archiveName);
+		Path outputPath = tempDir.resolve("output-" + archiveName);
+
+		new SyntheticArchives().setClassCount(20)
+			.setTextCount(5)
+			.setNestedDepth(1)
+			.setNestedCount(2)
+			.write(inputPath); // throws IOException
+
+		TestPerformance.transform(inputPath, outputPath);
+	}
+}
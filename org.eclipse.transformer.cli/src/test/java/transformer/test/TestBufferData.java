@@ -0,0 +1,216 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.util.BufferData;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+
+/**
+ * Verify buffer data, and verify that large files are transformed using
+ * mapped buffer data.
+ */
+public class TestBufferData {
+
+	public static final String	TEST_OUTPUT_PATH	= "target/test/data/buffer";
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestBufferData.class);
+
+	public static void assertData(byte[] expected, BufferData actual) throws IOException {
+		Assertions.assertEquals(expected.length, actual.length);
+
+		Assertions.assertArrayEquals(expected, IO.read(actual.asStream()));
+		// Reading does not consume the data.
+		Assertions.assertArrayEquals(expected, IO.read(actual.asStream()));
+
+		ByteData byteData = actual.toByteData();
+		Assertions.assertArrayEquals(expected,
+			Arrays.copyOfRange(byteData.data, byteData.offset, byteData.offset + byteData.length));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		Assertions.assertEquals(expected.length, actual.write(Channels.newChannel(outputStream)));
+		Assertions.assertArrayEquals(expected, outputStream.toByteArray());
+	}
+
+	@Test
+	public void testSegments() throws IOException {
+		byte[] data = new byte[100000];
+		new Random(5).nextBytes(data);
+
+		ByteBuffer first = ByteBuffer.allocateDirect(30000);
+		first.put(data, 0, 30000)
+			.flip();
+		ByteBuffer empty = ByteBuffer.allocate(0);
+		ByteBuffer second = ByteBuffer.wrap(data, 30000, 70000);
+
+		assertData(data, new BufferData("segments", Arrays.asList(first, empty, second)));
+		assertData(data, new BufferData(new ByteData("bytes", data)));
+		assertData(new byte[0], new BufferData("empty", Collections.emptyList()));
+	}
+
+	@Test
+	public void testMap() throws IOException {
+		byte[] data = new byte[300000];
+		new Random(6).nextBytes(data);
+
+		File dataFile = IO.getFile(TEST_OUTPUT_PATH + "/data.bin");
+		IO.mkdirs(dataFile.getParentFile());
+		IO.write(data, dataFile);
+
+		BufferData mappedData = BufferData.map("data.bin", dataFile.toPath());
+		Assertions.assertFalse(mappedData.segments.get(0)
+			.hasArray());
+		assertData(data, mappedData);
+	}
+
+	@Test
+	public void testMappedTransform() throws IOException, TransformException {
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", Collections.singletonMap("javax.inject", "jakarta.inject"));
+
+		TextActionImpl textAction = new TextActionImpl(LOGGER, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(LOGGER, Collections.emptyMap(), null, null, masterTextUpdates, null,
+				Collections.emptyMap()));
+
+		String line = "import javax.inject.Inject;\n";
+		int lineCount = (int) (ActionImpl.MAPPED_READ_LENGTH / line.length()) + 1;
+
+		StringBuilder inputText = new StringBuilder(lineCount * line.length());
+		StringBuilder expectedText = new StringBuilder(lineCount * line.length());
+		for (int lineNo = 0; lineNo < lineCount; lineNo++) {
+			inputText.append(line);
+			expectedText.append("import jakarta.inject.Inject;\n");
+		}
+
+		File inputFile = IO.getFile(TEST_OUTPUT_PATH + "/large.txt");
+		File outputFile = IO.getFile(TEST_OUTPUT_PATH + "/output/large.txt");
+		IO.mkdirs(outputFile.getParentFile());
+		IO.write(inputText.toString()
+			.getBytes(UTF_8), inputFile);
+		Assertions.assertTrue(inputFile.length() >= ActionImpl.MAPPED_READ_LENGTH);
+
+		textAction.apply("large.txt", inputFile, outputFile);
+
+		Assertions.assertTrue(textAction.hadChanges());
+		Assertions.assertEquals(inputFile.length(), textAction.getLastActiveChanges()
+			.getInputBytes());
+		Assertions.assertEquals(outputFile.length(), textAction.getLastActiveChanges()
+			.getOutputBytes());
+		Assertions.assertEquals(expectedText.toString(), IO.collect(outputFile, UTF_8));
+
+		// An unchanged large file is copied.
+		File unchangedFile = IO.getFile(TEST_OUTPUT_PATH + "/output/unchanged.txt");
+		textAction.apply("unchanged.txt", outputFile, unchangedFile);
+		Assertions.assertFalse(textAction.hadChanges());
+		Assertions.assertEquals(expectedText.toString(), IO.collect(unchangedFile, UTF_8));
+	}
+
+	@Test
+	public void testMappedServiceConfig() throws IOException, TransformException {
+		ServiceLoaderConfigActionImpl configAction = new ServiceLoaderConfigActionImpl(LOGGER, false, false,
+			new InputBufferImpl(), new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(LOGGER, Collections.singletonMap("javax.inject", "jakarta.inject"), null, null,
+				null, null, Collections.emptyMap()));
+		Assertions.assertTrue(configAction.isStreamed());
+
+		String line = "javax.inject.Provider\n";
+		int lineCount = (int) (ActionImpl.MAPPED_READ_LENGTH / line.length()) + 1;
+
+		StringBuilder inputText = new StringBuilder(lineCount * line.length());
+		StringBuilder expectedText = new StringBuilder(lineCount * line.length());
+		for (int lineNo = 0; lineNo < lineCount; lineNo++) {
+			inputText.append(line);
+			expectedText.append("jakarta.inject.Provider")
+				.append(System.lineSeparator());
+		}
+
+		File inputFile = IO.getFile(TEST_OUTPUT_PATH + "/services/org.sample.Service");
+		File outputFile = IO.getFile(TEST_OUTPUT_PATH + "/output/services/org.sample.Service");
+		IO.mkdirs(inputFile.getParentFile());
+		IO.mkdirs(outputFile.getParentFile());
+		IO.write(inputText.toString()
+			.getBytes(UTF_8), inputFile);
+		Assertions.assertTrue(inputFile.length() >= ActionImpl.MAPPED_READ_LENGTH);
+
+		configAction.apply("META-INF/services/org.sample.Service", inputFile, outputFile);
+
+		Assertions.assertTrue(configAction.hadChanges());
+		Assertions.assertEquals(outputFile.length(), configAction.getLastActiveChanges()
+			.getOutputBytes());
+		Assertions.assertEquals(expectedText.toString(), IO.collect(outputFile, UTF_8));
+	}
+
+	@Test
+	public void testOversizeData() throws IOException {
+		ClassActionImpl classAction = new ClassActionImpl(LOGGER, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(LOGGER, Collections.emptyMap(), null, null, null, null, Collections.emptyMap()));
+		Assertions.assertFalse(classAction.isStreamed());
+
+		// A sparse file which is larger than the largest java array.
+		File inputFile = IO.getFile(TEST_OUTPUT_PATH + "/oversize.bin");
+		File outputFile = IO.getFile(TEST_OUTPUT_PATH + "/output/oversize.bin");
+		IO.mkdirs(outputFile.getParentFile());
+		IO.delete(outputFile);
+		try {
+			try (RandomAccessFile randomFile = new RandomAccessFile(inputFile, "rw")) {
+				randomFile.setLength(FileUtils.MAX_ARRAY_LENGTH + 1L);
+			}
+
+			// The class action cannot transform the file without copying it
+			// into the java heap: The transform fails, and the file is not
+			// copied unchanged.
+			TransformException failure = Assertions.assertThrows(TransformException.class,
+				() -> classAction.apply("oversize.bin", inputFile, outputFile));
+			Assertions.assertTrue(failure.getMessage()
+				.contains("too large"), failure.getMessage());
+			Assertions.assertFalse(outputFile.exists(), "Oversize file was copied");
+
+			// The same holds when buffer data is transformed directly.
+			BufferData inputData = BufferData.map("oversize.bin", inputFile.toPath());
+			Assertions.assertThrows(TransformException.class, () -> classAction.apply("oversize.bin", inputData));
+		} finally {
+			IO.delete(outputFile);
+			IO.delete(inputFile);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveWorkers;
+import org.eclipse.transformer.util.ChangeJournal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Verify the change journal, which records each entry processed by a
+ * transform.
+ */
+public class TestChangeJournal {
+
+	public static List<ChangeJournal.Entry> transform(Path journalPath, ChangeJournal journal,
+		NestedArchiveWorkers workers) throws IOException, TransformException {
+
+		CompositeActionImpl rootAction = TestNestedParallel.createTree();
+		EarActionImpl earAction = TestNestedParallel.getEarAction(rootAction);
+		earAction.getSettings()
+			.setJournal(journal);
+		earAction.getSettings()
+			.setNestedWorkers(workers);
+
+		TestNestedParallel.transform(earAction, TestNestedParallel.createEar());
+		journal.close();
+
+		List<ChangeJournal.Entry> entries = new ArrayList<>();
+		ChangeJournal.read(journalPath, entry -> true, entries::add);
+		return entries;
+	}
+
+	/**
+	 * Describe journal entries, omitting byte counts: The input byte counts of
+	 * nested archives depend on how the nested archives are read.
+	 */
+	public static Set<String> describe(List<ChangeJournal.Entry> entries) {
+		Set<String> descriptions = new TreeSet<>();
+		for (ChangeJournal.Entry entry : entries) {
+			descriptions.add(entry.getPath() + " " + entry.action + " " + entry.changed + " " + entry.replacements);
+		}
+		return descriptions;
+	}
+
+	@Test
+	public void testJournal(@TempDir Path tempDir) throws IOException, TransformException {
+		Path journalPath = tempDir.resolve("journal.jsonl");
+		ChangeJournal journal = ChangeJournal.open(journalPath);
+		List<ChangeJournal.Entry> entries = transform(journalPath, journal, null);
+
+		// Every entry of every archive is recorded, including the nested
+		// archives.
+		byte[] earBytes = TestNestedParallel.createEar();
+		Assertions.assertEquals(TestProgress.countEntries(earBytes), entries.size());
+		Assertions.assertEquals(entries.size(), journal.getRecords());
+
+		ChangeJournal.Entry first = entries.get(0);
+		Assertions.assertEquals("sample.ear", first.container);
+		Assertions.assertEquals("META-INF/application.xml", first.entry);
+		Assertions.assertEquals("Null Action", first.action);
+		Assertions.assertFalse(first.changed);
+
+		// Entries of nested archives are recorded before the nested archive.
+		List<String> paths = new ArrayList<>();
+		for (ChangeJournal.Entry entry : entries) {
+			paths.add(entry.getPath());
+		}
+		int textOffset = paths.indexOf("sample.ear!/sample0.war!/WEB-INF/lib/sample0.jar!/readme.txt");
+		int jarOffset = paths.indexOf("sample.ear!/sample0.war!/WEB-INF/lib/sample0.jar");
+		int warOffset = paths.indexOf("sample.ear!/sample0.war");
+		Assertions.assertTrue((textOffset != -1) && (textOffset < jarOffset) && (jarOffset < warOffset), paths
+			.toString());
+
+		ChangeJournal.Entry text = entries.get(textOffset);
+		Assertions.assertEquals("Text Action", text.action);
+		Assertions.assertTrue(text.changed);
+		Assertions.assertEquals(1, text.replacements);
+		// "javax" is replaced by "jakarta".
+		Assertions.assertEquals(text.inputBytes + 2L, text.outputBytes);
+		Assertions.assertFalse(text.isRenamed());
+
+		ChangeJournal.Entry war = entries.get(warOffset);
+		Assertions.assertEquals("WAR Action", war.action);
+		Assertions.assertTrue(war.changed);
+
+		// Each text file has one replacement.
+		List<ChangeJournal.Entry> changedText = new ArrayList<>();
+		long matched = ChangeJournal.read(journalPath, ChangeJournal.filter("changed", "action=Text Action"),
+			changedText::add);
+		Assertions.assertEquals(1L + (3L * 7L) + (3L * 6L) + 3L, matched);
+		Assertions.assertEquals(matched, changedText.size());
+
+		List<ChangeJournal.Entry> warEntries = new ArrayList<>();
+		ChangeJournal.read(journalPath, ChangeJournal.filter("container=sample.ear!/sample1.war", "entry=notes"),
+			warEntries::add);
+		Assertions.assertEquals(6, warEntries.size());
+	}
+
+	@Test
+	public void testNestedWorkers(@TempDir Path tempDir) throws IOException, TransformException {
+		Path serialPath = tempDir.resolve("serial.jsonl");
+		List<ChangeJournal.Entry> serialEntries = transform(serialPath, ChangeJournal.open(serialPath), null);
+
+		// Nested archives which are transformed by worker threads are
+		// recorded against the paths of the archives which contain them.
+		Path parallelPath = tempDir.resolve("parallel.jsonl");
+		ChangeJournal parallelJournal = ChangeJournal.open(parallelPath);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NestedArchiveWorkers workers = new NestedArchiveWorkers(pool, () -> {
+				CompositeActionImpl workerTree = TestNestedParallel.createTree();
+				TestNestedParallel.getEarAction(workerTree)
+					.getSettings()
+					.setJournal(parallelJournal);
+				return workerTree;
+			});
+			List<ChangeJournal.Entry> parallelEntries = transform(parallelPath, parallelJournal, workers);
+			Assertions.assertEquals(describe(serialEntries), describe(parallelEntries));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParse(@TempDir Path tempDir) throws IOException {
+		Path journalPath = tempDir.resolve("journal.jsonl");
+		ChangeJournal journal = ChangeJournal.open(journalPath);
+		journal.enterContainer("outer \"quoted\".jar");
+		journal.enterContainer("inner\\.jar");
+		journal.record("a/B.class", "Class Action", "c/B.class", true, 3, 100L, 102L);
+		journal.exitContainer();
+		journal.record("tab\tname.txt", null, null, false, 0, 5L, 5L);
+		journal.exitContainer();
+		journal.close();
+
+		List<String> lines = Files.readAllLines(journalPath);
+		Assertions.assertEquals(2, lines.size());
+		Assertions.assertEquals("{\"container\":\"outer \\\"quoted\\\".jar!/inner\\\\.jar\",\"entry\":\"a/B.class\","
+			+ "\"action\":\"Class Action\",\"changed\":true,\"replacements\":3,\"inputBytes\":100,"
+			+ "\"outputBytes\":102,\"output\":\"c/B.class\"}", lines.get(0));
+
+		ChangeJournal.Entry renamed = ChangeJournal.Entry.parse(lines.get(0));
+		Assertions.assertEquals("outer \"quoted\".jar!/inner\\.jar", renamed.container);
+		Assertions.assertEquals("c/B.class", renamed.output);
+		Assertions.assertEquals(3, renamed.replacements);
+		Assertions.assertEquals(102L, renamed.outputBytes);
+
+		ChangeJournal.Entry copied = ChangeJournal.Entry.parse(lines.get(1));
+		Assertions.assertEquals("tab\tname.txt", copied.entry);
+		Assertions.assertNull(copied.action);
+		Assertions.assertNull(copied.output);
+
+		Assertions.assertEquals(1L, ChangeJournal.read(journalPath, ChangeJournal.filter("renamed"), entry -> {}));
+		Assertions.assertEquals(1L,
+			ChangeJournal.read(journalPath, ChangeJournal.filter("action=Copied", "unchanged"), entry -> {}));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ChangeJournal.filter("bogus"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ChangeJournal.Entry.parse("{\"entry\":1"));
+	}
+}
@@ -0,0 +1,259 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.assertEntries;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.createTextWarAction;
+import static transformer.test.util.SampleArchives.readStream;
+import static transformer.test.util.SampleArchives.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.ParallelZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+
+/**
+ * Verify the compression settings of output archives, and verify the archives
+ * which are written by the parallel zip output stream.
+ */
+public class TestCompression {
+
+	public static final String	TEST_OUTPUT_PATH	= "target/test/data/compression";
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestCompression.class);
+
+	private ExecutorService		executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Create compressible data: Words selected from a small vocabulary.
+	 */
+	public static byte[] createData(Random random, int length) {
+		String[] words = {
+			"javax", "jakarta", "inject", "servlet", "package", "class", "import", "public", " ", "\n", ".", ";"
+		};
+		ByteArrayOutputStream dataStream = new ByteArrayOutputStream(length);
+		while (dataStream.size() < length) {
+			byte[] word = words[random.nextInt(words.length)].getBytes(UTF_8);
+			dataStream.write(word, 0, Math.min(word.length, length - dataStream.size()));
+		}
+		return dataStream.toByteArray();
+	}
+
+	public static Map<String, byte[]> createEntries() {
+		Random random = new Random(42);
+
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("META-INF/", new byte[0]);
+		entries.put("empty.txt", new byte[0]);
+		for (int entryNo = 0; entryNo < 200; entryNo++) {
+			entries.put("small/entry" + entryNo + ".txt", createData(random, random.nextInt(20000)));
+		}
+		// Spans several blocks, and ends with a partial block.
+		entries.put("large.txt", createData(random, ParallelZipOutputStream.BLOCK_SIZE * 5 + 1234));
+		// Exactly fills two blocks.
+		entries.put("exact.txt", createData(random, ParallelZipOutputStream.BLOCK_SIZE * 2));
+		byte[] randomData = new byte[ParallelZipOutputStream.BLOCK_SIZE + 17];
+		random.nextBytes(randomData);
+		entries.put("random.bin", randomData);
+		entries.put("stored.bin", createData(random, 5000));
+		return entries;
+	}
+
+	public byte[] writeParallel(Map<String, byte[]> entries, int level, int maxPending) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ParallelZipOutputStream(outputStream, executor, level,
+			maxPending)) {
+			zipOutputStream.setComment("Parallel");
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				String name = entry.getKey();
+				byte[] data = entry.getValue();
+
+				ZipEntry zipEntry = new ZipEntry(name);
+				zipEntry.setTime(1600000000000L);
+				if (name.startsWith("stored")) {
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					zipEntry.setMethod(ZipEntry.STORED);
+					zipEntry.setSize(data.length);
+					zipEntry.setCrc(crc.getValue());
+				}
+				zipOutputStream.putNextEntry(zipEntry);
+				// Write in uneven pieces.
+				for (int offset = 0; offset < data.length; offset += 7777) {
+					zipOutputStream.write(data, offset, Math.min(7777, data.length - offset));
+				}
+				zipOutputStream.closeEntry();
+			}
+		}
+		return outputStream.toByteArray();
+	}
+
+	public static Map<String, byte[]> readFile(File archiveFile) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipFile zipFile = new ZipFile(archiveFile)) {
+			Assertions.assertEquals("Parallel", zipFile.getComment());
+			Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry entry = zipEntries.nextElement();
+				Assertions.assertEquals(1600000000000L, entry.getTime(), entry.getName());
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					entries.put(entry.getName(), IO.read(inputStream));
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Test
+	public void testParallelStream() throws IOException {
+		Map<String, byte[]> entries = createEntries();
+
+		byte[] archiveBytes = writeParallel(entries, 6, 3);
+		assertEntries(entries, readStream(archiveBytes));
+
+		File archiveFile = IO.getFile(TEST_OUTPUT_PATH + "/parallel.zip");
+		IO.delete(archiveFile);
+		IO.mkdirs(archiveFile.getParentFile());
+		IO.write(archiveBytes, archiveFile);
+		assertEntries(entries, readFile(archiveFile));
+
+		// The output does not depend on the scheduling of blocks.
+		Assertions.assertArrayEquals(archiveBytes, writeParallel(entries, 6, 100));
+
+		// The compression level is used.
+		Assertions.assertTrue(writeParallel(entries, 0, 3).length > archiveBytes.length);
+	}
+
+	//
+
+	public static byte[] createWar() throws IOException {
+		Random random = new Random(7);
+
+		Map<String, byte[]> jarEntries = new LinkedHashMap<>();
+		jarEntries.put("readme.txt", "Uses javax.inject.Inject\n".getBytes(UTF_8));
+		jarEntries.put("data.bin", createData(random, 50000));
+
+		Map<String, byte[]> warEntries = new LinkedHashMap<>();
+		warEntries.put("WEB-INF/lib/sample.jar", createArchive(jarEntries));
+		warEntries.put("images/logo.png", createData(random, 3000));
+		warEntries.put("index.txt", "Uses javax.inject.Named\n".getBytes(UTF_8));
+		warEntries.put("WEB-INF/data.bin", createData(random, 400000));
+		return createArchive(warEntries);
+	}
+
+	public static Map<String, Integer> readMethods(byte[] archiveBytes) throws IOException {
+		Map<String, Integer> methods = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archiveBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				methods.put(entry.getName(), entry.getMethod());
+			}
+		}
+		return methods;
+	}
+
+	@Test
+	public void testStoreCompressed() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		WarActionImpl warAction = createTextWarAction(LOGGER);
+		warAction.getSettings()
+			.setStoreCompressed(true);
+		byte[] outputBytes = transform(warAction, warBytes);
+
+		Map<String, Integer> methods = readMethods(outputBytes);
+		Assertions.assertEquals(ZipEntry.STORED, methods.get("WEB-INF/lib/sample.jar"));
+		Assertions.assertEquals(ZipEntry.STORED, methods.get("images/logo.png"));
+		Assertions.assertEquals(ZipEntry.DEFLATED, methods.get("index.txt"));
+		Assertions.assertEquals(ZipEntry.DEFLATED, methods.get("WEB-INF/data.bin"));
+
+		Map<String, byte[]> expected = readStream(transform(createTextWarAction(LOGGER), warBytes));
+		assertEntries(expected, readStream(outputBytes));
+	}
+
+	@Test
+	public void testCompressionLevel() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		WarActionImpl fastAction = createTextWarAction(LOGGER);
+		fastAction.getSettings()
+			.setCompressionLevel(1);
+		WarActionImpl bestAction = createTextWarAction(LOGGER);
+		bestAction.getSettings()
+			.setCompressionLevel(9);
+
+		byte[] fastBytes = transform(fastAction, warBytes);
+		byte[] bestBytes = transform(bestAction, warBytes);
+		Assertions.assertTrue(fastBytes.length > bestBytes.length);
+
+		// The level is used by nested archives, which are compressed
+		// differently.
+		Map<String, byte[]> fastEntries = readStream(fastBytes);
+		Map<String, byte[]> bestEntries = readStream(bestBytes);
+		assertEntries(readStream(bestEntries.remove("WEB-INF/lib/sample.jar")),
+			readStream(fastEntries.remove("WEB-INF/lib/sample.jar")));
+		assertEntries(bestEntries, fastEntries);
+	}
+
+	@Test
+	public void testParallelDeflate() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		WarActionImpl parallelAction = createTextWarAction(LOGGER);
+		parallelAction.getSettings()
+			.setDeflateExecutor(executor);
+		byte[] parallelBytes = transform(parallelAction, warBytes);
+		Assertions.assertArrayEquals(parallelBytes, transform(parallelAction, warBytes));
+
+		Map<String, byte[]> expected = readStream(transform(createTextWarAction(LOGGER), warBytes));
+		Map<String, byte[]> actual = readStream(parallelBytes);
+		assertEntries(expected, actual);
+		assertEntries(readStream(expected.get("WEB-INF/lib/sample.jar")),
+			readStream(actual.get("WEB-INF/lib/sample.jar")));
+	}
+}
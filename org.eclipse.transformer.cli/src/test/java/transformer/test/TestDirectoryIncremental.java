@@ -0,0 +1,299 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.eclipse.transformer.util.IncrementalState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import transformer.test.data.Sample_InjectAPI_Jakarta;
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestDirectoryIncremental {
+
+	public static final String	TEST_OUTPUT_PATH		= "target/test/data/incremental";
+
+	public static final String	CLASS_ACTION_NAME		= "Class Action";
+
+	public static final int		FILE_COUNT				= 10;
+
+	public static final String	JAVAX_RESOURCE_NAME		= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+	public static final String	JAKARTA_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Jakarta.class.getName());
+
+	private final Logger		logger					= LoggerFactory.getLogger(TestDirectoryIncremental.class);
+
+	private final AtomicInteger	applied					= new AtomicInteger();
+
+	public DirectoryActionImpl createDirectoryAction(IncrementalState state) {
+		return createDirectoryAction(state, Collections.emptySet(), true);
+	}
+
+	/**
+	 * Create a directory action which transforms classes.
+	 *
+	 * @param state The incremental state of the action.
+	 * @param excludes Selection exclusions.
+	 * @param useNullAction True or false telling if files other than classes
+	 *            are accepted by a null action. Otherwise, files other than
+	 *            classes are not accepted.
+	 * @return The new directory action.
+	 */
+	public DirectoryActionImpl createDirectoryAction(IncrementalState state, Set<String> excludes,
+		boolean useNullAction) {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.inject", "jakarta.inject");
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), excludes),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+
+		directoryAction.addUsing((useLogger, isTerse, isVerbose, buffer, selectionRule,
+			signatureRule) -> new ClassActionImpl(useLogger, isTerse, isVerbose, buffer, selectionRule, signatureRule) {
+				@Override
+				public void apply(String inputName, File inputFile, File outputFile) throws TransformException {
+					applied.incrementAndGet();
+					super.apply(inputName, inputFile, outputFile);
+				}
+			});
+		if (useNullAction) {
+			directoryAction.addUsing(NullActionImpl::new);
+		}
+
+		directoryAction.setIncrementalState(state);
+
+		return directoryAction;
+	}
+
+	public ContainerChangesImpl transform(File inputDir, File outputDir, String fingerprint)
+		throws TransformException {
+		return transform(inputDir, outputDir, fingerprint, this::createDirectoryAction);
+	}
+
+	public ContainerChangesImpl transform(File inputDir, File outputDir, String fingerprint,
+		Function<IncrementalState, DirectoryActionImpl> actionFactory) throws TransformException {
+		applied.set(0);
+
+		IncrementalState state = new IncrementalState(IO.getFile(TEST_OUTPUT_PATH + "/state.txt"), fingerprint);
+		DirectoryActionImpl directoryAction = actionFactory.apply(state);
+		directoryAction.apply("input", inputDir, outputDir);
+		return directoryAction.getLastActiveChanges();
+	}
+
+	@Test
+	public void testIncremental() throws IOException, TransformException {
+		File rootDir = IO.getFile(TEST_OUTPUT_PATH);
+		IO.delete(rootDir);
+
+		File inputDir = new File(rootDir, "input");
+		File classDir = new File(inputDir, "classes");
+		IO.mkdirs(classDir);
+
+		byte[] javaxBytes = readResource(JAVAX_RESOURCE_NAME);
+		byte[] jakartaBytes = readResource(JAKARTA_RESOURCE_NAME);
+		for (int fileNo = 0; fileNo < FILE_COUNT; fileNo++) {
+			IO.copy(javaxBytes, new File(classDir, "Sample" + fileNo + ".class"));
+		}
+
+		File outputDir = new File(rootDir, "output");
+
+		String fingerprint = IncrementalState.fingerprint(Collections.singletonMap("javax.inject", "jakarta.inject"));
+
+		// Initial transform: All files are transformed.
+
+		ContainerChangesImpl initialChanges = transform(inputDir, outputDir, fingerprint);
+		Assertions.assertEquals(FILE_COUNT, applied.get());
+		Assertions.assertEquals(FILE_COUNT, initialChanges.getChanged(CLASS_ACTION_NAME));
+
+		// Repeat transform: No files are transformed; the recorded changes
+		// are unchanged.
+
+		ContainerChangesImpl repeatChanges = transform(inputDir, outputDir, fingerprint);
+		Assertions.assertEquals(0, applied.get());
+		Assertions.assertEquals(FILE_COUNT, repeatChanges.getChanged(CLASS_ACTION_NAME));
+
+		// Update one file and remove another: Only the updated file is
+		// transformed, and the output of the removed file is removed.
+
+		File updatedInput = new File(classDir, "Sample0.class");
+		IO.copy(jakartaBytes, updatedInput);
+		updatedInput.setLastModified(updatedInput.lastModified() + 2000L);
+
+		IO.delete(new File(classDir, "Sample1.class"));
+
+		ContainerChangesImpl updateChanges = transform(inputDir, outputDir, fingerprint);
+		Assertions.assertEquals(1, applied.get());
+		Assertions.assertEquals(FILE_COUNT - 2, updateChanges.getChanged(CLASS_ACTION_NAME));
+		Assertions.assertEquals(1, updateChanges.getUnchanged(CLASS_ACTION_NAME));
+		Assertions.assertFalse(new File(outputDir, "classes/Sample1.class").exists(),
+			"Output of removed input was not removed");
+		Assertions.assertArrayEquals(jakartaBytes, IO.read(new File(outputDir, "classes/Sample0.class")));
+
+		// Remove an output: The file is transformed again.
+
+		IO.delete(new File(outputDir, "classes/Sample2.class"));
+		transform(inputDir, outputDir, fingerprint);
+		Assertions.assertEquals(1, applied.get());
+		Assertions.assertTrue(new File(outputDir, "classes/Sample2.class").exists(), "Output was not restored");
+
+		// Change the rules: All files are transformed.
+
+		transform(inputDir, outputDir, IncrementalState.fingerprint(Collections.emptyMap()));
+		Assertions.assertEquals(FILE_COUNT - 1, applied.get());
+	}
+
+	@Test
+	public void testIncrementalCopies() throws IOException, TransformException {
+		File rootDir = IO.getFile(TEST_OUTPUT_PATH);
+		IO.delete(rootDir);
+
+		File inputDir = new File(rootDir, "input");
+		File classDir = new File(inputDir, "classes");
+		File staticDir = new File(inputDir, "static");
+		IO.mkdirs(classDir);
+		IO.mkdirs(staticDir);
+
+		IO.copy(readResource(JAVAX_RESOURCE_NAME), new File(classDir, "Sample.class"));
+		IO.copy(readResource(JAVAX_RESOURCE_NAME), new File(classDir, "Excluded.class"));
+		for (int fileNo = 0; fileNo < FILE_COUNT; fileNo++) {
+			IO.store("asset" + fileNo, new File(staticDir, "asset" + fileNo + ".css"));
+		}
+
+		File outputDir = new File(rootDir, "output");
+		String fingerprint = IncrementalState.fingerprint(Collections.singletonMap("javax.inject", "jakarta.inject"));
+
+		// No null action: The static files are not accepted. The excluded
+		// class is accepted but not selected.
+		Function<IncrementalState, DirectoryActionImpl> actionFactory = state -> createDirectoryAction(state,
+			Collections.singleton("*Excluded.class"), false);
+
+		transform(inputDir, outputDir, fingerprint, actionFactory);
+		Assertions.assertEquals(1, applied.get());
+
+		// Copies which are current are skipped: Their outputs are not
+		// rewritten.
+		File assetOutput = new File(outputDir, "static/asset0.css");
+		File excludedOutput = new File(outputDir, "classes/Excluded.class");
+		long assetModified = assetOutput.lastModified() - 10000L;
+		long excludedModified = excludedOutput.lastModified() - 10000L;
+		Assertions.assertTrue(assetOutput.setLastModified(assetModified));
+		Assertions.assertTrue(excludedOutput.setLastModified(excludedModified));
+
+		IncrementalState state = new IncrementalState(IO.getFile(TEST_OUTPUT_PATH + "/state.txt"), fingerprint);
+		Assertions.assertTrue(state.load());
+		Assertions.assertNotNull(state.getPriorEntry("./input/static/asset0.css"), "Unaccepted copy was not recorded");
+		Assertions.assertFalse(state.getPriorEntry("./input/static/asset0.css").changed);
+
+		// Hashes are unchanged, so the touched outputs are still current.
+		transform(inputDir, outputDir, fingerprint, actionFactory);
+		Assertions.assertEquals(0, applied.get());
+		Assertions.assertEquals(assetModified, assetOutput.lastModified());
+		Assertions.assertEquals(excludedModified, excludedOutput.lastModified());
+
+		// Remove an unaccepted file and an unselected file: Their outputs
+		// are removed.
+		IO.delete(new File(staticDir, "asset1.css"));
+		IO.delete(new File(classDir, "Excluded.class"));
+		transform(inputDir, outputDir, fingerprint, actionFactory);
+		Assertions.assertFalse(new File(outputDir, "static/asset1.css").exists(),
+			"Output of removed unaccepted input was not removed");
+		Assertions.assertFalse(excludedOutput.exists(), "Output of removed unselected input was not removed");
+		Assertions.assertTrue(assetOutput.exists());
+	}
+
+	public String runTransformer(File inputDir, File outputDir, File stateFile, String... settings)
+		throws IOException {
+		String[] args = new String[settings.length + 5];
+		args[0] = inputDir.getPath();
+		args[1] = outputDir.getPath();
+		args[2] = "-o"; // Overwrite
+		args[3] = "-n";
+		args[4] = stateFile.getPath();
+		System.arraycopy(settings, 0, args, 5, settings.length);
+
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		PrintStream sysOut = new PrintStream(messages, true);
+
+		Transformer trans = new Transformer(sysOut, sysOut);
+		trans.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		trans.setArgs(args);
+		Assertions.assertEquals(Transformer.SUCCESS_RC, trans.run(), messages.toString("UTF-8"));
+
+		// The first line of the state holds the fingerprint.
+		return IO.collect(stateFile)
+			.split("\n", 2)[0];
+	}
+
+	@Test
+	public void testOutputSettingsFingerprint() throws IOException {
+		File rootDir = IO.getFile(TEST_OUTPUT_PATH);
+		IO.delete(rootDir);
+
+		File inputDir = new File(rootDir, "input");
+		IO.mkdirs(inputDir);
+		IO.copy(readResource(JAVAX_RESOURCE_NAME), new File(inputDir, "Sample.class"));
+
+		File outputDir = new File(rootDir, "output");
+		File stateFile = new File(rootDir, "state.txt");
+
+		String fingerprint = runTransformer(inputDir, outputDir, stateFile);
+		Assertions.assertTrue(fingerprint.startsWith(IncrementalState.HEADER_PREFIX), fingerprint);
+		Assertions.assertEquals(fingerprint, runTransformer(inputDir, outputDir, stateFile));
+
+		// Settings which change the bytes of written archives change the
+		// fingerprint.
+		String[][] settingsList = {
+			{
+				"-cl", "0"
+			}, {
+				"-km"
+			}, {
+				"-sc"
+			}, {
+				"-et", "0"
+			}, {
+				"-rp"
+			}
+		};
+		for (String[] settings : settingsList) {
+			Assertions.assertNotEquals(fingerprint, runTransformer(inputDir, outputDir, stateFile, settings),
+				"Fingerprint did not change for [ " + settings[0] + " ]");
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import transformer.test.data.Sample_InjectAPI_Jakarta;
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestDirectoryParallel {
+
+	public static final String	TEST_OUTPUT_PATH		= "target/test/data/parallel";
+
+	public static final String	CLASS_ACTION_NAME		= "Class Action";
+	public static final String	NULL_ACTION_NAME		= "Null Action";
+
+	public static final int		DIRECTORY_COUNT			= 8;
+	public static final int		FILES_PER_DIRECTORY		= 16;
+
+	public static final String	JAVAX_RESOURCE_NAME		= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+	public static final String	JAKARTA_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Jakarta.class.getName());
+
+	private final Logger		logger					= LoggerFactory.getLogger(TestDirectoryParallel.class);
+
+	public DirectoryActionImpl createDirectoryAction() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.inject", "jakarta.inject");
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+
+		directoryAction.addUsing(ClassActionImpl::new);
+		directoryAction.addUsing(NullActionImpl::new);
+
+		return directoryAction;
+	}
+
+	public File createInput() throws IOException {
+		File inputDir = IO.getFile(TEST_OUTPUT_PATH + "/input");
+		IO.delete(inputDir);
+
+		byte[] javaxBytes = readResource(JAVAX_RESOURCE_NAME);
+		byte[] jakartaBytes = readResource(JAKARTA_RESOURCE_NAME);
+
+		for (int dirNo = 0; dirNo < DIRECTORY_COUNT; dirNo++) {
+			File childDir = new File(inputDir, "dir" + dirNo + "/nested");
+			IO.mkdirs(childDir);
+			for (int fileNo = 0; fileNo < FILES_PER_DIRECTORY; fileNo++) {
+				byte[] classBytes = (((fileNo % 2) == 0) ? javaxBytes : jakartaBytes);
+				IO.copy(classBytes, new File(childDir, "Sample" + fileNo + ".class"));
+			}
+			IO.store("text" + dirNo, new File(inputDir, "dir" + dirNo + "/readme.txt"));
+		}
+
+		return inputDir;
+	}
+
+	@Test
+	public void testParallelMatchesSequential() throws IOException, TransformException {
+		File inputDir = createInput();
+
+		File sequentialDir = IO.getFile(TEST_OUTPUT_PATH + "/sequential");
+		IO.delete(sequentialDir);
+		DirectoryActionImpl sequentialAction = createDirectoryAction();
+		sequentialAction.apply("input", inputDir, sequentialDir);
+		ContainerChangesImpl sequentialChanges = sequentialAction.getLastActiveChanges();
+
+		File parallelDir = IO.getFile(TEST_OUTPUT_PATH + "/parallel");
+		IO.delete(parallelDir);
+		DirectoryActionImpl parallelAction = createDirectoryAction();
+		parallelAction.setParallelism(4, this::createDirectoryAction);
+		parallelAction.apply("input", inputDir, parallelDir);
+		ContainerChangesImpl parallelChanges = parallelAction.getLastActiveChanges();
+
+		int expectedResources = DIRECTORY_COUNT * (FILES_PER_DIRECTORY + 1);
+		Assertions.assertEquals(expectedResources, parallelChanges.getAllResources());
+		Assertions.assertEquals(sequentialChanges.getAllResources(), parallelChanges.getAllResources());
+		Assertions.assertEquals(sequentialChanges.getAllChanged(), parallelChanges.getAllChanged());
+		Assertions.assertEquals(sequentialChanges.getChanged(CLASS_ACTION_NAME),
+			parallelChanges.getChanged(CLASS_ACTION_NAME));
+		Assertions.assertEquals(sequentialChanges.getUnchanged(CLASS_ACTION_NAME),
+			parallelChanges.getUnchanged(CLASS_ACTION_NAME));
+		Assertions.assertEquals(sequentialChanges.getUnchanged(NULL_ACTION_NAME),
+			parallelChanges.getUnchanged(NULL_ACTION_NAME));
+
+		for (int dirNo = 0; dirNo < DIRECTORY_COUNT; dirNo++) {
+			for (int fileNo = 0; fileNo < FILES_PER_DIRECTORY; fileNo++) {
+				String childPath = "dir" + dirNo + "/nested/Sample" + fileNo + ".class";
+				Assertions.assertArrayEquals(IO.read(new File(sequentialDir, childPath)),
+					IO.read(new File(parallelDir, childPath)), "Output mismatch [ " + childPath + " ]");
+			}
+			String textPath = "dir" + dirNo + "/readme.txt";
+			Assertions.assertEquals(IO.collect(new File(sequentialDir, textPath)),
+				IO.collect(new File(parallelDir, textPath)));
+		}
+	}
+}
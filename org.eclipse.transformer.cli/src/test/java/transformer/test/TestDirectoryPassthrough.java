@@ -0,0 +1,147 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import transformer.test.data.Sample_InjectAPI_Jakarta;
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+/**
+ * Verify that unchanged, unselected, and passthrough files of a directory are
+ * copied, or are linked when requested, and that linked outputs are not
+ * written through when they are later changed.
+ */
+public class TestDirectoryPassthrough {
+
+	public static final String	TEST_OUTPUT_PATH		= "target/test/data/passthrough";
+
+	public static final String	JAVAX_RESOURCE_NAME		= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+	public static final String	JAKARTA_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Jakarta.class.getName());
+
+	private final Logger		logger					= LoggerFactory.getLogger(TestDirectoryPassthrough.class);
+
+	public DirectoryActionImpl createDirectoryAction(String initialPackage, String finalPackage) {
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.singleton("*.skip")),
+			new SignatureRuleImpl(logger, Collections.singletonMap(initialPackage, finalPackage), null, null, null,
+				null, Collections.emptyMap()));
+
+		directoryAction.addUsing(ClassActionImpl::new);
+		directoryAction.addUsing(NullActionImpl::new);
+
+		return directoryAction;
+	}
+
+	public File createInput() throws IOException {
+		File inputDir = IO.getFile(TEST_OUTPUT_PATH + "/input");
+		IO.delete(inputDir);
+		IO.mkdirs(new File(inputDir, "classes"));
+		IO.mkdirs(new File(inputDir, "static"));
+
+		IO.copy(readResource(JAVAX_RESOURCE_NAME), new File(inputDir, "classes/Javax.class"));
+		IO.copy(readResource(JAKARTA_RESOURCE_NAME), new File(inputDir, "classes/Jakarta.class"));
+		IO.store("static content", new File(inputDir, "static/index.html"));
+		IO.store("excluded content", new File(inputDir, "static/excluded.skip"));
+
+		return inputDir;
+	}
+
+	public static final String[] UNCHANGED_PATHS = {
+		"classes/Jakarta.class", "static/index.html", "static/excluded.skip"
+	};
+
+	@Test
+	public void testCopy() throws IOException, TransformException {
+		File inputDir = createInput();
+		File outputDir = IO.getFile(TEST_OUTPUT_PATH + "/copy");
+		IO.delete(outputDir);
+
+		DirectoryActionImpl directoryAction = createDirectoryAction("javax.inject", "jakarta.inject");
+		directoryAction.apply("input", inputDir, outputDir);
+		ContainerChangesImpl changes = directoryAction.getLastActiveChanges();
+
+		Assertions.assertEquals(4, changes.getAllResources());
+		Assertions.assertEquals(1, changes.getAllChanged());
+		Assertions.assertEquals(3, changes.getAllUnchanged());
+
+		for (String path : UNCHANGED_PATHS) {
+			File outputFile = new File(outputDir, path);
+			Assertions.assertArrayEquals(IO.read(new File(inputDir, path)), IO.read(outputFile), path);
+			Assertions.assertFalse(Files.isSameFile(new File(inputDir, path).toPath(), outputFile.toPath()), path);
+		}
+		Assertions.assertFalse(
+			Arrays.equals(IO.read(new File(inputDir, "classes/Javax.class")),
+				IO.read(new File(outputDir, "classes/Javax.class"))));
+	}
+
+	@Test
+	public void testLink() throws IOException, TransformException {
+		File inputDir = createInput();
+		File outputDir = IO.getFile(TEST_OUTPUT_PATH + "/link");
+		IO.delete(outputDir);
+
+		Map<String, byte[]> inputs = new HashMap<>();
+		for (String path : UNCHANGED_PATHS) {
+			inputs.put(path, IO.read(new File(inputDir, path)));
+		}
+
+		DirectoryActionImpl directoryAction = createDirectoryAction("javax.inject", "jakarta.inject");
+		directoryAction.setLinkUnchanged(true);
+		directoryAction.apply("input", inputDir, outputDir);
+
+		for (String path : UNCHANGED_PATHS) {
+			Assertions.assertTrue(
+				Files.isSameFile(new File(inputDir, path).toPath(), new File(outputDir, path).toPath()), path);
+		}
+		Assertions.assertFalse(Files.isSameFile(new File(inputDir, "classes/Javax.class").toPath(),
+			new File(outputDir, "classes/Javax.class").toPath()));
+
+		// Transforming into the same output, with rules which change a linked
+		// file, replaces the link instead of overwriting the input.
+
+		DirectoryActionImpl inverseAction = createDirectoryAction("jakarta.inject", "javax.inject");
+		inverseAction.apply("input", inputDir, outputDir);
+
+		File jakartaOutput = new File(outputDir, "classes/Jakarta.class");
+		Assertions.assertFalse(
+			Files.isSameFile(new File(inputDir, "classes/Jakarta.class").toPath(), jakartaOutput.toPath()));
+		Assertions.assertFalse(Arrays.equals(inputs.get("classes/Jakarta.class"), IO.read(jakartaOutput)));
+		for (String path : UNCHANGED_PATHS) {
+			Assertions.assertArrayEquals(inputs.get(path), IO.read(new File(inputDir, path)), path);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.assertEntries;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.createTextWarAction;
+import static transformer.test.util.SampleArchives.readStream;
+import static transformer.test.util.SyntheticArchives.ENTRY_TIME;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import transformer.test.util.SampleArchives;
+
+/**
+ * Verify the writing of archive output as a directory.
+ */
+public class TestExplodedOutput {
+
+	public static final String	TEST_OUTPUT_PATH	= "target/test/data/exploded";
+
+	public static final String	NESTED_JAR_NAME		= "WEB-INF/lib/sample.jar";
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestExplodedOutput.class);
+
+	public static byte[] createWar() throws IOException {
+		Map<String, byte[]> jarEntries = new LinkedHashMap<>();
+		jarEntries.put("META-INF/", new byte[0]);
+		jarEntries.put("readme.txt", "Uses javax.inject.Inject\n".getBytes(UTF_8));
+		jarEntries.put("data.bin", new byte[] {
+			1, 2, 3
+		});
+
+		Map<String, byte[]> warEntries = new LinkedHashMap<>();
+		warEntries.put("WEB-INF/", new byte[0]);
+		warEntries.put(NESTED_JAR_NAME, createArchive(jarEntries, ENTRY_TIME));
+		warEntries.put("index.txt", "Uses javax.inject.Named\n".getBytes(UTF_8));
+		warEntries.put("images/logo.png", new byte[] {
+			4, 5, 6
+		});
+		return createArchive(warEntries, ENTRY_TIME);
+	}
+
+	public File explode(WarActionImpl warAction, byte[] warBytes, String outputName) throws TransformException {
+		File outputDir = IO.getFile(TEST_OUTPUT_PATH + "/" + outputName);
+		IO.delete(outputDir);
+		warAction.applyExploded("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputDir);
+		return outputDir;
+	}
+
+	public Map<String, byte[]> transform(byte[] warBytes) throws TransformException, IOException {
+		return readStream(SampleArchives.transform(createTextWarAction(LOGGER), warBytes), false);
+	}
+
+	public static void assertFiles(Map<String, byte[]> expected, File outputDir) throws IOException {
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			File outputFile = new File(outputDir, entry.getKey());
+			Assertions.assertTrue(outputFile.isFile(), outputFile.getPath());
+			Assertions.assertArrayEquals(entry.getValue(), IO.read(outputFile), entry.getKey());
+			Assertions.assertEquals(1600000000000L, outputFile.lastModified(), entry.getKey());
+		}
+	}
+
+	@Test
+	public void testExploded() throws TransformException, IOException {
+		byte[] warBytes = createWar();
+		Map<String, byte[]> expected = transform(warBytes);
+		Map<String, byte[]> expectedNested = readStream(expected.remove(NESTED_JAR_NAME), false);
+
+		WarActionImpl warAction = createTextWarAction(LOGGER);
+		File outputDir = explode(warAction, warBytes, "war");
+		Assertions.assertTrue(warAction.getLastActiveChanges()
+			.hasChanges());
+
+		Assertions.assertTrue(new File(outputDir, "WEB-INF").isDirectory());
+		assertFiles(expected, outputDir);
+
+		// The nested archive is written as an archive.
+		File nestedFile = new File(outputDir, NESTED_JAR_NAME);
+		Assertions.assertTrue(nestedFile.isFile());
+		assertEntries(expectedNested, readStream(IO.read(nestedFile), false));
+	}
+
+	@Test
+	public void testExplodedNested() throws TransformException, IOException {
+		byte[] warBytes = createWar();
+		Map<String, byte[]> expected = transform(warBytes);
+		Map<String, byte[]> expectedNested = readStream(expected.remove(NESTED_JAR_NAME), false);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			WarActionImpl warAction = createTextWarAction(LOGGER);
+			warAction.getSettings()
+				.setExplodeNested(true);
+			warAction.getSettings()
+				.setWriteExecutor(executor);
+			File outputDir = explode(warAction, warBytes, "nested");
+
+			assertFiles(expected, outputDir);
+
+			File nestedDir = new File(outputDir, NESTED_JAR_NAME);
+			Assertions.assertTrue(nestedDir.isDirectory());
+			Assertions.assertTrue(new File(nestedDir, "META-INF").isDirectory());
+			assertFiles(expectedNested, nestedDir);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testOutsideEntry() throws IOException {
+		byte[] warBytes = createArchive(Collections.singletonMap("../outside.txt", "Outside".getBytes(UTF_8)));
+
+		Assertions.assertThrows(TransformException.class, () -> explode(createTextWarAction(LOGGER), warBytes, "outside"));
+		Assertions.assertFalse(IO.getFile(TEST_OUTPUT_PATH + "/outside.txt")
+			.exists());
+	}
+}
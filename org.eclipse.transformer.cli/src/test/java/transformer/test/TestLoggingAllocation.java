@@ -0,0 +1,204 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.PropertiesActionImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.action.impl.XmlActionImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+import transformer.test.util.SampleArchives;
+
+/**
+ * Verify that transforms do not allocate logging data when debug and verbose
+ * logging are disabled: No messages are built for, no parameter arrays are
+ * created for, and no primitive values are boxed for, disabled logging calls.
+ */
+public class TestLoggingAllocation {
+
+	public static final String	JAVAX_CLASS_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+
+	/** Logging calls which allocated, keyed by the calling location. */
+	private final Map<String, String> allocatingCalls = new LinkedHashMap<>();
+
+	/**
+	 * Create a logger which has trace, debug, and info logging disabled. The
+	 * logger records disabled logging calls which were made with a message
+	 * which was built for the call, with a parameter array, or with boxed
+	 * primitive parameters.
+	 */
+	public Logger createLogger() {
+		return (Logger) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+			Logger.class
+		}, (proxy, method, args) -> {
+			String methodName = method.getName();
+			if (methodName.startsWith("is")) {
+				return !(methodName.startsWith("isTrace") || methodName.startsWith("isDebug")
+					|| methodName.startsWith("isInfo"));
+			} else if (methodName.equals("getName")) {
+				return "Test";
+			} else if (methodName.equals("trace") || methodName.equals("debug") || methodName.equals("info")) {
+				checkAllocation(method, args);
+			}
+			return null;
+		});
+	}
+
+	private void checkAllocation(Method method, Object[] args) {
+		if (args == null) {
+			return;
+		}
+
+		// A message which is a literal is interned. A message which was built
+		// by concatenation or by String.format is not.
+		for (Object arg : args) {
+			if (arg instanceof String) {
+				String message = (String) arg;
+				if (message != message.intern()) {
+					allocatingCalls.put(getCaller(), method.getName() + " built message " + message);
+					return;
+				}
+				break;
+			}
+		}
+
+		for (Object arg : args) {
+			if ((arg instanceof Object[]) || (arg instanceof Number) || (arg instanceof Boolean)
+				|| (arg instanceof Character)) {
+				allocatingCalls.put(getCaller(), method.getName() + " " + args[0]);
+				return;
+			}
+		}
+	}
+
+	private static String getCaller() {
+		for (StackTraceElement element : new Throwable().getStackTrace()) {
+			String className = element.getClassName();
+			if (className.startsWith("org.eclipse.transformer.") && !element.getMethodName()
+				.equals("debug") && !element.getMethodName()
+					.equals("verbose")
+				&& !element.getMethodName()
+					.equals("trace")
+				&& !element.getMethodName()
+					.equals("info")) {
+				return element.toString();
+			}
+		}
+		return "unknown";
+	}
+
+	public WarActionImpl createWarAction(Logger logger) {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.inject", "jakarta.inject");
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.sample", "jakarta.sample");
+
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", Collections.singletonMap("javax.inject", "jakarta.inject"));
+		masterTextUpdates.put("*.xml", Collections.singletonMap("javax.inject", "jakarta.inject"));
+
+		// Verbose logging is enabled, but info logging is disabled: Verbose
+		// calls reach the logger.
+
+		return SampleArchives.createWarAction(logger, true,
+			SampleArchives.createSignatureRule(logger, renames, masterTextUpdates), ClassActionImpl::new,
+			ServiceLoaderConfigActionImpl::new, ManifestActionImpl::newManifestAction, PropertiesActionImpl::new,
+			XmlActionImpl::new, TextActionImpl::new);
+	}
+
+	public byte[] createXml() {
+		return "<?xml version=\"1.0\"?>\n<beans kind=\"sample\"><?sample data?><inject>javax.inject.Inject</inject></beans>\n"
+			.getBytes(UTF_8);
+	}
+
+	public byte[] createWar() throws IOException {
+		byte[] classBytes = readResource(JAVAX_CLASS_RESOURCE_NAME);
+
+		Map<String, byte[]> jarEntries = new LinkedHashMap<>();
+		jarEntries.put(ManifestActionImpl.META_INF_MANIFEST_MF,
+			readResource("transformer/test/data/servlet/META-INF/MANIFEST.MF"));
+		jarEntries.put(JAVAX_CLASS_RESOURCE_NAME, classBytes);
+		jarEntries.put("META-INF/services/javax.sample.Reader",
+			readResource("transformer/test/data/serviceconfig/META-INF/services/javax.sample.Reader"));
+		jarEntries.put("javax/sample/sample.properties", readResource("transformer/test/data/complex.properties"));
+		jarEntries.put("readme.txt", "Uses javax.inject.Inject\n".getBytes(UTF_8));
+		jarEntries.put("META-INF/beans.xml", createXml());
+		jarEntries.put("data.bin", new byte[] {
+			1, 2, 3
+		});
+
+		Map<String, byte[]> warEntries = new LinkedHashMap<>();
+		warEntries.put("WEB-INF/lib/sample.jar", createArchive(jarEntries));
+		warEntries.put("WEB-INF/classes/" + JAVAX_CLASS_RESOURCE_NAME, classBytes);
+
+		return createArchive(warEntries);
+	}
+
+	@Test
+	public void testDisabledLogging() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		WarActionImpl warAction = createWarAction(createLogger());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		warAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputStream);
+		Assertions.assertTrue(warAction.getLastActiveChanges()
+			.hasChanges(), "No changes");
+
+		List<String> failures = new ArrayList<>();
+		allocatingCalls.forEach((caller, call) -> failures.add(caller + ": " + call));
+		Assertions.assertTrue(failures.isEmpty(), "Allocating disabled logging calls: " + failures);
+	}
+
+	/**
+	 * XML resources are transformed as plain text unless the parser is
+	 * selected, which is done once per JVM. Drive the parser directly.
+	 */
+	@Test
+	public void testDisabledXmlParserLogging() throws TransformException {
+		WarActionImpl warAction = createWarAction(createLogger());
+		XmlActionImpl xmlAction = warAction.addUsing(XmlActionImpl::new);
+
+		byte[] xmlBytes = createXml();
+		xmlAction.transformUsingSaxParser("beans.xml", new ByteArrayInputStream(xmlBytes),
+			new ByteArrayOutputStream());
+
+		List<String> failures = new ArrayList<>();
+		allocatingCalls.forEach((caller, call) -> failures.add(caller + ": " + call));
+		Assertions.assertTrue(failures.isEmpty(), "Allocating disabled logging calls: " + failures);
+	}
+}
@@ -0,0 +1,206 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.createSignatureRule;
+import static transformer.test.util.SampleArchives.createWarAction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.ContainerSettings;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveWorkers;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.MemoryBudget;
+import org.eclipse.transformer.util.SpillingOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the memory budget of entry buffers, and verify that transforms which
+ * spill to temporary files write the same output as transforms which hold all
+ * data in memory.
+ */
+public class TestMemoryBudget {
+	public static final Logger LOGGER = LoggerFactory.getLogger(TestMemoryBudget.class);
+
+	@Test
+	public void testReserve() throws Exception {
+		MemoryBudget budget = new MemoryBudget(1000L);
+
+		Assertions.assertTrue(budget.tryReserve(600L));
+		Assertions.assertFalse(budget.tryReserve(600L));
+
+		// Entry reservations do not wait on held reservations.
+		budget.reserve(600L);
+		Assertions.assertEquals(1200L, budget.getReserved());
+		Assertions.assertEquals(0L, budget.getWaits());
+
+		// But do wait on other entry reservations.
+		CountDownLatch reserved = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try {
+				budget.reserve(300L);
+				reserved.countDown();
+			} catch (IOException e) {
+				// Left unreserved
+			}
+		});
+		waiter.start();
+		Assertions.assertFalse(reserved.await(200L, TimeUnit.MILLISECONDS));
+
+		budget.releaseEntry(600L);
+		Assertions.assertTrue(reserved.await(10L, TimeUnit.SECONDS));
+		waiter.join();
+		Assertions.assertEquals(1L, budget.getWaits());
+
+		budget.releaseEntry(300L);
+		budget.release(600L);
+		Assertions.assertEquals(0L, budget.getReserved());
+		Assertions.assertEquals(1200L, budget.getPeak());
+
+		// An entry which is larger than the budget is admitted alone.
+		budget.reserve(5000L);
+		budget.releaseEntry(5000L);
+		Assertions.assertEquals(5000L, budget.getPeak());
+
+		Assertions.assertEquals(3L * 1024L * 1024L, MemoryBudget.parseBytes("3M"));
+		Assertions.assertEquals(2048L, MemoryBudget.parseBytes(" 2k "));
+		Assertions.assertThrows(NumberFormatException.class, () -> MemoryBudget.parseBytes("many"));
+	}
+
+	public static byte[] writeSpilling(MemoryBudget budget, byte[] data, boolean expectSpill) throws IOException {
+		SpillingOutputStream spillStream = new SpillingOutputStream(budget, 1024);
+		try {
+			for (int offset = 0; offset < data.length; offset += 5000) {
+				spillStream.write(data, offset, Math.min(5000, data.length - offset));
+			}
+			spillStream.close();
+			Assertions.assertEquals(expectSpill, spillStream.isSpilled());
+
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			Assertions.assertEquals(data.length, spillStream.getLength());
+			Assertions.assertEquals(crc.getValue(), spillStream.getCrc());
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			spillStream.writeTo(outputStream, new byte[1000]);
+			return outputStream.toByteArray();
+		} finally {
+			spillStream.dispose();
+		}
+	}
+
+	@Test
+	public void testSpill() throws IOException {
+		byte[] data = new byte[3 * 1024 * 1024 + 17];
+		new Random(3).nextBytes(data);
+
+		MemoryBudget budget = new MemoryBudget(2L * 1024L * 1024L);
+		Assertions.assertArrayEquals(data, writeSpilling(budget, data, true));
+		Assertions.assertEquals(0L, budget.getReserved());
+
+		budget = new MemoryBudget(8L * 1024L * 1024L);
+		Assertions.assertArrayEquals(data, writeSpilling(budget, data, false));
+		Assertions.assertEquals(0L, budget.getReserved());
+
+		Assertions.assertArrayEquals(data, writeSpilling(null, data, false));
+	}
+
+	@Test
+	public void testUnsizedEntry() throws IOException, TransformException {
+		MemoryBudget budget = new MemoryBudget(64L * 1024L * 1024L);
+
+		// Entries which are written by a zip stream have data descriptors: The
+		// entry sizes are not known when the entries are read.
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 300000) {
+			text.append("Uses javax.inject.Inject\n");
+		}
+		byte[] textBytes = text.toString()
+			.getBytes(UTF_8);
+		byte[] warBytes = createArchive(Collections.singletonMap("large.txt", textBytes));
+
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", Collections.singletonMap("javax.inject", "jakarta.inject"));
+		WarActionImpl warAction = createWarAction(LOGGER,
+			createSignatureRule(LOGGER, Collections.emptyMap(), masterTextUpdates), TextActionImpl::new);
+		warAction.getSettings()
+			.setMemoryBudget(budget);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		warAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputStream);
+
+		// The entry is held as input and as output.
+		Assertions.assertTrue(budget.getPeak() >= 2L * textBytes.length, budget.toString());
+		Assertions.assertEquals(0L, budget.getReserved());
+	}
+
+	@Test
+	public void testBudgetedTransform() throws IOException, TransformException {
+		byte[] earBytes = TestNestedParallel.createEar();
+
+		CompositeActionImpl serialTree = TestNestedParallel.createTree();
+		EarActionImpl serialAction = TestNestedParallel.getEarAction(serialTree);
+		serialAction.getSettings()
+			.setStoreCompressed(true);
+		byte[] serialBytes = TestNestedParallel.transform(serialAction, earBytes);
+
+		// A budget which is smaller than a nested archive: Nested archives
+		// are streamed or spilled.
+		MemoryBudget budget = new MemoryBudget(64L * 1024L);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NestedArchiveWorkers[] workers = new NestedArchiveWorkers[1];
+			workers[0] = new NestedArchiveWorkers(pool, () -> {
+				CompositeActionImpl workerTree = TestNestedParallel.createTree();
+				ContainerSettings workerSettings = TestNestedParallel.getEarAction(workerTree)
+					.getSettings();
+				workerSettings.setStoreCompressed(true);
+				workerSettings.setMemoryBudget(budget);
+				workerSettings.setNestedWorkers(workers[0]);
+				return workerTree;
+			});
+
+			EarActionImpl budgetedAction = TestNestedParallel.getEarAction(TestNestedParallel.createTree());
+			ContainerSettings budgetedSettings = budgetedAction.getSettings();
+			budgetedSettings.setStoreCompressed(true);
+			budgetedSettings.setMemoryBudget(budget);
+			budgetedSettings.setNestedWorkers(workers[0]);
+
+			Assertions.assertArrayEquals(serialBytes, TestNestedParallel.transform(budgetedAction, earBytes));
+		} finally {
+			pool.shutdown();
+		}
+
+		Assertions.assertEquals(0L, budget.getReserved());
+		Assertions.assertTrue(budget.getPeak() > 0L);
+	}
+}
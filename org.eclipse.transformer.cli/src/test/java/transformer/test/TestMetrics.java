@@ -0,0 +1,160 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.ThreadUsage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+import transformer.test.util.CaptureLoggerImpl;
+import transformer.test.util.SampleArchives;
+
+public class TestMetrics extends CaptureTest {
+
+	public static final String	JAVAX_CLASS_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+
+	public static final String	CLASS_ACTION_NAME			= "Class Action";
+	public static final String	JAR_ACTION_NAME				= "Jar Action";
+	public static final String	NULL_ACTION_NAME			= "Null Action";
+
+	public WarActionImpl createWarAction() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.inject", "jakarta.inject");
+
+		return SampleArchives.createWarAction(useLogger,
+			createSignatureRule(useLogger, renames, null, null, null, Collections.emptyMap()), ClassActionImpl::new);
+	}
+
+	public byte[] createWar() throws IOException {
+		byte[] classBytes = readResource(JAVAX_CLASS_RESOURCE_NAME);
+
+		Map<String, byte[]> jarEntries = new HashMap<>();
+		jarEntries.put(JAVAX_CLASS_RESOURCE_NAME, classBytes);
+		jarEntries.put("META-INF/readme.txt", "readme".getBytes(UTF_8));
+
+		Map<String, byte[]> warEntries = new HashMap<>();
+		warEntries.put("WEB-INF/lib/sample.jar", createArchive(jarEntries));
+		warEntries.put("WEB-INF/classes/" + JAVAX_CLASS_RESOURCE_NAME, classBytes);
+
+		return createArchive(warEntries);
+	}
+
+	@Test
+	public void testMetrics() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+		int classLength = readResource(JAVAX_CLASS_RESOURCE_NAME).length;
+
+		WarActionImpl warAction = createWarAction();
+		warAction.setCollectMetrics(true);
+		warAction.setCollectAllocation(true);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		warAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputStream);
+		ContainerChangesImpl changes = warAction.getLastActiveChanges();
+
+		Assertions.assertEquals(warBytes.length, changes.getInputBytes());
+		Assertions.assertEquals(outputStream.size(), changes.getOutputBytes());
+		Assertions.assertTrue(changes.getElapsedNanos() > 0, "No elapsed time");
+		if (ThreadUsage.isAllocatedBytesSupported()) {
+			Assertions.assertTrue(changes.getAllocatedBytes() > 0, "No allocated bytes");
+		}
+
+		// Immediate: One class and one nested jar.
+
+		long[] classMetrics = changes.getMetricsByAction()
+			.get(CLASS_ACTION_NAME);
+		Assertions.assertNotNull(classMetrics, "No class metrics");
+		Assertions.assertEquals(1, classMetrics[ContainerChanges.METRIC_COUNT]);
+		Assertions.assertEquals(classLength, classMetrics[ContainerChanges.METRIC_INPUT_BYTES]);
+		Assertions.assertTrue(classMetrics[ContainerChanges.METRIC_OUTPUT_BYTES] > 0, "No class output");
+
+		long[] jarMetrics = changes.getMetricsByAction()
+			.get(JAR_ACTION_NAME);
+		Assertions.assertNotNull(jarMetrics, "No jar metrics");
+		Assertions.assertEquals(1, jarMetrics[ContainerChanges.METRIC_COUNT]);
+		Assertions.assertTrue(jarMetrics[ContainerChanges.METRIC_ELAPSED_NANOS] <= changes.getElapsedNanos(),
+			"Nested time exceeds total time");
+
+		// Nested: The class and the text file of the nested jar.
+
+		ContainerChangesImpl nestedChanges = changes.getNestedChanges();
+		long[] nestedClassMetrics = nestedChanges.getMetricsByAction()
+			.get(CLASS_ACTION_NAME);
+		Assertions.assertEquals(1, nestedClassMetrics[ContainerChanges.METRIC_COUNT]);
+		Assertions.assertEquals(classLength, nestedClassMetrics[ContainerChanges.METRIC_INPUT_BYTES]);
+		long[] nestedNullMetrics = nestedChanges.getMetricsByAction()
+			.get(NULL_ACTION_NAME);
+		Assertions.assertEquals("readme".length(), nestedNullMetrics[ContainerChanges.METRIC_INPUT_BYTES]);
+		Assertions.assertEquals("readme".length(), nestedNullMetrics[ContainerChanges.METRIC_OUTPUT_BYTES]);
+
+		// Exports
+
+		ByteArrayOutputStream jsonBytes = new ByteArrayOutputStream();
+		try (PrintStream jsonStream = new PrintStream(jsonBytes, true, "UTF-8")) {
+			changes.writeMetricsJson(jsonStream, "sample.war", "output.war");
+		}
+		String json = new String(jsonBytes.toByteArray(), UTF_8);
+		Assertions.assertTrue(json.startsWith("{ \"input\": \"sample.war\", \"output\": \"output.war\""), json);
+		Assertions.assertTrue(json.contains("\"immediate\": ["), json);
+		Assertions.assertTrue(json.contains("\"nested\": ["), json);
+		Assertions.assertTrue(json.contains("{ \"action\": \"Jar Action\", \"count\": 1"), json);
+
+		ByteArrayOutputStream csvBytes = new ByteArrayOutputStream();
+		try (PrintStream csvStream = new PrintStream(csvBytes, true, "UTF-8")) {
+			changes.writeMetricsCsv(csvStream, "sample.war", "output.war");
+		}
+		String[] csvLines = new String(csvBytes.toByteArray(), UTF_8).split("\n");
+		Assertions.assertEquals("scope,action,count,elapsedNanos,cpuNanos,allocatedBytes,inputBytes,outputBytes",
+			csvLines[0]);
+		Assertions.assertTrue(csvLines[1].startsWith("total,sample.war,1,"), csvLines[1]);
+		// Header, total, two immediate actions, and two nested actions.
+		Assertions.assertEquals(6, csvLines.length);
+	}
+
+	@Test
+	public void testMetricsNotCollected() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		// Without metrics, no time is measured; byte counts are still kept.
+		WarActionImpl warAction = createWarAction();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		warAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputStream);
+		ContainerChangesImpl changes = warAction.getLastActiveChanges();
+
+		Assertions.assertEquals(warBytes.length, changes.getInputBytes());
+		Assertions.assertEquals(0L, changes.getElapsedNanos());
+		Assertions.assertEquals(0L, changes.getCpuNanos());
+		Assertions.assertEquals(0L, changes.getAllocatedBytes());
+	}
+}
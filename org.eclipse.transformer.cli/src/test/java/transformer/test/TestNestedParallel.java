@@ -0,0 +1,297 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createArchive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.ContainerSettings;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveWorkers;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.MemoryBudget;
+import org.eclipse.transformer.util.SpillingOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify that nested archives which are transformed as independent tasks are
+ * written the same as nested archives which are transformed by the
+ * transforming thread.
+ */
+public class TestNestedParallel {
+
+	public static final Logger	LOGGER	= LoggerFactory.getLogger(TestNestedParallel.class);
+
+	private ForkJoinPool		pool;
+
+	@BeforeEach
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	public static CompositeActionImpl createTree() {
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", Collections.singletonMap("javax.inject", "jakarta.inject"));
+
+		CompositeActionImpl rootAction = new CompositeActionImpl(LOGGER, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(LOGGER, Collections.singletonMap("javax.inject", "jakarta.inject"), null, null,
+				masterTextUpdates, null, Collections.emptyMap()));
+
+		TextActionImpl textAction = rootAction.addUsing(TextActionImpl::new);
+		JarActionImpl jarAction = rootAction.addUsing(JarActionImpl::new);
+		WarActionImpl warAction = rootAction.addUsing(WarActionImpl::new);
+		EarActionImpl earAction = rootAction.addUsing(EarActionImpl::new);
+		NullActionImpl nullAction = rootAction.addUsing(NullActionImpl::new);
+
+		jarAction.addAction(textAction);
+		jarAction.addAction(nullAction);
+
+		warAction.addAction(jarAction);
+		warAction.addAction(textAction);
+		warAction.addAction(nullAction);
+
+		earAction.addAction(jarAction);
+		earAction.addAction(warAction);
+		earAction.addAction(textAction);
+		earAction.addAction(nullAction);
+
+		return rootAction;
+	}
+
+	public static EarActionImpl getEarAction(CompositeActionImpl rootAction) {
+		return (EarActionImpl) rootAction.getActions()
+			.stream()
+			.filter(EarActionImpl.class::isInstance)
+			.findFirst()
+			.get();
+	}
+
+	public CompositeActionImpl createWorkerTree() {
+		CompositeActionImpl rootAction = createTree();
+		getEarAction(rootAction).getSettings()
+			.setNestedWorkers(workers);
+		return rootAction;
+	}
+
+	private NestedArchiveWorkers workers;
+
+	public static byte[] createJar(Random random, int jarNo) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("readme.txt", ("Jar " + jarNo + " uses javax.inject.Inject\n").getBytes(UTF_8));
+		// Vary the sizes, so that tasks are not submitted in entry order.
+		entries.put("data.bin", TestCompression.createData(random, 1000 + random.nextInt(200000)));
+		return createArchive(entries);
+	}
+
+	public static byte[] createEar() throws IOException {
+		Random random = new Random(11);
+
+		Map<String, byte[]> earEntries = new LinkedHashMap<>();
+		earEntries.put("META-INF/application.xml", "<application/>\n".getBytes(UTF_8));
+		for (int warNo = 0; warNo < 3; warNo++) {
+			Map<String, byte[]> warEntries = new LinkedHashMap<>();
+			warEntries.put("index.txt", ("War " + warNo + " uses javax.inject.Named\n").getBytes(UTF_8));
+			for (int jarNo = 0; jarNo < 6; jarNo++) {
+				warEntries.put("WEB-INF/lib/sample" + jarNo + ".jar", createJar(random, jarNo));
+				// Entries which follow nested archives wait for them.
+				warEntries.put("WEB-INF/notes" + jarNo + ".txt", "javax.inject\n".getBytes(UTF_8));
+			}
+			earEntries.put("sample" + warNo + ".war", createArchive(warEntries));
+			earEntries.put("lib/util" + warNo + ".jar", createJar(random, warNo));
+		}
+		earEntries.put("notes.txt", "Uses javax.inject\n".getBytes(UTF_8));
+		return createArchive(earEntries);
+	}
+
+	public static byte[] transform(EarActionImpl earAction, byte[] earBytes) throws TransformException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		earAction.apply("sample.ear", new ByteArrayInputStream(earBytes), earBytes.length, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	public static List<String> readNames(byte[] archiveBytes) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archiveBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				names.add(entry.getName());
+			}
+		}
+		return names;
+	}
+
+	public static void assertChanges(ContainerChanges expected, ContainerChanges actual) {
+		Assertions.assertEquals(expected.getAllResources(), actual.getAllResources());
+		Assertions.assertEquals(expected.getAllChanged(), actual.getAllChanged());
+		Assertions.assertEquals(expected.getAllUnchanged(), actual.getAllUnchanged());
+		Assertions.assertEquals(expected.getAllUnselected(), actual.getAllUnselected());
+	}
+
+	@Test
+	public void testNestedParallel() throws IOException, TransformException {
+		byte[] earBytes = createEar();
+
+		EarActionImpl serialAction = getEarAction(createTree());
+		byte[] serialBytes = transform(serialAction, earBytes);
+
+		workers = new NestedArchiveWorkers(pool, this::createWorkerTree);
+		EarActionImpl parallelAction = getEarAction(createWorkerTree());
+		byte[] parallelBytes = transform(parallelAction, earBytes);
+
+		// Entries are written in their original order, and nested archives
+		// are written the same as when transformed serially.
+		Assertions.assertEquals(readNames(earBytes), readNames(parallelBytes));
+		Assertions.assertArrayEquals(serialBytes, parallelBytes);
+
+		ContainerChanges serialChanges = serialAction.getLastActiveChanges();
+		ContainerChanges parallelChanges = parallelAction.getLastActiveChanges();
+		assertChanges(serialChanges, parallelChanges);
+		Assertions.assertTrue(parallelChanges.hasNestedChanges());
+		assertChanges(serialChanges.getNestedChanges(), parallelChanges.getNestedChanges());
+
+		// Worker trees are reused.
+		Assertions.assertArrayEquals(serialBytes, transform(parallelAction, earBytes));
+	}
+
+	/**
+	 * Nested archive workers which count the worker trees which are borrowed
+	 * and not yet returned.
+	 */
+	static class CountingWorkers extends NestedArchiveWorkers {
+		CountingWorkers(ExecutorService executor, Supplier<? extends CompositeActionImpl> treeSupplier) {
+			super(executor, treeSupplier);
+		}
+
+		final AtomicInteger borrowed = new AtomicInteger();
+
+		@Override
+		public CompositeActionImpl borrow() {
+			borrowed.incrementAndGet();
+			return super.borrow();
+		}
+
+		@Override
+		public void release(CompositeActionImpl tree) {
+			borrowed.decrementAndGet();
+			super.release(tree);
+		}
+	}
+
+	/**
+	 * Create a jar which cannot be read: The deflated data of its entry
+	 * starts with an invalid block type.
+	 */
+	public static byte[] createCorruptJar() throws IOException {
+		byte[] jarBytes = createArchive(Collections.singletonMap("readme.txt",
+			"Uses javax.inject.Inject\n".getBytes(UTF_8)));
+		int nameLength = (jarBytes[26] & 0xFF) | ((jarBytes[27] & 0xFF) << 8);
+		int extraLength = (jarBytes[28] & 0xFF) | ((jarBytes[29] & 0xFF) << 8);
+		jarBytes[30 + nameLength + extraLength] = (byte) 0xFF;
+		return jarBytes;
+	}
+
+	public static Set<Path> listSpillFiles() throws IOException {
+		try (Stream<Path> paths = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+			return paths.filter(path -> {
+				String fileName = path.getFileName()
+					.toString();
+				return fileName.startsWith("transformer") && fileName.endsWith(".spill");
+			})
+				.collect(Collectors.toSet());
+		}
+	}
+
+	@Test
+	public void testNestedFailure() throws IOException {
+		Random random = new Random(13);
+
+		// The corrupt jar is written first, while the tasks of the jars which
+		// follow it are still pending.
+		Map<String, byte[]> earEntries = new LinkedHashMap<>();
+		earEntries.put("lib/corrupt.jar", createCorruptJar());
+		for (int jarNo = 0; jarNo < 8; jarNo++) {
+			earEntries.put("lib/sample" + jarNo + ".jar", createJar(random, jarNo));
+		}
+		byte[] earBytes = createArchive(earEntries);
+
+		// The budget holds the pending jars, but not their output, which is
+		// spilled.
+		MemoryBudget budget = new MemoryBudget(SpillingOutputStream.RESERVE_INCREMENT * 2);
+		CountingWorkers[] countingWorkers = new CountingWorkers[1];
+		countingWorkers[0] = new CountingWorkers(pool, () -> {
+			CompositeActionImpl workerTree = createTree();
+			ContainerSettings workerSettings = getEarAction(workerTree).getSettings();
+			workerSettings.setMemoryBudget(budget);
+			workerSettings.setNestedWorkers(countingWorkers[0]);
+			return workerTree;
+		});
+
+		EarActionImpl earAction = getEarAction(createTree());
+		ContainerSettings settings = earAction.getSettings();
+		settings.setMemoryBudget(budget);
+		settings.setNestedWorkers(countingWorkers[0]);
+
+		Set<Path> initialSpillFiles = listSpillFiles();
+
+		Assertions.assertThrows(TransformException.class, () -> transform(earAction, earBytes));
+
+		Assertions.assertEquals(0, countingWorkers[0].borrowed.get(), "Worker trees were not returned");
+		Assertions.assertEquals(0L, budget.getReserved(), "Reserved bytes were not released");
+		Set<Path> spillFiles = listSpillFiles();
+		spillFiles.removeAll(initialSpillFiles);
+		Assertions.assertEquals(Collections.emptySet(), spillFiles, "Spill files were not deleted");
+	}
+}
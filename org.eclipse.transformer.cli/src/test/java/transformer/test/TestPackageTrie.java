@@ -0,0 +1,83 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.action.impl.PackageTrie;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the package trie, and verify that types, descriptors, and signatures
+ * which are rejected by the trie are not changed.
+ */
+public class TestPackageTrie {
+
+	public static final Logger LOGGER = LoggerFactory.getLogger(TestPackageTrie.class);
+
+	@Test
+	public void testContainsPackage() {
+		PackageTrie trie = new PackageTrie(Arrays.asList("javax/servlet", "javax/inject", "q", ""), '/');
+		Assertions.assertFalse(trie.isEmpty());
+
+		Assertions.assertTrue(trie.containsPackage("javax/servlet/Servlet"));
+		Assertions.assertTrue(trie.containsPackage("(Ljava/lang/String;Ljavax/inject/Named;)V"));
+		Assertions.assertTrue(trie.containsPackage("Ljava/util/List<Lq/B;>;"));
+		Assertions.assertTrue(trie.containsPackage("javax/servlet/"));
+
+		Assertions.assertFalse(trie.containsPackage("javax/servlet"));
+		Assertions.assertFalse(trie.containsPackage("Ljavax/servletx/Servlet;"));
+		Assertions.assertFalse(trie.containsPackage("(Ljava/lang/String;I)V"));
+		Assertions.assertFalse(trie.containsPackage("javax.servlet.Servlet"));
+		Assertions.assertFalse(trie.containsPackage(""));
+		Assertions.assertFalse(trie.containsPackage("j"));
+
+		PackageTrie emptyTrie = new PackageTrie(Collections.emptyList(), '/');
+		Assertions.assertTrue(emptyTrie.isEmpty());
+		Assertions.assertFalse(emptyTrie.containsPackage("javax/servlet/Servlet"));
+	}
+
+	@Test
+	public void testSignatureRule() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		SignatureRuleImpl rule = new SignatureRuleImpl(LOGGER, renames, null, null, null, null,
+			Collections.emptyMap());
+
+		Assertions.assertEquals("jakarta/servlet/Servlet", rule.transformBinaryType("javax/servlet/Servlet"));
+		Assertions.assertEquals("[Ljakarta/servlet/Servlet;", rule.transformBinaryType("[Ljavax/servlet/Servlet;"));
+		Assertions.assertNull(rule.transformBinaryType("java/lang/String"));
+		Assertions.assertNull(rule.transformBinaryType("javax/servlet/http/HttpServlet"));
+
+		Assertions.assertEquals("(Ljava/lang/String;Ljakarta/servlet/Servlet$Inner;)V",
+			rule.transformDescriptor("(Ljava/lang/String;Ljavax/servlet/Servlet$Inner;)V"));
+		Assertions.assertNull(rule.transformDescriptor("(Ljava/lang/String;I)V"));
+
+		Assertions.assertEquals("Ljava/util/List<Ljakarta/servlet/Servlet;>;",
+			rule.transform("Ljava/util/List<Ljavax/servlet/Servlet;>;", SignatureType.FIELD));
+		Assertions.assertNull(rule.transform("Ljava/util/List<Ljava/lang/String;>;", SignatureType.FIELD));
+
+		// Simple substitutions are not rejected.
+		Assertions.assertEquals("jakarta.servlet.Servlet",
+			rule.transformDescriptor("javax.servlet.Servlet", SignatureRule.ALLOW_SIMPLE_SUBSTITUTION));
+	}
+}
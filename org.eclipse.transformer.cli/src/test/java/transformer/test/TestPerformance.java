@@ -0,0 +1,367 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import transformer.test.util.SyntheticArchives;
+
+/**
+ * Performance regression suite: Run the transformer over synthetic archives,
+ * and compare the throughput and the live heap usage of each run against a
+ * stored baseline.
+ * <p>
+ * Throughput is relative to the throughput of a calibration workload, which
+ * deflates and inflates fixed data, and which is run on the same host before
+ * the archives. This makes the baseline less sensitive to the speed of the
+ * host, but does not remove the sensitivity: The baseline should be
+ * regenerated when the suite is first run on a new host.
+ * <p>
+ * Live heap is the largest heap usage after a garbage collection during a
+ * run, or after a collection at the end of the run. Unlike the peak usage of
+ * the heap pools, which follows the capacity of the young generation, live
+ * heap grows with the data which is retained by the transformer.
+ * <p>
+ * The suite is only run when the system property "transformer.perf" is
+ * "true", which is set by the "perf" profile. The baseline is read from
+ * "transformer.perf.baseline", when set, and otherwise from the
+ * "perf-baseline.properties" test resource. The results of each run are
+ * written to "target/perf/results.properties", which may be copied over
+ * the baseline when a change in performance is expected.
+ */
+@EnabledIfSystemProperty(named = "transformer.perf", matches = "true")
+public class TestPerformance {
+
+	public static final String	BASELINE_RESOURCE	= "transformer/test/perf-baseline.properties";
+	public static final String	RESULTS_PATH		= "target/perf/results.properties";
+
+	/** Number of timed runs of each archive. The best run is used. */
+	public static final int		RUNS				= 3;
+
+	public static final String	THROUGHPUT			= "relativeThroughput";
+	public static final String	LIVE_HEAP			= "liveHeap";
+
+	/** Length of the data of the calibration workload. */
+	public static final int		CALIBRATION_LENGTH	= 16 * 1024 * 1024;
+
+	/** Throughput of the calibration workload, in MB per second. */
+	private static double		calibrationThroughput;
+
+	private static final TreeMap<String, String> results = new TreeMap<>();
+
+	public static SyntheticArchives createGenerator(String archiveName) {
+		SyntheticArchives generator = new SyntheticArchives();
+		switch (SyntheticArchives.ArchiveType.forName(archiveName)) {
+			case JAR:
+				return generator.setClassCount(3000)
+					.setTextCount(50)
+					.setNestedDepth(0);
+			case WAR:
+				return generator.setClassCount(500)
+					.setNestedDepth(1)
+					.setNestedCount(4);
+			default:
+				return generator.setClassCount(250)
+					.setNestedDepth(2)
+					.setNestedCount(4);
+		}
+	}
+
+	public static Properties loadBaseline() throws IOException {
+		Properties baseline = new Properties();
+		String baselinePath = System.getProperty("transformer.perf.baseline");
+		if (baselinePath != null) {
+			try (InputStream inputStream = Files.newInputStream(Paths.get(baselinePath))) {
+				baseline.load(inputStream); // throws IOException
+			}
+		} else {
+			try (InputStream inputStream = TestPerformance.class.getClassLoader()
+				.getResourceAsStream(BASELINE_RESOURCE)) {
+				Assertions.assertNotNull(inputStream, "Missing resource [ " + BASELINE_RESOURCE + " ]");
+				baseline.load(inputStream); // throws IOException
+			}
+		}
+		return baseline;
+	}
+
+	public static double getBaseline(Properties baseline, String key) {
+		String value = baseline.getProperty(key);
+		Assertions.assertNotNull(value, "No baseline [ " + key + " ]");
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * Run the calibration workload: Deflate and inflate fixed data, which has
+	 * the redundancy of text. The best of several runs is used.
+	 *
+	 * @return The throughput of the calibration workload, in MB per second.
+	 * @throws DataFormatException Thrown if the deflated data could not be
+	 *             inflated.
+	 */
+	public static double calibrate() throws DataFormatException {
+		byte[] data = new byte[CALIBRATION_LENGTH];
+		Random random = new Random(17);
+		for (int offset = 0; offset < data.length; offset++) {
+			data[offset] = (byte) ('a' + random.nextInt(16));
+		}
+		byte[] deflated = new byte[data.length + 1024];
+		byte[] inflated = new byte[data.length];
+
+		long bestNanos = Long.MAX_VALUE;
+		for (int runNo = 0; runNo < RUNS + 1; runNo++) {
+			long startNanos = System.nanoTime();
+
+			Deflater deflater = new Deflater();
+			deflater.setInput(data);
+			deflater.finish();
+			int deflatedLength = deflater.deflate(deflated);
+			deflater.end();
+
+			Inflater inflater = new Inflater();
+			inflater.setInput(deflated, 0, deflatedLength);
+			int inflatedLength = inflater.inflate(inflated); // throws DataFormatException
+			inflater.end();
+			Assertions.assertEquals(data.length, inflatedLength);
+
+			// The first run warms up.
+			if (runNo > 0) {
+				bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+			}
+		}
+
+		return (data.length / (1024.0 * 1024.0)) / (bestNanos / 1000000000.0);
+	}
+
+	/**
+	 * Records the largest heap usage after a garbage collection, using the
+	 * notifications of the garbage collectors.
+	 */
+	public static class LiveHeap implements NotificationListener {
+		private final Set<String>	heapPools			= new HashSet<>();
+		private final AtomicLong	peak				= new AtomicLong();
+		private final Semaphore		explicitCollections	= new Semaphore(0);
+
+		public void start() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					heapPools.add(pool.getName());
+				}
+			}
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) collector).addNotificationListener(this, null, null);
+			}
+		}
+
+		public void stop() throws ListenerNotFoundException {
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) collector).removeNotificationListener(this);
+			}
+		}
+
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+				return;
+			}
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+
+			long used = 0L;
+			for (Map.Entry<String, MemoryUsage> usage : info.getGcInfo()
+				.getMemoryUsageAfterGc()
+				.entrySet()) {
+				if (heapPools.contains(usage.getKey())) {
+					used += usage.getValue()
+						.getUsed();
+				}
+			}
+			peak.accumulateAndGet(used, Math::max);
+
+			if ("System.gc()".equals(info.getGcCause())) {
+				explicitCollections.release();
+			}
+		}
+
+		/**
+		 * Collect garbage, and wait for the notifications of all collections
+		 * up to and including that collection.
+		 */
+		private void collect() throws InterruptedException {
+			System.gc();
+			Assertions.assertTrue(explicitCollections.tryAcquire(10L, TimeUnit.SECONDS),
+				"No garbage collection notification");
+		}
+
+		/**
+		 * Collect garbage, then reset the live heap.
+		 *
+		 * @throws InterruptedException Thrown if interrupted while waiting for
+		 *             the collection.
+		 */
+		public void reset() throws InterruptedException {
+			collect();
+			peak.set(0L);
+		}
+
+		/**
+		 * Collect garbage, then answer the live heap since the last reset.
+		 *
+		 * @return The live heap, in bytes.
+		 * @throws InterruptedException Thrown if interrupted while waiting for
+		 *             the collection.
+		 */
+		public long measure() throws InterruptedException {
+			collect();
+			return peak.get();
+		}
+	}
+
+	private static final LiveHeap liveHeap = new LiveHeap();
+
+	@BeforeAll
+	public static void setUp() throws DataFormatException {
+		calibrationThroughput = calibrate();
+		System.out.printf("Performance calibration: [ %.2f ] MB/s%n", calibrationThroughput);
+
+		liveHeap.start();
+	}
+
+	public static void transform(Path inputPath, Path outputPath) {
+		PrintStream discard = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// Discard
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// Discard
+			}
+		});
+
+		Transformer trans = new Transformer(discard, discard);
+		trans.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		trans.setArgs(new String[] {
+			inputPath.toString(), outputPath.toString(), "-o", "-q"
+		});
+		Assertions.assertEquals(Transformer.SUCCESS_RC, trans.run(), "Failed to transform [ " + inputPath + " ]");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"synthetic.jar", "synthetic.war", "synthetic.ear"
+	})
+	public void testPerformance(String archiveName, @TempDir Path tempDir) throws IOException, InterruptedException {
+		Path inputPath = tempDir.resolve(archiveName);
+		Path outputPath = tempDir.resolve("output-" + archiveName);
+		long inputLength = createGenerator(archiveName).write(inputPath);
+
+		// Warm up: Load classes and rules, and compile the hot paths.
+		transform(inputPath, outputPath);
+
+		long bestNanos = Long.MAX_VALUE;
+		long liveBytes = 0L;
+		for (int runNo = 0; runNo < RUNS; runNo++) {
+			liveHeap.reset();
+			long startNanos = System.nanoTime();
+			transform(inputPath, outputPath);
+			bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+			liveBytes = Math.max(liveBytes, liveHeap.measure());
+		}
+
+		double throughput = (inputLength / (1024.0 * 1024.0)) / (bestNanos / 1000000000.0);
+		double relativeThroughput = throughput / calibrationThroughput;
+		double liveHeapMb = liveBytes / (1024.0 * 1024.0);
+
+		String prefix = archiveName.substring(archiveName.lastIndexOf('.') + 1);
+		System.out.printf(
+			"Performance [ %s ]: [ %d ] bytes, [ %.2f ] MB/s, relative throughput [ %.4f ], live heap [ %.1f ] MB%n",
+			archiveName, inputLength, throughput, relativeThroughput, liveHeapMb);
+
+		Properties baseline = loadBaseline();
+		double throughputTolerance = getBaseline(baseline, THROUGHPUT + ".tolerance");
+		double liveHeapTolerance = getBaseline(baseline, LIVE_HEAP + ".tolerance");
+
+		// Record the tolerances, so that the results may replace the baseline.
+		synchronized (results) {
+			results.put(prefix + '.' + THROUGHPUT, String.format("%.4f", relativeThroughput));
+			results.put(prefix + '.' + LIVE_HEAP, String.format("%.1f", liveHeapMb));
+			results.put(THROUGHPUT + ".tolerance", String.valueOf(throughputTolerance));
+			results.put(LIVE_HEAP + ".tolerance", String.valueOf(liveHeapTolerance));
+		}
+
+		double minThroughput = getBaseline(baseline, prefix + '.' + THROUGHPUT) * (1.0 - throughputTolerance);
+		Assertions.assertTrue(relativeThroughput >= minThroughput,
+			String.format("Relative throughput [ %.4f ] of [ %s ] is below [ %.4f ]", relativeThroughput,
+				archiveName, minThroughput));
+
+		double maxLiveHeap = getBaseline(baseline, prefix + '.' + LIVE_HEAP) * (1.0 + liveHeapTolerance);
+		Assertions.assertTrue(liveHeapMb <= maxLiveHeap, String
+			.format("Live heap [ %.1f ] MB of [ %s ] is above [ %.1f ] MB", liveHeapMb, archiveName, maxLiveHeap));
+	}
+
+	@AfterAll
+	public static void writeResults() throws IOException, ListenerNotFoundException {
+		liveHeap.stop();
+
+		if (results.isEmpty()) {
+			return;
+		}
+		Path resultsPath = Paths.get(RESULTS_PATH);
+		Files.createDirectories(resultsPath.getParent());
+		try (PrintStream resultsStream = new PrintStream(Files.newOutputStream(resultsPath), false, "UTF-8")) {
+			for (Map.Entry<String, String> result : results.entrySet()) {
+				resultsStream.println(result.getKey() + '=' + result.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.createSignatureRule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.util.Progress;
+import org.eclipse.transformer.util.ProgressSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+
+/**
+ * Verify the progress which is recorded while transforming an archive, and
+ * while transforming a directory.
+ */
+public class TestProgress {
+
+	public static int countEntries(byte[] archiveBytes) throws IOException {
+		int entries = 0;
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archiveBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				entries++;
+				String name = entry.getName();
+				if (name.endsWith(".jar") || name.endsWith(".war")) {
+					entries += countEntries(TestStreamedTransform.read(name, zipInputStream));
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Test
+	public void testProgress() throws IOException, TransformException {
+		byte[] earBytes = TestNestedParallel.createEar();
+
+		List<Boolean> reports = new ArrayList<>();
+		Progress progress = new Progress((useProgress, done) -> reports.add(done), 0L);
+
+		EarActionImpl earAction = TestNestedParallel.getEarAction(TestNestedParallel.createTree());
+		earAction.getSettings()
+			.setProgress(progress);
+
+		progress.start();
+		TestNestedParallel.transform(earAction, earBytes);
+		progress.stop();
+
+		// Only the final report is made when no period is set.
+		Assertions.assertEquals(1, reports.size());
+		Assertions.assertTrue(reports.get(0));
+
+		// Entries of nested archives are counted, while bytes are counted
+		// from the outermost archive.
+		Assertions.assertEquals(countEntries(earBytes), progress.getEntries());
+		Assertions.assertEquals(earBytes.length, progress.getTotalBytes());
+		// The central directory of the archive is not read.
+		Assertions.assertTrue(progress.getBytes() > (earBytes.length * 9L) / 10L, "Too few bytes");
+		Assertions.assertTrue(progress.getBytes() <= earBytes.length, "Too many bytes");
+		Assertions.assertEquals(0L, progress.getEtaSeconds());
+		Assertions.assertEquals("sample.ear!/notes.txt", progress.getCurrentPath());
+		Assertions.assertTrue(progress.getBytesPerSecond() > 0.0);
+	}
+
+	@Test
+	public void testPeriodicJson() throws Exception {
+		ByteArrayOutputStream jsonBytes = new ByteArrayOutputStream();
+		PrintStream jsonStream = new PrintStream(jsonBytes, true, "UTF-8");
+
+		Progress progress = new Progress(ProgressSink.json(jsonStream), 10L);
+		progress.start();
+		progress.enterArchive("sample \"quoted\".jar", 100L, () -> 40L);
+		progress.addEntry("a.txt", 10L);
+		Thread.sleep(100L);
+		progress.exitArchive();
+		progress.stop();
+
+		String[] lines = jsonBytes.toString("UTF-8")
+			.split("\n");
+		Assertions.assertTrue(lines.length > 1, "No periodic reports");
+		for (int lineNo = 0; lineNo < lines.length - 1; lineNo++) {
+			Assertions.assertTrue(lines[lineNo].startsWith("{ \"done\": false,"), lines[lineNo]);
+		}
+
+		String lastLine = lines[lines.length - 1];
+		Assertions.assertTrue(lastLine.startsWith("{ \"done\": true,"), lastLine);
+		Assertions.assertTrue(lastLine.contains("\"entries\": 1,"), lastLine);
+		Assertions.assertTrue(lastLine.contains("\"bytes\": 40, \"totalBytes\": 100,"), lastLine);
+		Assertions.assertTrue(lastLine.endsWith("\"path\": \"sample \\\"quoted\\\".jar!/a.txt\" }"), lastLine);
+	}
+
+	public static final String	TEST_OUTPUT_PATH	= "target/test/data/progress";
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestProgress.class);
+
+	public static DirectoryActionImpl createDirectoryAction(Progress progress) {
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(LOGGER, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()),
+			createSignatureRule(LOGGER, Collections.emptyMap(), null));
+
+		JarActionImpl jarAction = directoryAction.addUsing(JarActionImpl::new);
+		NullActionImpl nullAction = directoryAction.addUsing(NullActionImpl::new);
+		jarAction.addAction(nullAction);
+
+		directoryAction.getSettings()
+			.setProgress(progress);
+		return directoryAction;
+	}
+
+	@Test
+	public void testDirectoryProgress() throws IOException, TransformException {
+		File inputDir = IO.getFile(TEST_OUTPUT_PATH + "/input");
+		IO.delete(inputDir);
+		IO.mkdirs(new File(inputDir, "lib"));
+
+		Map<String, byte[]> jarEntries = new LinkedHashMap<>();
+		jarEntries.put("a.txt", new byte[20000]);
+		jarEntries.put("b.txt", new byte[30000]);
+		byte[] jarBytes = createArchive(jarEntries);
+		IO.copy(jarBytes, new File(inputDir, "lib/sample.jar"));
+		IO.store("notes", new File(inputDir, "notes.txt"));
+
+		long totalLength = jarBytes.length + "notes".length();
+
+		for (boolean isParallel : new boolean[] {
+			false, true
+		}) {
+			File outputDir = IO.getFile(TEST_OUTPUT_PATH + "/output");
+			IO.delete(outputDir);
+
+			Progress progress = new Progress((useProgress, done) -> {}, 0L);
+			DirectoryActionImpl directoryAction = createDirectoryAction(progress);
+			if (isParallel) {
+				directoryAction.setParallelism(2, () -> createDirectoryAction(progress));
+			}
+
+			progress.start();
+			directoryAction.apply("input", inputDir, outputDir);
+			progress.stop();
+
+			// The total is the length of the input files. The bytes of the
+			// entries of the archive are counted once, as the length of the
+			// archive.
+			Assertions.assertEquals(2L + jarEntries.size(), progress.getEntries());
+			Assertions.assertEquals(totalLength, progress.getTotalBytes());
+			Assertions.assertEquals(totalLength, progress.getBytes());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createTextWarAction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ContainerActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import transformer.test.util.SampleArchives;
+
+/**
+ * Verify that archive entry metadata is transferred to output archives, and
+ * that reproducible output is byte identical across transforms.
+ */
+public class TestReproducibleOutput {
+
+	public static final String	NESTED_JAR_NAME		= "WEB-INF/lib/nested.jar";
+	public static final String	STORED_TEXT_NAME	= "WEB-INF/stored.txt";
+	public static final String	DEFLATED_TEXT_NAME	= "WEB-INF/deflated.txt";
+	public static final String	DATA_NAME			= "WEB-INF/data.bin";
+
+	/** An extra field which is not a time field. */
+	public static final byte[]	CUSTOM_EXTRA		= new byte[] {
+		(byte) 0xFE, (byte) 0xCA, 2, 0, 1, 2
+	};
+
+	public static final int		EXTENDED_TIME_ID	= 0x5455;
+	public static final int		CUSTOM_ID			= 0xCAFE;
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestReproducibleOutput.class);
+
+	public static WarActionImpl reproducible(WarActionImpl warAction) {
+		warAction.getSettings()
+			.setPreserveMethod(true);
+		warAction.getSettings()
+			.setEntryTime(ContainerActionImpl.REPRODUCIBLE_ENTRY_TIME);
+		return warAction;
+	}
+
+	public static void putEntry(ZipOutputStream zipOutputStream, String name, byte[] data, boolean stored,
+		long time) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		// Setting the last modified time adds an extended time extra field.
+		entry.setLastModifiedTime(FileTime.fromMillis(time));
+		entry.setExtra(CUSTOM_EXTRA);
+		if (stored) {
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			entry.setCrc(crc.getValue());
+		}
+		zipOutputStream.putNextEntry(entry);
+		zipOutputStream.write(data);
+		zipOutputStream.closeEntry();
+	}
+
+	public byte[] createWar(long time) throws IOException {
+		ByteArrayOutputStream jarStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(jarStream)) {
+			putEntry(zipOutputStream, "nested.txt", "Uses javax.inject.Inject\n".getBytes(UTF_8), false, time);
+			putEntry(zipOutputStream, "nested.bin", new byte[] {
+				1, 2, 3
+			}, true, time);
+		}
+
+		ByteArrayOutputStream warStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(warStream)) {
+			putEntry(zipOutputStream, NESTED_JAR_NAME, jarStream.toByteArray(), true, time);
+			putEntry(zipOutputStream, STORED_TEXT_NAME, "Uses javax.inject.Named\n".getBytes(UTF_8), true,
+				time + 2000L);
+			putEntry(zipOutputStream, DEFLATED_TEXT_NAME, "Uses javax.inject.Provider\n".getBytes(UTF_8), false,
+				time + 4000L);
+			putEntry(zipOutputStream, DATA_NAME, new byte[] {
+				4, 5, 6
+			}, true, time + 6000L);
+		}
+		return warStream.toByteArray();
+	}
+
+	public byte[] transform(WarActionImpl warAction, byte[] warBytes) throws TransformException {
+		byte[] outputBytes = SampleArchives.transform(warAction, warBytes);
+		Assertions.assertTrue(warAction.getLastActiveChanges()
+			.hasChanges(), "No changes");
+		return outputBytes;
+	}
+
+	public static Map<String, ZipEntry> readEntries(byte[] archiveBytes) throws IOException {
+		Map<String, ZipEntry> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archiveBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				if (entry.getName()
+					.endsWith(".jar")) {
+					ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+					FileUtils.transfer(zipInputStream, dataStream);
+					readEntries(dataStream.toByteArray()).forEach(entries::put);
+				}
+				entries.put(entry.getName(), entry);
+			}
+		}
+		return entries;
+	}
+
+	public static boolean hasExtra(ZipEntry entry, int extraId) {
+		byte[] extra = entry.getExtra();
+		if (extra == null) {
+			return false;
+		}
+		for (int offset = 0; offset + 4 <= extra.length;) {
+			int id = (extra[offset] & 0xFF) | ((extra[offset + 1] & 0xFF) << 8);
+			if (id == extraId) {
+				return true;
+			}
+			offset += 4 + ((extra[offset + 2] & 0xFF) | ((extra[offset + 3] & 0xFF) << 8));
+		}
+		return false;
+	}
+
+	@Test
+	public void testPreservedMetadata() throws IOException, TransformException {
+		long time = Instant.parse("2020-06-15T10:30:00Z")
+			.toEpochMilli();
+
+		byte[] inputBytes = createWar(time);
+		Map<String, ZipEntry> inputEntries = readEntries(inputBytes);
+
+		WarActionImpl warAction = createTextWarAction(LOGGER);
+		Map<String, ZipEntry> outputEntries = readEntries(transform(warAction, inputBytes));
+
+		Assertions.assertEquals(inputEntries.keySet(), outputEntries.keySet());
+		inputEntries.forEach((name, inputEntry) -> {
+			ZipEntry outputEntry = outputEntries.get(name);
+			Assertions.assertEquals(inputEntry.getTime(), outputEntry.getTime(), name);
+			Assertions.assertTrue(hasExtra(outputEntry, CUSTOM_ID), name);
+			// Compression methods are not preserved by default.
+			Assertions.assertEquals(ZipEntry.DEFLATED, outputEntry.getMethod(), name);
+		});
+	}
+
+	@Test
+	public void testReproducible() throws IOException, TransformException {
+		WarActionImpl warAction = reproducible(createTextWarAction(LOGGER));
+
+		byte[] inputBytes = createWar(Instant.parse("2020-06-15T10:30:00Z")
+			.toEpochMilli());
+		byte[] otherInputBytes = createWar(Instant.parse("2021-01-02T03:04:05Z")
+			.toEpochMilli());
+
+		byte[] outputBytes = transform(warAction, inputBytes);
+		Assertions.assertArrayEquals(outputBytes, transform(warAction, inputBytes));
+		// Only the entry times differ between the inputs.
+		Assertions.assertArrayEquals(outputBytes, transform(reproducible(createTextWarAction(LOGGER)), otherInputBytes));
+
+		Map<String, ZipEntry> inputEntries = readEntries(inputBytes);
+		Map<String, ZipEntry> outputEntries = readEntries(outputBytes);
+		Assertions.assertEquals(inputEntries.keySet(), outputEntries.keySet());
+
+		LocalDateTime expectedTime = LocalDateTime.of(1980, 2, 1, 0, 0);
+		inputEntries.forEach((name, inputEntry) -> {
+			ZipEntry outputEntry = outputEntries.get(name);
+			Assertions.assertEquals(expectedTime, LocalDateTime.ofInstant(Instant.ofEpochMilli(outputEntry.getTime()),
+				ZoneId.systemDefault()), name);
+			Assertions.assertEquals(inputEntry.getMethod(), outputEntry.getMethod(), name);
+			Assertions.assertTrue(hasExtra(outputEntry, CUSTOM_ID), name);
+			Assertions.assertFalse(hasExtra(outputEntry, EXTENDED_TIME_ID), name);
+		});
+		Assertions.assertEquals(ZipEntry.STORED, outputEntries.get(NESTED_JAR_NAME)
+			.getMethod());
+		Assertions.assertEquals(ZipEntry.STORED, outputEntries.get(STORED_TEXT_NAME)
+			.getMethod());
+	}
+}
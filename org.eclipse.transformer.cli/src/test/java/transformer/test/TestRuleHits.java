@@ -0,0 +1,152 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveWorkers;
+import org.eclipse.transformer.action.impl.PackageHeaderRewriter;
+import org.eclipse.transformer.util.RuleHits;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Verify the counting, reporting, and merging of rule hits.
+ */
+public class TestRuleHits {
+
+	public static final String TEXT_RULE = "*.txt:javax.inject";
+
+	public RuleHits transform() throws IOException, TransformException {
+		EarActionImpl earAction = TestNestedParallel.getEarAction(TestNestedParallel.createTree());
+
+		RuleHits ruleHits = new RuleHits("input");
+		earAction.getSignatureRule()
+			.setRuleHits(ruleHits);
+
+		TestNestedParallel.transform(earAction, TestNestedParallel.createEar());
+		return ruleHits;
+	}
+
+	@Test
+	public void testRuleHits() throws IOException, TransformException {
+		RuleHits ruleHits = transform();
+
+		// Each text file of the sample EAR has one reference.
+		Map<String, Long> artifactHits = ruleHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE);
+		Assertions.assertEquals(Long.valueOf(1L), artifactHits.get("sample.ear"));
+		Assertions.assertEquals(Long.valueOf(7L), artifactHits.get("sample.ear!/sample0.war"));
+		Assertions.assertEquals(Long.valueOf(1L), artifactHits.get("sample.ear!/sample0.war!/WEB-INF/lib/sample0.jar"));
+		Assertions.assertEquals(Long.valueOf(1L), artifactHits.get("sample.ear!/lib/util2.jar"));
+		Assertions.assertEquals(1L + (3L * 7L) + (3L * 6L) + 3L, ruleHits.getHits(RuleHits.TEXT, TEXT_RULE));
+
+		// The sample EAR has no classes: The package rename is not used.
+		Assertions.assertEquals(Collections.singletonList("javax.inject"), ruleHits.getUnused(RuleHits.RENAME));
+		Assertions.assertEquals(Collections.emptyList(), ruleHits.getUnused(RuleHits.TEXT));
+	}
+
+	@Test
+	public void testNestedParallelHits() throws IOException, TransformException {
+		RuleHits serialHits = transform();
+
+		RuleHits parallelHits = new RuleHits("input");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NestedArchiveWorkers[] workers = new NestedArchiveWorkers[1];
+			workers[0] = new NestedArchiveWorkers(pool, () -> {
+				CompositeActionImpl workerTree = TestNestedParallel.createTree();
+				EarActionImpl workerAction = TestNestedParallel.getEarAction(workerTree);
+				workerAction.getSignatureRule()
+					.setRuleHits(parallelHits);
+				workerAction.getSettings()
+					.setNestedWorkers(workers[0]);
+				return workerTree;
+			});
+
+			EarActionImpl earAction = TestNestedParallel.getEarAction(TestNestedParallel.createTree());
+			earAction.getSignatureRule()
+				.setRuleHits(parallelHits);
+			earAction.getSettings()
+				.setNestedWorkers(workers[0]);
+
+			TestNestedParallel.transform(earAction, TestNestedParallel.createEar());
+		} finally {
+			pool.shutdown();
+		}
+
+		// Hits within nested archives which are transformed by worker threads
+		// are counted against the same artifacts as when transformed serially.
+		Assertions.assertEquals(serialHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE),
+			parallelHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE));
+		Assertions.assertEquals(serialHits.getHits(RuleHits.TEXT, TEXT_RULE),
+			parallelHits.getHits(RuleHits.TEXT, TEXT_RULE));
+	}
+
+	@Test
+	public void testMerge(@TempDir Path tempDir) throws IOException, TransformException {
+		RuleHits ruleHits = transform();
+
+		Path reportPath = tempDir.resolve("rule,hits.csv");
+		try (PrintStream reportStream = new PrintStream(Files.newOutputStream(reportPath), false, "UTF-8")) {
+			ruleHits.writeCsv(reportStream);
+		}
+
+		RuleHits readHits = RuleHits.readCsv(reportPath, "input");
+		Assertions.assertEquals(ruleHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE),
+			readHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE));
+		Assertions.assertEquals(ruleHits.getUnused(RuleHits.RENAME), readHits.getUnused(RuleHits.RENAME));
+
+		// Merging adds the hits of each rule and artifact. Unused rules remain
+		// unused.
+		readHits.merge(ruleHits);
+		Assertions.assertEquals(2L * ruleHits.getHits(RuleHits.TEXT, TEXT_RULE),
+			readHits.getHits(RuleHits.TEXT, TEXT_RULE));
+		Assertions.assertEquals(Long.valueOf(2L), readHits.getArtifactHits(RuleHits.TEXT, TEXT_RULE)
+			.get("sample.ear"));
+		Assertions.assertEquals(Collections.singletonList("javax.inject"), readHits.getUnused(RuleHits.RENAME));
+
+		String report = new String(Files.readAllBytes(reportPath), UTF_8);
+		Assertions.assertTrue(report.startsWith(RuleHits.CSV_HEADER + '\n'), report);
+		Assertions.assertTrue(report.contains("rename,javax.inject,,0\n"), report);
+	}
+
+	@Test
+	public void testManifestHits() {
+		RuleHits ruleHits = new RuleHits("MANIFEST.MF");
+		ruleHits.declare(RuleHits.RENAME, "javax.servlet.*");
+
+		PackageHeaderRewriter rewriter = new PackageHeaderRewriter(
+			Collections.singletonMap("javax.servlet.*", "jakarta.servlet"),
+			Collections.singletonMap("jakarta.servlet", "[5.0,6)"), ruleHits);
+
+		String header = rewriter.rewrite("javax.servlet;version=\"[4.0,5)\",javax.servlet.http,org.other");
+		Assertions.assertEquals("jakarta.servlet;version=\"[5.0,6)\",jakarta.servlet.http,org.other", header);
+
+		Assertions.assertEquals(2L, ruleHits.getHits(RuleHits.RENAME, "javax.servlet.*"));
+		Assertions.assertEquals(1L, ruleHits.getHits(RuleHits.VERSION, "jakarta.servlet"));
+		Assertions.assertEquals(Collections.singletonMap("MANIFEST.MF", 2L),
+			ruleHits.getArtifactHits(RuleHits.RENAME, "javax.servlet.*"));
+	}
+}
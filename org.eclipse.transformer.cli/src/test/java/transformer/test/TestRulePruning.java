@@ -0,0 +1,167 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.assertEntries;
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.readResource;
+import static transformer.test.util.SampleArchives.readStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.ReferenceScanner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+import transformer.test.util.SampleArchives;
+
+/**
+ * Verify the pruning of rules to the references of an input.
+ */
+public class TestRulePruning {
+
+	public static final Logger	LOGGER				= LoggerFactory.getLogger(TestRulePruning.class);
+
+	public static final String	JAVAX_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+
+	public static SignatureRuleImpl createRule() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.inject", "jakarta.inject");
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		renames.put("javax.mail", "jakarta.mail");
+
+		Map<String, String> versions = new HashMap<>();
+		versions.put("jakarta.inject", "[2.0,3)");
+		versions.put("jakarta.servlet", "[5.0,6)");
+		versions.put("jakarta.ejb", "[4.0,5)");
+
+		Map<String, String> textUpdates = new LinkedHashMap<>();
+		textUpdates.put("javax.servlet", "jakarta.servlet");
+		textUpdates.put("javax.ejb", "jakarta.ejb");
+
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", textUpdates);
+		masterTextUpdates.put("*.xml", Collections.singletonMap("javax.mail", "jakarta.mail"));
+
+		return new SignatureRuleImpl(LOGGER, renames, versions, null, masterTextUpdates, null,
+			Collections.emptyMap());
+	}
+
+	public static WarActionImpl createWarAction(SignatureRuleImpl signatureRule) {
+		return SampleArchives.createWarAction(LOGGER, signatureRule, ClassActionImpl::new,
+			ServiceLoaderConfigActionImpl::new, ManifestActionImpl::newManifestAction, TextActionImpl::new);
+	}
+
+	public byte[] createWar() throws IOException {
+		byte[] classBytes = readResource(JAVAX_RESOURCE_NAME);
+
+		Map<String, byte[]> jarEntries = new LinkedHashMap<>();
+		jarEntries.put("META-INF/MANIFEST.MF", ("Manifest-Version: 1.0\r\n"
+			+ "Import-Package: javax.servlet.http;version=\"[4.0,5)\"\r\n\r\n").getBytes(UTF_8));
+		jarEntries.put(JAVAX_RESOURCE_NAME, classBytes);
+		jarEntries.put("META-INF/services/javax.servlet.ServletContainerInitializer",
+			"sample.Initializer\n".getBytes(UTF_8));
+		jarEntries.put("notes.xml", "<mail/>\n".getBytes(UTF_8));
+
+		Map<String, byte[]> warEntries = new LinkedHashMap<>();
+		warEntries.put("WEB-INF/lib/sample.jar", createArchive(jarEntries));
+		warEntries.put("readme.txt", "Uses javax.servlet.http\n".getBytes(UTF_8));
+		return createArchive(warEntries);
+	}
+
+	public static byte[] transform(SignatureRuleImpl signatureRule, byte[] warBytes) throws TransformException {
+		return SampleArchives.transform(createWarAction(signatureRule), warBytes);
+	}
+
+	@Test
+	public void testScanner() throws IOException {
+		ReferenceScanner scanner = new ReferenceScanner(Arrays.asList("he", "she", "hers", "his", "", "missing"));
+
+		// Matches overlap, and span the scanner buffers.
+		byte[] data = new byte[100000];
+		Arrays.fill(data, (byte) 'x');
+		System.arraycopy("ushers".getBytes(UTF_8), 0, data, 32 * 1024 - 3, 6);
+		scanner.scan(new ByteArrayInputStream(data));
+
+		Assertions.assertEquals(new TreeSet<>(Arrays.asList("he", "hers", "she")), scanner.getReferenced());
+		Assertions.assertFalse(scanner.isReferenced("his"));
+		Assertions.assertFalse(scanner.isReferenced(""));
+		Assertions.assertFalse(scanner.isComplete());
+		Assertions.assertEquals(data.length, scanner.getScannedBytes());
+
+		// Names are scanned, but do not continue matches.
+		scanner.scanName("h");
+		scanner.scanName("is");
+		Assertions.assertFalse(scanner.isReferenced("his"));
+		scanner.scanName("this");
+		Assertions.assertTrue(scanner.isReferenced("his"));
+	}
+
+	@Test
+	public void testPrune() throws IOException, TransformException {
+		byte[] warBytes = createWar();
+
+		SignatureRuleImpl signatureRule = createRule();
+		ReferenceScanner scanner = new ReferenceScanner(signatureRule.getReferenceCandidates());
+		scanner.scan(new ByteArrayInputStream(warBytes));
+
+		// The nested class references javax/inject; the service file name,
+		// the manifest, and the text reference javax.servlet. Neither javax.ejb nor javax.mail
+		// is referenced.
+
+		SignatureRuleImpl prunedRule = signatureRule.prune(scanner::isReferenced);
+		Assertions.assertEquals(new TreeSet<>(Arrays.asList("javax.inject", "javax.servlet")),
+			new TreeSet<>(prunedRule.getPackageRenames()
+				.keySet()));
+		Assertions.assertEquals(new TreeSet<>(Arrays.asList("jakarta.inject", "jakarta.servlet")),
+			new TreeSet<>(prunedRule.getPackageVersions()
+				.keySet()));
+		Assertions.assertEquals(Collections.singletonMap("javax.servlet", "jakarta.servlet"),
+			prunedRule.getTextSubstitutions("readme.txt"));
+		// The file selection is retained, with no substitutions.
+		Assertions.assertEquals(Collections.emptyMap(), prunedRule.getTextSubstitutions("notes.xml"));
+
+		// The pruned rules transform the input the same as the full rules.
+
+		byte[] fullBytes = transform(createRule(), warBytes);
+		byte[] prunedBytes = transform(prunedRule, warBytes);
+
+		Map<String, byte[]> fullEntries = readStream(fullBytes);
+		Map<String, byte[]> prunedEntries = readStream(prunedBytes);
+		Map<String, byte[]> fullJarEntries = readStream(fullEntries.remove("WEB-INF/lib/sample.jar"));
+		Map<String, byte[]> prunedJarEntries = readStream(prunedEntries.remove("WEB-INF/lib/sample.jar"));
+		Assertions.assertTrue(fullJarEntries.containsKey("META-INF/services/jakarta.servlet.ServletContainerInitializer"));
+		assertEntries(fullJarEntries, prunedJarEntries);
+		assertEntries(fullEntries, prunedEntries);
+	}
+}
@@ -0,0 +1,157 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static transformer.test.util.SampleArchives.createArchive;
+import static transformer.test.util.SampleArchives.readResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Jakarta;
+import transformer.test.data.Sample_InjectAPI_Javax;
+import transformer.test.util.CaptureLoggerImpl;
+import transformer.test.util.SampleArchives;
+
+public class TestScan extends CaptureTest {
+
+	public static final String	JAVAX_INJECT_PACKAGE_NAME	= "javax.inject";
+	public static final String	JAKARTA_INJECT_PACKAGE_NAME	= "jakarta.inject";
+
+	public static final String	JAVAX_CLASS_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+	public static final String	JAKARTA_CLASS_RESOURCE_NAME	= ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Jakarta.class.getName());
+
+	public static final String	CLASS_ACTION_NAME			= "Class Action";
+	public static final String	JAR_ACTION_NAME				= "Jar Action";
+
+	public Map<String, String> getToJakartaRenames() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put(JAVAX_INJECT_PACKAGE_NAME, JAKARTA_INJECT_PACKAGE_NAME);
+		return renames;
+	}
+
+	public WarActionImpl createWarAction() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		return SampleArchives.createWarAction(useLogger,
+			createSignatureRule(useLogger, getToJakartaRenames(), null, null, null, Collections.emptyMap()),
+			ClassActionImpl::new);
+	}
+
+	public byte[] createWar(boolean includeJavax) throws IOException {
+		Map<String, byte[]> jarEntries = new HashMap<>();
+		jarEntries.put(JAKARTA_CLASS_RESOURCE_NAME, readResource(JAKARTA_CLASS_RESOURCE_NAME));
+		if (includeJavax) {
+			jarEntries.put(JAVAX_CLASS_RESOURCE_NAME, readResource(JAVAX_CLASS_RESOURCE_NAME));
+		}
+		jarEntries.put("META-INF/readme.txt", new byte[] {
+			'r', 'e', 'a', 'd', 'm', 'e'
+		});
+
+		Map<String, byte[]> warEntries = new HashMap<>();
+		warEntries.put("WEB-INF/lib/sample.jar", createArchive(jarEntries));
+		warEntries.put("WEB-INF/classes/" + JAKARTA_CLASS_RESOURCE_NAME, readResource(JAKARTA_CLASS_RESOURCE_NAME));
+
+		return createArchive(warEntries);
+	}
+
+	@Test
+	public void testScanMatchesTransform() throws IOException, TransformException {
+		byte[] warBytes = createWar(true);
+
+		WarActionImpl scanAction = createWarAction();
+		scanAction.scan("sample.war", new ByteArrayInputStream(warBytes), warBytes.length);
+		ContainerChangesImpl scanChanges = scanAction.getLastActiveChanges();
+
+		WarActionImpl applyAction = createWarAction();
+		applyAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length,
+			new ByteArrayOutputStream());
+		ContainerChangesImpl applyChanges = applyAction.getLastActiveChanges();
+
+		Assertions.assertTrue(scanChanges.hasNonResourceNameChanges(), "Scan did not detect changes");
+
+		Assertions.assertEquals(applyChanges.getAllResources(), scanChanges.getAllResources());
+		Assertions.assertEquals(applyChanges.getAllChanged(), scanChanges.getAllChanged());
+		Assertions.assertEquals(applyChanges.getChanged(JAR_ACTION_NAME), scanChanges.getChanged(JAR_ACTION_NAME));
+		Assertions.assertEquals(applyChanges.getUnchanged(CLASS_ACTION_NAME),
+			scanChanges.getUnchanged(CLASS_ACTION_NAME));
+
+		ContainerChangesImpl scanNested = scanChanges.getNestedChanges();
+		ContainerChangesImpl applyNested = applyChanges.getNestedChanges();
+		Assertions.assertNotNull(scanNested, "Scan did not record nested changes");
+		Assertions.assertEquals(applyNested.getAllResources(), scanNested.getAllResources());
+		Assertions.assertEquals(applyNested.getChanged(CLASS_ACTION_NAME), scanNested.getChanged(CLASS_ACTION_NAME));
+		Assertions.assertEquals(1, scanNested.getChanged(CLASS_ACTION_NAME));
+	}
+
+	@Test
+	public void testScanUnchanged() throws IOException, TransformException {
+		byte[] warBytes = createWar(false);
+
+		WarActionImpl scanAction = createWarAction();
+		scanAction.scan("sample.war", new ByteArrayInputStream(warBytes), warBytes.length);
+		ContainerChangesImpl scanChanges = scanAction.getLastActiveChanges();
+
+		Assertions.assertFalse(scanChanges.hasNonResourceNameChanges(), "Scan detected unexpected changes");
+		Assertions.assertEquals(2, scanChanges.getAllResources());
+		Assertions.assertEquals(0, scanChanges.getNestedChanges()
+			.getAllChanged());
+	}
+
+	@Test
+	public void testScanUnreadableDirectory() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(useLogger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(useLogger, Collections.emptySet(), Collections.emptySet()),
+			createSignatureRule(useLogger, getToJakartaRenames(), null, null, null, Collections.emptyMap()));
+		directoryAction.addUsing(ClassActionImpl::new);
+
+		// A directory which cannot be listed, as when the directory is not
+		// readable.
+		File unreadableDir = new File("target/test/data/scan/unreadable") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean isDirectory() {
+				return true;
+			}
+
+			@Override
+			public File[] listFiles() {
+				return null;
+			}
+		};
+
+		TransformException failure = Assertions.assertThrows(TransformException.class,
+			() -> directoryAction.scan("unreadable", unreadableDir));
+		Assertions.assertTrue(failure.getMessage()
+			.contains(unreadableDir.getAbsolutePath()), failure.getMessage());
+	}
+}
@@ -0,0 +1,121 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static transformer.test.util.SampleArchives.createArchive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+/**
+ * Verify that archives may be read from and written to streams, in place of
+ * input and output files.
+ */
+public class TestStreamedTransform {
+
+	public static final String JAVAX_CLASS_RESOURCE_NAME = ClassActionImpl
+		.classNameToResourceName(Sample_InjectAPI_Javax.class.getName());
+
+	public static byte[] read(String name, InputStream inputStream) throws IOException {
+		ByteData data = FileUtils.read(name, inputStream);
+		return Arrays.copyOf(data.data, data.length);
+	}
+
+	public byte[] createJar() throws IOException {
+		byte[] classBytes;
+		try (InputStream inputStream = getClass().getClassLoader()
+			.getResourceAsStream(JAVAX_CLASS_RESOURCE_NAME)) {
+			Assertions.assertNotNull(inputStream, "Missing resource [ " + JAVAX_CLASS_RESOURCE_NAME + " ]");
+			classBytes = read(JAVAX_CLASS_RESOURCE_NAME, inputStream);
+		}
+
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("META-INF/readme.txt", "readme\n".getBytes(UTF_8));
+		entries.put(JAVAX_CLASS_RESOURCE_NAME, classBytes);
+		return createArchive(entries);
+	}
+
+	public int run(byte[] inputBytes, ByteArrayOutputStream outputStream, ByteArrayOutputStream messages,
+		String... args) {
+
+		PrintStream sysOut = new PrintStream(messages, true);
+
+		Transformer trans = new Transformer(sysOut, sysOut);
+		trans.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		trans.setStreams(new ByteArrayInputStream(inputBytes), outputStream);
+		trans.setArgs(args);
+		return trans.run();
+	}
+
+	@Test
+	public void testStreamedTransform() throws IOException {
+		byte[] jarBytes = createJar();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		int rc = run(jarBytes, outputStream, messages, "-", "-", "-t", "jar");
+		Assertions.assertEquals(Transformer.SUCCESS_RC, rc, messages.toString("UTF-8"));
+
+		// The output stream receives only the transformed archive.
+		byte[] outputBytes = outputStream.toByteArray();
+		Map<String, byte[]> outputEntries = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				outputEntries.put(entry.getName(), read(entry.getName(), zipInputStream));
+			}
+		}
+		Assertions.assertEquals(2, outputEntries.size());
+		Assertions.assertArrayEquals("readme\n".getBytes(UTF_8), outputEntries.get("META-INF/readme.txt"));
+
+		String outputClass = new String(outputEntries.get(JAVAX_CLASS_RESOURCE_NAME), UTF_8);
+		Assertions.assertTrue(outputClass.contains("jakarta/inject"), "Class was not transformed");
+		Assertions.assertFalse(outputClass.contains("javax/inject"), "Class was not transformed");
+	}
+
+	@Test
+	public void testStreamedTypeRequired() {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		int rc = run(new byte[0], outputStream, messages, "-", "-");
+		Assertions.assertEquals(Transformer.FILE_TYPE_ERROR_RC, rc);
+		Assertions.assertEquals(0, outputStream.size());
+	}
+
+	@Test
+	public void testStreamedNonArchive() {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		int rc = run(new byte[0], outputStream, messages, "-", "-", "-t", "class");
+		Assertions.assertEquals(Transformer.TRANSFORM_ERROR_RC, rc);
+	}
+}
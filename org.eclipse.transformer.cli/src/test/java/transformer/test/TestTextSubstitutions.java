@@ -0,0 +1,109 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextReplacer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestTextSubstitutions {
+
+	private final Logger logger = LoggerFactory.getLogger(TestTextSubstitutions.class);
+
+	public SignatureRuleImpl createSignatureRule(Map<String, Map<String, String>> masterTextUpdates) {
+		return new SignatureRuleImpl(logger, null, null, null, masterTextUpdates, null, Collections.emptyMap());
+	}
+
+	@Test
+	public void testSelection() {
+		Map<String, String> webXmlUpdates = Collections.singletonMap("javax", "web.xml");
+		Map<String, String> webStarUpdates = Collections.singletonMap("javax", "web*.xml");
+		Map<String, String> xmlUpdates = Collections.singletonMap("javax", "*.xml");
+		Map<String, String> allUpdates = Collections.singletonMap("javax", "*");
+
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("web.xml", webXmlUpdates);
+		masterTextUpdates.put("web*.xml", webStarUpdates);
+		masterTextUpdates.put("*.xml", xmlUpdates);
+		masterTextUpdates.put("*", allUpdates);
+
+		SignatureRuleImpl signatureRule = createSignatureRule(masterTextUpdates);
+
+		// Specific selectors are used first, then wildcard selectors, most
+		// specific first.
+
+		assertSame(webXmlUpdates, signatureRule.getTextSubstitutions("WEB-INF/web.xml"));
+		assertSame(webStarUpdates, signatureRule.getTextSubstitutions("WEB-INF/web-fragment.xml"));
+		assertSame(xmlUpdates, signatureRule.getTextSubstitutions("META-INF/beans.xml"));
+		assertSame(allUpdates, signatureRule.getTextSubstitutions("readme.txt"));
+
+		// Results are retained per simple file name.
+
+		assertSame(webStarUpdates, signatureRule.getTextSubstitutions("other/web-fragment.xml"));
+
+		// No substitutions are available when there are no text updates.
+
+		SignatureRuleImpl xmlOnlyRule = createSignatureRule(Collections.singletonMap("*.xml", xmlUpdates));
+		assertNull(xmlOnlyRule.getTextSubstitutions("readme.txt"));
+		assertNull(xmlOnlyRule.getTextSubstitutions("readme.txt"));
+		assertNull(createSignatureRule(null).getTextSubstitutions("web.xml"));
+	}
+
+	@Test
+	public void testReplace() {
+		Map<String, String> substitutions = Collections.singletonMap("javax.servlet", "jakarta.servlet");
+		SignatureRuleImpl signatureRule = createSignatureRule(Collections.singletonMap("*.xml", substitutions));
+
+		assertEquals("<a>jakarta.servlet.Servlet</a>",
+			signatureRule.replaceText(substitutions, "<a>javax.servlet.Servlet</a>"));
+		assertNull(signatureRule.replaceText(substitutions, "<a>jakarta.servlet.Servlet</a>"));
+	}
+
+	@Test
+	public void testMultipleKeys() {
+		Map<String, String> substitutions = new HashMap<>();
+		substitutions.put("javax.ejb", "jakarta.ejb");
+		substitutions.put("javax.ejb.EJB", "jakarta.ejb.EJB");
+		substitutions.put("javax.ejb.EJBContext", "jakarta.ejb.EJBContext");
+		substitutions.put("jakarta", "other");
+		substitutions.put("a", "b");
+
+		TextReplacer replacer = new TextReplacer(substitutions);
+
+		// The longest key is used; replaced text is not scanned again.
+
+		assertEquals("<x>jakarta.ejb.EJBContext jakarta.ejb.EJBHome jakarta.ejb</x>",
+			replacer.replace("<x>javax.ejb.EJBContext javax.ejb.EJBHome javax.ejb</x>"));
+		assertEquals("other b", replacer.replace("jakarta a"));
+
+		// Text without keys is not changed.
+
+		assertNull(replacer.replace("<x>none</x>"));
+		assertNull(replacer.replace(""));
+		assertNull(new TextReplacer(Collections.emptyMap()).replace("javax.ejb"));
+
+		// A partial key at the end of the text does not match.
+
+		assertEquals("xyz jakarta.ejb.EJ", new TextReplacer(Collections.singletonMap("javax.ejb", "jakarta.ejb"))
+			.replace("xyz javax.ejb.EJ"));
+	}
+}
@@ -13,10 +13,13 @@ package transformer.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +31,7 @@ import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.impl.BundleDataImpl;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.PackageHeaderRewriter;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
 import org.eclipse.transformer.action.impl.SignatureRuleImpl;
 import org.eclipse.transformer.util.InputStreamData;
@@ -35,6 +39,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 
+import aQute.lib.io.IO;
 import transformer.test.util.CaptureLoggerImpl;
 
 public class TestTransformManifest extends CaptureTest {
@@ -497,107 +502,6 @@ public class TestTransformManifest extends CaptureTest {
 		// throws JakartaTransformException, IOException
 	}
 
-	String	newVersion							= "[4.0,5)";
-
-	// Embedding text is the input for each test
-	String	embeddingText0						= "; location:=\"dev/api/spec/,lib/\"; mavenCoordinates=\"javax.servlet:javax.servlet-api:4.0.1\"; version=\"[1.0.0,1.0.200)\"";
-	String	embeddingText1						= ";version=\"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText2						= ";version= \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText3						= ";version =\"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText4						= ";version = \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText5						= ";version = \"[2.6,3)\";resolution:=\"optional\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText6						= ";resolution:=\"optional\";version = \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	embeddingText7						= ";version=\"[2.6,3)\"";
-	String	embeddingText8						= "";
-	String	embeddingText9						= ",";
-	String	embeddingText10						= ";resolution:=\"optional\"";																									// no
-																																												// version
-	String	embeddingText11						= ",javax.servlet.annotation;version=\"[2.6,3)\"";																				// leading
-																																												// comma
-	String	embeddingText12						= ";version=\"[2.6,3),javax.servlet.annotation;version=\"[2.6,3)\"";															// missing
-																																												// quote
-																																												// after
-																																												// version
-	String	embeddingText13						= "\",com.ibm.ws.webcontainer.core;version=\"1.1.0\"";																			// first
-																																												// char
-																																												// is
-																																												// a
-																																												// quote
-																																												// (no
-																																												// package
-																																												// attributes)
-
-	// Expected results: When replacing the version, the expected result is the
-	// entire
-	// embedding text with the version of the first package replaced with the
-	// new version.
-	String	expectedResultText0_ReplaceVersion	= "; location:=\"dev/api/spec/,lib/\"; mavenCoordinates=\"javax.servlet:javax.servlet-api:4.0.1\"; version=\""
-		+ newVersion + "\"";
-	String	expectedResultText1_ReplaceVersion	= ";version=\"" + newVersion
-		+ "\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText2_ReplaceVersion	= ";version= \"" + newVersion
-		+ "\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText3_ReplaceVersion	= ";version =\"" + newVersion
-		+ "\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText4_ReplaceVersion	= ";version = \"" + newVersion
-		+ "\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText5_ReplaceVersion	= ";version = \"" + newVersion
-		+ "\";resolution:=\"optional\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText6_ReplaceVersion	= ";resolution:=\"optional\";version = \"" + newVersion
-		+ "\",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText7_ReplaceVersion	= ";version=\"" + newVersion + "\"";
-	String	expectedResultText8_ReplaceVersion	= "";
-	String	expectedResultText9_ReplaceVersion	= ",";
-	String	expectedResultText10_ReplaceVersion	= ";resolution:=\"optional\"";
-	String	expectedResultText11_ReplaceVersion	= ",javax.servlet.annotation;version=\"[2.6,3)\"";
-	String	expectedResultText12_ReplaceVersion	= ";version=\"[2.6,3),javax.servlet.annotation;version=\"[2.6,3)\"";															// missing
-																																												// quote
-																																												// (no
-																																												// version
-																																												// replacement)
-	String	expectedResultText13_ReplaceVersion	= "\",com.ibm.ws.webcontainer.core;version=\"1.1.0\"";
-
-	// Expected results: When getting package attributes, expected result is
-	// just the package attribute text which is at the beginning of the
-	// embedding text
-	String	expectedResultText1_GetPackageText	= ";version=\"[2.6,3)\",";
-	String	expectedResultText2_GetPackageText	= ";version= \"[2.6,3)\",";
-	String	expectedResultText3_GetPackageText	= ";version =\"[2.6,3)\",";
-	String	expectedResultText4_GetPackageText	= ";version = \"[2.6,3)\",";
-	String	expectedResultText5_GetPackageText	= ";version = \"[2.6,3)\";resolution:=\"optional\",";
-	String	expectedResultText6_GetPackageText	= ";resolution:=\"optional\";version = \"[2.6,3)\",";
-	String	expectedResultText7_GetPackageText	= ";version=\"[2.6,3)\"";
-	String	expectedResultText8_GetPackageText	= "";																															// empty
-																																												// string
-																																												// produces
-																																												// empty
-																																												// string
-	String	expectedResultText9_GetPackageText	= "";																															// comma
-																																												// produces
-																																												// empty
-																																												// string
-	String	expectedResultText10_GetPackageText	= ";resolution:=\"optional\"";
-	String	expectedResultText11_GetPackageText	= "";																															// leading
-																																												// comma
-																																												// followed
-																																												// by
-																																												// package
-																																												// is
-																																												// empty
-																																												// string
-	String	expectedResultText12_GetPackageText	= ";version=\"[2.6,3),";																										// missing
-																																												// quote
-																																												// (no
-																																												// version
-																																												// replacement)
-	String	expectedResultText13_GetPackageText	= "";																															// Not
-																																												// starting
-																																												// with
-																																												// ';'
-																																												// produces
-																																												// empty
-																																												// string
-
 	/**
 	 * Subclass which allows us to call protected methods of ManifestActionImpl
 	 */
@@ -615,14 +519,6 @@ public class TestTransformManifest extends CaptureTest {
 		public String callReplacePackages(String text) {
 			return replacePackages(text);
 		}
-
-		public String callReplacePackageVersion(String embeddingText, String newPackageVersion) {
-			return replacePackageVersion(embeddingText, newPackageVersion);
-		}
-
-		public String callGetPackageAttributeText(String embeddingText) {
-			return getPackageAttributeText(embeddingText);
-		}
 	}
 
 	private ManifestActionImpl_Test manifestAction_test;
@@ -756,98 +652,72 @@ public class TestTransformManifest extends CaptureTest {
 		assertFalse(result, "(valid package character before key) is NO MATCH");
 	}
 
-	@Test
-	public void testReplacePackageVersionInEmbeddingText() {
-		ManifestActionImpl_Test manifestAction = getManifestAction();
-
-		String failureText = "Package version transformation failure";
-		String result;
-
-		result = manifestAction.callReplacePackageVersion(embeddingText0, newVersion);
-		assertEquals(expectedResultText0_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText1, newVersion);
-		assertEquals(expectedResultText1_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText2, newVersion);
-		assertEquals(expectedResultText2_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText3, newVersion);
-		assertEquals(expectedResultText3_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText4, newVersion);
-		assertEquals(expectedResultText4_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText5, newVersion);
-		assertEquals(expectedResultText5_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText6, newVersion);
-		assertEquals(expectedResultText6_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText7, newVersion);
-		assertEquals(expectedResultText7_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText9, newVersion);
-		assertEquals(expectedResultText9_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText10, newVersion);
-		assertEquals(expectedResultText10_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText11, newVersion);
-		assertEquals(expectedResultText11_ReplaceVersion, result, failureText);
+	public static final String		NEW_VERSION		= "[4.0,5)";
 
-		// Check syntax error in Manifest (Case of no closing quotes)
-		result = manifestAction.callReplacePackageVersion(embeddingText12, newVersion);
-		assertEquals(expectedResultText12_ReplaceVersion, result, failureText);
-
-		result = manifestAction.callReplacePackageVersion(embeddingText13, newVersion);
-		assertEquals(expectedResultText13_ReplaceVersion, result, failureText);
-	}
+	/**
+	 * Package version rewrites: Each case is an input header and the expected
+	 * output header. The version of the renamed package is replaced, keeping
+	 * the spacing of the version attribute, wherever the attribute is in the
+	 * clause. The versions of other clauses are not changed. Versions are not
+	 * replaced in headers which have unbalanced quotation marks.
+	 */
+	public static final String[][]	VERSION_CASES	= {
+		{
+			"javax.servlet; location:=\"dev/api/spec/,lib/\"; mavenCoordinates=\"javax.servlet:javax.servlet-api:4.0.1\"; version=\"[1.0.0,1.0.200)\"",
+			"jakarta.servlet; location:=\"dev/api/spec/,lib/\"; mavenCoordinates=\"jakarta.servlet:jakarta.servlet-api:4.0.1\"; version=\""
+				+ NEW_VERSION + "\""
+		}, {
+			"javax.servlet;version=\"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version=\"" + NEW_VERSION + "\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;version= \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version= \"" + NEW_VERSION + "\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;version =\"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version =\"" + NEW_VERSION + "\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;version = \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version = \"" + NEW_VERSION + "\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;version = \"[2.6,3)\";resolution:=\"optional\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version = \"" + NEW_VERSION
+				+ "\";resolution:=\"optional\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;resolution:=\"optional\";version = \"[2.6,3)\",javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;resolution:=\"optional\";version = \"" + NEW_VERSION
+				+ "\",javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			"javax.servlet;version=\"[2.6,3)\"", "jakarta.servlet;version=\"" + NEW_VERSION + "\""
+		}, {
+			"javax.servlet", "jakarta.servlet"
+		}, {
+			"javax.servlet,", "jakarta.servlet,"
+		}, {
+			"javax.servlet;resolution:=\"optional\"", "jakarta.servlet;resolution:=\"optional\""
+		}, {
+			"javax.servlet,javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet,javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			// Missing quotation mark after the version
+			"javax.servlet;version=\"[2.6,3),javax.servlet.annotation;version=\"[2.6,3)\"",
+			"jakarta.servlet;version=\"[2.6,3),javax.servlet.annotation;version=\"[2.6,3)\""
+		}, {
+			// Quotation mark after the package name
+			"javax.servlet\",com.ibm.ws.webcontainer.core;version=\"1.1.0\"",
+			"jakarta.servlet\",com.ibm.ws.webcontainer.core;version=\"1.1.0\""
+		}
+	};
 
 	@Test
-	public void testGetPackageAttributeText() {
-		ManifestActionImpl_Test manifestAction = getManifestAction();
-
-		String failureText = "Package attribute transformation failure";
-
-		String result;
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText1);
-		assertEquals(expectedResultText1_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText2);
-		assertEquals(expectedResultText2_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText3);
-		assertEquals(expectedResultText3_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText4);
-		assertEquals(expectedResultText4_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText5);
-		assertEquals(expectedResultText5_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText7);
-		assertEquals(expectedResultText7_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText8);
-		assertEquals(expectedResultText8_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText9);
-		assertEquals(expectedResultText9_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText10);
-		assertEquals(expectedResultText10_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText11);
-		assertEquals(expectedResultText11_GetPackageText, result, failureText);
-
-		// Check syntax error in Manifest (Case of no closing quotes)
-		result = manifestAction.callGetPackageAttributeText(embeddingText12);
-		assertEquals(expectedResultText12_GetPackageText, result, failureText);
-
-		result = manifestAction.callGetPackageAttributeText(embeddingText13);
-		assertEquals(expectedResultText13_GetPackageText, result, failureText);
+	public void testRewritePackageVersion() {
+		Map<String, String> renames = Collections.singletonMap(JAVAX_SERVLET, JAKARTA_SERVLET);
+		Map<String, String> versions = Collections.singletonMap(JAKARTA_SERVLET, NEW_VERSION);
+		PackageHeaderRewriter rewriter = new PackageHeaderRewriter(renames, versions);
+
+		for (String[] versionCase : VERSION_CASES) {
+			assertEquals(versionCase[1], rewriter.rewrite(versionCase[0]),
+				"Package version transformation failure [ " + versionCase[0] + " ]");
+		}
 	}
 
 	//
@@ -917,4 +787,96 @@ public class TestTransformManifest extends CaptureTest {
 		String txRequireOutput = manifestAction.callReplacePackages(TX_REQUIRE_TEXT_INPUT);
 		assertEquals(TX_REQUIRE_TEXT_OUTPUT, txRequireOutput, "'Require-Capability' transform failure");
 	}
+
+	public static final String	IMPORT_TEXT_INPUT	= "javax.servlet;version=\"[2.6,3)\",javax.servlet.http;resolution:=optional;"
+		+ " version = 2.6 ;uses:=\"javax.servlet,javax.transaction.xa\",javax.transaction;version=\"1.2\","
+		+ "javax.servlet.jsp;version=\"2.3\",com.ibm.ws.util;version=\"[1.0,2)\"";
+
+	public static final String	IMPORT_TEXT_OUTPUT	= "jakarta.servlet;version=\"[5.0,6)\",jakarta.servlet.http;resolution:=optional;"
+		+ " version = \"[5.0,6)\" ;uses:=\"jakarta.servlet,javax.transaction.xa\",jakarta.transaction;version=\"1.2\","
+		+ "javax.servlet.jsp;version=\"2.3\",com.ibm.ws.util;version=\"[1.0,2)\"";
+
+	@Test
+	public void testPackageHeaderRewriter() {
+		Map<String, String> renames = new HashMap<>(getPackageRenames());
+		Map<String, String> versions = new HashMap<>();
+		versions.put(JAKARTA_SERVLET, "[5.0,6)");
+		versions.put(JAKARTA_SERVLET_HTTP, "[5.0,6)");
+
+		PackageHeaderRewriter rewriter = new PackageHeaderRewriter(renames, versions);
+
+		assertEquals(IMPORT_TEXT_OUTPUT, rewriter.rewrite(IMPORT_TEXT_INPUT), "'Import-Package' transform failure");
+		assertNull(rewriter.rewrite("com.ibm.ws.util;version=\"[1.0,2)\",javax.servlet.jsp"), "Unexpected change");
+
+		// Wildcard renames match sub-packages; exact renames do not.
+
+		renames.clear();
+		renames.put("javax.servlet.*", "jakarta.servlet");
+		rewriter = new PackageHeaderRewriter(renames, versions);
+		assertEquals("jakarta.servlet.jsp;version=\"2.3\",myjavax.servlet",
+			rewriter.rewrite("javax.servlet.jsp;version=\"2.3\",myjavax.servlet"));
+	}
+
+	public static final int SIGNED_ENTRY_COUNT = 1000;
+
+	public String createSignedManifest(String importPackage) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Manifest-Version: 1.0\r\n");
+		builder.append("Import-Package: ")
+			.append(importPackage)
+			.append("\r\n");
+		builder.append("Created-By: test\r\n");
+		builder.append("\r\n");
+		for (int entryNo = 0; entryNo < SIGNED_ENTRY_COUNT; entryNo++) {
+			builder.append("Name: javax/servlet/Sample")
+				.append(entryNo)
+				.append(".class\r\n");
+			builder.append("SHA-256-Digest: 2Gl4F8ak0hN5Mz5Y1r+GwLMxRfWPz4bR3Xc0yQWUS8")
+				.append(entryNo % 10)
+				.append("=\r\n");
+			builder.append("\r\n");
+		}
+		return builder.toString();
+	}
+
+	@Test
+	public void testTransformSignedManifest() throws TransformException, IOException {
+		String importPackage = "javax.servlet;version=\"[2.6,3)\",javax.servlet.http;version=\"[2.6,3)\""
+			+ ",com.ibm.ws.util;version=\"[1.0,2)\"";
+		String initialText = createSignedManifest(importPackage);
+		byte[] initialBytes = initialText.getBytes(StandardCharsets.UTF_8);
+
+		ManifestActionImpl manifestAction = getJakartaManifestAction();
+		byte[] finalBytes = IO.read(manifestAction
+			.apply(ManifestActionImpl.META_INF_MANIFEST_MF, new ByteArrayInputStream(initialBytes)).stream);
+		assertTrue(manifestAction.getLastActiveChanges()
+			.hasChanges(), "Manifest was not transformed");
+
+		String finalText = new String(finalBytes, StandardCharsets.UTF_8);
+
+		// Only the main section is changed: The per-entry sections are
+		// retained byte for byte.
+
+		int initialEntries = initialText.indexOf("\r\n\r\n");
+		int finalEntries = finalText.indexOf("\r\n\r\n");
+		assertEquals(initialText.substring(initialEntries), finalText.substring(finalEntries));
+
+		String finalMain = finalText.substring(0, finalEntries + 2);
+		assertTrue(finalMain.startsWith("Manifest-Version: 1.0\r\nImport-Package: jakarta.servlet;"), finalMain);
+		assertTrue(finalMain.endsWith("Created-By: test\r\n"), finalMain);
+		for (String line : finalMain.split("\r\n")) {
+			assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 72, "Line too long [ " + line + " ]");
+		}
+
+		List<String> finalLines = TestUtils.manifestCollapse(TestUtils.loadLines(new ByteArrayInputStream(finalBytes)));
+		assertEquals("Import-Package: " + getManifestAction().callReplacePackages(importPackage), finalLines.get(1));
+
+		// An unchanged manifest is not rewritten.
+
+		byte[] unchangedBytes = createSignedManifest("com.ibm.ws.util").getBytes(StandardCharsets.UTF_8);
+		Assertions.assertArrayEquals(unchangedBytes, IO.read(manifestAction
+			.apply(ManifestActionImpl.META_INF_MANIFEST_MF, new ByteArrayInputStream(unchangedBytes)).stream));
+		assertFalse(manifestAction.getLastActiveChanges()
+			.hasChanges(), "Unchanged manifest was transformed");
+	}
 }
@@ -0,0 +1,112 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.util.TransformerEvents;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import aQute.lib.io.IO;
+
+/**
+ * Verify that JFR events are emitted. The JFR API is used reflectively, since
+ * tests are compiled for Java 8. The test is skipped when the JFR recorder is
+ * not active.
+ */
+public class TestTransformerEvents {
+
+	public static final String	TEST_OUTPUT_PATH	= "target/test/data/events";
+
+	public static final String	EVENT_PREFIX		= "org.eclipse.transformer.";
+
+	@Test
+	public void testNullRecorder() {
+		TransformerEvents.Recorder recorder = new TransformerEvents.NullRecorder();
+		Assertions.assertNull(recorder.beginEntry());
+		Assertions.assertNull(recorder.beginClassTransform());
+
+		// Null events are ignored.
+		TransformerEvents.commitEntry(null, "container", "entry", "action", 0L, 0L, false);
+		TransformerEvents.commitClassTransform(null, "entry", "input", "output", 0, false);
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		Assumptions.assumeTrue(TransformerEvents.isActive(), "JFR is not available");
+
+		// Without a recording, no events are created.
+		Assertions.assertNull(TransformerEvents.beginEntry());
+
+		TestScan scanTest = new TestScan();
+		byte[] warBytes = scanTest.createWar(true);
+
+		Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		Object recording = recordingClass.getConstructor()
+			.newInstance();
+		Method enable = recordingClass.getMethod("enable", String.class);
+		for (String eventName : new String[] {
+			"Entry", "ClassTransform", "RulesCacheLookup"
+		}) {
+			enable.invoke(recording, EVENT_PREFIX + eventName);
+		}
+
+		recordingClass.getMethod("start")
+			.invoke(recording);
+		try {
+			scanTest.createWarAction()
+				.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length,
+					new ByteArrayOutputStream());
+		} finally {
+			recordingClass.getMethod("stop")
+				.invoke(recording);
+		}
+
+		File recordingFile = IO.getFile(TEST_OUTPUT_PATH + "/events.jfr");
+		IO.mkdirs(recordingFile.getParentFile());
+		recordingClass.getMethod("dump", Path.class)
+			.invoke(recording, recordingFile.toPath());
+		recordingClass.getMethod("close")
+			.invoke(recording);
+
+		Class<?> recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+		List<?> events = (List<?>) recordingFileClass.getMethod("readAllEvents", Path.class)
+			.invoke(null, recordingFile.toPath());
+
+		Map<String, Integer> eventCounts = new HashMap<>();
+		for (Object event : events) {
+			Object eventType = event.getClass()
+				.getMethod("getEventType")
+				.invoke(event);
+			String eventName = (String) eventType.getClass()
+				.getMethod("getName")
+				.invoke(eventType);
+			eventCounts.merge(eventName, 1, Integer::sum);
+		}
+
+		// The war has two entries; the nested jar has three entries.
+		Assertions.assertEquals(Integer.valueOf(5), eventCounts.get(EVENT_PREFIX + "Entry"), eventCounts.toString());
+		// Two classes in the nested jar, and one class in the war.
+		Assertions.assertEquals(Integer.valueOf(3), eventCounts.get(EVENT_PREFIX + "ClassTransform"),
+			eventCounts.toString());
+		Assertions.assertNotNull(eventCounts.get(EVENT_PREFIX + "RulesCacheLookup"), eventCounts.toString());
+	}
+}
@@ -0,0 +1,245 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.ActionImpl.ActionInit;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.slf4j.Logger;
+
+import aQute.lib.io.IO;
+
+/**
+ * Small, hand built sample archives, and the WAR action used to transform
+ * them.
+ * <p>
+ * See {@link SyntheticArchives} for large generated archives.
+ */
+public class SampleArchives {
+	/** Marker for entries which are written without an explicit time. */
+	public static final long NO_TIME = -1L;
+
+	/**
+	 * Read a test resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @return The bytes of the resource.
+	 * @throws IOException Thrown if the resource could not be read.
+	 */
+	public static byte[] readResource(String resourceName) throws IOException {
+		try (InputStream inputStream = SampleArchives.class.getClassLoader()
+			.getResourceAsStream(resourceName)) {
+			Assertions.assertNotNull(inputStream, "Missing resource [ " + resourceName + " ]");
+			return IO.read(inputStream);
+		}
+	}
+
+	/**
+	 * Create an archive from entry names and entry bytes. Entries are written
+	 * in the iteration order of the map.
+	 *
+	 * @param entries The entries of the archive.
+	 * @return The bytes of the archive.
+	 * @throws IOException Thrown if the archive could not be written.
+	 */
+	public static byte[] createArchive(Map<String, byte[]> entries) throws IOException {
+		return createArchive(entries, NO_TIME);
+	}
+
+	/**
+	 * Create an archive from entry names and entry bytes, giving all entries
+	 * the same time.
+	 *
+	 * @param entries The entries of the archive.
+	 * @param entryTime The time of the entries, or {@link #NO_TIME}.
+	 * @return The bytes of the archive.
+	 * @throws IOException Thrown if the archive could not be written.
+	 */
+	public static byte[] createArchive(Map<String, byte[]> entries, long entryTime) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				ZipEntry zipEntry = new ZipEntry(entry.getKey());
+				if (entryTime != NO_TIME) {
+					zipEntry.setTime(entryTime);
+				}
+				zipOutputStream.putNextEntry(zipEntry);
+				zipOutputStream.write(entry.getValue());
+				zipOutputStream.closeEntry();
+			}
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Read the entries of an archive, including directory entries. Entries
+	 * are answered in the order of the archive.
+	 *
+	 * @param archiveBytes The bytes of the archive.
+	 * @return The entry names and entry bytes of the archive.
+	 * @throws IOException Thrown if the archive could not be read.
+	 */
+	public static Map<String, byte[]> readStream(byte[] archiveBytes) throws IOException {
+		return readStream(archiveBytes, true);
+	}
+
+	/**
+	 * Read the entries of an archive. Entries are answered in the order of the
+	 * archive.
+	 *
+	 * @param archiveBytes The bytes of the archive.
+	 * @param includeDirectories Control parameter: Are directory entries
+	 *            answered.
+	 * @return The entry names and entry bytes of the archive.
+	 * @throws IOException Thrown if the archive could not be read.
+	 */
+	public static Map<String, byte[]> readStream(byte[] archiveBytes, boolean includeDirectories)
+		throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archiveBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInputStream.getNextEntry()) != null) {
+				if (includeDirectories || !entry.isDirectory()) {
+					ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+					FileUtils.transfer(zipInputStream, dataStream);
+					entries.put(entry.getName(), dataStream.toByteArray());
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Assert that archive entries have the same names and bytes.
+	 *
+	 * @param expected The expected entries.
+	 * @param actual The actual entries.
+	 */
+	public static void assertEntries(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		Assertions.assertEquals(expected.keySet(), actual.keySet());
+		expected.forEach((name, data) -> Assertions.assertArrayEquals(data, actual.get(name), name));
+	}
+
+	/**
+	 * Create a signature rule which has package renames and text updates, and
+	 * which has no other rules.
+	 *
+	 * @param logger The logger of the rule.
+	 * @param renames Package renames.
+	 * @param masterTextUpdates Text updates, keyed by resource name pattern.
+	 *            May be null.
+	 * @return The new signature rule.
+	 */
+	public static SignatureRuleImpl createSignatureRule(Logger logger, Map<String, String> renames,
+		Map<String, Map<String, String>> masterTextUpdates) {
+		return new SignatureRuleImpl(logger, renames, null, null, masterTextUpdates, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Create a WAR action which selects all resources.
+	 * <p>
+	 * The WAR action and the JAR action which it uses for nested archives both
+	 * use the leaf actions, in the order given, followed by the null action.
+	 * The WAR action tries the JAR action before the null action.
+	 *
+	 * @param logger The logger of the actions.
+	 * @param signatureRule The signature rule of the actions.
+	 * @param leafInits Initializers of the leaf actions.
+	 * @return The new WAR action.
+	 */
+	public static WarActionImpl createWarAction(Logger logger, SignatureRuleImpl signatureRule,
+		ActionInit<?>... leafInits) {
+		return createWarAction(logger, false, signatureRule, leafInits);
+	}
+
+	/**
+	 * Create a WAR action which renames "javax.inject" to "jakarta.inject" in
+	 * "*.txt" resources, using the text action.
+	 *
+	 * @param logger The logger of the actions.
+	 * @return The new WAR action.
+	 */
+	public static WarActionImpl createTextWarAction(Logger logger) {
+		Map<String, String> renames = Collections.singletonMap("javax.inject", "jakarta.inject");
+
+		Map<String, Map<String, String>> masterTextUpdates = new HashMap<>();
+		masterTextUpdates.put("*.txt", renames);
+
+		return createWarAction(logger, createSignatureRule(logger, renames, masterTextUpdates), TextActionImpl::new);
+	}
+
+	/**
+	 * Transform an archive using a WAR action.
+	 *
+	 * @param warAction The action which transforms the archive.
+	 * @param warBytes The bytes of the archive.
+	 * @return The bytes of the transformed archive.
+	 * @throws TransformException Thrown if the transform failed.
+	 */
+	public static byte[] transform(WarActionImpl warAction, byte[] warBytes) throws TransformException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		warAction.apply("sample.war", new ByteArrayInputStream(warBytes), warBytes.length, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Create a WAR action which selects all resources.
+	 *
+	 * @param logger The logger of the actions.
+	 * @param isVerbose Control parameter: Is verbose logging enabled.
+	 * @param signatureRule The signature rule of the actions.
+	 * @param leafInits Initializers of the leaf actions.
+	 * @return The new WAR action.
+	 * @see #createWarAction(Logger, SignatureRuleImpl, ActionInit...)
+	 */
+	public static WarActionImpl createWarAction(Logger logger, boolean isVerbose, SignatureRuleImpl signatureRule,
+		ActionInit<?>... leafInits) {
+
+		WarActionImpl warAction = new WarActionImpl(logger, false, isVerbose, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()), signatureRule);
+
+		ActionImpl[] leafActions = new ActionImpl[leafInits.length];
+		for (int leafNo = 0; leafNo < leafInits.length; leafNo++) {
+			leafActions[leafNo] = warAction.addUsing(leafInits[leafNo]);
+		}
+		JarActionImpl jarAction = warAction.addUsing(JarActionImpl::new);
+		NullActionImpl nullAction = warAction.addUsing(NullActionImpl::new);
+
+		for (ActionImpl leafAction : leafActions) {
+			jarAction.addAction(leafAction);
+		}
+		jarAction.addAction(nullAction);
+
+		return warAction;
+	}
+}
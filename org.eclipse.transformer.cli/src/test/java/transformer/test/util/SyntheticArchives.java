@@ -0,0 +1,517 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import aQute.bnd.classfile.Attribute;
+import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.classfile.ConstantValueAttribute;
+import aQute.bnd.classfile.FieldInfo;
+import aQute.bnd.classfile.MethodInfo;
+import aQute.bnd.classfile.builder.ClassFileBuilder;
+import aQute.bnd.classfile.builder.MutableConstantPool;
+
+/**
+ * Generator of synthetic JAR, WAR, and EAR archives.
+ * <p>
+ * The generated archives contain class files, text resources, service
+ * configuration files, and manifests, with references to javax packages
+ * mixed in with references to other packages. The number of classes, the fraction of references which are to
+ * javax packages, the number of text resources, and the depth of nesting of
+ * archives are configurable. The same settings and seed always generate the
+ * same bytes.
+ * <p>
+ * The nesting depth is the number of archive levels beneath the generated
+ * archive: An EAR with depth 2 contains WARs which contain JARs, and a JAR
+ * with depth 1 contains JARs.
+ */
+public class SyntheticArchives {
+	public static final long	ENTRY_TIME			= 1600000000000L;
+
+	public static final String	BASE_PACKAGE		= "com/example/synthetic";
+
+	/** Class access flag which is set by all modern compilers. */
+	public static final int		ACC_SUPER			= 0x0020;
+
+	/** Binary names of javax types, which have jakarta renames. */
+	public static final String[]	JAVAX_TYPES			= {
+		"javax/servlet/Servlet", "javax/servlet/ServletContext", "javax/servlet/http/HttpServletRequest",
+		"javax/servlet/http/HttpServletResponse", "javax/inject/Inject", "javax/inject/Provider",
+		"javax/annotation/PostConstruct", "javax/ejb/EJB", "javax/persistence/EntityManager",
+		"javax/ws/rs/core/Response", "javax/enterprise/context/ApplicationScoped", "javax/jms/Message"
+	};
+
+	/** Binary names of types which are not renamed. */
+	public static final String[]	OTHER_TYPES			= {
+		"java/lang/String", "java/lang/Runnable", "java/util/List", "java/util/Map", "java/io/InputStream",
+		"java/util/concurrent/Executor", "javax/naming/Context", "javax/sql/DataSource"
+	};
+
+	private int					classCount			= 100;
+	private int					referencesPerClass	= 10;
+	private double				javaxDensity		= 0.3;
+	private int					textCount			= 10;
+	private int					textLines			= 40;
+	private int					nestedDepth			= 2;
+	private int					nestedCount			= 3;
+	private boolean				manifests			= true;
+	private long				seed				= 42L;
+
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Set the number of classes of each generated JAR or WAR.
+	 *
+	 * @param classCount The number of classes of each archive.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setClassCount(int classCount) {
+		this.classCount = classCount;
+		return this;
+	}
+
+	public int getReferencesPerClass() {
+		return referencesPerClass;
+	}
+
+	/**
+	 * Set the number of type references of each generated class. Each
+	 * reference is used as a field type, as a method parameter type, and as
+	 * a string constant.
+	 *
+	 * @param referencesPerClass The number of references of each class.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setReferencesPerClass(int referencesPerClass) {
+		this.referencesPerClass = referencesPerClass;
+		return this;
+	}
+
+	public double getJavaxDensity() {
+		return javaxDensity;
+	}
+
+	/**
+	 * Set the fraction of references, in classes and in text, which are to
+	 * javax types.
+	 *
+	 * @param javaxDensity The fraction of javax references, from 0.0 to 1.0.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setJavaxDensity(double javaxDensity) {
+		if ((javaxDensity < 0.0) || (javaxDensity > 1.0)) {
+			throw new IllegalArgumentException("Density [ " + javaxDensity + " ] is not between 0.0 and 1.0");
+		}
+		this.javaxDensity = javaxDensity;
+		return this;
+	}
+
+	public int getTextCount() {
+		return textCount;
+	}
+
+	/**
+	 * Set the number of text resources of each generated archive. Text
+	 * resources alternate between XML and properties files.
+	 *
+	 * @param textCount The number of text resources of each archive.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setTextCount(int textCount) {
+		this.textCount = textCount;
+		return this;
+	}
+
+	public int getTextLines() {
+		return textLines;
+	}
+
+	public SyntheticArchives setTextLines(int textLines) {
+		this.textLines = textLines;
+		return this;
+	}
+
+	public int getNestedDepth() {
+		return nestedDepth;
+	}
+
+	/**
+	 * Set the number of archive levels beneath generated archives.
+	 *
+	 * @param nestedDepth The depth of nested archives.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setNestedDepth(int nestedDepth) {
+		this.nestedDepth = nestedDepth;
+		return this;
+	}
+
+	public int getNestedCount() {
+		return nestedCount;
+	}
+
+	/**
+	 * Set the number of archives which are nested at each level.
+	 *
+	 * @param nestedCount The number of nested archives of each archive.
+	 * @return This generator.
+	 */
+	public SyntheticArchives setNestedCount(int nestedCount) {
+		this.nestedCount = nestedCount;
+		return this;
+	}
+
+	public boolean getManifests() {
+		return manifests;
+	}
+
+	public SyntheticArchives setManifests(boolean manifests) {
+		this.manifests = manifests;
+		return this;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public SyntheticArchives setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	//
+
+	/**
+	 * Archive types which may be generated.
+	 */
+	public enum ArchiveType {
+		JAR(".jar"),
+		WAR(".war"),
+		EAR(".ear");
+
+		private final String extension;
+
+		ArchiveType(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		public static ArchiveType forName(String name) {
+			for (ArchiveType archiveType : values()) {
+				if (name.endsWith(archiveType.extension)) {
+					return archiveType;
+				}
+			}
+			throw new IllegalArgumentException("Unknown archive type [ " + name + " ]");
+		}
+	}
+
+	/**
+	 * Generate an archive and write it to a file. The type of the archive is
+	 * selected by the extension of the file.
+	 *
+	 * @param outputPath The file which is to be written.
+	 * @return The number of bytes which were written.
+	 * @throws IOException Thrown if the archive could not be written.
+	 */
+	public long write(Path outputPath) throws IOException {
+		ArchiveType archiveType = ArchiveType.forName(outputPath.getFileName()
+			.toString());
+		try (OutputStream outputStream = Files.newOutputStream(outputPath)) {
+			write(archiveType, outputPath.getFileName()
+				.toString(), new Random(seed), nestedDepth, outputStream); // throws IOException
+		}
+		return Files.size(outputPath);
+	}
+
+	public byte[] createJar(String name) throws IOException {
+		return create(ArchiveType.JAR, name, new Random(seed), nestedDepth);
+	}
+
+	public byte[] createWar(String name) throws IOException {
+		return create(ArchiveType.WAR, name, new Random(seed), nestedDepth);
+	}
+
+	public byte[] createEar(String name) throws IOException {
+		return create(ArchiveType.EAR, name, new Random(seed), nestedDepth);
+	}
+
+	protected byte[] create(ArchiveType archiveType, String name, Random random, int depth) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		write(archiveType, name, random, depth, outputStream); // throws IOException
+		return outputStream.toByteArray();
+	}
+
+	protected void write(ArchiveType archiveType, String name, Random random, int depth, OutputStream outputStream)
+		throws IOException {
+
+		String baseName = name.substring(0, name.length() - archiveType.getExtension()
+			.length());
+
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+			List<String> packages = new ArrayList<>();
+			String classPrefix;
+			switch (archiveType) {
+				case WAR:
+					put(zipOutputStream, "WEB-INF/web.xml", createText(random, baseName, true));
+					classPrefix = "WEB-INF/classes/";
+					break;
+				case EAR:
+					put(zipOutputStream, "META-INF/application.xml", createText(random, baseName, true));
+					classPrefix = null;
+					break;
+				default:
+					classPrefix = "";
+					break;
+			}
+
+			if (classPrefix != null) {
+				for (int classNo = 0; classNo < classCount; classNo++) {
+					String packageName = BASE_PACKAGE + '/' + baseName.replace('-', '_') + "/p" + (classNo % 10);
+					if (!packages.contains(packageName)) {
+						packages.add(packageName);
+					}
+					String className = packageName + "/Class" + classNo;
+					put(zipOutputStream, classPrefix + className + ".class", createClass(random, className));
+				}
+			}
+
+			if ((textCount > 0) && !packages.isEmpty()) {
+				// Service configuration, which is named by a javax type.
+				String serviceName = "META-INF/services/" + JAVAX_TYPES[random.nextInt(JAVAX_TYPES.length)]
+					.replace('/', '.');
+				put(zipOutputStream, serviceName, (packages.get(0)
+					.replace('/', '.') + ".Class0\n").getBytes(UTF_8));
+			}
+
+			for (int textNo = 0; textNo < textCount; textNo++) {
+				boolean isXml = ((textNo % 2) == 0);
+				String textName = "META-INF/config/" + baseName + '-' + textNo + (isXml ? ".xml" : ".properties");
+				put(zipOutputStream, textName, createText(random, textName, isXml));
+			}
+
+			if (manifests) {
+				put(zipOutputStream, "META-INF/MANIFEST.MF", createManifest(random, baseName, packages));
+			}
+
+			if (depth > 0) {
+				for (int nestedNo = 0; nestedNo < nestedCount; nestedNo++) {
+					switch (archiveType) {
+						case EAR:
+							if ((nestedNo % 2) == 0) {
+								String warName = baseName + "-web" + nestedNo + ".war";
+								put(zipOutputStream, warName, create(ArchiveType.WAR, warName, random, depth - 1));
+							} else {
+								String jarName = baseName + "-lib" + nestedNo + ".jar";
+								put(zipOutputStream, "lib/" + jarName,
+									create(ArchiveType.JAR, jarName, random, depth - 1));
+							}
+							break;
+						case WAR:
+							String libName = baseName + "-lib" + nestedNo + ".jar";
+							put(zipOutputStream, "WEB-INF/lib/" + libName,
+								create(ArchiveType.JAR, libName, random, depth - 1));
+							break;
+						default:
+							String jarName = baseName + "-nested" + nestedNo + ".jar";
+							put(zipOutputStream, "lib/" + jarName, create(ArchiveType.JAR, jarName, random, depth - 1));
+							break;
+					}
+				}
+			}
+		}
+	}
+
+	protected void put(ZipOutputStream zipOutputStream, String name, byte[] data) throws IOException {
+		ZipEntry zipEntry = new ZipEntry(name);
+		zipEntry.setTime(ENTRY_TIME);
+		zipOutputStream.putNextEntry(zipEntry); // throws IOException
+		zipOutputStream.write(data); // throws IOException
+		zipOutputStream.closeEntry(); // throws IOException
+	}
+
+	//
+
+	protected String selectType(Random random) {
+		if (random.nextDouble() < javaxDensity) {
+			return JAVAX_TYPES[random.nextInt(JAVAX_TYPES.length)];
+		} else {
+			return OTHER_TYPES[random.nextInt(OTHER_TYPES.length)];
+		}
+	}
+
+	/**
+	 * Create an abstract class which references types through field types,
+	 * method descriptors, and string constants.
+	 *
+	 * @param random The random number generator used to select types.
+	 * @param className The binary name of the class.
+	 * @return The bytes of the class.
+	 * @throws IOException Thrown if the class could not be written.
+	 */
+	public byte[] createClass(Random random, String className) throws IOException {
+		ClassFileBuilder builder = new ClassFileBuilder(Modifier.PUBLIC | Modifier.ABSTRACT | ACC_SUPER, 52, 0,
+			className, "java/lang/Object");
+		builder.constant_pool(new MutableConstantPool());
+
+		for (int refNo = 0; refNo < referencesPerClass; refNo++) {
+			String typeName = selectType(random);
+			String descriptor = 'L' + typeName + ';';
+
+			builder.fields(new FieldInfo(Modifier.PROTECTED, "field" + refNo, descriptor, new Attribute[0]));
+			builder.fields(new FieldInfo(Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, "NAME" + refNo,
+				"Ljava/lang/String;", new Attribute[] {
+					new ConstantValueAttribute(typeName.replace('/', '.'))
+				}));
+			builder.methods(new MethodInfo(Modifier.PUBLIC | Modifier.ABSTRACT, "method" + refNo,
+				'(' + descriptor + ")" + descriptor, new Attribute[0]));
+		}
+
+		ClassFile classFile = builder.build();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (DataOutputStream dataOutputStream = new DataOutputStream(outputStream)) {
+			classFile.write(dataOutputStream); // throws IOException
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Create text which references types by their qualified names. XML text
+	 * uses deployment descriptor like elements. Other text is written as
+	 * properties.
+	 *
+	 * @param random The random number generator used to select types.
+	 * @param textName The name of the text, which is written into the text.
+	 * @param isXml Control parameter: Tell if XML text is to be created.
+	 * @return The bytes of the text.
+	 */
+	public byte[] createText(Random random, String textName, boolean isXml) {
+		StringBuilder text = new StringBuilder();
+		if (isXml) {
+			text.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			text.append("<config name=\"")
+				.append(textName)
+				.append("\">\n");
+		} else {
+			text.append("# ")
+				.append(textName)
+				.append('\n');
+		}
+		for (int lineNo = 0; lineNo < textLines; lineNo++) {
+			String typeName = selectType(random).replace('/', '.');
+			if (isXml) {
+				text.append("  <class id=\"c")
+					.append(lineNo)
+					.append("\">")
+					.append(typeName)
+					.append("</class>\n");
+			} else {
+				text.append("entry.")
+					.append(lineNo)
+					.append('=')
+					.append(typeName)
+					.append('\n');
+			}
+		}
+		if (isXml) {
+			text.append("</config>\n");
+		}
+		return text.toString()
+			.getBytes(UTF_8);
+	}
+
+	/**
+	 * Create a bundle manifest, which exports the packages of the archive
+	 * and which imports javax packages.
+	 *
+	 * @param random The random number generator used to select types.
+	 * @param baseName The base name of the archive.
+	 * @param packages The binary names of the packages of the archive.
+	 * @return The bytes of the manifest.
+	 */
+	public byte[] createManifest(Random random, String baseName, List<String> packages) {
+		StringBuilder imports = new StringBuilder();
+		for (int refNo = 0; refNo < referencesPerClass; refNo++) {
+			String typeName = selectType(random);
+			String packageName = typeName.substring(0, typeName.lastIndexOf('/'))
+				.replace('/', '.');
+			// Bundles do not import java packages.
+			if (packageName.startsWith("java.") || (imports.indexOf(packageName + ';') != -1)) {
+				continue;
+			}
+			if (imports.length() > 0) {
+				imports.append(',');
+			}
+			imports.append(packageName)
+				.append(";version=\"[1.0,5)\"");
+		}
+
+		StringBuilder exports = new StringBuilder();
+		for (String packageName : packages) {
+			if (exports.length() > 0) {
+				exports.append(',');
+			}
+			exports.append(packageName.replace('/', '.'))
+				.append(";version=\"1.0.0\"");
+		}
+
+		StringBuilder manifest = new StringBuilder();
+		manifest.append("Manifest-Version: 1.0\r\n");
+		manifest.append("Bundle-ManifestVersion: 2\r\n");
+		manifest.append("Bundle-SymbolicName: com.example.synthetic.")
+			.append(baseName.replace('-', '.'))
+			.append("\r\n");
+		manifest.append("Bundle-Version: 1.0.0\r\n");
+		appendHeader(manifest, "Import-Package", imports.toString());
+		if (exports.length() > 0) {
+			appendHeader(manifest, "Export-Package", exports.toString());
+		}
+		manifest.append("\r\n");
+		return manifest.toString()
+			.getBytes(UTF_8);
+	}
+
+	/**
+	 * Append a manifest header, continuing lines which would be longer than
+	 * the maximum manifest line length of 72 bytes.
+	 */
+	protected void appendHeader(StringBuilder manifest, String name, String value) {
+		String line = name + ": " + value;
+		while (line.length() > 72) {
+			manifest.append(line, 0, 72)
+				.append("\r\n");
+			line = ' ' + line.substring(72);
+		}
+		manifest.append(line)
+			.append("\r\n");
+	}
+}
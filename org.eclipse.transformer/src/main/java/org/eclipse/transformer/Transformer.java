@@ -11,9 +11,12 @@
 
 package org.eclipse.transformer;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.URI;
@@ -21,11 +24,17 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -44,12 +53,15 @@ import org.eclipse.transformer.action.impl.ActionImpl;
 import org.eclipse.transformer.action.impl.BundleDataImpl;
 import org.eclipse.transformer.action.impl.ClassActionImpl;
 import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.ContainerActionImpl;
+import org.eclipse.transformer.action.impl.ContainerSettings;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
 import org.eclipse.transformer.action.impl.EarActionImpl;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
 import org.eclipse.transformer.action.impl.JarActionImpl;
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveWorkers;
 import org.eclipse.transformer.action.impl.NullActionImpl;
 import org.eclipse.transformer.action.impl.PropertiesActionImpl;
 import org.eclipse.transformer.action.impl.RarActionImpl;
@@ -60,7 +72,14 @@ import org.eclipse.transformer.action.impl.TextActionImpl;
 import org.eclipse.transformer.action.impl.WarActionImpl;
 // import org.eclipse.transformer.action.impl.XmlActionImpl;
 import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.ChangeJournal;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.IncrementalState;
+import org.eclipse.transformer.util.MemoryBudget;
+import org.eclipse.transformer.util.Progress;
+import org.eclipse.transformer.util.ProgressSink;
+import org.eclipse.transformer.util.ReferenceScanner;
+import org.eclipse.transformer.util.RuleHits;
 import org.slf4j.Logger;
 
 import aQute.lib.io.IO;
@@ -95,13 +114,42 @@ public class Transformer {
 
 		int rc = trans.run();
 		if (rc == SUCCESS_RC) {
-			System.out.println("Return Code [ 0 ]: Success");
+			PrintStream useOut = (trans.isStreamedOutput() ? System.err : System.out);
+			useOut.println("Return Code [ 0 ]: Success");
 		} else {
 			System.err.println("Return Code [ " + rc + " ]: Failure [ " + RC_DESCRIPTIONS[rc] + " ]");
 		}
 		return rc;
 	}
 
+	/**
+	 * Run the transformer on an archive which is read from a stream, writing
+	 * the transformed archive to another stream. The arguments must specify
+	 * the type of the input using the "--type" option, and must not specify
+	 * input or output files. The streams are not closed.
+	 *
+	 * @param inputStream The stream from which to read the input archive.
+	 * @param outputStream The stream to which to write the output archive.
+	 * @param sysOut The stream to which to write informational messages.
+	 * @param sysErr The stream to which to write error messages.
+	 * @param args The transformer arguments.
+	 * @return The return code of the transform.
+	 */
+	public static int runWith(InputStream inputStream, OutputStream outputStream, PrintStream sysOut,
+		PrintStream sysErr, String... args) {
+
+		String[] streamArgs = new String[args.length + 2];
+		streamArgs[0] = STREAM_NAME;
+		streamArgs[1] = STREAM_NAME;
+		System.arraycopy(args, 0, streamArgs, 2, args.length);
+
+		Transformer trans = new Transformer(sysOut, sysErr);
+		trans.setStreams(inputStream, outputStream);
+		trans.setArgs(streamArgs);
+
+		return trans.run();
+	}
+
 	//
 
 	public static class OptionSettings {
@@ -312,6 +360,54 @@ public class Transformer {
 
 		DRYRUN("d", "dryrun", "Dry run", !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED,
 			OptionSettings.NO_GROUP),
+		SCAN("s", "scan", "Scan input: Report required changes without writing output", !OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		PARALLEL("p", "parallel", "Number of threads used to transform directories", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		INCREMENTAL("n", "incremental", "Incremental directory transform state file", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		METRICS("m", "metrics", "Action metrics output file (.json or .csv)", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		METRICS_ALLOCATION("ma", "metricsAllocation", "Include allocated bytes in action metrics",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED,
+			OptionSettings.NO_GROUP),
+		REPRODUCIBLE("rp", "reproducible",
+			"Reproducible archive output: Keep entry compression methods and use a fixed entry time",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		ENTRY_TIME("et", "entryTime", "Archive entry time, as seconds since the epoch, or \"preserve\"",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		COMPRESSION_LEVEL("cl", "compressionLevel", "Archive compression level, from 0 to 9",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		KEEP_METHOD("km", "keepMethod", "Keep the compression methods of archive entries",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		STORE_COMPRESSED("sc", "storeCompressed",
+			"Store archive entries which are already compressed, for example, nested archives and images",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		EXPLODE("x", "explode", "Write archive output as a directory", !OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		EXPLODE_NESTED("xn", "explodeNested",
+			"Write nested archives as directories when writing archive output as a directory", !OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		LINK("hl", "hardLink", "Write unchanged files as hard links to the input files", !OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		PRUNE("pr", "prune", "Prune the rules to those which are referenced by the input", !OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		DEFLATE_PARALLEL("dp", "deflateParallel", "Number of threads used to compress archive entries",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		NESTED_PARALLEL("np", "nestedParallel", "Number of threads used to transform nested archives",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		MEMORY_BUDGET("mb", "memoryBudget",
+			"Budget of bytes held by entry buffers, with an optional K, M, or G suffix", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		RULE_HITS("rh", "ruleHits",
+			"Rule hits report file (CSV): The hits of an existing report are merged into the report",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		CHANGE_JOURNAL("cj", "changeJournal",
+			"Change journal output file (JSON lines): A record is written for each processed entry",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		PROGRESS("pg", "progress",
+			"Report progress to \"console\", \"log\", or \"json\", with an optional period in seconds, for example, \"log:10\"",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
 
 		RULES_PER_CLASS_CONSTANT("tp", "per-class-constant", "Transformation per class constant string replacements",
 			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
@@ -464,8 +560,13 @@ public class Transformer {
 
 	private final PrintStream sysOut;
 
+	/**
+	 * Answer the stream to which to write informational messages. When the
+	 * output archive is written to a stream, messages are written to the
+	 * error stream, which keeps them out of the output archive.
+	 */
 	protected PrintStream getSystemOut() {
-		return sysOut;
+		return (streamedOutput ? sysErr : sysOut);
 	}
 
 	private final PrintStream sysErr;
@@ -535,6 +636,41 @@ public class Transformer {
 		return ((useDefaultRefs == null) ? null : getRuleDefaultRefs().get(appOption));
 	}
 
+	/**
+	 * Input or output name which selects the input or output stream, in place
+	 * of an input or output file.
+	 */
+	public static final String STREAM_NAME = "-";
+
+	private InputStream		inputStream		= System.in;
+	private OutputStream	outputStream	= System.out;
+	private boolean			streamedOutput;
+
+	/**
+	 * Set the streams which are used when the input or output name is
+	 * {@link #STREAM_NAME}. These default to the standard input and standard
+	 * output streams.
+	 *
+	 * @param inputStream The stream from which to read the input archive.
+	 * @param outputStream The stream to which to write the output archive.
+	 */
+	public void setStreams(InputStream inputStream, OutputStream outputStream) {
+		this.inputStream = inputStream;
+		this.outputStream = outputStream;
+	}
+
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	public boolean isStreamedOutput() {
+		return streamedOutput;
+	}
+
 	public void setArgs(String[] args) {
 		this.args = args;
 	}
@@ -546,6 +682,12 @@ public class Transformer {
 	public void setParsedArgs() throws ParseException {
 		CommandLineParser parser = new DefaultParser();
 		parsedArgs = parser.parse(getAppOptions(), getArgs());
+
+		String outputName = getOutputFileNameFromCommandLine();
+		if (outputName == null) {
+			outputName = getInputFileNameFromCommandLine();
+		}
+		streamedOutput = STREAM_NAME.equals(outputName) && !hasOption(AppOption.SCAN);
 	}
 
 	protected CommandLine getParsedArgs() {
@@ -1028,6 +1170,24 @@ public class Transformer {
 
 		public boolean							allowOverwrite;
 
+		public int								parallelism;
+		public int								nestedParallelism	= 1;
+		private NestedArchiveWorkers			nestedWorkers;
+		public MemoryBudget						memoryBudget;
+		public Progress							progress;
+		public RuleHits							ruleHits;
+		public ChangeJournal					journal;
+
+		public boolean							preserveMethod;
+		public long								entryTime	= ContainerActionImpl.PRESERVE_ENTRY_TIME;
+		public boolean							storeCompressed;
+		public int								compressionLevel	= Deflater.DEFAULT_COMPRESSION;
+		public int								deflateParallelism	= 1;
+		private ExecutorService					deflateExecutor;
+		public boolean							explode;
+		public boolean							explodeNested;
+		private ExecutorService					writeExecutor;
+
 		public String							outputName;
 		public String							outputPath;
 		public File								outputFile;
@@ -1437,7 +1597,7 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (String include : includes) {
-					info("  [ " + include + " ]");
+					info("  [ {} ]", include);
 				}
 			}
 
@@ -1446,7 +1606,7 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (String exclude : excludes) {
-					info("  [ " + exclude + " ]");
+					info("  [ {} ]", exclude);
 				}
 			}
 
@@ -1460,7 +1620,7 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (Map.Entry<String, String> renameEntry : packageRenames.entrySet()) {
-					info("  [ " + renameEntry.getKey() + " ]: [ " + renameEntry.getValue() + " ]");
+					info("  [ {} ]: [ {} ]", renameEntry.getKey(), renameEntry.getValue());
 				}
 			}
 
@@ -1469,7 +1629,7 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (Map.Entry<String, String> versionEntry : packageVersions.entrySet()) {
-					info("  [ " + versionEntry.getKey() + " ]: [ " + versionEntry.getValue() + " ]");
+					info("  [ {} ]: [ {} ]", versionEntry.getKey(), versionEntry.getValue());
 				}
 			}
 
@@ -1480,20 +1640,20 @@ public class Transformer {
 				for (Map.Entry<String, BundleData> updateEntry : bundleUpdates.entrySet()) {
 					BundleData updateData = updateEntry.getValue();
 
-					info("  [ " + updateEntry.getKey() + " ]: [ " + updateData.getSymbolicName() + " ]");
+					info("  [ {} ]: [ {} ]", updateEntry.getKey(), updateData.getSymbolicName());
 
-					info("    [ Version ]: [ " + updateData.getVersion() + " ]");
+					info("    [ Version ]: [ {} ]", updateData.getVersion());
 
 					if (updateData.getAddName()) {
-						info("    [ Name ]: [ " + BundleData.ADDITIVE_CHAR + updateData.getName() + " ]");
+						info("    [ Name ]: [ {}{} ]", BundleData.ADDITIVE_CHAR, updateData.getName());
 					} else {
-						info("    [ Name ]: [ " + updateData.getName() + " ]");
+						info("    [ Name ]: [ {} ]", updateData.getName());
 					}
 
 					if (updateData.getAddDescription()) {
-						info("    [ Description ]: [ " + BundleData.ADDITIVE_CHAR + updateData.getDescription() + " ]");
+						info("    [ Description ]: [ {}{} ]", BundleData.ADDITIVE_CHAR, updateData.getDescription());
 					} else {
-						info("    [ Description ]: [ " + updateData.getDescription() + " ]");
+						info("    [ Description ]: [ {} ]", updateData.getDescription());
 					}
 				}
 			}
@@ -1503,7 +1663,7 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (Map.Entry<String, String> directEntry : directStrings.entrySet()) {
-					info("  [ " + directEntry.getKey() + " ]: [ " + directEntry.getValue() + "]");
+					info("  [ {} ]: [ {} ]", directEntry.getKey(), directEntry.getValue());
 				}
 			}
 
@@ -1512,10 +1672,10 @@ public class Transformer {
 				info("  [ ** NONE ** ]");
 			} else {
 				for (Map.Entry<String, Map<String, String>> masterTextEntry : masterTextUpdates.entrySet()) {
-					info("  Pattern [ " + masterTextEntry.getKey() + " ]");
+					info("  Pattern [ {} ]", masterTextEntry.getKey());
 					for (Map.Entry<String, String> substitution : masterTextEntry.getValue()
 						.entrySet()) {
-						info("    [ " + substitution.getKey() + " ]: [ " + substitution.getValue() + " ]");
+						info("    [ {} ]: [ {} ]", substitution.getKey(), substitution.getValue());
 					}
 				}
 			}
@@ -1540,6 +1700,53 @@ public class Transformer {
 			return signatureRules;
 		}
 
+		/**
+		 * Prune the rules to the rules which are referenced by the input, when
+		 * requested. The input is scanned, including nested archives, for the
+		 * packages of the package renames and for the keys of the text
+		 * substitutions. Rules which are not referenced cannot change the
+		 * input, and are removed, which makes the remaining rules cheaper to
+		 * apply.
+		 *
+		 * @return True or false telling if the rules were pruned, or if
+		 *         pruning was not requested.
+		 */
+		public boolean pruneRules() {
+			if (!hasOption(AppOption.PRUNE)) {
+				return true;
+			}
+			if (inputFile == null) {
+				dual_error("Rules cannot be pruned for input which is read from a stream");
+				return false;
+			}
+
+			SignatureRuleImpl signatureRule = getSignatureRule();
+			ReferenceScanner scanner = new ReferenceScanner(signatureRule.getReferenceCandidates());
+			try {
+				scanner.scan(inputFile); // throws IOException
+			} catch (IOException e) {
+				dual_error("Failed to scan input [ " + inputPath + " ] for rule references", e);
+				return false;
+			}
+
+			SignatureRuleImpl prunedRule = signatureRule.prune(scanner::isReferenced);
+			dual_info("Pruned package renames from [ %s ] to [ %s ] after scanning [ %s ] bytes",
+				signatureRule.getPackageRenames()
+					.size(),
+				prunedRule.getPackageRenames()
+					.size(),
+				scanner.getScannedBytes());
+			if (isVerbose) {
+				for (String packageName : new TreeSet<>(prunedRule.getPackageRenames()
+					.keySet())) {
+					info("  Retained [ {} ]", packageName);
+				}
+			}
+
+			signatureRules = prunedRule;
+			return true;
+		}
+
 		public boolean setInput() {
 			String useInputName = getInputFileNameFromCommandLine();
 			if (useInputName == null) {
@@ -1547,6 +1754,14 @@ public class Transformer {
 				return false;
 			}
 
+			if (STREAM_NAME.equals(useInputName)) {
+				inputName = STREAM_NAME;
+				inputFile = null;
+				inputPath = STREAM_NAME;
+				dual_info("Input     [ %s ] (Stream)", inputName);
+				return true;
+			}
+
 			inputName = FileUtils.normalize(useInputName);
 			inputFile = new File(inputName);
 			inputPath = inputFile.getAbsolutePath();
@@ -1580,6 +1795,14 @@ public class Transformer {
 
 			boolean isExplicit = (useOutputName != null);
 
+			if (isExplicit ? STREAM_NAME.equals(useOutputName) : (inputFile == null)) {
+				outputName = STREAM_NAME;
+				outputFile = null;
+				outputPath = STREAM_NAME;
+				dual_info("Output    [ %s ] (Stream)", outputName);
+				return true;
+			}
+
 			if (isExplicit) {
 				useOutputName = FileUtils.normalize(useOutputName);
 
@@ -1597,7 +1820,7 @@ public class Transformer {
 			File useOutputFile = new File(useOutputName);
 			String useOutputPath = useOutputFile.getAbsolutePath();
 
-			boolean putIntoDirectory = (inputFile.isFile() && useOutputFile.isDirectory());
+			boolean putIntoDirectory = ((inputFile != null) && inputFile.isFile() && useOutputFile.isDirectory());
 
 			if (putIntoDirectory) {
 				useOutputName = useOutputName + '/' + inputName;
@@ -1654,95 +1877,347 @@ public class Transformer {
 			return true;
 		}
 
+		public boolean setParallelism() {
+			String parallelismText = getOptionValue(AppOption.PARALLEL);
+			if (parallelismText == null) {
+				parallelism = 1;
+				return true;
+			}
+
+			try {
+				parallelism = Integer.parseInt(parallelismText.trim());
+			} catch (NumberFormatException e) {
+				dual_error("Parallelism [ %s ] is not a number", parallelismText);
+				return false;
+			}
+			if (parallelism < 1) {
+				dual_error("Parallelism [ %s ] is less than one", parallelismText);
+				return false;
+			}
+
+			dual_info("Parallelism [ %s ]", parallelism);
+			return setNestedParallelism();
+		}
+
+		public boolean setNestedParallelism() {
+			String parallelismText = getOptionValue(AppOption.NESTED_PARALLEL);
+			if (parallelismText == null) {
+				return true;
+			}
+
+			try {
+				nestedParallelism = Integer.parseInt(parallelismText.trim());
+			} catch (NumberFormatException e) {
+				dual_error("Nested parallelism [ %s ] is not a number", parallelismText);
+				return false;
+			}
+			if (nestedParallelism < 1) {
+				dual_error("Nested parallelism [ %s ] is less than one", parallelismText);
+				return false;
+			}
+
+			dual_info("Nested parallelism [ %s ]", nestedParallelism);
+			return true;
+		}
+
+		public boolean setMemoryBudget() {
+			String budgetText = getOptionValue(AppOption.MEMORY_BUDGET);
+			if (budgetText == null) {
+				return true;
+			}
+
+			long budgetBytes;
+			try {
+				budgetBytes = MemoryBudget.parseBytes(budgetText);
+			} catch (NumberFormatException | ArithmeticException e) {
+				dual_error("Memory budget [ %s ] is not a count of bytes", budgetText);
+				return false;
+			}
+			if (budgetBytes < 1L) {
+				dual_error("Memory budget [ %s ] is less than one", budgetText);
+				return false;
+			}
+
+			memoryBudget = new MemoryBudget(budgetBytes);
+			dual_info("Memory budget [ %s ]", budgetBytes);
+			return true;
+		}
+
+		public static final long DEFAULT_PROGRESS_SECONDS = 5L;
+
+		/**
+		 * Set progress reporting, when requested. Progress is reported to the
+		 * console as a single line which is overwritten, to the log, or as a
+		 * JSON object per line, with a default period of
+		 * {@link #DEFAULT_PROGRESS_SECONDS} seconds.
+		 *
+		 * @return True or false telling if the progress option is valid.
+		 */
+		public boolean setProgress() {
+			String progressText = getOptionValue(AppOption.PROGRESS);
+			if (progressText == null) {
+				return true;
+			}
+
+			String sinkName = progressText.trim();
+			long periodSeconds = DEFAULT_PROGRESS_SECONDS;
+
+			int colonOffset = sinkName.indexOf(':');
+			if (colonOffset != -1) {
+				String periodText = sinkName.substring(colonOffset + 1)
+					.trim();
+				sinkName = sinkName.substring(0, colonOffset)
+					.trim();
+				try {
+					periodSeconds = Long.parseLong(periodText);
+				} catch (NumberFormatException e) {
+					dual_error("Progress period [ %s ] is not a number", periodText);
+					return false;
+				}
+				if (periodSeconds < 1L) {
+					dual_error("Progress period [ %s ] is less than one", periodText);
+					return false;
+				}
+			}
+
+			ProgressSink sink;
+			if (sinkName.equalsIgnoreCase("console")) {
+				sink = ProgressSink.console(getSystemErr());
+			} else if (sinkName.equalsIgnoreCase("log")) {
+				sink = ProgressSink.log(getLogger());
+			} else if (sinkName.equalsIgnoreCase("json")) {
+				sink = ProgressSink.json(getSystemOut());
+			} else {
+				dual_error("Progress [ %s ] is not \"console\", \"log\", or \"json\"", sinkName);
+				return false;
+			}
+
+			progress = new Progress(sink, periodSeconds * 1000L);
+			dual_info("Progress [ %s ] Period [ %s ]", sinkName, periodSeconds);
+			return true;
+		}
+
+		/**
+		 * Open the change journal, when requested. The journal is closed when
+		 * the transform completes.
+		 *
+		 * @return True or false telling if the journal was opened.
+		 */
+		public boolean setJournal() {
+			String journalFileName = getOptionValue(AppOption.CHANGE_JOURNAL);
+			if (journalFileName == null) {
+				return true;
+			}
+
+			File journalFile = new File(FileUtils.normalize(journalFileName));
+			File journalParent = journalFile.getAbsoluteFile()
+				.getParentFile();
+			if ((journalParent != null) && !journalParent.isDirectory() && !journalParent.mkdirs()) {
+				dual_error("Failed to create journal directory [ %s ]", journalParent.getAbsolutePath());
+				return false;
+			}
+
+			try {
+				journal = ChangeJournal.open(journalFile.toPath()); // throws IOException
+			} catch (IOException e) {
+				dual_error("Failed to open journal [ " + journalFile.getAbsolutePath() + " ]", e);
+				return false;
+			}
+
+			dual_info("Change journal [ %s ]", journalFile.getAbsolutePath());
+			return true;
+		}
+
+		/**
+		 * Close the change journal, if one was opened. The journal is closed
+		 * even when the transform fails, so that the records of the entries
+		 * which completed are kept.
+		 *
+		 * @return The failure to write the journal. Null if the journal was
+		 *         written, or if no journal was opened.
+		 */
+		protected IOException closeJournal() {
+			if (journal == null) {
+				return null;
+			}
+			try {
+				journal.close(); // throws IOException
+			} catch (IOException e) {
+				return e;
+			}
+			dual_info("Change journal records [ %s ]", journal.getRecords());
+			return null;
+		}
+
+		/**
+		 * Answer the workers used to transform nested archives. The workers
+		 * use a work stealing pool, which is shut down when the transform
+		 * completes. Each worker task uses its own action tree, which is
+		 * created by {@link #createNestedWorker()}.
+		 *
+		 * @return The workers used to transform nested archives. Null if
+		 *         nested archives are transformed by the transforming thread.
+		 */
+		public NestedArchiveWorkers getNestedWorkers() {
+			if ((nestedWorkers == null) && (nestedParallelism > 1)) {
+				nestedWorkers = new NestedArchiveWorkers(new ForkJoinPool(nestedParallelism),
+					this::createNestedWorker);
+			}
+			return nestedWorkers;
+		}
+
+		/** Environment variable which may be used to set the entry time of reproducible output. */
+		public static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+
+		public boolean setReproducible() {
+			String entryTimeText = getOptionValue(AppOption.ENTRY_TIME);
+
+			if (hasOption(AppOption.REPRODUCIBLE)) {
+				preserveMethod = true;
+				entryTime = ContainerActionImpl.REPRODUCIBLE_ENTRY_TIME;
+				if (entryTimeText == null) {
+					entryTimeText = System.getenv(SOURCE_DATE_EPOCH);
+				}
+				dual_info("Reproducible output: Entry compression methods are kept");
+			}
+
+			if (entryTimeText != null) {
+				entryTimeText = entryTimeText.trim();
+				if (entryTimeText.equalsIgnoreCase("preserve")) {
+					entryTime = ContainerActionImpl.PRESERVE_ENTRY_TIME;
+				} else {
+					long entrySeconds;
+					try {
+						entrySeconds = Long.parseLong(entryTimeText);
+					} catch (NumberFormatException e) {
+						dual_error("Entry time [ %s ] is not a number", entryTimeText);
+						return false;
+					}
+					if (entrySeconds < 0) {
+						dual_error("Entry time [ %s ] is less than zero", entryTimeText);
+						return false;
+					}
+					entryTime = entrySeconds * 1000L;
+				}
+			}
+
+			if (entryTime == ContainerActionImpl.PRESERVE_ENTRY_TIME) {
+				dual_info("Entry times are preserved");
+			} else {
+				dual_info("Entry time [ %s ]", Instant.ofEpochMilli(entryTime));
+			}
+			return true;
+		}
+
+		public boolean setCompression() {
+			if (hasOption(AppOption.KEEP_METHOD)) {
+				preserveMethod = true;
+				dual_info("Entry compression methods are kept");
+			}
+
+			storeCompressed = hasOption(AppOption.STORE_COMPRESSED);
+			if (storeCompressed) {
+				dual_info("Entries which are already compressed are stored");
+			}
+
+			String levelText = getOptionValue(AppOption.COMPRESSION_LEVEL);
+			if (levelText != null) {
+				try {
+					compressionLevel = Integer.parseInt(levelText.trim());
+				} catch (NumberFormatException e) {
+					dual_error("Compression level [ %s ] is not a number", levelText);
+					return false;
+				}
+				if ((compressionLevel < Deflater.NO_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+					dual_error("Compression level [ %s ] is not from 0 to 9", levelText);
+					return false;
+				}
+				dual_info("Compression level [ %s ]", compressionLevel);
+			}
+
+			String parallelismText = getOptionValue(AppOption.DEFLATE_PARALLEL);
+			if (parallelismText != null) {
+				try {
+					deflateParallelism = Integer.parseInt(parallelismText.trim());
+				} catch (NumberFormatException e) {
+					dual_error("Deflate parallelism [ %s ] is not a number", parallelismText);
+					return false;
+				}
+				if (deflateParallelism < 1) {
+					dual_error("Deflate parallelism [ %s ] is less than one", parallelismText);
+					return false;
+				}
+				dual_info("Deflate parallelism [ %s ]", deflateParallelism);
+			}
+
+			return true;
+		}
+
+		/**
+		 * Answer the executor used to compress archive entries. The executor
+		 * is shared by all of the actions, and is shut down when the
+		 * transform completes. The threads of the executor are daemon threads,
+		 * so that a failure before the transform does not prevent the JVM
+		 * from exiting.
+		 *
+		 * @return The executor used to compress archive entries. Null if
+		 *         entries are compressed by the transforming threads.
+		 */
+		public ExecutorService getDeflateExecutor() {
+			if ((deflateExecutor == null) && (deflateParallelism > 1)) {
+				deflateExecutor = Executors.newFixedThreadPool(deflateParallelism, runnable -> {
+					Thread thread = new Thread(runnable, "Transformer deflate");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return deflateExecutor;
+		}
+
+		public void setExplode() {
+			explode = hasOption(AppOption.EXPLODE);
+			if (explode) {
+				explodeNested = hasOption(AppOption.EXPLODE_NESTED);
+				dual_info("Archive output is written as a directory%s",
+					(explodeNested ? ", including nested archives" : ""));
+			}
+		}
+
+		/**
+		 * Answer the executor used to write files when writing archive output
+		 * as a directory. The executor uses the directory parallelism, and is
+		 * shut down when the transform completes.
+		 *
+		 * @return The executor used to write files. Null if files are written
+		 *         by the transforming thread.
+		 */
+		public ExecutorService getWriteExecutor() {
+			if ((writeExecutor == null) && explode && (parallelism > 1)) {
+				writeExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+					Thread thread = new Thread(runnable, "Transformer write");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return writeExecutor;
+		}
+
 		public CompositeActionImpl getRootAction() {
 			if (rootAction == null) {
-				CompositeActionImpl useRootAction = new CompositeActionImpl(getLogger(), isTerse, isVerbose,
-					getBuffer(), getSelectionRule(), getSignatureRule());
-
-				DirectoryActionImpl directoryAction = useRootAction.addUsing(DirectoryActionImpl::new);
-
-				ClassActionImpl classAction = useRootAction.addUsing(ClassActionImpl::new);
-				JavaActionImpl javaAction = useRootAction.addUsing(JavaActionImpl::new);
-				ServiceLoaderConfigActionImpl serviceConfigAction = useRootAction
-					.addUsing(ServiceLoaderConfigActionImpl::new);
-				ManifestActionImpl manifestAction = useRootAction.addUsing(ManifestActionImpl::newManifestAction);
-				ManifestActionImpl featureAction = useRootAction.addUsing(ManifestActionImpl::newFeatureAction);
-				PropertiesActionImpl propertiesAction = useRootAction.addUsing(PropertiesActionImpl::new);
-
-				JarActionImpl jarAction = useRootAction.addUsing(JarActionImpl::new);
-				WarActionImpl warAction = useRootAction.addUsing(WarActionImpl::new);
-				RarActionImpl rarAction = useRootAction.addUsing(RarActionImpl::new);
-				EarActionImpl earAction = useRootAction.addUsing(EarActionImpl::new);
-
-				TextActionImpl textAction = useRootAction.addUsing(TextActionImpl::new);
-				// XmlActionImpl xmlAction =
-				// useRootAction.addUsing( XmlActionImpl::new );
-
-				ZipActionImpl zipAction = useRootAction.addUsing(ZipActionImpl::new);
-
-				NullActionImpl nullAction = useRootAction.addUsing(NullActionImpl::new);
-
-				// Directory actions know about all actions except for directory
-				// actions.
-
-				directoryAction.addAction(classAction);
-				directoryAction.addAction(javaAction);
-				directoryAction.addAction(serviceConfigAction);
-				directoryAction.addAction(manifestAction);
-				directoryAction.addAction(featureAction);
-				directoryAction.addAction(zipAction);
-				directoryAction.addAction(jarAction);
-				directoryAction.addAction(warAction);
-				directoryAction.addAction(rarAction);
-				directoryAction.addAction(earAction);
-				directoryAction.addAction(textAction);
-				directoryAction.addAction(nullAction);
-
-				jarAction.addAction(classAction);
-				jarAction.addAction(javaAction);
-				jarAction.addAction(serviceConfigAction);
-				jarAction.addAction(manifestAction);
-				jarAction.addAction(featureAction);
-				jarAction.addAction(textAction);
-				jarAction.addAction(propertiesAction);
-				jarAction.addAction(nullAction);
-
-				warAction.addAction(classAction);
-				warAction.addAction(javaAction);
-				warAction.addAction(serviceConfigAction);
-				warAction.addAction(manifestAction);
-				warAction.addAction(featureAction);
-				warAction.addAction(jarAction);
-				warAction.addAction(textAction);
-				warAction.addAction(nullAction);
-
-				rarAction.addAction(classAction);
-				rarAction.addAction(javaAction);
-				rarAction.addAction(serviceConfigAction);
-				rarAction.addAction(manifestAction);
-				rarAction.addAction(featureAction);
-				rarAction.addAction(jarAction);
-				rarAction.addAction(textAction);
-				rarAction.addAction(nullAction);
-
-				earAction.addAction(manifestAction);
-				earAction.addAction(jarAction);
-				earAction.addAction(warAction);
-				earAction.addAction(rarAction);
-				earAction.addAction(textAction);
-				earAction.addAction(nullAction);
-
-				zipAction.addAction(classAction);
-				zipAction.addAction(javaAction);
-				zipAction.addAction(serviceConfigAction);
-				zipAction.addAction(manifestAction);
-				zipAction.addAction(featureAction);
-				zipAction.addAction(jarAction);
-				zipAction.addAction(warAction);
-				zipAction.addAction(rarAction);
-				zipAction.addAction(earAction);
-				zipAction.addAction(textAction);
-				zipAction.addAction(nullAction);
+				CompositeActionImpl useRootAction = createRootAction(getBuffer(), getSignatureRule());
+
+				DirectoryActionImpl directoryAction = getDirectoryAction(useRootAction);
+				if (parallelism > 1) {
+					directoryAction.setParallelism(parallelism, this::createDirectoryWorker);
+				}
+				IncrementalState incrementalState = getIncrementalState();
+				if (incrementalState != null) {
+					directoryAction.setIncrementalState(incrementalState);
+				}
+				if (hasOption(AppOption.LINK)) {
+					dual_info("Unchanged files are written as hard links to the input files");
+					directoryAction.setLinkUnchanged(true);
+				}
 
 				rootAction = useRootAction;
 			}
@@ -1750,6 +2225,193 @@ public class Transformer {
 			return rootAction;
 		}
 
+		/**
+		 * Create a directory action for use by a worker thread. Directory
+		 * workers have their own action tree, input buffer, and signature
+		 * rule, and share only the logger and the selection rule.
+		 *
+		 * @return A directory action for use by a worker thread.
+		 */
+		protected DirectoryActionImpl createDirectoryWorker() {
+			return getDirectoryAction(createRootAction(new InputBufferImpl(), getSignatureRule().copy()));
+		}
+
+		/**
+		 * Create an action tree for use by a nested archive task. As with
+		 * directory workers, nested archive workers have their own action
+		 * tree, input buffer, and signature rule.
+		 *
+		 * @return An action tree for use by a nested archive task.
+		 */
+		protected CompositeActionImpl createNestedWorker() {
+			return createRootAction(new InputBufferImpl(), getSignatureRule().copy());
+		}
+
+		protected DirectoryActionImpl getDirectoryAction(CompositeActionImpl useRootAction) {
+			for (ActionImpl action : useRootAction.getActions()) {
+				if (action instanceof DirectoryActionImpl) {
+					return (DirectoryActionImpl) action;
+				}
+			}
+			throw new IllegalStateException("No directory action");
+		}
+
+		/**
+		 * Answer the state of an incremental directory transform, if one was
+		 * requested. The state is bound to a fingerprint of all of the rules
+		 * data: A change to the rules causes all files to be transformed.
+		 *
+		 * @return The incremental transform state. Null if no incremental
+		 *         transform was requested.
+		 */
+		protected IncrementalState getIncrementalState() {
+			String stateFileName = getOptionValue(AppOption.INCREMENTAL);
+			if (stateFileName == null) {
+				return null;
+			}
+
+			Map<String, String> printableBundleUpdates = null;
+			if (bundleUpdates != null) {
+				printableBundleUpdates = new HashMap<>(bundleUpdates.size());
+				for (Map.Entry<String, BundleData> bundleEntry : bundleUpdates.entrySet()) {
+					printableBundleUpdates.put(bundleEntry.getKey(), bundleEntry.getValue()
+						.getPrintString());
+				}
+			}
+
+			// Output settings change the bytes of written archives, and a new
+			// transformer version may transform differently: Changes to either
+			// must invalidate the state, the same as changes to the rules.
+			String version = getBuildProperties().getProperty(SHORT_VERSION_PROPERTY_NAME);
+
+			String rulesFingerprint = IncrementalState.fingerprint(includes, excludes, packageRenames,
+				packageVersions, printableBundleUpdates, masterTextUpdates, directStrings, perClassConstantStrings,
+				version, preserveMethod, entryTime, storeCompressed, compressionLevel, explode, explodeNested);
+
+			File stateFile = new File(FileUtils.normalize(stateFileName));
+			dual_info("Incremental state [ %s ]", stateFile.getAbsolutePath());
+
+			return new IncrementalState(stateFile, rulesFingerprint);
+		}
+
+		protected CompositeActionImpl createRootAction(InputBufferImpl useBuffer, SignatureRuleImpl useSignatureRule) {
+			CompositeActionImpl useRootAction = new CompositeActionImpl(getLogger(), isTerse, isVerbose,
+				useBuffer, getSelectionRule(), useSignatureRule);
+
+			DirectoryActionImpl directoryAction = useRootAction.addUsing(DirectoryActionImpl::new);
+
+			ClassActionImpl classAction = useRootAction.addUsing(ClassActionImpl::new);
+			JavaActionImpl javaAction = useRootAction.addUsing(JavaActionImpl::new);
+			ServiceLoaderConfigActionImpl serviceConfigAction = useRootAction
+				.addUsing(ServiceLoaderConfigActionImpl::new);
+			ManifestActionImpl manifestAction = useRootAction.addUsing(ManifestActionImpl::newManifestAction);
+			ManifestActionImpl featureAction = useRootAction.addUsing(ManifestActionImpl::newFeatureAction);
+			PropertiesActionImpl propertiesAction = useRootAction.addUsing(PropertiesActionImpl::new);
+
+			JarActionImpl jarAction = useRootAction.addUsing(JarActionImpl::new);
+			WarActionImpl warAction = useRootAction.addUsing(WarActionImpl::new);
+			RarActionImpl rarAction = useRootAction.addUsing(RarActionImpl::new);
+			EarActionImpl earAction = useRootAction.addUsing(EarActionImpl::new);
+
+			TextActionImpl textAction = useRootAction.addUsing(TextActionImpl::new);
+			// XmlActionImpl xmlAction =
+			// useRootAction.addUsing( XmlActionImpl::new );
+
+			ZipActionImpl zipAction = useRootAction.addUsing(ZipActionImpl::new);
+
+			NullActionImpl nullAction = useRootAction.addUsing(NullActionImpl::new);
+
+			// Directory actions know about all actions except for directory
+			// actions.
+
+			directoryAction.addAction(classAction);
+			directoryAction.addAction(javaAction);
+			directoryAction.addAction(serviceConfigAction);
+			directoryAction.addAction(manifestAction);
+			directoryAction.addAction(featureAction);
+			directoryAction.addAction(zipAction);
+			directoryAction.addAction(jarAction);
+			directoryAction.addAction(warAction);
+			directoryAction.addAction(rarAction);
+			directoryAction.addAction(earAction);
+			directoryAction.addAction(textAction);
+			directoryAction.addAction(nullAction);
+
+			jarAction.addAction(classAction);
+			jarAction.addAction(javaAction);
+			jarAction.addAction(serviceConfigAction);
+			jarAction.addAction(manifestAction);
+			jarAction.addAction(featureAction);
+			jarAction.addAction(textAction);
+			jarAction.addAction(propertiesAction);
+			jarAction.addAction(nullAction);
+
+			warAction.addAction(classAction);
+			warAction.addAction(javaAction);
+			warAction.addAction(serviceConfigAction);
+			warAction.addAction(manifestAction);
+			warAction.addAction(featureAction);
+			warAction.addAction(jarAction);
+			warAction.addAction(textAction);
+			warAction.addAction(nullAction);
+
+			rarAction.addAction(classAction);
+			rarAction.addAction(javaAction);
+			rarAction.addAction(serviceConfigAction);
+			rarAction.addAction(manifestAction);
+			rarAction.addAction(featureAction);
+			rarAction.addAction(jarAction);
+			rarAction.addAction(textAction);
+			rarAction.addAction(nullAction);
+
+			earAction.addAction(manifestAction);
+			earAction.addAction(jarAction);
+			earAction.addAction(warAction);
+			earAction.addAction(rarAction);
+			earAction.addAction(textAction);
+			earAction.addAction(nullAction);
+
+			zipAction.addAction(classAction);
+			zipAction.addAction(javaAction);
+			zipAction.addAction(serviceConfigAction);
+			zipAction.addAction(manifestAction);
+			zipAction.addAction(featureAction);
+			zipAction.addAction(jarAction);
+			zipAction.addAction(warAction);
+			zipAction.addAction(rarAction);
+			zipAction.addAction(earAction);
+			zipAction.addAction(textAction);
+			zipAction.addAction(nullAction);
+
+			if (hasOption(AppOption.METRICS)) {
+				useRootAction.setCollectMetrics(true);
+				if (hasOption(AppOption.METRICS_ALLOCATION)) {
+					useRootAction.setCollectAllocation(true);
+				}
+			}
+
+			ContainerSettings containerSettings = new ContainerSettings();
+			containerSettings.setEntryTime(entryTime);
+			containerSettings.setPreserveMethod(preserveMethod);
+			containerSettings.setStoreCompressed(storeCompressed);
+			containerSettings.setCompressionLevel(compressionLevel);
+			containerSettings.setDeflateExecutor(getDeflateExecutor());
+			containerSettings.setExplodeNested(explodeNested);
+			containerSettings.setWriteExecutor(getWriteExecutor());
+			containerSettings.setNestedWorkers(getNestedWorkers());
+			containerSettings.setMemoryBudget(memoryBudget);
+			containerSettings.setProgress(progress);
+			containerSettings.setJournal(journal);
+
+			for (ActionImpl action : useRootAction.getActions()) {
+				if (action instanceof ContainerActionImpl) {
+					((ContainerActionImpl) action).setSettings(containerSettings);
+				}
+			}
+
+			return useRootAction;
+		}
+
 		public boolean acceptAction() {
 			String actionName = getOptionValue(AppOption.FILE_TYPE);
 			if (actionName != null) {
@@ -1764,6 +2426,11 @@ public class Transformer {
 				dual_error("No match for forced action [ %s ]", actionName);
 				return false;
 
+			} else if (inputFile == null) {
+				dual_error("The type of input which is read from a stream must be specified using [ --%s ]",
+					AppOption.FILE_TYPE.getLongTag());
+				return false;
+
 			} else {
 				acceptedAction = getRootAction().acceptAction(inputName, inputFile);
 				if (acceptedAction == null) {
@@ -1778,30 +2445,243 @@ public class Transformer {
 
 		public void transform() throws TransformException {
 
-			acceptedAction.apply(inputName, inputFile, outputFile);
+			if (progress != null) {
+				progress.start();
+			}
+
+			IOException journalFailure = null;
+
+			try {
+				if ((inputFile == null) || (outputFile == null)) {
+					applyStreams();
+				} else if (explode) {
+					if (!(acceptedAction instanceof ContainerActionImpl)
+						|| (acceptedAction instanceof DirectoryActionImpl)) {
+						throw new TransformException("Input [ " + inputPath + " ] of type [ "
+							+ acceptedAction.getName() + " ] cannot be written as a directory");
+					}
+					((ContainerActionImpl) acceptedAction).applyExploded(inputName, inputFile, outputFile);
+				} else {
+					acceptedAction.apply(inputName, inputFile, outputFile);
+				}
+			} finally {
+				if (deflateExecutor != null) {
+					deflateExecutor.shutdown();
+				}
+				if (writeExecutor != null) {
+					writeExecutor.shutdown();
+				}
+				if (nestedWorkers != null) {
+					nestedWorkers.getExecutor()
+						.shutdown();
+				}
+				if (progress != null) {
+					progress.stop();
+				}
+				journalFailure = closeJournal();
+				if (memoryBudget != null) {
+					dual_info("Memory budget [ %s ] Peak [ %s ] Waits [ %s ]", memoryBudget.getCapacity(),
+						memoryBudget.getPeak(), memoryBudget.getWaits());
+				}
+			}
+
+			if (journalFailure != null) {
+				throw new TransformException(
+					"Failed to write journal [ " + getOptionValue(AppOption.CHANGE_JOURNAL) + " ]", journalFailure);
+			}
+
+			displayChanges(outputPath);
+		}
+
+		/**
+		 * Transform an archive which is read from the input stream, or which
+		 * is written to the output stream. Only archives can be streamed, since
+		 * the other actions require the length of their input.
+		 */
+		protected void applyStreams() throws TransformException {
+			if (!(acceptedAction instanceof ContainerActionImpl) || (acceptedAction instanceof DirectoryActionImpl)) {
+				throw new TransformException("Input [ " + inputPath + " ] of type [ " + acceptedAction.getName()
+					+ " ] cannot be streamed");
+			}
+			if (explode) {
+				throw new TransformException("Streamed input [ " + inputPath + " ] or output [ " + outputPath
+					+ " ] cannot be written as a directory");
+			}
+
+			try (InputStream fileInput = ((inputFile == null) ? null : IO.stream(inputFile));
+				OutputStream fileOutput = ((outputFile == null) ? null : IO.outputStream(outputFile))) {
+				// throws IOException
+
+				InputStream useInput = ((fileInput == null) ? new BufferedInputStream(getInputStream())
+					: fileInput);
+				OutputStream useOutput = ((fileOutput == null) ? new BufferedOutputStream(getOutputStream())
+					: fileOutput);
+
+				long inputLength = ((inputFile == null) ? -1L : inputFile.length());
+				acceptedAction.apply(inputName, useInput, inputLength, useOutput);
+				useOutput.flush(); // throws IOException
 
+			} catch (IOException e) {
+				throw new TransformException(
+					"Failed to stream input [ " + inputPath + " ] to output [ " + outputPath + " ]", e);
+			}
+		}
+
+		public void scan() throws TransformException {
+
+			if (inputFile == null) {
+				if (!(acceptedAction instanceof ContainerActionImpl)
+					|| (acceptedAction instanceof DirectoryActionImpl)) {
+					throw new TransformException("Input [ " + inputPath + " ] of type [ "
+						+ acceptedAction.getName() + " ] cannot be streamed");
+				}
+				acceptedAction.scan(inputName, new BufferedInputStream(getInputStream()), -1L);
+			} else {
+				acceptedAction.scan(inputName, inputFile);
+			}
+
+			// Scans do not process entries: The journal is empty.
+			IOException journalFailure = closeJournal();
+			if (journalFailure != null) {
+				throw new TransformException(
+					"Failed to write journal [ " + getOptionValue(AppOption.CHANGE_JOURNAL) + " ]", journalFailure);
+			}
+
+			displayChanges(inputPath);
+		}
+
+		protected void displayChanges(String useOutputPath) {
 			if (isTerse) {
 				if (!toSysOut && !toSysErr) {
 					acceptedAction.getLastActiveChanges()
-						.displayTerse(getSystemOut(), inputPath, outputPath);
+						.displayTerse(getSystemOut(), inputPath, useOutputPath);
 				}
 				acceptedAction.getLastActiveChanges()
-					.displayTerse(getLogger(), inputPath, outputPath);
+					.displayTerse(getLogger(), inputPath, useOutputPath);
 			} else if (isVerbose) {
 				if (!toSysOut && !toSysErr) {
 					acceptedAction.getLastActiveChanges()
-						.displayVerbose(getSystemOut(), inputPath, outputPath);
+						.displayVerbose(getSystemOut(), inputPath, useOutputPath);
 				}
 				acceptedAction.getLastActiveChanges()
-					.displayVerbose(getLogger(), inputPath, outputPath);
+					.displayVerbose(getLogger(), inputPath, useOutputPath);
 			} else {
 				if (!toSysOut && !toSysErr) {
 					acceptedAction.getLastActiveChanges()
-						.display(getSystemOut(), inputPath, outputPath);
+						.display(getSystemOut(), inputPath, useOutputPath);
 				}
 				acceptedAction.getLastActiveChanges()
-					.display(getLogger(), inputPath, outputPath);
+					.display(getLogger(), inputPath, useOutputPath);
+			}
+		}
+
+		/**
+		 * Write the metrics of the last transform, if a metrics file was
+		 * requested. The metrics are written as CSV if the metrics file has
+		 * the extension ".csv", and otherwise are written as JSON.
+		 *
+		 * @param useOutputPath The output path to record in the metrics.
+		 * @return True or false telling if the metrics were written.
+		 */
+		public boolean writeMetrics(String useOutputPath) {
+			String metricsFileName = getOptionValue(AppOption.METRICS);
+			if (metricsFileName == null) {
+				return true;
+			}
+
+			Changes changes = getLastActiveChanges();
+			if (changes == null) {
+				return true;
+			}
+
+			File metricsFile = new File(FileUtils.normalize(metricsFileName));
+			File metricsParent = metricsFile.getAbsoluteFile()
+				.getParentFile();
+			if ((metricsParent != null) && !metricsParent.isDirectory() && !metricsParent.mkdirs()) {
+				dual_error("Failed to create metrics directory [ %s ]", metricsParent.getAbsolutePath());
+				return false;
+			}
+
+			try (PrintStream metricsStream = new PrintStream(metricsFile, "UTF-8")) { // throws IOException
+				if (metricsFileName.toLowerCase()
+					.endsWith(".csv")) {
+					changes.writeMetricsCsv(metricsStream, inputPath, useOutputPath);
+				} else {
+					changes.writeMetricsJson(metricsStream, inputPath, useOutputPath);
+				}
+			} catch (IOException e) {
+				dual_error("Failed to write metrics [ " + metricsFile.getAbsolutePath() + " ]", e);
+				return false;
+			}
+
+			dual_info("Metrics [ %s ]", metricsFile.getAbsolutePath());
+			return true;
+		}
+
+		/**
+		 * Start counting the hits of the transformation rules, if a rule hits
+		 * report was requested. Rules must be set first. All of the rules are
+		 * counted, including rules which are later pruned.
+		 */
+		public void setRuleHits() {
+			if (getOptionValue(AppOption.RULE_HITS) == null) {
+				return;
+			}
+
+			ruleHits = new RuleHits(inputName);
+			getSignatureRule().setRuleHits(ruleHits);
+			dual_info("Counting rule hits");
+		}
+
+		/**
+		 * Write the rule hits of the last transform, if a rule hits report was
+		 * requested. When the report already exists, the hits of the report
+		 * are merged with the hits of the last transform.
+		 *
+		 * @return True or false telling if the rule hits were written.
+		 */
+		public boolean writeRuleHits() {
+			String ruleHitsFileName = getOptionValue(AppOption.RULE_HITS);
+			if ((ruleHitsFileName == null) || (ruleHits == null)) {
+				return true;
 			}
+
+			File ruleHitsFile = new File(FileUtils.normalize(ruleHitsFileName));
+			File ruleHitsParent = ruleHitsFile.getAbsoluteFile()
+				.getParentFile();
+			if ((ruleHitsParent != null) && !ruleHitsParent.isDirectory() && !ruleHitsParent.mkdirs()) {
+				dual_error("Failed to create rule hits directory [ %s ]", ruleHitsParent.getAbsolutePath());
+				return false;
+			}
+
+			RuleHits useRuleHits = ruleHits;
+			if (ruleHitsFile.exists()) {
+				try {
+					useRuleHits = RuleHits.readCsv(ruleHitsFile.toPath(), inputName); // throws IOException
+				} catch (IOException e) {
+					dual_error("Failed to read rule hits [ " + ruleHitsFile.getAbsolutePath() + " ]", e);
+					return false;
+				}
+				useRuleHits.merge(ruleHits);
+				dual_info("Merged rule hits into [ %s ]", ruleHitsFile.getAbsolutePath());
+			}
+
+			try (PrintStream ruleHitsStream = new PrintStream(ruleHitsFile, "UTF-8")) { // throws IOException
+				useRuleHits.writeCsv(ruleHitsStream);
+			} catch (IOException e) {
+				dual_error("Failed to write rule hits [ " + ruleHitsFile.getAbsolutePath() + " ]", e);
+				return false;
+			}
+
+			for (String kind : ruleHits.getKinds()) {
+				int rules = ruleHits.getRules(kind)
+					.size();
+				int unused = ruleHits.getUnused(kind)
+					.size();
+				dual_info("Rule hits [ %s ]: [ %s ] of [ %s ] rules were used", kind, rules - unused, rules);
+			}
+			dual_info("Rule hits [ %s ]", ruleHitsFile.getAbsolutePath());
+			return true;
 		}
 
 		public Changes getLastActiveChanges() {
@@ -1813,12 +2693,21 @@ public class Transformer {
 	}
 
 	public int run() {
-		displayCopyright();
-		displayBuildProperties();
+		// Parse the arguments before displaying anything: The output archive
+		// may be written to standard output.
 
+		ParseException parseException = null;
 		try {
 			setParsedArgs();
 		} catch (ParseException e) {
+			parseException = e;
+		}
+
+		displayCopyright();
+		displayBuildProperties();
+
+		if (parseException != null) {
+			ParseException e = parseException;
 			errorPrint("Exception parsing command line arguments: %s", e);
 			help(getSystemOut());
 			return PARSE_ERROR_RC;
@@ -1846,10 +2735,25 @@ public class Transformer {
 			return TRANSFORM_ERROR_RC;
 		}
 
-		if (!options.setOutput()) {
+		boolean isScan = hasOption(AppOption.SCAN);
+		if (isScan) {
+			dual_info("Scan only: No output will be written");
+		} else if (!options.setOutput()) {
 			return TRANSFORM_ERROR_RC;
 		}
 
+		if (!options.setParallelism() || !options.setMemoryBudget() || !options.setProgress()
+			|| !options.setJournal()) {
+			return TRANSFORM_ERROR_RC;
+		}
+
+		if (!isScan) {
+			if (!options.setReproducible() || !options.setCompression()) {
+				return TRANSFORM_ERROR_RC;
+			}
+			options.setExplode();
+		}
+
 		boolean loadedRules;
 		try {
 			loadedRules = options.setRules();
@@ -1864,6 +2768,10 @@ public class Transformer {
 		if (options.isVerbose) {
 			options.logRules();
 		}
+		options.setRuleHits();
+		if (!options.pruneRules()) {
+			return RULES_ERROR_RC;
+		}
 
 		if (!options.acceptAction()) {
 			dual_error("No action selected");
@@ -1871,8 +2779,18 @@ public class Transformer {
 		}
 
 		try {
-			options.transform(); // throws JakartaTransformException
+			if (isScan) {
+				options.scan(); // throws JakartaTransformException
+			} else {
+				options.transform(); // throws JakartaTransformException
+			}
 			lastActiveChanges = options.getLastActiveChanges();
+			if (!options.writeMetrics(isScan ? options.inputPath : options.outputPath)) {
+				return TRANSFORM_ERROR_RC;
+			}
+			if (!options.writeRuleHits()) {
+				return TRANSFORM_ERROR_RC;
+			}
 		} catch (TransformException e) {
 			dual_error("Transform failure:", e);
 			return TRANSFORM_ERROR_RC;
@@ -146,6 +146,31 @@ public interface Action {
 
 	//
 
+	/**
+	 * Scan an input file. Record the changes which would be made by this
+	 * action, but do not generate any output.
+	 *
+	 * @param inputName A name associated with the input file.
+	 * @param inputFile The input file.
+	 * @throws TransformException Thrown if the scan failed.
+	 */
+	void scan(String inputName, File inputFile) throws TransformException;
+
+	/**
+	 * Scan an input stream. Record the changes which would be made by this
+	 * action, but do not generate any output. The input count may be
+	 * {@link InputStreamData#UNKNOWN_LENGTH}, in which case all available data
+	 * will be read from the input stream.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputStream A stream containing input data.
+	 * @param inputCount The count of bytes available in the input stream.
+	 * @throws TransformException Thrown if the scan failed.
+	 */
+	void scan(String inputName, InputStream inputStream, long inputCount) throws TransformException;
+
+	//
+
 	/**
 	 * Answer the last active changes.
 	 *
@@ -40,6 +40,28 @@ public interface Changes {
 
 	void clearChanges();
 
+	// Metrics: Wall time, CPU time, and allocated bytes are measured from
+	// the start to the end of recording. CPU time and allocated bytes are
+	// zero when they are not available.
+
+	long getElapsedNanos();
+
+	long getCpuNanos();
+
+	long getAllocatedBytes();
+
+	long getInputBytes();
+
+	void addInputBytes(long count);
+
+	long getOutputBytes();
+
+	void addOutputBytes(long count);
+
+	void writeMetricsJson(PrintStream printStream, String inputPath, String outputPath);
+
+	void writeMetricsCsv(PrintStream printStream, String inputPath, String outputPath);
+
 	void displayVerbose(PrintStream printStream, String inputPath, String outputPath);
 
 	void displayVerbose(Logger logger, String inputPath, String outputPath);
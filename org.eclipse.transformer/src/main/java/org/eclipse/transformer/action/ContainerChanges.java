@@ -39,6 +39,22 @@ public interface ContainerChanges extends Changes {
 
 	int getUnchanged(String name);
 
+	// Per action metrics: Indexes of the metrics arrays, which hold the
+	// count of measured actions followed by the metrics of those actions.
+
+	int		METRIC_COUNT			= 0;
+	int		METRIC_ELAPSED_NANOS	= 1;
+	int		METRIC_CPU_NANOS		= 2;
+	int		METRIC_ALLOCATED_BYTES	= 3;
+	int		METRIC_INPUT_BYTES		= 4;
+	int		METRIC_OUTPUT_BYTES		= 5;
+
+	String[] METRIC_NAMES = {
+		"count", "elapsedNanos", "cpuNanos", "allocatedBytes", "inputBytes", "outputBytes"
+	};
+
+	Map<String, long[]> getMetricsByAction();
+
 	//
 
 	void add(ContainerChanges otherChanges);
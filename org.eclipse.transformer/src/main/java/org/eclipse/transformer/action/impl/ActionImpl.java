@@ -15,6 +15,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -23,9 +26,12 @@ import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.util.BufferData;
+import org.eclipse.transformer.util.BufferDataOutputStream;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.ThreadUsage;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -91,10 +97,28 @@ public abstract class ActionImpl implements Action {
 		return isVerbose;
 	}
 
+	// Fixed arity logging methods are provided in addition to the variable
+	// arity methods: Calls with no more than two parameters do not allocate
+	// parameter arrays. Calls with more parameters, or with primitive
+	// parameters, which are made for every resource or for every constant,
+	// should be guarded by 'isDebugEnabled' or by 'isVerboseEnabled'.
+
 	public void trace(String message, Object... parms) {
 		getLogger().trace(message, parms);
 	}
 
+	public void debug(String message) {
+		getLogger().debug(message);
+	}
+
+	public void debug(String message, Object parm) {
+		getLogger().debug(message, parm);
+	}
+
+	public void debug(String message, Object parm1, Object parm2) {
+		getLogger().debug(message, parm1, parm2);
+	}
+
 	public void debug(String message, Object... parms) {
 		getLogger().debug(message, parms);
 	}
@@ -103,6 +127,21 @@ public abstract class ActionImpl implements Action {
 		return getLogger().isDebugEnabled();
 	}
 
+	private String simpleClassName;
+
+	/**
+	 * Answer the simple name of the class of this action. The name is
+	 * retained, since obtaining the simple name of a class may allocate.
+	 *
+	 * @return The simple name of the class of this action.
+	 */
+	public String getSimpleClassName() {
+		if (simpleClassName == null) {
+			simpleClassName = getClass().getSimpleName();
+		}
+		return simpleClassName;
+	}
+
 	public void info(String message, Object... parms) {
 		getLogger().info(message, parms);
 	}
@@ -113,6 +152,22 @@ public abstract class ActionImpl implements Action {
 		}
 	}
 
+	public boolean isVerboseEnabled() {
+		return getIsVerbose() && getLogger().isInfoEnabled();
+	}
+
+	public void verbose(String message, Object parm) {
+		if (getIsVerbose()) {
+			getLogger().info(message, parm);
+		}
+	}
+
+	public void verbose(String message, Object parm1, Object parm2) {
+		if (getIsVerbose()) {
+			getLogger().info(message, parm1, parm2);
+		}
+	}
+
 	public void verbose(String message, Object... parms) {
 		if (getIsVerbose()) {
 			info(message, parms);
@@ -218,6 +273,14 @@ public abstract class ActionImpl implements Action {
 		return getSignatureRule().replaceText(inputFileName, text);
 	}
 
+	public Map<String, String> getTextSubstitutions(String inputFileName) {
+		return getSignatureRule().getTextSubstitutions(inputFileName);
+	}
+
+	public String replaceText(Map<String, String> substitutions, String text) {
+		return getSignatureRule().replaceText(substitutions, text);
+	}
+
 	public String transformConstantAsBinaryType(String inputConstant) {
 		return getSignatureRule().transformConstantAsBinaryType(inputConstant);
 	}
@@ -319,6 +382,45 @@ public abstract class ActionImpl implements Action {
 
 	//
 
+	private boolean	collectMetrics;
+	private boolean	collectAllocation;
+
+	public boolean getCollectMetrics() {
+		return collectMetrics;
+	}
+
+	/**
+	 * Set whether the wall time and CPU time of this action are measured.
+	 * Nothing is measured unless metrics are requested, which keeps timer
+	 * calls off of the path of each resource. Requesting metrics enables
+	 * thread CPU time measurement, when that is supported by the JVM.
+	 *
+	 * @param collectMetrics True or false telling if metrics are to be
+	 *            measured.
+	 */
+	public void setCollectMetrics(boolean collectMetrics) {
+		this.collectMetrics = collectMetrics;
+		if (collectMetrics) {
+			ThreadUsage.enableCpuTime();
+		}
+	}
+
+	public boolean getCollectAllocation() {
+		return collectAllocation;
+	}
+
+	/**
+	 * Set whether bytes allocated by this action are measured. Allocated
+	 * bytes are measured only when metrics are collected, and only when
+	 * supported by the JVM.
+	 *
+	 * @param collectAllocation True or false telling if allocated bytes are
+	 *            to be measured.
+	 */
+	public void setCollectAllocation(boolean collectAllocation) {
+		this.collectAllocation = collectAllocation;
+	}
+
 	protected ChangesImpl newChanges() {
 		return new ChangesImpl();
 	}
@@ -329,9 +431,7 @@ public abstract class ActionImpl implements Action {
 	protected ChangesImpl				lastActiveChanges;
 
 	protected void startRecording(String inputName) {
-		if (getIsVerbose()) {
-			info("Start processing [ {} ] using [ {} ]", inputName, getActionType());
-		}
+		verbose("Start processing [ {} ] using [ {} ]", inputName, getActionType());
 
 		if (numActiveChanges == changes.size()) {
 			changes.add(activeChanges = newChanges());
@@ -340,10 +440,18 @@ public abstract class ActionImpl implements Action {
 			activeChanges.clearChanges();
 		}
 		numActiveChanges++;
+
+		if (getCollectMetrics()) {
+			activeChanges.startMetrics(getCollectAllocation());
+		}
 	}
 
 	protected void stopRecording(String inputName) {
-		if (getIsVerbose()) {
+		if (getCollectMetrics()) {
+			activeChanges.stopMetrics();
+		}
+
+		if (isVerboseEnabled()) {
 			String changeText;
 
 			boolean nameChanged = activeChanges.hasResourceNameChange();
@@ -466,6 +574,8 @@ public abstract class ActionImpl implements Action {
 
 		setInputBuffer(readData.data);
 
+		getActiveChanges().addInputBytes(readData.length);
+
 		return readData;
 	}
 
@@ -481,6 +591,7 @@ public abstract class ActionImpl implements Action {
 		try {
 			outputStream.write(outputData.data, outputData.offset, outputData.length); // throws
 																						// IOException
+			getActiveChanges().addOutputBytes(outputData.length);
 
 		} catch (IOException e) {
 			throw new TransformException("Failed to write [ " + outputData.name + " ]" + " at [ " + outputData.offset
@@ -513,10 +624,12 @@ public abstract class ActionImpl implements Action {
 	public InputStreamData basicApply(String inputName, InputStream inputStream, int inputCount)
 		throws TransformException {
 
-		String className = getClass().getSimpleName();
+		String className = getSimpleClassName();
 		String methodName = "apply";
 
-		debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		}
 		ByteData inputData = read(inputName, inputStream, inputCount); // throws
 																		// JakartaTransformException
 
@@ -528,8 +641,10 @@ public abstract class ActionImpl implements Action {
 			} else {
 				altInputData = inputData.data;
 			}
-			debug("[ {}.{} ]: Obtained [ {} ] [ {} ] [ {} ]", className, methodName, inputName, inputData.length,
-				altInputData);
+			if (isDebugEnabled()) {
+				debug("[ {}.{} ]: Obtained [ {} ] [ {} ] [ {} ]", className, methodName, inputName, inputData.length,
+					altInputData);
+			}
 		}
 
 		ByteData outputData;
@@ -553,11 +668,15 @@ public abstract class ActionImpl implements Action {
 				} else {
 					altOutputData = outputData.data;
 				}
-				debug("[ {}.{} ]: Active transform [ {} ] [ {} ] [ {} ]", className, methodName, outputData.name,
-					outputData.length, altOutputData);
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ]: Active transform [ {} ] [ {} ] [ {} ]", className, methodName, outputData.name,
+						outputData.length, altOutputData);
+				}
 			}
 		}
 
+		getActiveChanges().addOutputBytes(outputData.length);
+
 		return new InputStreamData(outputData);
 	}
 
@@ -579,13 +698,17 @@ public abstract class ActionImpl implements Action {
 
 		int intInputCount = FileUtils.verifyArray(0, inputCount);
 
-		String className = getClass().getSimpleName();
+		String className = getSimpleClassName();
 		String methodName = "apply";
 
-		debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		}
 		ByteData inputData = read(inputName, inputStream, intInputCount); // throws
 																			// JakartaTransformException
-		debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
+		}
 
 		ByteData outputData;
 		try {
@@ -600,8 +723,10 @@ public abstract class ActionImpl implements Action {
 			debug("[ {}.{} ]: Null transform", className, methodName);
 			outputData = inputData;
 		} else {
-			debug("[ {}.{} ]: Active transform [ {} ] [ {} ]", className, methodName, outputData.name,
-				outputData.length);
+			if (isDebugEnabled()) {
+				debug("[ {}.{} ]: Active transform [ {} ] [ {} ]", className, methodName, outputData.name,
+					outputData.length);
+			}
 		}
 
 		write(outputData, outputStream); // throws JakartaTransformException
@@ -609,25 +734,379 @@ public abstract class ActionImpl implements Action {
 
 	protected abstract ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException;
 
+	/**
+	 * Smallest file which is read as mapped {@link BufferData}, instead of
+	 * being read into the input buffer.
+	 */
+	public static final long MAPPED_READ_LENGTH = 16L * 1024L * 1024L;
+
+	/**
+	 * Transform a file. Files which are not changed are copied using
+	 * {@link #copyFile(String, File, File)}, which does not move the file data
+	 * through the java heap. The files of a {@link #isPassthrough()
+	 * passthrough} action are copied without being read. Files of at least
+	 * {@link #MAPPED_READ_LENGTH} bytes are mapped into memory and are
+	 * transformed using {@link #apply(String, BufferData)}.
+	 * <p>
+	 * Files which are larger than the largest java array can be transformed
+	 * only by {@link #isStreamed() streamed} actions. Other actions fail with a
+	 * transform exception: The file is not copied unchanged.
+	 */
 	@Override
 	public void apply(String inputName, File inputFile, File outputFile) throws TransformException {
 
 		long inputLength = inputFile.length();
 		debug("Input [ {} ] Length [ {} ]", inputName, inputLength);
 
-		InputStream inputStream = openInputStream(inputFile);
+		startRecording(inputName);
+		try {
+			ByteData outputData;
+
+			if (isPassthrough()) {
+				setResourceNames(inputName, inputName);
+				getActiveChanges().addInputBytes(inputLength);
+				outputData = null;
+
+			} else if (inputLength >= MAPPED_READ_LENGTH) {
+				if ((inputLength > FileUtils.MAX_ARRAY_LENGTH) && !isStreamed()) {
+					throw tooLarge(inputName, inputLength);
+				}
+
+				BufferData inputData = read(inputName, inputFile); // throws
+																	// TransformException
+				BufferData mappedOutputData;
+				try {
+					mappedOutputData = apply(inputName, inputData);
+					// throws TransformException
+				} catch (Throwable th) {
+					error("Transform failure [ {} ]", th, inputName);
+					mappedOutputData = null;
+				}
+
+				if (mappedOutputData != null) {
+					write(mappedOutputData, inputFile, outputFile); // throws
+																	// TransformException
+					return;
+				}
+				outputData = null;
+
+			} else {
+				ByteData inputData;
+				InputStream inputStream = openInputStream(inputFile);
+				try {
+					inputData = read(inputName, inputStream, FileUtils.verifyArray(0, inputLength)); // throws
+																										// TransformException
+				} finally {
+					closeInputStream(inputFile, inputStream);
+				}
+
+				try {
+					outputData = apply(inputName, inputData.data, inputData.length);
+					// throws TransformException
+				} catch (Throwable th) {
+					error("Transform failure [ {} ]", th, inputName);
+					outputData = null;
+				}
+			}
+
+			if (outputData == null) {
+				copyFile(inputName, inputFile, outputFile);
+			} else {
+				OutputStream outputStream = openOutputStream(inputFile, outputFile);
+				try {
+					write(outputData, outputStream); // throws TransformException
+				} finally {
+					closeOutputStream(outputFile, outputStream);
+				}
+			}
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	/**
+	 * Transform buffer data.
+	 * <p>
+	 * {@link #isPassthrough() Passthrough} actions answer null without reading
+	 * the data. Other actions copy the data into the java heap and transform
+	 * the copied bytes. {@link #isStreamed() Streamed} actions override this
+	 * to transform the data without first copying it.
+	 * <p>
+	 * Data which is larger than the largest java array cannot be copied into
+	 * the java heap, and fails with a transform exception.
+	 *
+	 * @param inputName The name of the data.
+	 * @param inputData The data which is to be transformed.
+	 * @return The transformed data. Null if the data was not changed.
+	 * @throws TransformException Thrown if the data could not be transformed.
+	 */
+	public BufferData apply(String inputName, BufferData inputData) throws TransformException {
+		if (isPassthrough()) {
+			setResourceNames(inputName, inputName);
+			return null;
+		}
+
+		if (inputData.length > FileUtils.MAX_ARRAY_LENGTH) {
+			throw tooLarge(inputName, inputData.length);
+		}
+
+		ByteData inputBytes = inputData.toByteData();
+
+		ByteData outputBytes = apply(inputName, inputBytes.data, inputBytes.length); // throws
+																					// TransformException
+		return ((outputBytes == null) ? null : new BufferData(outputBytes));
+	}
+
+	private TransformException tooLarge(String inputName, long inputLength) {
+		return new TransformException("Data of [ " + inputName + " ] length [ " + inputLength
+			+ " ] is too large to transform by [ " + getName() + " ]");
+	}
+
+	/**
+	 * Open an output stream which collects transformed data as buffer data.
+	 * Used by {@link #isStreamed() streamed} actions, which do not hold their
+	 * output in the java heap.
+	 *
+	 * @param inputName The name of the data which is being transformed.
+	 * @return A new buffer data output stream.
+	 * @throws TransformException Thrown if the stream could not be opened.
+	 */
+	protected BufferDataOutputStream openBufferOutput(String inputName) throws TransformException {
 		try {
-			OutputStream outputStream = openOutputStream(outputFile);
+			return new BufferDataOutputStream(); // throws IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to open output for [ " + inputName + " ]", e);
+		}
+	}
+
+	/**
+	 * Answer the data which was collected by a buffer data output stream.
+	 *
+	 * @param outputName The name of the transformed data.
+	 * @param outputStream The stream which collected the data.
+	 * @return The collected data.
+	 * @throws TransformException Thrown if the data could not be mapped.
+	 */
+	protected BufferData toBufferData(String outputName, BufferDataOutputStream outputStream)
+		throws TransformException {
+		try {
+			return outputStream.toBufferData(outputName); // throws IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to map output of [ " + outputName + " ]", e);
+		}
+	}
+
+	/**
+	 * Read a file as buffer data. The file is mapped into memory: The file
+	 * data is not read into the java heap.
+	 *
+	 * @param inputName The name of the file.
+	 * @param inputFile The file which is to be read.
+	 * @return The data of the file.
+	 * @throws TransformException Thrown if the file could not be mapped.
+	 */
+	protected BufferData read(String inputName, File inputFile) throws TransformException {
+		BufferData inputData;
+		try {
+			inputData = BufferData.map(inputName, inputFile.toPath()); // throws
+																		// IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to map [ " + inputName + " ]", e);
+		}
+
+		getActiveChanges().addInputBytes(inputData.length);
+
+		return inputData;
+	}
+
+	/**
+	 * Write buffer data to a file. The data is written using a file channel,
+	 * which does not copy direct and mapped buffers into the java heap.
+	 *
+	 * @param outputData The data which is to be written.
+	 * @param inputFile The input file. An output file which is the input file,
+	 *            or which is a link to the input file, is replaced.
+	 * @param outputFile The file which is to be written.
+	 * @throws TransformException Thrown if the write fails.
+	 */
+	protected void write(BufferData outputData, File inputFile, File outputFile) throws TransformException {
+		Path outputPath = outputFile.toPath();
+		try {
+			FileUtils.unlink(inputFile.toPath(), outputPath); // throws IOException
+			try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) { // throws IOException
+				outputData.write(channel); // throws IOException
+			}
+			getActiveChanges().addOutputBytes(outputData.length);
+
+		} catch (IOException e) {
+			throw new TransformException(
+				"Failed to write [ " + outputData.name + " ] to [ " + outputFile.getAbsolutePath() + " ]", e);
+		}
+	}
+
+	/**
+	 * Copy data from an input stream to an output stream as an application of
+	 * this action. Used for the entries of {@link #isPassthrough()
+	 * passthrough} actions, which are copied without being held in memory.
+	 *
+	 * @param inputName The name of the data.
+	 * @param inputStream The stream from which to read the data.
+	 * @param outputStream The stream to which to write the data.
+	 * @param buffer Buffer used to copy the data.
+	 * @return The count of bytes which were copied.
+	 * @throws TransformException Thrown if the copy fails.
+	 */
+	public long transfer(String inputName, InputStream inputStream, OutputStream outputStream, byte[] buffer)
+		throws TransformException {
+
+		startRecording(inputName);
+		try {
+			setResourceNames(inputName, inputName);
+
+			long copyLength;
 			try {
-				apply(inputName, inputStream, inputLength, outputStream);
-			} finally {
-				closeOutputStream(outputFile, outputStream);
+				copyLength = FileUtils.transfer(inputStream, outputStream, buffer); // throws
+																					// IOException
+			} catch (IOException e) {
+				throw new TransformException("Failed to copy [ " + inputName + " ]", e);
 			}
+
+			getActiveChanges().addInputBytes(copyLength);
+			getActiveChanges().addOutputBytes(copyLength);
+			return copyLength;
+
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	/**
+	 * Tell if this action copies files without reading them. The
+	 * {@link NullActionImpl null action} is a passthrough action.
+	 *
+	 * @return True or false telling if this action copies files without
+	 *         reading them.
+	 */
+	public boolean isPassthrough() {
+		return false;
+	}
+
+	/**
+	 * Tell if this action transforms {@link #apply(String, BufferData) buffer
+	 * data} as a stream, without copying the data into the java heap. Only
+	 * streamed actions transform files which are larger than the largest java
+	 * array.
+	 *
+	 * @return True or false telling if this action transforms buffer data as
+	 *         a stream.
+	 */
+	public boolean isStreamed() {
+		return false;
+	}
+
+	// Unchanged files may be hard linked to their input files, instead of
+	// being copied.
+
+	private boolean linkUnchanged;
+
+	public boolean getLinkUnchanged() {
+		return linkUnchanged;
+	}
+
+	/**
+	 * Set whether unchanged files are written as hard links to their input
+	 * files. Links are used only when the input and output files are on the
+	 * same file system. An output which is a link shares the data of its
+	 * input: Changing either file changes both files.
+	 *
+	 * @param linkUnchanged Control parameter: Write unchanged files as hard
+	 *            links to their input files.
+	 */
+	public void setLinkUnchanged(boolean linkUnchanged) {
+		this.linkUnchanged = linkUnchanged;
+	}
+
+	/**
+	 * Copy an unchanged file, or link it to the input file, if unchanged files
+	 * are to be linked.
+	 *
+	 * @param inputName The name of the file.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 * @throws TransformException Thrown if the file could not be copied.
+	 */
+	protected void copyFile(String inputName, File inputFile, File outputFile) throws TransformException {
+		try {
+			long copyLength = FileUtils.copyFile(inputFile.toPath(), outputFile.toPath(), getLinkUnchanged());
+			// throws IOException
+			getActiveChanges().addOutputBytes(copyLength);
+		} catch (IOException e) {
+			throw new TransformException(
+				"Failed to copy [ " + inputName + " ] to [ " + outputFile.getAbsolutePath() + " ]", e);
+		}
+	}
+
+	//
+
+	@Override
+	public void scan(String inputName, File inputFile) throws TransformException {
+
+		long inputLength = inputFile.length();
+		debug("Scan input [ {} ] Length [ {} ]", inputName, inputLength);
+
+		InputStream inputStream = openInputStream(inputFile);
+		try {
+			scan(inputName, inputStream, inputLength);
 		} finally {
 			closeInputStream(inputFile, inputStream);
 		}
 	}
 
+	@Override
+	public void scan(String inputName, InputStream inputStream, long inputCount) throws TransformException {
+
+		startRecording(inputName);
+		try {
+			basicScan(inputName, inputStream, inputCount); // throws
+															// TransformException
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	public void basicScan(String inputName, InputStream inputStream, long inputCount) throws TransformException {
+
+		int intInputCount = ((inputCount == -1L) ? -1 : FileUtils.verifyArray(0, inputCount));
+
+		ByteData inputData = read(inputName, inputStream, intInputCount); // throws
+																			// JakartaTransformException
+
+		try {
+			scan(inputName, inputData.data, inputData.length);
+			// throws JakartaTransformException
+		} catch (Throwable th) {
+			error("Scan failure [ {} ]", th, inputName);
+		}
+	}
+
+	/**
+	 * Scan input bytes, recording the changes which would be made to the
+	 * bytes, but without generating any output.
+	 * <p>
+	 * The default implementation applies the transform and discards the
+	 * result. Actions which can determine their changes more cheaply than by
+	 * performing the full transform should override this method.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param inputBytes The input bytes.
+	 * @param inputLength The count of input bytes.
+	 * @throws TransformException Thrown if the scan failed.
+	 */
+	protected void scan(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		apply(inputName, inputBytes, inputLength);
+	}
+
 	//
 
 	protected InputStream openInputStream(File inputFile) throws TransformException {
@@ -648,16 +1127,21 @@ public abstract class ActionImpl implements Action {
 		}
 	}
 
-	private OutputStream openOutputStream(File outputFile) throws TransformException {
+	/**
+	 * Open the output stream of a file. An output file which is a link to the
+	 * input file is removed first, so that the input file is not overwritten.
+	 */
+	protected OutputStream openOutputStream(File inputFile, File outputFile) throws TransformException {
 
 		try {
+			FileUtils.unlink(inputFile.toPath(), outputFile.toPath()); // throws IOException
 			return IO.outputStream(outputFile);
 		} catch (IOException e) {
 			throw new TransformException("Failed to open output [ " + outputFile.getAbsolutePath() + " ]", e);
 		}
 	}
 
-	private void closeOutputStream(File outputFile, OutputStream outputStream) throws TransformException {
+	protected void closeOutputStream(File outputFile, OutputStream outputStream) throws TransformException {
 
 		try {
 			outputStream.close();
@@ -15,6 +15,7 @@ import java.io.PrintStream;
 
 import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.util.ThreadUsage;
 import org.slf4j.Logger;
 
 public class ChangesImpl implements Changes {
@@ -33,6 +34,12 @@ public class ChangesImpl implements Changes {
 		outputResourceName = null;
 
 		replacements = 0;
+
+		elapsedNanos = 0L;
+		cpuNanos = 0L;
+		allocatedBytes = 0L;
+		inputBytes = 0L;
+		outputBytes = 0L;
 	}
 
 	//
@@ -92,6 +99,85 @@ public class ChangesImpl implements Changes {
 
 	//
 
+	private long	startNanos;
+	private long	startCpuNanos;
+	private long	startAllocatedBytes;
+
+	private long	elapsedNanos;
+	private long	cpuNanos;
+	private long	allocatedBytes;
+	private long	inputBytes;
+	private long	outputBytes;
+
+	/**
+	 * Start measuring wall time, CPU time, and, optionally, allocated bytes.
+	 * Measurement is of the current thread.
+	 *
+	 * @param useAllocation True or false telling if allocated bytes are to be
+	 *            measured.
+	 */
+	public void startMetrics(boolean useAllocation) {
+		startAllocatedBytes = (useAllocation ? ThreadUsage.allocatedBytes() : ThreadUsage.UNAVAILABLE);
+		startCpuNanos = ThreadUsage.cpuTime();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stop measuring. The measurements are from the prior call to
+	 * {@link #startMetrics(boolean)}, which must have been made on the same
+	 * thread.
+	 */
+	public void stopMetrics() {
+		elapsedNanos = System.nanoTime() - startNanos;
+
+		if (startCpuNanos != ThreadUsage.UNAVAILABLE) {
+			cpuNanos = ThreadUsage.cpuTime() - startCpuNanos;
+		}
+		if (startAllocatedBytes != ThreadUsage.UNAVAILABLE) {
+			long endAllocatedBytes = ThreadUsage.allocatedBytes();
+			if (endAllocatedBytes != ThreadUsage.UNAVAILABLE) {
+				allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+			}
+		}
+	}
+
+	@Override
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	@Override
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	@Override
+	public long getInputBytes() {
+		return inputBytes;
+	}
+
+	@Override
+	public void addInputBytes(long count) {
+		inputBytes += count;
+	}
+
+	@Override
+	public long getOutputBytes() {
+		return outputBytes;
+	}
+
+	@Override
+	public void addOutputBytes(long count) {
+		outputBytes += count;
+	}
+
+	//
+
 	@Override
 	public void addNestedInto(ContainerChanges containerChanges) {
 		// By default do nothing.
@@ -154,4 +240,110 @@ public class ChangesImpl implements Changes {
 		logger.info("Output [ {} ] as [ {} ]", getOutputResourceName(), outputPath);
 		logger.info("Replacements  [ {} ]", getReplacements());
 	}
+
+	//
+
+	protected static String quoteJson(String text) {
+		if (text == null) {
+			return "null";
+		}
+
+		StringBuilder builder = new StringBuilder(text.length() + 2);
+		builder.append('"');
+		for (int charNo = 0; charNo < text.length(); charNo++) {
+			char c = text.charAt(charNo);
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		builder.append('"');
+		return builder.toString();
+	}
+
+	protected static String quoteCsv(String text) {
+		if (text == null) {
+			return "";
+		} else if ((text.indexOf(',') == -1) && (text.indexOf('"') == -1) && (text.indexOf('\n') == -1)) {
+			return text;
+		} else {
+			return '"' + text.replace("\"", "\"\"") + '"';
+		}
+	}
+
+	protected long[] getMetrics() {
+		return new long[] {
+			1L, getElapsedNanos(), getCpuNanos(), getAllocatedBytes(), getInputBytes(), getOutputBytes()
+		};
+	}
+
+	protected static void writeMetricsJson(PrintStream printStream, long[] metrics) {
+		for (int metricNo = 1; metricNo < ContainerChanges.METRIC_NAMES.length; metricNo++) {
+			printStream.printf(", %s: %d", quoteJson(ContainerChanges.METRIC_NAMES[metricNo]), metrics[metricNo]);
+		}
+	}
+
+	protected static void writeMetricsCsv(PrintStream printStream, String scope, String name, long[] metrics) {
+		printStream.print(quoteCsv(scope));
+		printStream.print(',');
+		printStream.print(quoteCsv(name));
+		for (long metric : metrics) {
+			printStream.print(',');
+			printStream.print(metric);
+		}
+		printStream.print('\n');
+	}
+
+	/**
+	 * Write metrics as a JSON object. The object has the input and output
+	 * paths and the metrics of the entire transform.
+	 */
+	@Override
+	public void writeMetricsJson(PrintStream printStream, String inputPath, String outputPath) {
+		// { "input": "test.jar", "output": "output_test.jar",
+		// "elapsedNanos": 4200000, "cpuNanos": 4000000, "allocatedBytes": 0,
+		// "inputBytes": 1024, "outputBytes": 1030 }
+
+		printStream.printf("{ \"input\": %s, \"output\": %s", quoteJson(inputPath), quoteJson(outputPath));
+		writeMetricsJson(printStream, getMetrics());
+		printStream.print(" }\n");
+	}
+
+	/**
+	 * Write metrics as CSV. The header row is followed by one row for the
+	 * entire transform.
+	 */
+	@Override
+	public void writeMetricsCsv(PrintStream printStream, String inputPath, String outputPath) {
+		// scope,action,count,elapsedNanos,cpuNanos,allocatedBytes,inputBytes,outputBytes
+		// total,test.jar,1,4200000,4000000,0,1024,1030
+
+		printStream.print("scope,action");
+		for (String metricName : ContainerChanges.METRIC_NAMES) {
+			printStream.print(',');
+			printStream.print(metricName);
+		}
+		printStream.print('\n');
+
+		writeMetricsCsv(printStream, "total", inputPath, getMetrics());
+	}
 }
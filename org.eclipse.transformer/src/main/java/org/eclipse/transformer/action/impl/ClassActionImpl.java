@@ -22,6 +22,7 @@ import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.TransformerEvents;
 import org.slf4j.Logger;
 
 import aQute.bnd.classfile.AnnotationDefaultAttribute;
@@ -281,9 +282,32 @@ public class ClassActionImpl extends ActionImpl {
 
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		Object classEvent = TransformerEvents.beginClassTransform();
+		if (classEvent == null) {
+			return transformClass(inputName, inputBytes, inputLength);
+		}
+
+		ByteData outputData = null;
+		try {
+			return (outputData = transformClass(inputName, inputBytes, inputLength));
+		} finally {
+			ClassChangesImpl useChanges = getActiveChanges();
+			if (useChanges == null) {
+				TransformerEvents.commitClassTransform(classEvent, inputName, null, null, 0, (outputData != null));
+			} else {
+				TransformerEvents.commitClassTransform(classEvent, inputName, useChanges.getInputClassName(),
+					useChanges.getOutputClassName(), useChanges.getModifiedConstants(), (outputData != null));
+			}
+		}
+	}
 
-		debug("Read [ {} ] Bytes [ {} ]", inputName, inputLength);
-		debugDump(inputBytes, 0, inputLength);
+	protected ByteData transformClass(String inputName, byte[] inputBytes, int inputLength)
+		throws TransformException {
+
+		if (isDebugEnabled()) {
+			debug("Read [ {} ] Bytes [ {} ]", inputName, inputLength);
+			debugDump(inputBytes, 0, inputLength);
+		}
 
 		ClassFile inputClass;
 		try {
@@ -295,24 +319,26 @@ public class ClassActionImpl extends ActionImpl {
 			return null;
 		}
 
-		debug("Class [ {} ] as [ {} ] ", inputName, inputClass.this_class);
-		debug("  Super [ {} ]", inputClass.super_class);
-		if (inputClass.interfaces != null) {
-			debug("  Interfaces [ {} ]", inputClass.interfaces.length);
-			for (String interfaceName : inputClass.interfaces) {
-				debug("    [ {} ]", interfaceName);
+		if (isDebugEnabled()) {
+			debug("Class [ {} ] as [ {} ] ", inputName, inputClass.this_class);
+			debug("  Super [ {} ]", inputClass.super_class);
+			if (inputClass.interfaces != null) {
+				debug("  Interfaces [ {} ]", inputClass.interfaces.length);
+				for (String interfaceName : inputClass.interfaces) {
+					debug("    [ {} ]", interfaceName);
+				}
 			}
-		}
-		if (inputClass.fields != null) {
-			debug("  Fields [ {} ]", inputClass.fields.length);
-			for (FieldInfo field : inputClass.fields) {
-				debug("    [ {} ] [ {} ]", field.name, field.descriptor);
+			if (inputClass.fields != null) {
+				debug("  Fields [ {} ]", inputClass.fields.length);
+				for (FieldInfo field : inputClass.fields) {
+					debug("    [ {} ] [ {} ]", field.name, field.descriptor);
+				}
 			}
-		}
-		if (inputClass.methods != null) {
-			debug("  Methods [ {} ]", inputClass.methods.length);
-			for (MethodInfo method : inputClass.methods) {
-				debug("    [ {} ] [ {} ]", method.name, method.descriptor);
+			if (inputClass.methods != null) {
+				debug("  Methods [ {} ]", inputClass.methods.length);
+				for (MethodInfo method : inputClass.methods) {
+					debug("    [ {} ] [ {} ]", method.name, method.descriptor);
+				}
 			}
 		}
 
@@ -425,7 +451,9 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		MutableConstantPool constants = classBuilder.constant_pool();
-		debug("  Constant pool: {}", constants.size());
+		if (isDebugEnabled()) {
+			debug("  Constant pool: {}", constants.size());
+		}
 
 		int modifiedConstants = transform(constants, inputName);
 		if (modifiedConstants > 0) {
@@ -433,7 +461,9 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		if (!hasNonResourceNameChanges()) {
-			verbose("  Class bytes: {} {}", inputName, inputLength);
+			if (isVerboseEnabled()) {
+				verbose("  Class bytes: {} {}", inputName, inputLength);
+			}
 			return null;
 		}
 
@@ -447,21 +477,155 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		byte[] outputBytes = outputClassData.toByteArray();
-		verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		if (isVerboseEnabled()) {
+			verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		}
 
 		return new ByteData(outputName, outputBytes, 0, outputBytes.length);
 	}
 
 	//
 
+	/**
+	 * Scan class bytes. Only the constant pool and the class name are read:
+	 * The class members and attributes are not parsed, and no output class is
+	 * built.
+	 * <p>
+	 * All names, descriptors, and signatures which are used by a class are
+	 * stored as constants. A class which would be changed by a transform will
+	 * have at least one changed constant.
+	 */
+	@Override
+	protected void scan(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+
+		ConstantPool constants;
+		String inputClassName;
+		try {
+			DataInput inputClassData = ByteBufferDataInput.wrap(inputBytes, 0, inputLength);
+			inputClassData.readInt(); // magic
+			inputClassData.readUnsignedShort(); // minor_version
+			inputClassData.readUnsignedShort(); // major_version
+			constants = ConstantPool.read(inputClassData);
+			inputClassData.readUnsignedShort(); // access_flags
+			inputClassName = constants.className(inputClassData.readUnsignedShort());
+		} catch (IOException e) {
+			error("Failed to parse raw class bytes [ {} ]", e, inputName);
+			return;
+		}
+
+		String outputClassName = transformBinaryType(inputClassName);
+
+		String outputName;
+		if (outputClassName != null) {
+			outputName = relocateClass(getLogger(), inputName, inputClassName, outputClassName);
+		} else {
+			outputClassName = inputClassName;
+			outputName = inputName;
+		}
+
+		setClassNames(inputClassName, outputClassName);
+		setResourceNames(inputName, outputName);
+
+		int modifiedConstants = scan(constants, inputName);
+		if (modifiedConstants > 0) {
+			setModifiedConstants(modifiedConstants);
+		}
+	}
+
+	private int scan(ConstantPool constants, String inputName) {
+		int modifiedConstants = 0;
+
+		int numConstants = constants.size();
+		for (int constantNo = 1; constantNo < numConstants; constantNo++) {
+			switch (constants.tag(constantNo)) {
+				case ConstantPool.CONSTANT_Class : {
+					ClassInfo info = constants.entry(constantNo);
+					if (transformBinaryType(constants.utf8(info.class_index)) != null) {
+						modifiedConstants++;
+					}
+					break;
+				}
+
+				case ConstantPool.CONSTANT_NameAndType : {
+					NameAndTypeInfo info = constants.entry(constantNo);
+					if (transformDescriptor(constants.utf8(info.descriptor_index)) != null) {
+						modifiedConstants++;
+					}
+					break;
+				}
+
+				case ConstantPool.CONSTANT_MethodType : {
+					MethodTypeInfo info = constants.entry(constantNo);
+					if (transformDescriptor(constants.utf8(info.descriptor_index)) != null) {
+						modifiedConstants++;
+					}
+					break;
+				}
+
+				case ConstantPool.CONSTANT_Utf8 : {
+					String inputUtf8 = constants.entry(constantNo);
+					if ((inputUtf8 != null) && !inputUtf8.isEmpty() && (scanConstant(inputUtf8, inputName)
+						|| ((inputUtf8.charAt(0) == '<') && scanClassSignature(inputUtf8)))) {
+						modifiedConstants++;
+					}
+					break;
+				}
+
+				case ConstantPool.CONSTANT_String : {
+					StringInfo stringInfo = constants.entry(constantNo);
+					if (scanConstant(constants.utf8(stringInfo.string_index), inputName)) {
+						modifiedConstants++;
+					}
+					break;
+				}
+
+				case ConstantPool.CONSTANT_Long :
+				case ConstantPool.CONSTANT_Double :
+					// Long and double constants take two slots.
+					constantNo++;
+					break;
+
+				default :
+					break;
+			}
+		}
+
+		return modifiedConstants;
+	}
+
+	private boolean scanConstant(String inputConstant, String inputName) {
+		return ((transformConstantAsDescriptor(inputConstant, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION) != null)
+			|| (transformConstantAsBinaryType(inputConstant, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION) != null)
+			|| (transformDirectString(inputConstant) != null)
+			|| (transformConstantString(inputConstant, inputName) != null));
+	}
+
+	// Generic class signatures are only transformed through the signature
+	// attribute, not as constants.
+
+	private boolean scanClassSignature(String inputSignature) {
+		try {
+			return (transform(inputSignature, SignatureType.CLASS) != null);
+		} catch (Throwable th) {
+			debug("Failed to parse constant as class signature [ {} ]: {}", inputSignature, th.getMessage());
+			return false;
+		}
+	}
+
+	//
+
 	private <MEMBERINFO extends MemberInfo> MEMBERINFO transform(MEMBERINFO member,
 		MemberInfo.Constructor<MEMBERINFO> constructor, SignatureType signatureType, String inputName) {
 
 		String inputDescriptor = member.descriptor;
 		String outputDescriptor = transformDescriptor(inputDescriptor);
 		if (outputDescriptor != null) {
-			debug("    {}       {}    -> {}", member.name, member.descriptor, outputDescriptor);
-			verbose("Member {}.{} > {}", member.name, member.descriptor, outputDescriptor);
+			if (isDebugEnabled()) {
+				debug("    {}       {}    -> {}", member.name, member.descriptor, outputDescriptor);
+			}
+			if (isVerboseEnabled()) {
+				verbose("Member {}.{} > {}", member.name, member.descriptor, outputDescriptor);
+			}
 		}
 
 		Attribute[] inputAttributes = member.attributes;
@@ -959,9 +1123,13 @@ public class ClassActionImpl extends ActionImpl {
 			if (outputString == null) {
 				debug("    String ConstantValue: {} (unchanged)", inputValue);
 			} else {
-				debug("    String ConstantValue: {}                       -> {} ({})", inputValue, outputString,
-					transformCase);
-				verbose("String ConstantValue: {} -> {} ({})", inputValue, outputString, transformCase);
+				if (isDebugEnabled()) {
+					debug("    String ConstantValue: {}                       -> {} ({})", inputValue, outputString,
+						transformCase);
+				}
+				if (isVerboseEnabled()) {
+					verbose("String ConstantValue: {} -> {} ({})", inputValue, outputString, transformCase);
+				}
 			}
 			return outputString;
 		} else {
@@ -1193,8 +1361,10 @@ public class ClassActionImpl extends ActionImpl {
 
 		int numConstants = constants.size();
 		for (int constantNo = 1; constantNo < numConstants; constantNo++) {
-			debug(String.format("Constant [ %3s ] [ %16s ] [ %s ]", constantNo, constants.tag(constantNo),
-				constants.entry(constantNo)));
+			if (isDebugEnabled()) {
+				debug(String.format("Constant [ %3s ] [ %16s ] [ %s ]", constantNo, constants.tag(constantNo),
+					constants.entry(constantNo)));
+			}
 
 			switch (constants.tag(constantNo)) {
 				case ConstantPool.CONSTANT_Class : {
@@ -1273,8 +1443,12 @@ public class ClassActionImpl extends ActionImpl {
 					if (outputUtf8 != null) {
 						constants.entry(constantNo, outputUtf8);
 						modifiedConstants++;
-						debug("    UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
-						verbose("UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
+						if (isDebugEnabled()) {
+							debug("    UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
+						}
+						if (isVerboseEnabled()) {
+							verbose("UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
+						}
 					} else {
 						debug("Skip UTF8 {} (unchanged)", inputUtf8);
 					}
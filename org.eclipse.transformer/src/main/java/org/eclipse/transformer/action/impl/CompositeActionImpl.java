@@ -80,6 +80,37 @@ public class CompositeActionImpl extends ActionImpl implements CompositeAction {
 		getActions().add(action);
 	}
 
+	/**
+	 * Set whether metrics are measured, both for this action and for
+	 * all of the actions of this composite action.
+	 */
+	@Override
+	public void setCollectMetrics(boolean collectMetrics) {
+		if (collectMetrics == getCollectMetrics()) {
+			return;
+		}
+		super.setCollectMetrics(collectMetrics);
+		for (ActionImpl action : getActions()) {
+			action.setCollectMetrics(collectMetrics);
+		}
+	}
+
+	/**
+	 * Set whether allocated bytes are measured, both for this action and for
+	 * all of the actions of this composite action.
+	 */
+	@Override
+	public void setCollectAllocation(boolean collectAllocation) {
+		if (collectAllocation == getCollectAllocation()) {
+			return;
+		}
+		super.setCollectAllocation(collectAllocation);
+
+		for (ActionImpl action : getActions()) {
+			action.setCollectAllocation(collectAllocation);
+		}
+	}
+
 	@Override
 	public String getAcceptExtension() {
 		throw new UnsupportedOperationException();
@@ -114,4 +145,10 @@ public class CompositeActionImpl extends ActionImpl implements CompositeAction {
 
 		return getAcceptedAction().apply(inputName, inputBytes, inputLength);
 	}
+
+	@Override
+	protected void scan(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+
+		getAcceptedAction().scan(inputName, inputBytes, inputLength);
+	}
 }
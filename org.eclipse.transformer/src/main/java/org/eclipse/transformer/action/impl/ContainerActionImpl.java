@@ -15,7 +15,20 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -23,13 +36,28 @@ import java.util.zip.ZipOutputStream;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ContainerAction;
 import org.eclipse.transformer.action.ContainerChanges;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.ChangeJournal;
+import org.eclipse.transformer.util.CountingInputStream;
+import org.eclipse.transformer.util.CountingOutputStream;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.MemoryBudget;
+import org.eclipse.transformer.util.ParallelFileWriter;
+import org.eclipse.transformer.util.ParallelZipOutputStream;
+import org.eclipse.transformer.util.Progress;
+import org.eclipse.transformer.util.ReservingInputStream;
+import org.eclipse.transformer.util.RuleHits;
+import org.eclipse.transformer.util.SpillingOutputStream;
+import org.eclipse.transformer.util.TransformerEvents;
 import org.slf4j.Logger;
 
+import aQute.lib.io.ByteBufferInputStream;
+import aQute.lib.io.ByteBufferOutputStream;
+
 public abstract class ContainerActionImpl extends ActionImpl implements ContainerAction {
 
 	public <A extends ActionImpl> A addUsing(ActionInit<A> init) {
@@ -55,8 +83,71 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		return compositeAction;
 	}
 
+	/**
+	 * Add an action which is used on the resources of this container. A
+	 * container which is added uses the settings of this container.
+	 *
+	 * @param action The action which is to be added.
+	 */
 	public void addAction(ActionImpl action) {
 		getAction().addAction(action);
+		if (action instanceof ContainerActionImpl) {
+			((ContainerActionImpl) action).setSettings(getSettings());
+		}
+	}
+
+	//
+
+	private ContainerSettings settings = new ContainerSettings();
+
+	public ContainerSettings getSettings() {
+		return settings;
+	}
+
+	/**
+	 * Set the settings of this container, and of the containers nested within
+	 * this container. The settings are shared, not copied: Later changes to
+	 * the settings are seen by all of the containers which use them.
+	 *
+	 * @param settings The settings of this container.
+	 */
+	public void setSettings(ContainerSettings settings) {
+		if (settings == this.settings) {
+			return;
+		}
+		this.settings = settings;
+
+		for (ActionImpl action : getActions()) {
+			if (action instanceof ContainerActionImpl) {
+				((ContainerActionImpl) action).setSettings(settings);
+			}
+		}
+	}
+
+	/**
+	 * Set whether metrics are measured, both for this action and for
+	 * all of the actions used on the resources of this container.
+	 */
+	@Override
+	public void setCollectMetrics(boolean collectMetrics) {
+		if (collectMetrics == getCollectMetrics()) {
+			return;
+		}
+		super.setCollectMetrics(collectMetrics);
+		getAction().setCollectMetrics(collectMetrics);
+	}
+
+	/**
+	 * Set whether allocated bytes are measured, both for this action and for
+	 * all of the actions used on the resources of this container.
+	 */
+	@Override
+	public void setCollectAllocation(boolean collectAllocation) {
+		if (collectAllocation == getCollectAllocation()) {
+			return;
+		}
+		super.setCollectAllocation(collectAllocation);
+		getAction().setCollectAllocation(collectAllocation);
 	}
 
 	@Override
@@ -64,6 +155,140 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		return getAction().getActions();
 	}
 
+	//
+
+	/** Entry time setting: Output entries are given the times of the input entries. */
+	public static final long	PRESERVE_ENTRY_TIME		= -1L;
+
+	/**
+	 * Default fixed time of reproducible output entries: 1980-02-01T00:00:00Z.
+	 * The start of the DOS epoch, 1980-01-01, is avoided, since a time zone
+	 * adjustment may move that time before the epoch.
+	 */
+	public static final long	REPRODUCIBLE_ENTRY_TIME	= 318211200000L;
+
+	public long getEntryTime() {
+		return settings.getEntryTime();
+	}
+
+	public boolean getPreserveMethod() {
+		return settings.getPreserveMethod();
+	}
+
+	/**
+	 * Extensions of types which are already compressed, and which gain little
+	 * from being deflated.
+	 */
+	public static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList("jar", "war", "ear", "rar",
+		"zip", "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif", "webp", "woff", "woff2", "mp3", "mp4",
+		"ogg"));
+
+	/**
+	 * Tell if a resource is of an already compressed type.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @return True or false telling if the resource has the extension of an
+	 *         already compressed type.
+	 */
+	public static boolean isCompressedType(String resourceName) {
+		int dotOffset = resourceName.lastIndexOf('.');
+		if ((dotOffset == -1) || (dotOffset < resourceName.lastIndexOf('/'))) {
+			return false;
+		}
+		return COMPRESSED_EXTENSIONS.contains(resourceName.substring(dotOffset + 1)
+			.toLowerCase(Locale.ROOT));
+	}
+
+	public boolean getStoreCompressed() {
+		return settings.getStoreCompressed();
+	}
+
+	public int getCompressionLevel() {
+		return settings.getCompressionLevel();
+	}
+
+	public ExecutorService getDeflateExecutor() {
+		return settings.getDeflateExecutor();
+	}
+
+	public NestedArchiveWorkers getNestedWorkers() {
+		return settings.getNestedWorkers();
+	}
+
+	public MemoryBudget getMemoryBudget() {
+		return settings.getMemoryBudget();
+	}
+
+	public Progress getProgress() {
+		return settings.getProgress();
+	}
+
+	public ChangeJournal getJournal() {
+		return settings.getJournal();
+	}
+
+	/**
+	 * Reserve the bytes of an entry which is transformed as byte data: The
+	 * entry data is held both as input and as output. Nothing is reserved when
+	 * no budget is set, or when the size of the entry is unknown: See
+	 * {@link #reserveUnsizedEntry(InputStream)}.
+	 *
+	 * @param inputLength The length of the entry. -1 if unknown.
+	 * @return The count of reserved bytes, which must be released using
+	 *         {@link #releaseEntry(long)}.
+	 * @throws IOException Thrown if the reservation was interrupted.
+	 */
+	protected long reserveEntry(long inputLength) throws IOException {
+		if ((getMemoryBudget() == null) || (inputLength <= 0L)) {
+			return 0L;
+		}
+		long bytes = 2L * inputLength;
+		getMemoryBudget().reserve(bytes); // throws InterruptedIOException
+		return bytes;
+	}
+
+	protected void releaseEntry(long bytes) {
+		if (bytes != 0L) {
+			getMemoryBudget().releaseEntry(bytes);
+		}
+	}
+
+	/**
+	 * Reserve the bytes of an entry of unknown size which is transformed as
+	 * byte data. A working estimate is reserved, and the reservation grows as
+	 * the entry is read.
+	 *
+	 * @param inputStream The stream from which the entry is read.
+	 * @return A stream which reads the entry and which grows the reservation,
+	 *         and which must be released when the entry data is no longer
+	 *         held. Null if no budget is set.
+	 * @throws IOException Thrown if the reservation was interrupted.
+	 */
+	protected ReservingInputStream reserveUnsizedEntry(InputStream inputStream) throws IOException {
+		if (getMemoryBudget() == null) {
+			return null;
+		}
+		long estimate = 2L * FileUtils.BUFFER_ADJUSTMENT;
+		return new ReservingInputStream(inputStream, getMemoryBudget(), 2, estimate); // throws IOException
+	}
+
+	/**
+	 * Create the zip stream used to write an output archive.
+	 *
+	 * @param outputStream The stream to which to write the output archive.
+	 * @return The zip stream used to write the output archive.
+	 */
+	protected ZipOutputStream createZipOutputStream(OutputStream outputStream) {
+		ZipOutputStream zipOutputStream;
+		if (getDeflateExecutor() != null) {
+			zipOutputStream = new ParallelZipOutputStream(outputStream, getDeflateExecutor());
+		} else {
+			zipOutputStream = new ZipOutputStream(outputStream);
+		}
+		zipOutputStream.setLevel(getCompressionLevel());
+		return zipOutputStream;
+	}
+
 	@Override
 	public String getAcceptExtension() {
 		throw new UnsupportedOperationException();
@@ -119,11 +344,21 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 	}
 
 	protected void recordTransform(Action action, String resourceName) {
-		debug("Resource [ {} ] Action [ {} ]: Changes [ {} ]", resourceName, action.getName(), action.hadChanges());
+		if (isDebugEnabled()) {
+			debug("Resource [ {} ] Action [ {} ]: Changes [ {} ]", resourceName, action.getName(), action.hadChanges());
+		}
 
 		getActiveChanges().record(action);
 	}
 
+	protected void recordSkipped(Action action, String resourceName, boolean hadChanges) {
+		if (isDebugEnabled()) {
+			debug("Resource [ {} ] Action [ {} ]: Current; Changes [ {} ]", resourceName, action.getName(), hadChanges);
+		}
+
+		getActiveChanges().record(action, hadChanges);
+	}
+
 	// Byte base container conversion is not supported.
 
 	@Override
@@ -136,6 +371,28 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * Transform an archive file. Archives are transformed as streams, and are
+	 * always written, even when unchanged.
+	 */
+	@Override
+	public void apply(String inputPath, File inputFile, File outputFile) throws TransformException {
+		long inputLength = inputFile.length();
+		debug("Input [ {} ] Length [ {} ]", inputPath, inputLength);
+
+		InputStream inputStream = openInputStream(inputFile);
+		try {
+			OutputStream outputStream = openOutputStream(inputFile, outputFile);
+			try {
+				apply(inputPath, inputStream, inputLength, outputStream);
+			} finally {
+				closeOutputStream(outputFile, outputStream);
+			}
+		} finally {
+			closeInputStream(inputFile, inputStream);
+		}
+	}
+
 	// Containers default to process input streams as zip archives.
 
 	@Override
@@ -152,18 +409,46 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 			// Jar streams automatically read and consume the manifest, which we
 			// don't want.
 
-			ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-			ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+			CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+			CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+
+			ZipInputStream zipInputStream = new ZipInputStream(countingInputStream);
+			ZipOutputStream zipOutputStream = createZipOutputStream(countingOutputStream);
+
+			Progress useProgress = getProgress();
+			if (useProgress != null) {
+				useProgress.enterArchive(inputPath, inputCount, countingInputStream::getCount);
+			}
+			RuleHits ruleHits = getSignatureRule().getRuleHits();
+			if (ruleHits != null) {
+				ruleHits.enterArtifact(inputPath);
+			}
+			ChangeJournal useJournal = getJournal();
+			if (useJournal != null) {
+				useJournal.enterContainer(inputPath);
+			}
 
 			try {
 				apply(inputPath, zipInputStream, zipOutputStream);
 				// throws JakartaTransformException
 
 			} finally {
+				if (useProgress != null) {
+					useProgress.exitArchive();
+				}
+				if (ruleHits != null) {
+					ruleHits.exitArtifact();
+				}
+				if (useJournal != null) {
+					useJournal.exitContainer();
+				}
 				try {
 					zipOutputStream.finish(); // throws IOException
 				} catch (IOException e) {
 					throw new TransformException("Failed to complete output [ " + inputPath + " ]", e);
+				} finally {
+					getActiveChanges().addInputBytes(countingInputStream.getCount());
+					getActiveChanges().addOutputBytes(countingOutputStream.getCount());
 				}
 			}
 
@@ -175,6 +460,11 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 	protected void apply(String inputPath, ZipInputStream zipInputStream, ZipOutputStream zipOutputStream)
 		throws TransformException {
 
+		if (getNestedWorkers() != null) {
+			applyConcurrent(inputPath, zipInputStream, zipOutputStream);
+			return;
+		}
+
 		String prevName = null;
 		String inputName = null;
 
@@ -186,105 +476,1214 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				inputName = inputEntry.getName();
 				long inputLength = inputEntry.getSize();
 
-				debug("[ {}.{} ] [ {} ] Size [ {} ]", getClass().getSimpleName(), "apply", inputName, inputLength);
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ] [ {} ] Size [ {} ]", getSimpleClassName(), "apply", inputName, inputLength);
+				}
+
+				Object entryEvent = TransformerEvents.beginEntry();
 
 				boolean selected = select(inputName);
 				Action acceptedAction = acceptAction(inputName);
 
-				if (!selected || (acceptedAction == null)) {
-					if (acceptedAction == null) {
-						recordUnaccepted(inputName);
-					} else {
-						recordUnselected(acceptedAction, inputName);
+				applyEntry(inputPath, inputEntry, zipInputStream, inputLength, selected, acceptedAction, zipOutputStream,
+					entryEvent, buffer); // throws IOException
+
+				prevName = inputName;
+				inputName = null;
+			}
+
+		} catch (IOException e) {
+			String message;
+			if (inputName != null) { // Actively processing an entry.
+				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else if (prevName != null) { // Moving to a new entry but not the
+											// first entry.
+				message = "Failure after processing [ " + prevName + " ] from [ " + inputPath + " ]";
+			} else { // Moving to the first entry.
+				message = "Failed to process first entry of [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+		}
+	}
+
+	/**
+	 * Transform one entry of an archive, writing the output entry to the
+	 * output archive.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param inputEntry The input entry.
+	 * @param inputStream The stream from which to read the entry data.
+	 * @param inputLength The length of the entry data. -1 if unknown.
+	 * @param selected True or false telling if the entry was selected.
+	 * @param acceptedAction The action which accepted the entry. Null if no
+	 *            action accepted the entry.
+	 * @param zipOutputStream The output archive.
+	 * @param entryEvent The entry event. May be null.
+	 * @param buffer Buffer used to copy entry data.
+	 * @throws IOException Thrown if the entry could not be read or written.
+	 * @throws TransformException Thrown if the entry could not be
+	 *             transformed.
+	 */
+	protected void applyEntry(String inputPath, ZipEntry inputEntry, InputStream inputStream, long inputLength,
+		boolean selected, Action acceptedAction, ZipOutputStream zipOutputStream, Object entryEvent, byte[] buffer)
+		throws IOException, TransformException {
+
+		String inputName = inputEntry.getName();
+
+		if (getProgress() != null) {
+			getProgress().addEntry(inputName, inputLength);
+		}
+
+		if (!selected || (acceptedAction == null)) {
+			if (acceptedAction == null) {
+				recordUnaccepted(inputName);
+			} else {
+				recordUnselected(acceptedAction, inputName);
+			}
+
+			ZipEntry outputEntry = createOutputEntry(inputEntry, inputName);
+			long copyLength;
+
+			if (isStored(inputEntry, inputName) && (inputEntry.getMethod() != ZipEntry.STORED)) {
+				// The size and CRC of a stored entry must be set
+				// before the entry is written.
+				long reservedBytes = reserveEntry(inputLength); // throws IOException
+				ReservingInputStream reservingStream = ((inputLength == -1L) ? reserveUnsizedEntry(inputStream)
+					: null); // throws IOException
+				try {
+					ByteData storedData = FileUtils.read(inputName,
+						(reservingStream == null) ? inputStream : reservingStream,
+						(inputLength == -1L) ? -1 : FileUtils.verifyArray(0, inputLength)); // throws IOException
+					writeStored(zipOutputStream, outputEntry,
+						ByteBuffer.wrap(storedData.data, storedData.offset, storedData.length)); // throws IOException
+					copyLength = storedData.length;
+				} finally {
+					releaseEntry(reservedBytes);
+					if (reservingStream != null) {
+						reservingStream.release();
+					}
+				}
+
+			} else {
+				if (isStored(inputEntry, inputName)) {
+					setStored(outputEntry, inputEntry.getSize(), inputEntry.getCrc());
+				}
+				zipOutputStream.putNextEntry(outputEntry); // throws IOException
+				copyLength = FileUtils.transfer(inputStream, zipOutputStream, buffer); // throws IOException
+				zipOutputStream.closeEntry(); // throws IOException
+			}
+
+			commitCopy(entryEvent, inputPath, inputName, copyLength);
+
+		} else {
+			// long inputCRC = inputEntry.getCrc();
+			//
+			// int inputMethod = inputEntry.getMethod();
+			// long inputCompressed = inputEntry.getCompressedSize();
+			//
+			// FileTime inputCreation = inputEntry.getCreationTime();
+			// FileTime inputAccess = inputEntry.getLastAccessTime();
+			// FileTime inputModified =
+			// inputEntry.getLastModifiedTime();
+			//
+			// String className = getClass().getSimpleName();
+			// String methodName = "applyZip";
+			//
+			// debug( "[ {}.{} ] [ {} ] Size [ {} ] CRC [ {} ]",
+			// className, methodName, inputName, inputLength, inputCRC);
+			// debug( "[ {}.{} ] [ {} ] Compressed size [ {} ] Method [
+			// {} ]",
+			// className, methodName, inputName, inputCompressed,
+			// inputMethod);
+			// debug( "[ {}.{} ] [ {} ] Created [ {} ] Accessed [ {} ]
+			// Modified [ {} ]",
+			// className, methodName, inputName, inputCreation,
+			// inputAccess, inputModified);
+
+			// Archive type actions are processed using streams,
+			// while non-archive type actions do a full read of the
+			// entry
+			// data and process the resulting byte array.
+			//
+			// Ideally, a single pattern would be used for both cases,
+			// but
+			// but that is not possible:
+			//
+			// A full read of a nested archive is not possible because
+			// the nested
+			// archive can be very large.
+			//
+			// A read of non-archive data must be performed, since
+			// non-archive data
+			// may change the name associated with the data, and that
+			// can only be
+			// determined after reading the data.
+
+			if (acceptedAction.useStreams()) {
+				ZipEntry outputEntry = createOutputEntry(inputEntry, inputName);
+
+				if (isStored(inputEntry, inputName)) {
+					// The size and CRC of a stored entry must be set
+					// before the entry is written.
+					int storedLength = (inputLength == -1L) ? FileUtils.BUFFER_ADJUSTMENT
+						: FileUtils.verifyArray(0, inputLength);
+					SpillingOutputStream storedStream = new SpillingOutputStream(getMemoryBudget(), storedLength);
+					try {
+						acceptedAction.apply(inputName, inputStream, inputLength, storedStream);
+						recordTransform(acceptedAction, inputName);
+						storedStream.close(); // throws IOException
+						writeStored(zipOutputStream, outputEntry, storedStream, buffer); // throws IOException
+					} finally {
+						storedStream.dispose();
 					}
+				} else {
+					zipOutputStream.putNextEntry(outputEntry); // throws IOException
+					acceptedAction.apply(inputName, inputStream, inputLength, zipOutputStream);
+					recordTransform(acceptedAction, inputName);
+					zipOutputStream.closeEntry(); // throws IOException
+				}
 
-					// TODO: Should more of the entry details be transferred?
+				commitEntry(entryEvent, inputPath, inputName, acceptedAction);
 
-					ZipEntry outputEntry = new ZipEntry(inputName);
-					zipOutputStream.putNextEntry(outputEntry); // throws
-																// IOException
-					FileUtils.transfer(zipInputStream, zipOutputStream, buffer); // throws
-																					// IOException
+			} else if (((ActionImpl) acceptedAction).isPassthrough()) {
+				// Passthrough entries are copied as streams: Their data is not
+				// held in memory, and is not limited to the largest array.
+				ActionImpl passthroughAction = (ActionImpl) acceptedAction;
+				ZipEntry outputEntry = createOutputEntry(inputEntry, inputName);
+
+				if (isStored(inputEntry, inputName) && (inputEntry.getMethod() != ZipEntry.STORED)) {
+					// The size and CRC of a stored entry must be set
+					// before the entry is written.
+					int storedLength = (inputLength == -1L) ? FileUtils.BUFFER_ADJUSTMENT
+						: FileUtils.verifyArray(0, inputLength);
+					SpillingOutputStream storedStream = new SpillingOutputStream(getMemoryBudget(), storedLength);
+					try {
+						passthroughAction.transfer(inputName, inputStream, storedStream, buffer);
+						storedStream.close(); // throws IOException
+						writeStored(zipOutputStream, outputEntry, storedStream, buffer); // throws IOException
+					} finally {
+						storedStream.dispose();
+					}
+				} else {
+					if (isStored(inputEntry, inputName)) {
+						setStored(outputEntry, inputEntry.getSize(), inputEntry.getCrc());
+					}
+					zipOutputStream.putNextEntry(outputEntry); // throws IOException
+					passthroughAction.transfer(inputName, inputStream, zipOutputStream, buffer);
 					zipOutputStream.closeEntry(); // throws IOException
+				}
+
+				recordTransform(passthroughAction, inputName);
+				commitEntry(entryEvent, inputPath, inputName, passthroughAction);
 
+			} else {
+				int intInputLength;
+				if (inputLength == -1L) {
+					intInputLength = -1;
 				} else {
-					// long inputCRC = inputEntry.getCrc();
-					//
-					// int inputMethod = inputEntry.getMethod();
-					// long inputCompressed = inputEntry.getCompressedSize();
-					//
-					// FileTime inputCreation = inputEntry.getCreationTime();
-					// FileTime inputAccess = inputEntry.getLastAccessTime();
-					// FileTime inputModified =
-					// inputEntry.getLastModifiedTime();
-					//
-					// String className = getClass().getSimpleName();
-					// String methodName = "applyZip";
-					//
-					// debug( "[ {}.{} ] [ {} ] Size [ {} ] CRC [ {} ]",
-					// className, methodName, inputName, inputLength, inputCRC);
-					// debug( "[ {}.{} ] [ {} ] Compressed size [ {} ] Method [
-					// {} ]",
-					// className, methodName, inputName, inputCompressed,
-					// inputMethod);
-					// debug( "[ {}.{} ] [ {} ] Created [ {} ] Accessed [ {} ]
-					// Modified [ {} ]",
-					// className, methodName, inputName, inputCreation,
-					// inputAccess, inputModified);
-
-					// Archive type actions are processed using streams,
-					// while non-archive type actions do a full read of the
-					// entry
-					// data and process the resulting byte array.
-					//
-					// Ideally, a single pattern would be used for both cases,
-					// but
-					// but that is not possible:
-					//
-					// A full read of a nested archive is not possible because
-					// the nested
-					// archive can be very large.
-					//
-					// A read of non-archive data must be performed, since
-					// non-archive data
-					// may change the name associated with the data, and that
-					// can only be
-					// determined after reading the data.
+					intInputLength = FileUtils.verifyArray(0, inputLength);
+				}
 
-					if (acceptedAction.useStreams()) {
-						// TODO: Should more of the entry details be
-						// transferred?
+				long reservedBytes = reserveEntry(inputLength); // throws IOException
+				ReservingInputStream reservingStream = ((inputLength == -1L) ? reserveUnsizedEntry(inputStream)
+					: null); // throws IOException
+				try {
+					InputStreamData outputData = acceptedAction.apply(inputName,
+						(reservingStream == null) ? inputStream : reservingStream, intInputLength);
+					recordTransform(acceptedAction, inputName);
 
-						ZipEntry outputEntry = new ZipEntry(inputName);
-						zipOutputStream.putNextEntry(outputEntry); // throws
-																	// IOException
+					String outputName = acceptedAction.getLastActiveChanges()
+						.getOutputResourceName();
+					ZipEntry outputEntry = createOutputEntry(inputEntry, outputName);
 
-						acceptedAction.apply(inputName, zipInputStream, inputLength, zipOutputStream);
-						recordTransform(acceptedAction, inputName);
+					if (isStored(inputEntry, outputName)) {
+						ByteData storedData = FileUtils.read(outputName, outputData.stream, outputData.length); // throws IOException
+						writeStored(zipOutputStream, outputEntry,
+							ByteBuffer.wrap(storedData.data, storedData.offset, storedData.length)); // throws IOException
+					} else {
+						zipOutputStream.putNextEntry(outputEntry); // throws IOException
+						FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws IOException
 						zipOutputStream.closeEntry(); // throws IOException
+					}
+				} finally {
+					releaseEntry(reservedBytes);
+					if (reservingStream != null) {
+						reservingStream.release();
+					}
+				}
+
+				commitEntry(entryEvent, inputPath, inputName, acceptedAction);
+			}
+		}
+	}
+
+	// Nested archives may be transformed as independent tasks.
+
+	/**
+	 * Largest nested archive which is transformed as a task. Larger nested
+	 * archives are transformed by the transforming thread.
+	 */
+	public static final long MAX_NESTED_TASK_BYTES = 64L * 1024L * 1024L;
+
+	/**
+	 * Largest count of input bytes held for entries which wait on nested
+	 * archive tasks.
+	 */
+	public static final long MAX_PENDING_NESTED_BYTES = 256L * 1024L * 1024L;
+
+	/**
+	 * An entry which was read but not yet written: Either a nested archive
+	 * which is transformed as a task, or an entry which follows a nested
+	 * archive, and which must be written after that nested archive.
+	 */
+	private static class PendingEntry {
+		PendingEntry(ZipEntry inputEntry, boolean selected, Action acceptedAction, Object entryEvent) {
+			this.inputEntry = inputEntry;
+			this.selected = selected;
+			this.acceptedAction = acceptedAction;
+			this.entryEvent = entryEvent;
+		}
+
+		final ZipEntry			inputEntry;
+		final boolean			selected;
+		final Action			acceptedAction;
+		final Object			entryEvent;
+
+		ByteBuffer				inputData;
+		long					reservedBytes;
+		Future<NestedOutput>	nestedOutput;
+
+		/**
+		 * Set when the output of the nested archive will not be written: A
+		 * task which has not yet started does nothing.
+		 */
+		volatile boolean		abandoned;
+
+		boolean isNested() {
+			return selected && (acceptedAction instanceof ContainerActionImpl);
+		}
+	}
+
+	/**
+	 * The output of a nested archive task. The worker tree is held until the
+	 * changes of the worker action are recorded.
+	 */
+	private static class NestedOutput {
+		NestedOutput(CompositeActionImpl tree, ContainerActionImpl action, SpillingOutputStream outputData) {
+			this.tree = tree;
+			this.action = action;
+			this.outputData = outputData;
+		}
+
+		final CompositeActionImpl	tree;
+		final ContainerActionImpl	action;
+		final SpillingOutputStream	outputData;
+	}
+
+	/**
+	 * Transform the entries of an archive, transforming nested archives as
+	 * tasks of the nested archive workers.
+	 * <p>
+	 * Nested archives and the entries which follow them are held in memory
+	 * until the pending entries reach {@link #MAX_PENDING_NESTED_BYTES}, or
+	 * until the end of the archive. The tasks of the pending nested archives
+	 * are then submitted, largest first, and the pending entries are written
+	 * in their original order. Entries which are too large to be held, or
+	 * whose bytes cannot be reserved, are transformed by the transforming
+	 * thread, after the pending entries are written. See
+	 * {@link #readHeld(String, List, PendingEntry, InputStream, long, long, ZipOutputStream, byte[])}.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param zipInputStream The input archive.
+	 * @param zipOutputStream The output archive.
+	 * @throws TransformException Thrown if the archive could not be
+	 *             transformed.
+	 */
+	protected void applyConcurrent(String inputPath, ZipInputStream zipInputStream, ZipOutputStream zipOutputStream)
+		throws TransformException {
+
+		String prevName = null;
+		String inputName = null;
+
+		List<PendingEntry> pending = new ArrayList<>();
+		long pendingBytes = 0L;
+
+		try {
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			ZipEntry inputEntry;
+			while ((inputEntry = zipInputStream.getNextEntry()) != null) {
+				inputName = inputEntry.getName();
+				long inputLength = inputEntry.getSize();
+
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ] [ {} ] Size [ {} ]", getSimpleClassName(), "applyConcurrent", inputName,
+						inputLength);
+				}
+
+				Object entryEvent = TransformerEvents.beginEntry();
+
+				boolean selected = select(inputName);
+				Action acceptedAction = acceptAction(inputName);
+
+				boolean isNested = selected && (acceptedAction instanceof ContainerActionImpl);
+
+				if (!isNested && pending.isEmpty()) {
+					applyEntry(inputPath, inputEntry, zipInputStream, inputLength, selected, acceptedAction,
+						zipOutputStream, entryEvent, buffer); // throws IOException
+
+				} else {
+					long limit = (isNested ? MAX_NESTED_TASK_BYTES : MAX_PENDING_COPY_BYTES);
+
+					PendingEntry entry = new PendingEntry(inputEntry, selected, acceptedAction, entryEvent);
+					boolean held = readHeld(inputPath, pending, entry, zipInputStream, inputLength, limit,
+						zipOutputStream, buffer); // throws IOException, TransformException
+					if (pending.isEmpty()) {
+						pendingBytes = 0L; // The pending entries were written while reading.
+					}
+
+					if (!held) {
+						flushPending(inputPath, pending, zipOutputStream, buffer); // throws IOException
+						pendingBytes = 0L;
+
+						InputStream inputStream = ((entry.inputData == null) ? zipInputStream
+							: new SequenceInputStream(new ByteBufferInputStream(entry.inputData), zipInputStream));
+						try {
+							applyEntry(inputPath, inputEntry, inputStream, inputLength, selected, acceptedAction,
+								zipOutputStream, entryEvent, buffer); // throws IOException
+						} finally {
+							if (entry.reservedBytes > 0L) {
+								getMemoryBudget().release(entry.reservedBytes);
+							}
+						}
 
 					} else {
-						int intInputLength;
-						if (inputLength == -1L) {
-							intInputLength = -1;
-						} else {
-							intInputLength = FileUtils.verifyArray(0, inputLength);
+						pending.add(entry);
+						pendingBytes += entry.inputData.remaining();
+						if (pendingBytes > MAX_PENDING_NESTED_BYTES) {
+							flushPending(inputPath, pending, zipOutputStream, buffer); // throws IOException
+							pendingBytes = 0L;
 						}
+					}
+				}
 
-						InputStreamData outputData = acceptedAction.apply(inputName, zipInputStream, intInputLength);
-						recordTransform(acceptedAction, inputName);
+				prevName = inputName;
+				inputName = null;
+			}
+
+			flushPending(inputPath, pending, zipOutputStream, buffer); // throws IOException
+
+		} catch (IOException e) {
+			String message;
+			if (inputName != null) { // Actively processing an entry.
+				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else if (prevName != null) { // Moving to a new entry but not the
+											// first entry.
+				message = "Failure after processing [ " + prevName + " ] from [ " + inputPath + " ]";
+			} else { // Moving to the first entry.
+				message = "Failed to process first entry of [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+		}
+	}
+
+	/**
+	 * Read the data of an entry which is to be held as a pending entry.
+	 * <p>
+	 * When a budget is set, bytes are reserved before they are read: The
+	 * length of the entry when the length is known, otherwise increments of
+	 * {@link SpillingOutputStream#RESERVE_INCREMENT} as the entry is read.
+	 * When a reservation fails, the pending entries are written, which
+	 * releases their bytes, and the reservation is tried again.
+	 * <p>
+	 * The entry is not held when it is larger than the limit, or when a
+	 * reservation fails a second time. The data which was read is then
+	 * incomplete, and must be transformed with the remainder of the entry,
+	 * after which the reserved bytes must be released.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param pending The pending entries.
+	 * @param entry The entry which is read. The data which was read and the
+	 *            count of reserved bytes are set in the entry.
+	 * @param inputStream The stream from which to read the entry data.
+	 * @param inputLength The length of the entry data. -1 if unknown.
+	 * @param limit The largest count of bytes which is to be held.
+	 * @param zipOutputStream The output archive.
+	 * @param buffer Buffer used to read the entry data.
+	 * @return True or false telling if the entry is held.
+	 * @throws IOException Thrown if the read fails, or if a pending entry
+	 *             could not be written.
+	 * @throws TransformException Thrown if a pending entry could not be
+	 *             transformed.
+	 */
+	protected boolean readHeld(String inputPath, List<PendingEntry> pending, PendingEntry entry,
+		InputStream inputStream, long inputLength, long limit, ZipOutputStream zipOutputStream, byte[] buffer)
+		throws IOException, TransformException {
+
+		if (inputLength > limit) {
+			return false;
+		}
+
+		boolean useReserve = (getMemoryBudget() != null);
+
+		try {
+			if (useReserve && (inputLength != -1L)) {
+				if (!reserveHeld(inputPath, pending, inputLength, zipOutputStream, buffer)) {
+					return false;
+				}
+				entry.reservedBytes = inputLength;
+			}
+
+			int initialLength = ((inputLength == -1L) ? FileUtils.BUFFER_ADJUSTMENT : (int) inputLength);
+			ByteBufferOutputStream outputStream = new ByteBufferOutputStream(initialLength);
+
+			long count = 0L;
+			int readCount;
+			while (count <= limit) {
+				int readLength = (int) Math.min(buffer.length, limit + 1L - count);
+				if (useReserve && (inputLength == -1L) && (count + readLength > entry.reservedBytes)) {
+					long increment = Math.min(SpillingOutputStream.RESERVE_INCREMENT,
+						limit + 1L - entry.reservedBytes);
+					if (!reserveHeld(inputPath, pending, increment, zipOutputStream, buffer)) {
+						entry.inputData = outputStream.toByteBuffer();
+						return false;
+					}
+					entry.reservedBytes += increment;
+				}
+
+				if ((readCount = inputStream.read(buffer, 0, readLength)) == -1) { // throws IOException
+					break;
+				}
+				outputStream.write(buffer, 0, readCount);
+				count += readCount;
+			}
+
+			entry.inputData = outputStream.toByteBuffer();
+			return (count <= limit);
+
+		} catch (IOException | TransformException | RuntimeException e) {
+			if (entry.reservedBytes > 0L) {
+				getMemoryBudget().release(entry.reservedBytes);
+				entry.reservedBytes = 0L;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reserve bytes of a pending entry. When the budget is exhausted, the
+	 * pending entries are written, which releases their bytes, and the
+	 * reservation is tried again.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param pending The pending entries.
+	 * @param bytes The count of bytes to reserve.
+	 * @param zipOutputStream The output archive.
+	 * @param buffer Buffer used to copy entry data.
+	 * @return True or false telling if the bytes were reserved.
+	 * @throws IOException Thrown if a pending entry could not be written.
+	 * @throws TransformException Thrown if a pending entry could not be
+	 *             transformed.
+	 */
+	private boolean reserveHeld(String inputPath, List<PendingEntry> pending, long bytes,
+		ZipOutputStream zipOutputStream, byte[] buffer) throws IOException, TransformException {
+
+		if (getMemoryBudget().tryReserve(bytes)) {
+			return true;
+		}
+		if (pending.isEmpty()) {
+			return false;
+		}
+		flushPending(inputPath, pending, zipOutputStream, buffer); // throws IOException
+		return getMemoryBudget().tryReserve(bytes);
+	}
+
+	/**
+	 * Write the pending entries. The tasks of the pending nested archives are
+	 * submitted largest first, which shortens the longest path through the
+	 * tasks. The entries are then written in their original order. Entries
+	 * which are not nested archives are transformed by the transforming
+	 * thread.
+	 * <p>
+	 * When an entry fails, the tasks of the nested archives which were not
+	 * yet written are abandoned, and are waited for, so that their worker trees
+	 * are returned and their output is disposed before the failure is thrown.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param pending The pending entries. Cleared by this method.
+	 * @param zipOutputStream The output archive.
+	 * @param buffer Buffer used to copy entry data.
+	 * @throws IOException Thrown if an entry could not be written.
+	 * @throws TransformException Thrown if an entry could not be transformed.
+	 */
+	protected void flushPending(String inputPath, List<PendingEntry> pending, ZipOutputStream zipOutputStream,
+		byte[] buffer) throws IOException, TransformException {
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		try {
+			List<PendingEntry> nested = new ArrayList<>();
+			for (PendingEntry entry : pending) {
+				if (entry.isNested()) {
+					nested.add(entry);
+				}
+			}
+			nested.sort((entry1, entry2) -> Integer.compare(entry2.inputData.remaining(),
+				entry1.inputData.remaining()));
 
-						// TODO: Should more of the entry details be
-						// transferred?
+			// Nested archives are journaled, counted as progress, and counted
+			// as rule hits by worker threads, against the path of this
+			// archive.
+			String journalContainer = ((getJournal() == null) ? null : getJournal().getContainer());
+			String progressPrefix = ((getProgress() == null) ? null : getProgress().getArchivePrefix());
+			RuleHits ruleHits = getSignatureRule().getRuleHits();
+			String ruleArtifact = ((ruleHits == null) ? null : ruleHits.getArtifact());
 
-						ZipEntry outputEntry = new ZipEntry(acceptedAction.getLastActiveChanges()
-							.getOutputResourceName());
-						zipOutputStream.putNextEntry(outputEntry); // throws
-																	// IOException
-						FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws
-																						// IOException
+			ExecutorService executor = getNestedWorkers().getExecutor();
+			for (PendingEntry entry : nested) {
+				entry.nestedOutput = executor
+					.submit(() -> applyNested(entry, journalContainer, progressPrefix, ruleArtifact));
+			}
+
+			for (PendingEntry entry : pending) {
+				if (entry.nestedOutput == null) {
+					applyEntry(inputPath, entry.inputEntry, new ByteBufferInputStream(entry.inputData),
+						entry.inputData.remaining(), entry.selected, entry.acceptedAction, zipOutputStream,
+						entry.entryEvent, buffer); // throws IOException
+					continue;
+				}
+
+				String inputName = entry.inputEntry.getName();
+				Future<NestedOutput> nestedOutput = entry.nestedOutput;
+				// A failed task has already returned its tree.
+				entry.nestedOutput = null;
+				NestedOutput output = getNestedOutput(inputName, nestedOutput);
+				try {
+					ZipEntry outputEntry = createOutputEntry(entry.inputEntry, inputName);
+
+					if (isStored(entry.inputEntry, inputName)) {
+						writeStored(zipOutputStream, outputEntry, output.outputData, buffer); // throws IOException
+					} else {
+						zipOutputStream.putNextEntry(outputEntry); // throws IOException
+						output.outputData.writeTo(zipOutputStream, buffer); // throws IOException
 						zipOutputStream.closeEntry(); // throws IOException
 					}
+
+					recordTransform(output.action, inputName);
+					commitEntry(entry.entryEvent, inputPath, inputName, output.action);
+
+				} finally {
+					output.outputData.dispose();
+					getNestedWorkers().release(output.tree);
+				}
+			}
+
+		} finally {
+			abandonNested(pending);
+
+			if (getMemoryBudget() != null) {
+				for (PendingEntry entry : pending) {
+					if (entry.reservedBytes > 0L) {
+						getMemoryBudget().release(entry.reservedBytes);
+					}
+				}
+			}
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Abandon the tasks of pending nested archives which were not written.
+	 * Tasks which have not started do nothing. Tasks which are running are
+	 * waited for, and their output is disposed and their worker trees are
+	 * returned. Waiting is not interrupted: An interrupt is restored after
+	 * all tasks have completed.
+	 *
+	 * @param pending The pending entries.
+	 */
+	private void abandonNested(List<PendingEntry> pending) {
+		for (PendingEntry entry : pending) {
+			if (entry.nestedOutput != null) {
+				entry.abandoned = true;
+			}
+		}
+
+		boolean interrupted = false;
+		for (PendingEntry entry : pending) {
+			if (entry.nestedOutput == null) {
+				continue;
+			}
+			NestedOutput output = null;
+			while (true) {
+				try {
+					output = entry.nestedOutput.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException | CancellationException e) {
+					// A failed task has already returned its tree.
+					break;
+				}
+			}
+			entry.nestedOutput = null;
+			if (output != null) {
+				output.outputData.dispose();
+				getNestedWorkers().release(output.tree);
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread()
+				.interrupt();
+		}
+	}
+
+	/**
+	 * Transform a nested archive using a borrowed worker tree. Run as a task
+	 * of the nested archive workers.
+	 *
+	 * @param entry The pending entry of the nested archive.
+	 * @param journalContainer The journal path of the archive which contains
+	 *            the nested archive. Null if there is no journal.
+	 * @param progressPrefix The progress prefix of the archive which contains
+	 *            the nested archive. Null if there is no progress.
+	 * @param ruleArtifact The rule hits artifact of the archive which contains
+	 *            the nested archive. Null if rule hits are not counted.
+	 * @return The output of the nested archive, with the worker tree which
+	 *         transformed the nested archive. Null if the entry was abandoned
+	 *         before the task started.
+	 * @throws TransformException Thrown if the nested archive could not be
+	 *             transformed.
+	 */
+	private NestedOutput applyNested(PendingEntry entry, String journalContainer, String progressPrefix,
+		String ruleArtifact) throws TransformException {
+		if (entry.abandoned) {
+			return null;
+		}
+
+		String inputName = entry.inputEntry.getName();
+		int inputLength = entry.inputData.remaining();
+
+		if (journalContainer != null) {
+			getJournal().resumeContainer(journalContainer);
+		}
+		if (progressPrefix != null) {
+			getProgress().resumeArchive(progressPrefix);
+		}
+		if (ruleArtifact != null) {
+			getSignatureRule().getRuleHits()
+				.resumeArtifact(ruleArtifact);
+		}
+
+		CompositeActionImpl tree = getNestedWorkers().borrow();
+		try {
+			ContainerActionImpl action = NestedArchiveWorkers.getAction(tree,
+				(ContainerActionImpl) entry.acceptedAction);
+
+			SpillingOutputStream outputStream = new SpillingOutputStream(getMemoryBudget(),
+				Math.max(inputLength, FileUtils.BUFFER_ADJUSTMENT));
+			try {
+				action.apply(inputName, new ByteBufferInputStream(entry.inputData.duplicate()), inputLength,
+					outputStream);
+				outputStream.close(); // throws IOException
+			} catch (IOException e) {
+				outputStream.dispose();
+				throw new TransformException("Failed to hold the output of [ " + inputName + " ]", e);
+			} catch (TransformException | RuntimeException e) {
+				outputStream.dispose();
+				throw e;
+			}
+
+			return new NestedOutput(tree, action, outputStream);
+
+		} catch (TransformException | RuntimeException e) {
+			getNestedWorkers().release(tree);
+			throw e;
+
+		} finally {
+			if (journalContainer != null) {
+				getJournal().exitContainer();
+			}
+			if (progressPrefix != null) {
+				getProgress().exitArchive();
+			}
+			if (ruleArtifact != null) {
+				getSignatureRule().getRuleHits()
+					.exitArtifact();
+			}
+		}
+	}
+
+	private static NestedOutput getNestedOutput(String inputName, Future<NestedOutput> nestedOutput)
+		throws TransformException {
+		try {
+			return nestedOutput.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw new TransformException("Interrupted while transforming [ " + inputName + " ]", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			// A fork join pool wraps the exceptions of its tasks.
+			for (Throwable wrapped = cause; wrapped instanceof RuntimeException; wrapped = wrapped.getCause()) {
+				if (wrapped.getCause() instanceof TransformException) {
+					throw (TransformException) wrapped.getCause();
+				}
+			}
+			if (cause instanceof TransformException) {
+				throw (TransformException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new TransformException("Failed to transform [ " + inputName + " ]", cause);
+			}
+		}
+	}
+
+	/**
+	 * Create an output entry for an input entry. The time and the extra fields
+	 * of the input entry are transferred according to the entry time setting.
+	 * The compression method is not set: The caller must set the method.
+	 * <p>
+	 * Entry comments are not transferred: Comments are stored in the central
+	 * directory of an archive, which is not available when reading an archive
+	 * as a stream.
+	 *
+	 * @param inputEntry The input entry.
+	 * @param outputName The name of the output entry.
+	 * @return The new output entry.
+	 */
+	protected ZipEntry createOutputEntry(ZipEntry inputEntry, String outputName) {
+		ZipEntry outputEntry = new ZipEntry(outputName);
+
+		byte[] extra = inputEntry.getExtra();
+
+		if (getEntryTime() == PRESERVE_ENTRY_TIME) {
+			long inputTime = inputEntry.getTime();
+			if (inputTime != -1L) {
+				outputEntry.setTime(inputTime);
+			}
+		} else {
+			// Entry times are stored as local times: Adjust the fixed time
+			// so that the same time is stored in every time zone.
+			outputEntry.setTime(getEntryTime() - TimeZone.getDefault()
+				.getOffset(getEntryTime()));
+			extra = removeTimes(extra);
+		}
+
+		// The extra fields must be set after the time: Times
+		// are read from the extra fields.
+		if (extra != null) {
+			outputEntry.setExtra(extra);
+		}
+
+		return outputEntry;
+	}
+
+	/** Extra field IDs of fields which record entry times. */
+	private static final int[] TIME_EXTRA_IDS = {
+		0x000A, // NTFS
+		0x000D, // PKWARE Unix
+		0x5455, // Extended timestamp
+		0x5855 // Info-ZIP Unix (original)
+	};
+
+	/**
+	 * Remove the fields which record entry times from extra field data.
+	 *
+	 * @param extra Extra field data. May be null.
+	 * @return The extra field data with the time fields removed. Null if no
+	 *         fields remain. The extra field data is returned unchanged if it
+	 *         is not well formed.
+	 */
+	protected static byte[] removeTimes(byte[] extra) {
+		if (extra == null) {
+			return null;
+		}
+
+		byte[] kept = new byte[extra.length];
+		int keptLength = 0;
+
+		int offset = 0;
+		while (offset + 4 <= extra.length) {
+			int id = (extra[offset] & 0xFF) | ((extra[offset + 1] & 0xFF) << 8);
+			int size = (extra[offset + 2] & 0xFF) | ((extra[offset + 3] & 0xFF) << 8);
+			int next = offset + 4 + size;
+			if (next > extra.length) {
+				return extra;
+			}
+			if (!isTimeExtra(id)) {
+				System.arraycopy(extra, offset, kept, keptLength, next - offset);
+				keptLength += next - offset;
+			}
+			offset = next;
+		}
+		if (offset != extra.length) {
+			return extra;
+		}
+
+		if (keptLength == 0) {
+			return null;
+		} else if (keptLength == extra.length) {
+			return extra;
+		} else {
+			byte[] result = new byte[keptLength];
+			System.arraycopy(kept, 0, result, 0, keptLength);
+			return result;
+		}
+	}
+
+	private static boolean isTimeExtra(int id) {
+		for (int timeId : TIME_EXTRA_IDS) {
+			if (id == timeId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tell if the output entry of an input entry is to be stored. That is the
+	 * case when compression methods are preserved and the input entry is
+	 * stored, or when already compressed types are stored and the output entry
+	 * is of an already compressed type. Entries which are too large to be held
+	 * in memory are never stored.
+	 *
+	 * @param inputEntry The input entry.
+	 * @param outputName The name of the output entry.
+	 * @return True or false telling if the output entry is to be stored.
+	 */
+	protected boolean isStored(ZipEntry inputEntry, String outputName) {
+		if (inputEntry.getSize() > FileUtils.MAX_ARRAY_LENGTH) {
+			return false;
+		} else if (getPreserveMethod() && (inputEntry.getMethod() == ZipEntry.STORED)) {
+			return true;
+		} else {
+			return getStoreCompressed() && isCompressedType(outputName);
+		}
+	}
+
+	protected static void setStored(ZipEntry outputEntry, long size, long crc) {
+		outputEntry.setMethod(ZipEntry.STORED);
+		outputEntry.setSize(size);
+		outputEntry.setCompressedSize(size);
+		outputEntry.setCrc(crc);
+	}
+
+	/**
+	 * Write a stored entry.
+	 *
+	 * @param zipOutputStream The stream to which to write the entry.
+	 * @param outputEntry The entry which is to be written.
+	 * @param data The data of the entry.
+	 * @throws IOException Thrown if the write fails.
+	 */
+	protected static void writeStored(ZipOutputStream zipOutputStream, ZipEntry outputEntry, ByteBuffer data)
+		throws IOException {
+
+		byte[] bytes = data.array();
+		int offset = data.arrayOffset() + data.position();
+		int length = data.remaining();
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		setStored(outputEntry, length, crc.getValue());
+
+		zipOutputStream.putNextEntry(outputEntry); // throws IOException
+		zipOutputStream.write(bytes, offset, length); // throws IOException
+		zipOutputStream.closeEntry(); // throws IOException
+	}
+
+	/**
+	 * Write a stored entry from a spilling stream. The size and the CRC of the
+	 * entry are those computed by the stream.
+	 *
+	 * @param zipOutputStream The stream to which to write the entry.
+	 * @param outputEntry The entry which is to be written.
+	 * @param data The closed stream which holds the data of the entry.
+	 * @param buffer Buffer used to copy spilled data.
+	 * @throws IOException Thrown if the write fails.
+	 */
+	protected static void writeStored(ZipOutputStream zipOutputStream, ZipEntry outputEntry, SpillingOutputStream data,
+		byte[] buffer) throws IOException {
+
+		setStored(outputEntry, data.getLength(), data.getCrc());
+
+		zipOutputStream.putNextEntry(outputEntry); // throws IOException
+		data.writeTo(zipOutputStream, buffer); // throws IOException
+		zipOutputStream.closeEntry(); // throws IOException
+	}
+
+	/**
+	 * Complete the event of an entry which was processed by an action. The
+	 * entry sizes are the byte counts recorded by the action.
+	 *
+	 * @param entryEvent The entry event. Ignored if null.
+	 * @param inputPath The path of the container.
+	 * @param inputName The name of the entry.
+	 * @param acceptedAction The action which processed the entry.
+	 */
+	protected void commitEntry(Object entryEvent, String inputPath, String inputName, Action acceptedAction) {
+		ChangeJournal useJournal = getJournal();
+		if ((entryEvent != null) || (useJournal != null)) {
+			Changes actionChanges = acceptedAction.getLastActiveChanges();
+			TransformerEvents.commitEntry(entryEvent, inputPath, inputName, acceptedAction.getName(),
+				actionChanges.getInputBytes(), actionChanges.getOutputBytes(), actionChanges.hasChanges());
+			if (useJournal != null) {
+				// Class changes are counted as modified constants.
+				int replacements = actionChanges.getReplacements();
+				if (actionChanges instanceof ClassChangesImpl) {
+					replacements += ((ClassChangesImpl) actionChanges).getModifiedConstants();
+				}
+				useJournal.record(inputName, acceptedAction.getName(), actionChanges.getOutputResourceName(),
+					actionChanges.hasChanges(), replacements, actionChanges.getInputBytes(),
+					actionChanges.getOutputBytes());
+			}
+		}
+	}
+
+	/**
+	 * Complete the events and the journal record of an entry which was copied
+	 * without being transformed.
+	 */
+	protected void commitCopy(Object entryEvent, String inputPath, String inputName, long copyLength) {
+		TransformerEvents.commitEntry(entryEvent, inputPath, inputName, null, copyLength, copyLength, false);
+		ChangeJournal useJournal = getJournal();
+		if (useJournal != null) {
+			useJournal.record(inputName, null, null, false, 0, copyLength, copyLength);
+		}
+	}
+
+	// Containers may write their entries as the files of a directory, instead
+	// of writing an output archive.
+
+	/** Largest count of bytes held by pending file writes. */
+	public static final long	MAX_PENDING_WRITE_BYTES	= 64L * 1024L * 1024L;
+
+	/**
+	 * Largest entry which is copied to a directory using a pending write.
+	 * Larger entries are copied by the transforming thread.
+	 */
+	public static final long	MAX_PENDING_COPY_BYTES	= 8L * 1024L * 1024L;
+
+	public boolean getExplodeNested() {
+		return settings.getExplodeNested();
+	}
+
+	public ExecutorService getWriteExecutor() {
+		return settings.getWriteExecutor();
+	}
+
+	/**
+	 * Answer the modification time of the file written for an entry.
+	 *
+	 * @param inputEntry The input entry.
+	 * @return The modification time of the file written for the entry.
+	 */
+	protected long getFileTime(ZipEntry inputEntry) {
+		if (getEntryTime() == PRESERVE_ENTRY_TIME) {
+			long inputTime = inputEntry.getTime();
+			return (inputTime == -1L) ? ParallelFileWriter.NO_TIME : inputTime;
+		} else {
+			return getEntryTime();
+		}
+	}
+
+	/**
+	 * Transform an archive, writing the transformed entries as the files of a
+	 * directory. This avoids compressing the entries to an output archive when
+	 * the archive would be extracted to a directory.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param inputFile The archive file.
+	 * @param outputDir The directory which is to receive the transformed
+	 *            entries.
+	 * @throws TransformException Thrown if the transform fails.
+	 */
+	public void applyExploded(String inputPath, File inputFile, File outputDir) throws TransformException {
+		long inputLength = inputFile.length();
+		debug("Input [ {} ] Length [ {} ]", inputPath, inputLength);
+
+		InputStream inputStream = openInputStream(inputFile);
+		try {
+			applyExploded(inputPath, inputStream, inputLength, outputDir);
+		} finally {
+			closeInputStream(inputFile, inputStream);
+		}
+	}
+
+	/**
+	 * Transform an archive, writing the transformed entries as the files of a
+	 * directory. Files are written concurrently when a write executor is set.
+	 * Nested archives are written as directories when nested archives are to
+	 * be exploded, and are otherwise written as archives.
+	 *
+	 * @param inputPath The path of the archive.
+	 * @param inputStream A stream containing the archive.
+	 * @param inputCount The count of bytes of the archive. -1 if unknown.
+	 * @param outputDir The directory which is to receive the transformed
+	 *            entries.
+	 * @throws TransformException Thrown if the transform fails.
+	 */
+	public void applyExploded(String inputPath, InputStream inputStream, long inputCount, File outputDir)
+		throws TransformException {
+
+		startRecording(inputPath);
+
+		try {
+			setResourceNames(inputPath, inputPath);
+
+			CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+			ZipInputStream zipInputStream = new ZipInputStream(countingInputStream);
+
+			ParallelFileWriter writer = new ParallelFileWriter(outputDir.toPath(), getWriteExecutor(),
+				MAX_PENDING_WRITE_BYTES);
+
+			Progress useProgress = getProgress();
+			if (useProgress != null) {
+				useProgress.enterArchive(inputPath, inputCount, countingInputStream::getCount);
+			}
+			RuleHits ruleHits = getSignatureRule().getRuleHits();
+			if (ruleHits != null) {
+				ruleHits.enterArtifact(inputPath);
+			}
+			ChangeJournal useJournal = getJournal();
+			if (useJournal != null) {
+				useJournal.enterContainer(inputPath);
+			}
+
+			try {
+				applyExploded(inputPath, zipInputStream, writer); // throws
+																	// TransformException
+
+			} finally {
+				if (useProgress != null) {
+					useProgress.exitArchive();
+				}
+				if (ruleHits != null) {
+					ruleHits.exitArtifact();
+				}
+				if (useJournal != null) {
+					useJournal.exitContainer();
+				}
+				try {
+					writer.await(); // throws IOException
+				} catch (IOException e) {
+					throw new TransformException("Failed to write output [ " + inputPath + " ]", e);
+				} finally {
+					getActiveChanges().addInputBytes(countingInputStream.getCount());
+					getActiveChanges().addOutputBytes(writer.getWrittenBytes());
+				}
+			}
+
+		} finally {
+			stopRecording(inputPath);
+		}
+	}
+
+	protected void applyExploded(String inputPath, ZipInputStream zipInputStream, ParallelFileWriter writer)
+		throws TransformException {
+
+		String prevName = null;
+		String inputName = null;
+
+		try {
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			ZipEntry inputEntry;
+			while ((inputEntry = zipInputStream.getNextEntry()) != null) {
+				inputName = inputEntry.getName();
+				long inputLength = inputEntry.getSize();
+				long fileTime = getFileTime(inputEntry);
+
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ] [ {} ] Size [ {} ]", getSimpleClassName(), "applyExploded", inputName,
+						inputLength);
+				}
+
+				if (getProgress() != null) {
+					getProgress().addEntry(inputName, inputLength);
+				}
+
+				Object entryEvent = TransformerEvents.beginEntry();
+
+				if (inputEntry.isDirectory()) {
+					writer.createDirectory(inputName); // throws IOException
+					recordUnaccepted(inputName);
+
+					commitCopy(entryEvent, inputPath, inputName, 0L);
+
+					prevName = inputName;
+					inputName = null;
+					continue;
+				}
+
+				boolean selected = select(inputName);
+				Action acceptedAction = acceptAction(inputName);
+
+				if (!selected || (acceptedAction == null)) {
+					if (acceptedAction == null) {
+						recordUnaccepted(inputName);
+					} else {
+						recordUnselected(acceptedAction, inputName);
+					}
+
+					long copyLength;
+					if ((inputLength != -1L) && (inputLength <= MAX_PENDING_COPY_BYTES)) {
+						ByteData copyData = FileUtils.read(inputName, zipInputStream, (int) inputLength); // throws
+																											// IOException
+						writer.write(inputName, ByteBuffer.wrap(copyData.data, copyData.offset, copyData.length),
+							fileTime); // throws IOException
+						copyLength = copyData.length;
+					} else {
+						try (OutputStream outputStream = writer.openStream(inputName, fileTime)) { // throws
+																									// IOException
+							copyLength = FileUtils.transfer(zipInputStream, outputStream, buffer); // throws
+																									// IOException
+						}
+					}
+
+					commitCopy(entryEvent, inputPath, inputName, copyLength);
+
+				} else if (acceptedAction.useStreams()) {
+					if (getExplodeNested() && (acceptedAction instanceof ContainerActionImpl)) {
+						ContainerActionImpl nestedAction = (ContainerActionImpl) acceptedAction;
+						File nestedDir = writer.createDirectory(inputName)
+							.toFile(); // throws IOException
+						nestedAction.applyExploded(inputName, zipInputStream, inputLength, nestedDir);
+						writer.addWrittenBytes(nestedAction.getLastActiveChanges()
+							.getOutputBytes());
+					} else {
+						try (OutputStream outputStream = writer.openStream(inputName, fileTime)) { // throws
+																									// IOException
+							acceptedAction.apply(inputName, zipInputStream, inputLength, outputStream);
+						}
+					}
+					recordTransform(acceptedAction, inputName);
+
+					commitEntry(entryEvent, inputPath, inputName, acceptedAction);
+
+				} else {
+					int intInputLength;
+					if (inputLength == -1L) {
+						intInputLength = -1;
+					} else {
+						intInputLength = FileUtils.verifyArray(0, inputLength);
+					}
+
+					InputStreamData outputData = acceptedAction.apply(inputName, zipInputStream, intInputLength);
+					recordTransform(acceptedAction, inputName);
+
+					String outputName = acceptedAction.getLastActiveChanges()
+						.getOutputResourceName();
+					ByteData writeData = FileUtils.read(outputName, outputData.stream, outputData.length); // throws
+																											// IOException
+					writer.write(outputName, ByteBuffer.wrap(writeData.data, writeData.offset, writeData.length),
+						fileTime); // throws IOException
+
+					commitEntry(entryEvent, inputPath, inputName, acceptedAction);
 				}
 
 				prevName = inputName;
@@ -304,4 +1703,75 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 			throw new TransformException(message, e);
 		}
 	}
+
+	// Containers scan input streams as zip archives. Nothing is written:
+	// Unselected and unaccepted entries are skipped, and no output archive
+	// is generated.
+
+	@Override
+	public void scan(String inputPath, InputStream inputStream, long inputCount) throws TransformException {
+
+		startRecording(inputPath);
+
+		try {
+			setResourceNames(inputPath, inputPath);
+
+			CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+			try {
+				scan(inputPath, new ZipInputStream(countingInputStream)); // throws
+																			// JakartaTransformException
+			} finally {
+				getActiveChanges().addInputBytes(countingInputStream.getCount());
+			}
+
+		} finally {
+			stopRecording(inputPath);
+		}
+	}
+
+	protected void scan(String inputPath, ZipInputStream zipInputStream) throws TransformException {
+
+		String prevName = null;
+		String inputName = null;
+
+		try {
+			ZipEntry inputEntry;
+			while ((inputEntry = zipInputStream.getNextEntry()) != null) {
+				inputName = inputEntry.getName();
+				long inputLength = inputEntry.getSize();
+
+				boolean selected = select(inputName);
+				Action acceptedAction = acceptAction(inputName);
+
+				if (acceptedAction == null) {
+					recordUnaccepted(inputName);
+				} else if (!selected) {
+					recordUnselected(acceptedAction, inputName);
+				} else {
+					acceptedAction.scan(inputName, zipInputStream, inputLength);
+					recordTransform(acceptedAction, inputName);
+
+					if (acceptedAction.useStreams()) {
+						info("Scan [ {} ] in [ {} ]: {}", inputName, inputPath,
+							(acceptedAction.hadChanges() ? "Changes required" : "No changes required"));
+					}
+				}
+
+				prevName = inputName;
+				inputName = null;
+			}
+
+		} catch (IOException e) {
+			String message;
+			if (inputName != null) { // Actively processing an entry.
+				message = "Failure while scanning [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else if (prevName != null) { // Moving to a new entry but not the
+											// first entry.
+				message = "Failure after scanning [ " + prevName + " ] from [ " + inputPath + " ]";
+			} else { // Moving to the first entry.
+				message = "Failed to scan first entry of [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+		}
+	}
 }
@@ -17,8 +17,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ContainerChanges;
 import org.slf4j.Logger;
 
@@ -29,6 +31,7 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 		this.changedByAction = new HashMap<>();
 		this.unchangedByAction = new HashMap<>();
+		this.metricsByAction = new HashMap<>();
 
 		this.allChanged = 0;
 		this.allUnchanged = 0;
@@ -51,6 +54,7 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 	public void clearChanges() {
 		changedByAction.clear();
 		unchangedByAction.clear();
+		metricsByAction.clear();
 
 		allChanged = 0;
 		allUnchanged = 0;
@@ -68,6 +72,7 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 	private final Map<String, int[]>	changedByAction;
 	private final Map<String, int[]>	unchangedByAction;
+	private final Map<String, long[]>	metricsByAction;
 
 	private int							allUnchanged;
 	private int							allChanged;
@@ -103,6 +108,11 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		return Collections.unmodifiableMap(unchangedByAction);
 	}
 
+	@Override
+	public Map<String, long[]> getMetricsByAction() {
+		return Collections.unmodifiableMap(metricsByAction);
+	}
+
 	//
 
 	@Override
@@ -156,8 +166,31 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 	public void record(Action action) {
 		record(action.getName(), action.hadChanges());
 
-		action.getLastActiveChanges()
-			.addNestedInto(this);
+		Changes actionChanges = action.getLastActiveChanges();
+		recordMetrics(action.getName(), actionChanges);
+		actionChanges.addNestedInto(this);
+	}
+
+	/**
+	 * Add the metrics of one application of an action. Metrics of container
+	 * actions include the metrics of the resources of the container.
+	 *
+	 * @param name The name of the action.
+	 * @param actionChanges The changes recorded by the action.
+	 */
+	protected void recordMetrics(String name, Changes actionChanges) {
+		long[] metrics = metricsByAction.get(name);
+		if (metrics == null) {
+			metrics = new long[METRIC_NAMES.length];
+			metricsByAction.put(name, metrics);
+		}
+
+		metrics[METRIC_COUNT]++;
+		metrics[METRIC_ELAPSED_NANOS] += actionChanges.getElapsedNanos();
+		metrics[METRIC_CPU_NANOS] += actionChanges.getCpuNanos();
+		metrics[METRIC_ALLOCATED_BYTES] += actionChanges.getAllocatedBytes();
+		metrics[METRIC_INPUT_BYTES] += actionChanges.getInputBytes();
+		metrics[METRIC_OUTPUT_BYTES] += actionChanges.getOutputBytes();
 	}
 
 	@Override
@@ -238,6 +271,7 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 	public void add(ContainerChanges otherChanges) {
 		addChangeMap(this.changedByAction, otherChanges.getChangedByAction());
 		addChangeMap(this.unchangedByAction, otherChanges.getUnchangedByAction());
+		addMetricsMap(this.metricsByAction, otherChanges.getMetricsByAction());
 
 		this.allChanged += otherChanges.getAllChanged();
 		this.allUnchanged += otherChanges.getAllUnchanged();
@@ -247,6 +281,27 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allResources += otherChanges.getAllResources();
 	}
 
+	/**
+	 * Add other changes, including the nested changes of the other changes.
+	 * Unlike {@link #addNested(ContainerChanges)}, the immediate part of the
+	 * other changes is added to the immediate part of these changes. This is
+	 * used to combine changes which were recorded independently for parts of
+	 * the same container.
+	 *
+	 * @param otherChanges Other container changes to add.
+	 */
+	public void addAll(ContainerChanges otherChanges) {
+		add(otherChanges);
+
+		ContainerChanges otherNestedChanges = otherChanges.getNestedChanges();
+		if (otherNestedChanges != null) {
+			if (allNestedChanges == null) {
+				allNestedChanges = new ContainerChangesImpl();
+			}
+			allNestedChanges.add(otherNestedChanges);
+		}
+	}
+
 	private void addChangeMap(Map<String, int[]> thisChangeMap, Map<String, int[]> otherChangeMap) {
 
 		int[] nextChanges = new int[1];
@@ -260,6 +315,20 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		}
 	}
 
+	private void addMetricsMap(Map<String, long[]> thisMetricsMap, Map<String, long[]> otherMetricsMap) {
+		for (Map.Entry<String, long[]> mapEntry : otherMetricsMap.entrySet()) {
+			long[] otherMetrics = mapEntry.getValue();
+			long[] thisMetrics = thisMetricsMap.get(mapEntry.getKey());
+			if (thisMetrics == null) {
+				thisMetricsMap.put(mapEntry.getKey(), otherMetrics.clone());
+			} else {
+				for (int metricNo = 0; metricNo < thisMetrics.length; metricNo++) {
+					thisMetrics[metricNo] += otherMetrics[metricNo];
+				}
+			}
+		}
+	}
+
 	//
 
 	private static final String	DASH_LINE		= "================================================================================";
@@ -433,4 +502,67 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 				allNestedChanges.getAllUnchanged(), "Changed", allNestedChanges.getAllChanged(), ""));
 		}
 	}
+
+	//
+
+	private void writeMetricsJson(PrintStream stream, String scope, Map<String, long[]> useMetricsByAction) {
+		stream.printf(",\n  %s: [", quoteJson(scope));
+		boolean isFirst = true;
+		for (Map.Entry<String, long[]> metricsEntry : new TreeMap<>(useMetricsByAction).entrySet()) {
+			long[] metrics = metricsEntry.getValue();
+			stream.printf("%s\n    { \"action\": %s, \"count\": %d", (isFirst ? "" : ","),
+				quoteJson(metricsEntry.getKey()), metrics[METRIC_COUNT]);
+			writeMetricsJson(stream, metrics);
+			stream.print(" }");
+			isFirst = false;
+		}
+		stream.print((isFirst ? "]" : "\n  ]"));
+	}
+
+	/**
+	 * Write metrics as a JSON object. In addition to the input and output
+	 * paths and the metrics of the entire transform, the object has the
+	 * metrics of the immediate resources of the container, by action, and the
+	 * metrics of the resources of nested containers, by action.
+	 */
+	@Override
+	public void writeMetricsJson(PrintStream stream, String inputPath, String outputPath) {
+		// { "input": "test.jar", "output": "output_test.jar",
+		// "elapsedNanos": 4200000, "cpuNanos": 4000000, "allocatedBytes": 0,
+		// "inputBytes": 1024, "outputBytes": 1030,
+		// "immediate": [
+		// { "action": "Class Action", "count": 41, "elapsedNanos": 3100000, ... },
+		// ... ],
+		// "nested": [ ... ] }
+
+		stream.printf("{ \"input\": %s, \"output\": %s", quoteJson(inputPath), quoteJson(outputPath));
+		writeMetricsJson(stream, getMetrics());
+
+		writeMetricsJson(stream, "immediate", metricsByAction);
+		writeMetricsJson(stream, "nested",
+			((allNestedChanges == null) ? Collections.emptyMap() : allNestedChanges.getMetricsByAction()));
+
+		stream.print("\n}\n");
+	}
+
+	/**
+	 * Write metrics as CSV. The header row is followed by one row for the
+	 * entire transform, then one row for each action used on the immediate
+	 * resources of the container, then one row for each action used on the
+	 * resources of nested containers.
+	 */
+	@Override
+	public void writeMetricsCsv(PrintStream stream, String inputPath, String outputPath) {
+		super.writeMetricsCsv(stream, inputPath, outputPath);
+
+		for (Map.Entry<String, long[]> metricsEntry : new TreeMap<>(metricsByAction).entrySet()) {
+			writeMetricsCsv(stream, "immediate", metricsEntry.getKey(), metricsEntry.getValue());
+		}
+		if (allNestedChanges != null) {
+			for (Map.Entry<String, long[]> metricsEntry : new TreeMap<>(allNestedChanges.getMetricsByAction())
+				.entrySet()) {
+				writeMetricsCsv(stream, "nested", metricsEntry.getKey(), metricsEntry.getValue());
+			}
+		}
+	}
 }
@@ -0,0 +1,233 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+import org.eclipse.transformer.util.ChangeJournal;
+import org.eclipse.transformer.util.MemoryBudget;
+import org.eclipse.transformer.util.ParallelZipOutputStream;
+import org.eclipse.transformer.util.Progress;
+
+/**
+ * Settings which control how containers write their output.
+ * <p>
+ * Settings are shared: A container which is added to another container uses
+ * the settings of that container, and a change to the settings is seen by all
+ * of the containers which share them. See
+ * {@link ContainerActionImpl#setSettings(ContainerSettings)}.
+ * <p>
+ * Settings are read by the threads which transform nested archives and
+ * directory files, and should not be changed while a transform is running.
+ */
+public class ContainerSettings {
+	private long entryTime = ContainerActionImpl.PRESERVE_ENTRY_TIME;
+
+	public long getEntryTime() {
+		return entryTime;
+	}
+
+	/**
+	 * Set the time given to output entries.
+	 *
+	 * @param entryTime {@link ContainerActionImpl#PRESERVE_ENTRY_TIME} to give
+	 *            output entries the times of the input entries, or a fixed
+	 *            time, in milliseconds since the epoch, which is given to all
+	 *            output entries. Fixed times are written as UTC times, and time
+	 *            information is removed from the extra fields of the output
+	 *            entries.
+	 */
+	public void setEntryTime(long entryTime) {
+		this.entryTime = entryTime;
+	}
+
+	private boolean preserveMethod;
+
+	public boolean getPreserveMethod() {
+		return preserveMethod;
+	}
+
+	/**
+	 * Set whether output entries are written using the compression method of
+	 * the input entries. Otherwise, output entries are deflated, unless they
+	 * are stored as already compressed types. Preserving the method requires
+	 * that transformed STORED entries, including nested archives, be held in
+	 * memory.
+	 *
+	 * @param preserveMethod True or false telling if the compression method of
+	 *            input entries is preserved.
+	 */
+	public void setPreserveMethod(boolean preserveMethod) {
+		this.preserveMethod = preserveMethod;
+	}
+
+	private boolean storeCompressed;
+
+	public boolean getStoreCompressed() {
+		return storeCompressed;
+	}
+
+	/**
+	 * Set whether output entries of already compressed types are stored
+	 * instead of deflated. See {@link ContainerActionImpl#COMPRESSED_EXTENSIONS}.
+	 * Storing nested archives requires that these be held in memory.
+	 *
+	 * @param storeCompressed True or false telling if entries of already
+	 *            compressed types are stored.
+	 */
+	public void setStoreCompressed(boolean storeCompressed) {
+		this.storeCompressed = storeCompressed;
+	}
+
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Set the level used to deflate output entries.
+	 *
+	 * @param compressionLevel The compression level, from 0 to 9, or
+	 *            {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		if ((compressionLevel < Deflater.DEFAULT_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException("Compression level [ " + compressionLevel + " ] is not valid");
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	private ExecutorService deflateExecutor;
+
+	public ExecutorService getDeflateExecutor() {
+		return deflateExecutor;
+	}
+
+	/**
+	 * Set the executor used to deflate output entries. When an executor is
+	 * set, output archives are written using a {@link ParallelZipOutputStream}.
+	 * The executor is not shut down by the containers.
+	 *
+	 * @param deflateExecutor The executor used to deflate output entries. Null
+	 *            to deflate output entries on the transforming thread.
+	 */
+	public void setDeflateExecutor(ExecutorService deflateExecutor) {
+		this.deflateExecutor = deflateExecutor;
+	}
+
+	private NestedArchiveWorkers nestedWorkers;
+
+	public NestedArchiveWorkers getNestedWorkers() {
+		return nestedWorkers;
+	}
+
+	/**
+	 * Set the workers used to transform nested archives. When workers are set,
+	 * nested archives are transformed as tasks of the worker executor, and are
+	 * written in their original entry order. The executor is not shut down by
+	 * the containers.
+	 *
+	 * @param nestedWorkers The workers used to transform nested archives. Null
+	 *            to transform nested archives on the transforming thread.
+	 */
+	public void setNestedWorkers(NestedArchiveWorkers nestedWorkers) {
+		this.nestedWorkers = nestedWorkers;
+	}
+
+	private MemoryBudget memoryBudget;
+
+	public MemoryBudget getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the budget of bytes held by entry buffers. Entries which are
+	 * transformed as byte data reserve their bytes before they are
+	 * transformed, waiting while the budget is exhausted. Buffers which hold
+	 * output, such as stored nested archives, spill to temporary files when
+	 * the budget is exhausted.
+	 *
+	 * @param memoryBudget The budget of bytes held by entry buffers. Null to
+	 *            not limit entry buffers.
+	 */
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	private Progress progress;
+
+	public Progress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Set the progress which records the processed entries.
+	 *
+	 * @param progress The progress which records the processed entries. Null
+	 *            to not record progress.
+	 */
+	public void setProgress(Progress progress) {
+		this.progress = progress;
+	}
+
+	private ChangeJournal journal;
+
+	public ChangeJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Set the journal which records the processed entries.
+	 *
+	 * @param journal The journal which records the processed entries. Null
+	 *            to not record entries.
+	 */
+	public void setJournal(ChangeJournal journal) {
+		this.journal = journal;
+	}
+
+	private boolean explodeNested;
+
+	public boolean getExplodeNested() {
+		return explodeNested;
+	}
+
+	/**
+	 * Set whether nested archives are written as directories when writing
+	 * entries as files.
+	 *
+	 * @param explodeNested True or false telling if nested archives are
+	 *            written as directories.
+	 */
+	public void setExplodeNested(boolean explodeNested) {
+		this.explodeNested = explodeNested;
+	}
+
+	private ExecutorService writeExecutor;
+
+	public ExecutorService getWriteExecutor() {
+		return writeExecutor;
+	}
+
+	/**
+	 * Set the executor used to write files when writing entries as files. The
+	 * executor is not shut down by the containers.
+	 *
+	 * @param writeExecutor The executor used to write files. Null to write
+	 *            files on the transforming thread.
+	 */
+	public void setWriteExecutor(ExecutorService writeExecutor) {
+		this.writeExecutor = writeExecutor;
+	}
+}
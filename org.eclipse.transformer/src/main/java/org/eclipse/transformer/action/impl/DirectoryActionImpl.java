@@ -12,10 +12,30 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.IncrementalState;
+import org.eclipse.transformer.util.Progress;
+import org.eclipse.transformer.util.TransformerEvents;
 import org.slf4j.Logger;
 
 public class DirectoryActionImpl extends ContainerActionImpl {
@@ -54,18 +74,135 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 		return ((resourceFile != null) && resourceFile.isDirectory());
 	}
 
+	// Parallel transformation of the directory tree requires independent
+	// action trees, one per worker thread: Actions record changes and
+	// signature rules cache results without synchronization.
+
+	private int									parallelism		= 1;
+	private Supplier<? extends DirectoryActionImpl>	workerSupplier	= null;
+
+	/**
+	 * Enable the parallel transformation of directory trees.
+	 *
+	 * @param parallelism The number of worker threads. A value of one or less
+	 *            disables parallel transformation.
+	 * @param workerSupplier Supplier of directory actions used by worker
+	 *            threads. Each supplied action must have its own action tree,
+	 *            input buffer, and signature rule.
+	 */
+	public void setParallelism(int parallelism, Supplier<? extends DirectoryActionImpl> workerSupplier) {
+		this.parallelism = parallelism;
+		this.workerSupplier = workerSupplier;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public boolean isParallel() {
+		return ((parallelism > 1) && (workerSupplier != null));
+	}
+
+	/**
+	 * Set whether unchanged files are written as hard links to their input
+	 * files. The setting is applied to the actions of this directory action.
+	 */
+	@Override
+	public void setLinkUnchanged(boolean linkUnchanged) {
+		super.setLinkUnchanged(linkUnchanged);
+		for (ActionImpl action : getActions()) {
+			action.setLinkUnchanged(linkUnchanged);
+		}
+	}
+
+	// Incremental transformation skips files which are unchanged since the
+	// last transform, and removes the outputs of files which were removed
+	// since the last transform.
+
+	private IncrementalState incrementalState;
+
+	/**
+	 * Enable incremental transformation.
+	 *
+	 * @param incrementalState The state of the incremental transformation.
+	 *            Null disables incremental transformation.
+	 */
+	public void setIncrementalState(IncrementalState incrementalState) {
+		this.incrementalState = incrementalState;
+	}
+
+	public IncrementalState getIncrementalState() {
+		return incrementalState;
+	}
+
+	//
+
 	@Override
 	public void apply(String inputPath, File inputFile, File outputFile) throws TransformException {
 
 		startRecording(inputPath);
 		try {
 			setResourceNames(inputPath, inputPath);
-			transform(".", inputFile, outputFile);
+
+			IncrementalState useState = getIncrementalState();
+			if (useState != null) {
+				try {
+					if (!useState.load()) { // throws IOException
+						info("Incremental state not available [ {} ]: Transforming all files",
+							useState.getStateFile());
+					}
+				} catch (IOException e) {
+					throw new TransformException("Failed to read incremental state [ " + useState.getStateFile() + " ]",
+						e);
+				}
+			}
+
+			if (isParallel() && inputFile.isDirectory()) {
+				transformParallel(inputFile, outputFile);
+			} else {
+				Progress useProgress = getProgress();
+				if (useProgress != null) {
+					useProgress.addTotalBytes(totalLength(inputFile));
+				}
+				transform(".", inputFile, outputFile);
+			}
+
+			if (useState != null) {
+				for (String removedPath : useState.removeMissing()) {
+					verbose("Removed output of deleted input [ {} ]", removedPath);
+				}
+				try {
+					useState.store(); // throws IOException
+				} catch (IOException e) {
+					throw new TransformException(
+						"Failed to write incremental state [ " + useState.getStateFile() + " ]", e);
+				}
+			}
 		} finally {
 			stopRecording(inputPath);
 		}
 	}
 
+	/**
+	 * Answer the total length of the files of a directory tree.
+	 *
+	 * @param inputFile The root of the tree. May be a simple file.
+	 * @return The total length of the files of the tree.
+	 */
+	protected static long totalLength(File inputFile) {
+		if (!inputFile.isDirectory()) {
+			return inputFile.length();
+		}
+		long length = 0L;
+		File[] childFiles = inputFile.listFiles();
+		if (childFiles != null) {
+			for (File childFile : childFiles) {
+				length += totalLength(childFile);
+			}
+		}
+		return length;
+	}
+
 	protected void transform(String inputPath, File inputFile, File outputFile) throws TransformException {
 
 		inputPath = inputPath + '/' + inputFile.getName();
@@ -93,6 +230,262 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 				transform(inputPath, childInputFile, childOutputFile);
 			}
 
+		} else {
+			transformFile(inputPath, inputFile, outputFile);
+		}
+	}
+
+	protected void transformFile(String inputPath, File inputFile, File outputFile) throws TransformException {
+		Progress useProgress = getProgress();
+		if (useProgress != null) {
+			useProgress.addEntry(inputPath, inputFile.length());
+		}
+
+		Action selectedAction = acceptAction(inputPath, inputFile);
+		if (selectedAction == null) {
+			recordUnaccepted(inputPath);
+			copyUnselected(inputPath, inputFile, outputFile);
+		} else if (!select(inputPath)) {
+			recordUnselected(selectedAction, inputPath);
+			copyUnselected(inputPath, inputFile, outputFile);
+		} else if (getIncrementalState() != null) {
+			transformIncremental(selectedAction, inputPath, inputFile, outputFile);
+		} else {
+			Object entryEvent = TransformerEvents.beginEntry();
+			applyFile(selectedAction, inputPath, inputFile, outputFile);
+			recordTransform(selectedAction, inputPath);
+			commitEntry(entryEvent, getActiveChanges().getInputResourceName(), inputPath, selectedAction);
+		}
+	}
+
+	/**
+	 * Transform a selected file. Files which are read as byte data reserve
+	 * their bytes from the memory budget while they are transformed.
+	 */
+	protected void applyFile(Action selectedAction, String inputPath, File inputFile, File outputFile)
+		throws TransformException {
+
+		long reservedBytes = 0L;
+		if (!selectedAction.useStreams() && !((ActionImpl) selectedAction).isPassthrough()) {
+			try {
+				reservedBytes = reserveEntry(inputFile.length()); // throws IOException
+			} catch (IOException e) {
+				throw new TransformException("Failed to reserve memory for [ " + inputPath + " ]", e);
+			}
+		}
+
+		try {
+			selectedAction.apply(inputPath, inputFile, outputFile);
+		} finally {
+			releaseEntry(reservedBytes);
+		}
+	}
+
+	/**
+	 * Copy a file which is not accepted or not selected. As with archive
+	 * entries, the file is copied unchanged to the output directory.
+	 * <p>
+	 * When transforming incrementally, the copy is recorded in the state, so
+	 * that a copy which is current is skipped, and so that the output is
+	 * removed when the file is removed from the input.
+	 */
+	protected void copyUnselected(String inputPath, File inputFile, File outputFile) throws TransformException {
+		IncrementalState useState = getIncrementalState();
+		try {
+			if (useState != null) {
+				useState.markSeen(inputPath);
+				if (useState.checkCurrent(inputPath, inputFile, outputFile) != null) { // throws IOException
+					return;
+				}
+			}
+
+			Object entryEvent = TransformerEvents.beginEntry();
+			copyFile(inputPath, inputFile, outputFile);
+			if ((entryEvent != null) || (getJournal() != null)) {
+				commitCopy(entryEvent, getActiveChanges().getInputResourceName(), inputPath, outputFile.length());
+			}
+
+			if (useState != null) {
+				useState.record(inputPath, inputFile, outputFile, false); // throws IOException
+			}
+		} catch (IOException e) {
+			throw new TransformException("Failed to update incremental state for [ " + inputPath + " ]", e);
+		}
+	}
+
+	protected void transformIncremental(Action selectedAction, String inputPath, File inputFile, File outputFile)
+		throws TransformException {
+
+		IncrementalState useState = getIncrementalState();
+		useState.markSeen(inputPath);
+
+		try {
+			IncrementalState.Entry priorEntry = useState.checkCurrent(inputPath, inputFile, outputFile);
+			// throws IOException
+			if (priorEntry != null) {
+				recordSkipped(selectedAction, inputPath, priorEntry.changed);
+				return;
+			}
+
+			Object entryEvent = TransformerEvents.beginEntry();
+			applyFile(selectedAction, inputPath, inputFile, outputFile);
+			recordTransform(selectedAction, inputPath);
+			commitEntry(entryEvent, getActiveChanges().getInputResourceName(), inputPath, selectedAction);
+
+			useState.record(inputPath, inputFile, outputFile, selectedAction.hadChanges()); // throws
+																							// IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to update incremental state for [ " + inputPath + " ]", e);
+		}
+	}
+
+	/**
+	 * Transform a directory tree using worker threads. The tree is walked once,
+	 * creating all output directories before any file within those
+	 * directories is transformed. Files are transformed concurrently. Each
+	 * worker records changes into its own directory action. The worker changes
+	 * are added into the changes of this action after all files have been
+	 * processed.
+	 *
+	 * @param inputFile The root input directory.
+	 * @param outputFile The root output directory.
+	 * @throws TransformException Thrown if the tree could not be walked, or if
+	 *             any file failed to transform. All files are processed before
+	 *             the first failure is thrown.
+	 */
+	protected void transformParallel(File inputFile, File outputFile) throws TransformException {
+		String rootPath = "./" + inputFile.getName();
+
+		Path inputRoot = inputFile.toPath();
+		Path outputRoot = outputFile.toPath();
+
+		Queue<DirectoryActionImpl> workers = new ConcurrentLinkedQueue<>();
+		ThreadLocal<DirectoryActionImpl> localWorker = ThreadLocal.withInitial(() -> {
+			DirectoryActionImpl worker = workerSupplier.get();
+			worker.setIncrementalState(getIncrementalState());
+			worker.setLinkUnchanged(getLinkUnchanged());
+			worker.setSettings(getSettings());
+			worker.startRecording(rootPath);
+			worker.setResourceNames(rootPath, rootPath);
+			workers.add(worker);
+			return worker;
+		});
+
+		// The total bytes grow as the tree is walked.
+		Progress useProgress = getProgress();
+
+		List<Future<?>> results = new ArrayList<>();
+		TransformException failure = null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(getParallelism());
+		try {
+			Files.walkFileTree(inputRoot, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path inputDir, BasicFileAttributes attrs)
+						throws IOException {
+						Files.createDirectories(outputRoot.resolve(inputRoot.relativize(inputDir)
+							.toString())); // throws IOException
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path inputPath, BasicFileAttributes attrs) {
+						if (useProgress != null) {
+							useProgress.addTotalBytes(attrs.size());
+						}
+
+						Path relativePath = inputRoot.relativize(inputPath);
+
+						StringBuilder childPath = new StringBuilder(rootPath);
+						for (Path segment : relativePath) {
+							childPath.append('/')
+								.append(segment.toString());
+						}
+
+						String childInputPath = childPath.toString();
+						File childInputFile = inputPath.toFile();
+						File childOutputFile = outputRoot.resolve(relativePath.toString())
+							.toFile();
+
+						results.add(executor.submit(() -> {
+							localWorker.get()
+								.transformFile(childInputPath, childInputFile, childOutputFile);
+							return null;
+						}));
+
+						return FileVisitResult.CONTINUE;
+					}
+				}); // throws IOException
+
+		} catch (IOException e) {
+			failure = new TransformException("Failed to walk directory [ " + inputFile.getAbsolutePath() + " ]", e);
+
+		} finally {
+			executor.shutdown();
+		}
+
+		for (Future<?> result : results) {
+			try {
+				result.get(); // throws InterruptedException, ExecutionException
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					Throwable cause = e.getCause();
+					if (cause instanceof TransformException) {
+						failure = (TransformException) cause;
+					} else {
+						failure = new TransformException(
+							"Failed to transform directory [ " + inputFile.getAbsolutePath() + " ]", cause);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+				if (failure == null) {
+					failure = new TransformException(
+						"Interrupted while transforming directory [ " + inputFile.getAbsolutePath() + " ]", e);
+				}
+			}
+		}
+
+		ContainerChangesImpl useChanges = getActiveChanges();
+		for (DirectoryActionImpl worker : workers) {
+			useChanges.addAll(worker.getActiveChanges());
+			worker.stopRecording(rootPath);
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	//
+
+	@Override
+	public void scan(String inputPath, File inputFile) throws TransformException {
+
+		startRecording(inputPath);
+		try {
+			setResourceNames(inputPath, inputPath);
+			scanChild(".", inputFile);
+		} finally {
+			stopRecording(inputPath);
+		}
+	}
+
+	protected void scanChild(String inputPath, File inputFile) throws TransformException {
+
+		inputPath = inputPath + '/' + inputFile.getName();
+
+		if (inputFile.isDirectory()) {
+			File[] childInputFiles = inputFile.listFiles();
+			if (childInputFiles == null) {
+				throw new TransformException("Failed to list directory [ " + inputFile.getAbsolutePath() + " ]");
+			}
+			for (File childInputFile : childInputFiles) {
+				scanChild(inputPath, childInputFile);
+			}
+
 		} else {
 			Action selectedAction = acceptAction(inputPath, inputFile);
 			if (selectedAction == null) {
@@ -100,8 +493,13 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 			} else if (!select(inputPath)) {
 				recordUnselected(selectedAction, inputPath);
 			} else {
-				selectedAction.apply(inputPath, inputFile, outputFile);
+				selectedAction.scan(inputPath, inputFile);
 				recordTransform(selectedAction, inputPath);
+
+				if (selectedAction.useStreams()) {
+					info("Scan [ {} ]: {}", inputPath,
+						(selectedAction.hadChanges() ? "Changes required" : "No changes required"));
+				}
 			}
 		}
 	}
@@ -24,6 +24,7 @@ import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.ManifestRewriter;
 import org.eclipse.transformer.util.ManifestWriter;
 import org.slf4j.Logger;
 
@@ -96,15 +97,21 @@ public class ManifestActionImpl extends ActionImpl {
 	@Override
 	public ByteData apply(String initialName, byte[] initialBytes, int initialCount) throws TransformException {
 
-		String className = getClass().getSimpleName();
+		String className = getSimpleClassName();
 		String methodName = "apply";
 
-		debug("[ {}.{} ]: [ {} ] Initial bytes [ {} ]", className, methodName, initialName, initialCount);
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: [ {} ] Initial bytes [ {} ]", className, methodName, initialName, initialCount);
+		}
 
 		setResourceNames(initialName, initialName);
 
 		ByteData initialData = new ByteData(initialName, initialBytes, 0, initialCount);
 
+		if (getIsManifest()) {
+			return rewrite(initialName, initialData);
+		}
+
 		Manifest initialManifest;
 		try {
 			initialManifest = new Manifest(initialData.asStream());
@@ -122,7 +129,9 @@ public class ManifestActionImpl extends ActionImpl {
 		// initialName, getActiveChanges().getReplacements());
 
 		if (!hasNonResourceNameChanges()) {
-			debug("[ {}.{} ]: [ {} ] Null transform", className, methodName, initialName);
+			if (isDebugEnabled()) {
+				debug("[ {}.{} ]: [ {} ] Null transform", className, methodName, initialName);
+			}
 			return null;
 		}
 
@@ -135,12 +144,103 @@ public class ManifestActionImpl extends ActionImpl {
 		}
 
 		byte[] finalBytes = outputStream.toByteArray();
-		debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName,
-			finalBytes.length);
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName,
+				finalBytes.length);
+		}
 
 		return new ByteData(initialName, finalBytes);
 	}
 
+	/**
+	 * Rewrite manifest bytes. Only the selected headers and the bundle
+	 * identity headers are parsed and updated. All other headers and sections
+	 * are copied unchanged. This avoids reading and writing the entire
+	 * manifest, which is expensive for manifests which have many per-entry
+	 * sections.
+	 *
+	 * @param initialName The name of the manifest.
+	 * @param initialData The manifest bytes.
+	 * @return The rewritten manifest bytes. Null if the manifest was not
+	 *         changed.
+	 */
+	protected ByteData rewrite(String initialName, ByteData initialData) {
+		String className = getSimpleClassName();
+		String methodName = "rewrite";
+
+		ManifestRewriter rewriter = getRewriter();
+
+		ByteData finalData;
+		try {
+			Attributes initialIdentity = new Attributes();
+			for (Map.Entry<String, String> identityEntry : rewriter.readMain(initialData) // throws IOException
+				.entrySet()) {
+				initialIdentity.putValue(identityEntry.getKey(), identityEntry.getValue());
+			}
+			Attributes finalIdentity = new Attributes();
+			if (transformBundleIdentity(initialName, initialIdentity, finalIdentity)) {
+				addReplacement();
+			}
+
+			finalData = rewriter.rewrite(initialData, (sectionName, headerName, value) -> { // throws IOException
+				if (sectionName == null) {
+					String identityValue = finalIdentity.getValue(headerName);
+					if (identityValue != null) {
+						return identityValue;
+					}
+				}
+				if (!selectAttribute(headerName)) {
+					return null;
+				}
+				String finalValue = replacePackages(value);
+				if (finalValue != null) {
+					if (isDebugEnabled()) {
+						debug("Transformed [ {} ]: [ {} ] Attribute [ {} ]", initialName,
+							((sectionName == null) ? "main" : sectionName), headerName);
+					}
+					addReplacement();
+				}
+				return finalValue;
+			});
+		} catch (IOException e) {
+			error("Failed to parse manifest [ {} ]", e, initialName);
+			return null;
+		}
+
+		if (!hasNonResourceNameChanges()) {
+			if (isDebugEnabled()) {
+				debug("[ {}.{} ]: [ {} ] Null transform", className, methodName, initialName);
+			}
+			return null;
+		}
+		if (finalData == null) {
+			finalData = initialData;
+		}
+
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName,
+				finalData.length);
+		}
+
+		return finalData;
+	}
+
+	/** Rewriter of manifest bytes: Created on first use. */
+	private ManifestRewriter rewriter;
+
+	protected ManifestRewriter getRewriter() {
+		if (rewriter == null) {
+			Set<String> mainNames = new HashSet<>(SELECT_ATTRIBUTES);
+			mainNames.add(SYMBOLIC_NAME_PROPERTY_NAME);
+			mainNames.add(VERSION_PROPERTY_NAME);
+			mainNames.add(NAME_PROPERTY_NAME);
+			mainNames.add(DESCRIPTION_PROPERTY_NAME);
+
+			rewriter = new ManifestRewriter(mainNames, SELECT_ATTRIBUTES);
+		}
+		return rewriter;
+	}
+
 	protected void transform(String inputName, Manifest initialManifest, Manifest finalManifest) {
 		Attributes initialMainAttributes = initialManifest.getMainAttributes();
 		Attributes finalMainAttributes = finalManifest.getMainAttributes();
@@ -186,7 +286,9 @@ public class ManifestActionImpl extends ActionImpl {
 	protected int transformPackages(String inputName, String entryName, Attributes initialAttributes,
 		Attributes finalAttributes) {
 
-		debug("Transforming [ {} ]: [ {} ] Attributes [ {} ]", inputName, entryName, initialAttributes.size());
+		if (isDebugEnabled()) {
+			debug("Transforming [ {} ]: [ {} ] Attributes [ {} ]", inputName, entryName, initialAttributes.size());
+		}
 
 		int replacements = 0;
 
@@ -210,8 +312,10 @@ public class ManifestActionImpl extends ActionImpl {
 			finalAttributes.put(untypedName, finalValue);
 		}
 
-		debug("Transformed [ {} ]: [ {} ] Attributes [ {} ] Replacements [ {} ]", inputName, entryName,
-			finalAttributes.size(), replacements);
+		if (isDebugEnabled()) {
+			debug("Transformed [ {} ]: [ {} ] Attributes [ {} ] Replacements [ {} ]", inputName, entryName,
+				finalAttributes.size(), replacements);
+		}
 
 		return replacements;
 	}
@@ -302,339 +406,26 @@ public class ManifestActionImpl extends ActionImpl {
 
 	/**
 	 * Replace all embedded packages of specified text with replacement
-	 * packages.
+	 * packages. Update the versions of renamed packages. The text is scanned
+	 * once: See {@link PackageHeaderRewriter}.
 	 *
 	 * @param text Text embedding zero, one, or more package names.
 	 * @return The text with all embedded package names replaced. Null if no
 	 *         replacements were performed.
 	 */
 	protected String replacePackages(String text) {
-
-		// System.out.println("Initial text [ " + text + " ]");
-
-		String initialText = text;
-
-		for (Map.Entry<String, String> renameEntry : getPackageRenames().entrySet()) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-
-			boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
-			if (matchSubpackages) {
-				key = SignatureRuleImpl.stripWildcard(key);
-			}
-
-			// System.out.println("Next target [ " + key + " ]");
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				if (!SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages)) {
-					lastMatchEnd = matchStart + keyLen;
-					continue;
-				}
-
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-
-				int tailLenBeforeReplaceVersion = tail.length();
-
-				String newVersion = getPackageVersions().get(value);
-				if (newVersion != null) {
-					tail = replacePackageVersion(tail, newVersion);
-				} else {
-					debug("replacePackages [ {} ]: [ {} -> {} ]; leaving version", initialText, key, value);
-				}
-
-				text = head + value + tail;
-				int tailLenAfterReplaceVersion = tail.length();
-
-				lastMatchEnd = matchStart + valueLen;
-
-				// Replacing the key or the version can increase or decrease the
-				// text length.
-				textLimit += (valueLen - keyLen);
-				textLimit += (tailLenAfterReplaceVersion - tailLenBeforeReplaceVersion);
-
-				// System.out.println("Next text [ " + text + " ]");
-			}
-		}
-
-		if (initialText == text) {
-			// System.out.println("Final text is unchanged");
-			return null;
-		} else {
-			// System.out.println("Final text [ " + text + " ]");
-			return text;
-		}
+		return getHeaderRewriter().rewrite(text);
 	}
 
-	// DynamicImport-Package: com.ibm.websphere.monitor.meters;version="1.0.0
-	// ",com.ibm.websphere.monitor.jmx;version="1.0.0",com.ibm.ws.jsp.webcon
-	// tainerext,com.ibm.wsspi.request.probe.bci,com.ibm.wsspi.probeExtensio
-	// n,com.ibm.ws.webcontainer.monitor
-
-	// Import-Package: javax.servlet;version="[2.6,3)",javax.servlet.annotati
-	// on;version="[2.6,3)",javax.servlet.descriptor;version="[2.6,3)",javax
-	// .servlet.http;version="[2.6,3)",com.ibm.wsspi.http;version="[2.0,3)",
-	// com.ibm.ws.javaee.dd;version="1.0",com.ibm.ws.javaee.dd.common;versio
-	// n="1.0",com.ibm.ws.javaee.dd.common.wsclient;version="1.0",com.ibm.ws
-	// .javaee.dd.web;version="1.0",com.ibm.ws.javaee.dd.web.common;version=
-	// "1.0",com.ibm.ws.util;version="[1.0,2)",com.ibm.wsspi.injectionengine
-	// ;version="[3.0,4)",com.ibm.ws.runtime.metadata;version="[1.1,2)"
+	/** Rewriter of package headers: Created on first use. */
+	private PackageHeaderRewriter headerRewriter;
 
-	/**
-	 * Answer package attribute text which has been updated with a new version
-	 * range. Examples
-	 *
-	 * <pre>
-	 * Import-Package: javax.servlet;version="[2.6,3)",javax.servlet.annotation;version="[2.6,3)"
-	 * </pre>
-	 *
-	 * <pre>
-	 * DynamicImport-Package: com.ibm.websphere.monitor.meters;version="1.0.0",com.ibm.websphere.monitor.jmx;version="1.0.0"
-	 * </pre>
-	 *
-	 * The leading package name must be removed from the attribute text. Other
-	 * package names and attributes may be present. Attribute text for different
-	 * packages use commas as separators, except, commas inside quotation marks
-	 * are not separators. This is important because commas are present in
-	 * version ranges.
-	 *
-	 * @param text Package attribute text.
-	 * @param newVersion Replacement version values for the package attribute.
-	 * @return String with version numbers of first package replaced by the
-	 *         newVersion.
-	 */
-	protected String replacePackageVersion(String text, String newVersion) {
-		// debug("replacePackageVersion: ( {} )", text );
-
-		String packageText = getPackageAttributeText(text);
-
-		if (packageText == null) {
-			return text;
-		} else if (packageText.isEmpty()) {
-			return text;
-		}
-
-		// debug("replacePackageVersion: (packageText: {} )", packageText);
-
-		final String VERSION = "version";
-		final int VERSION_LEN = 7;
-		final char QUOTE_MARK = '\"';
-
-		int versionIndex = packageText.indexOf(VERSION);
-		if (versionIndex == -1) {
-			return text; // nothing to replace
-		}
-
-		// The actual version numbers are after the "version" and the "=" and
-		// between quotation marks ("").
-		// Ignore white space that occurs around the "=", but do not ignore
-		// white space between quotation marks.
-		// Everything inside the "" is part of the version and will be replaced.
-		boolean foundEquals = false;
-		boolean foundQuotationMark = false;
-		int versionBeginIndex = -1;
-		int versionEndIndex = -1;
-
-		// skip to actual version number which is after "=". Version begins
-		// inside double quotation marks
-		for (int i = versionIndex + VERSION_LEN; i < packageText.length(); i++) {
-			char ch = packageText.charAt(i);
-
-			// skip white space until we find equals sign
-			if (!foundEquals) {
-				if (ch == '=') {
-					foundEquals = true;
-					continue;
-				}
-
-				if (Character.isWhitespace(ch)) {
-					continue;
-				}
-				error("Syntax error found non-white-space character before equals sign in version [{}]", packageText);
-				return text; // Syntax error - returning original text
-			}
-
-			// Skip white space past the equals sign
-			if (Character.isWhitespace(ch)) {
-				// debug("ch is \'{}\' and is whitespace.", ch);
-				continue;
-			}
-
-			// When we find the quotation marks past the equals sign, we are
-			// finished.
-			if (!foundQuotationMark) {
-				if (ch == QUOTE_MARK) {
-					versionBeginIndex = i + 1; // just past the 1st quotation
-												// mark
-
-					versionEndIndex = packageText.indexOf('\"', i + 1);
-					if (versionEndIndex == -1) {
-						error("Syntax error, package version does not have closing quotation mark");
-						return text; // Syntax error - returning original text
-					}
-					versionEndIndex--; // just before the 2nd quotation mark
-
-					// debug("versionBeginIndex = [{}]", versionBeginIndex);
-					// debug("versionEndIndex = [{}]", versionEndIndex);
-					foundQuotationMark = true; // not necessary, just leave loop
-					break;
-				}
-
-				if (Character.isWhitespace(ch)) {
-					continue;
-				}
-
-				error("Syntax error found non-white-space character after equals sign  in version [{}]", packageText);
-				return text; // Syntax error - returning original text
-			}
-		}
-
-		// String oldVersion = packageText.substring(versionBeginIndex,
-		// versionEndIndex+1);
-		// debug("old version[{}] new version[{}]", oldVersion, newVersion);
-
-		String head = text.substring(0, versionBeginIndex);
-		String tail = text.substring(versionEndIndex + 1);
-
-		String newText = head + newVersion + tail;
-		// debug("Old [{}] New [{}]", text , newText);
-
-		return newText;
-	}
-
-	//
-	// Subsystem-Content: com.ibm.websphere.appserver.javax.el-3.0;
-	// apiJar=false; type="osgi.subsystem.feature",
-	// com.ibm.websphere.appserver.javax.servlet-3.1; ibm.tolerates:="4.0";
-	// apiJar=false; type="osgi.subsystem.feature",
-	// com.ibm.websphere.javaee.jsp.2.3; location:="dev/api/spec/,lib/";
-	// mavenCoordinates="javax.servlet.jsp:javax.servlet.jsp-api:2.3.1";
-	// version="[1.0.0,1.0.200)"
-
-	/**
-	 * @param text - A string containing package attribute text at the head of
-	 *            the string. Assumptions: - The first package name has already
-	 *            been stripped from the embedding text. - Other package names
-	 *            and attributes may or may not follow. - Packages are separated
-	 *            by a comma. - If a comma is inside quotation marks, it is not
-	 *            a package delimiter.
-	 * @return package attribute text
-	 */
-	protected String getPackageAttributeText(String text) {
-		// debug("getPackageAttributeText ENTER[ text: {}]", text);
-
-		if (text == null) {
-			return null;
-		}
-
-		if (!firstCharIsSemicolon(text)) {
-			return ""; // no package attributes
-		}
-
-		int commaIndex = text.indexOf(',');
-		debug("Comma index: [{}]", commaIndex);
-		// If there is no comma, then the whole text is the packageAttributeText
-		if (commaIndex == -1) {
-			return text;
-		}
-
-		// packageText is beginning of text up to and including comma.
-		// Need to test whether the comma is within quotes - thus not the true
-		// end of the packageText.
-		// If an odd number of quotes are found, then the comma is in quotes and
-		// we need to find the next comma.
-		String packageText = text.substring(0, commaIndex + 1);
-		debug("packageText [ {} ]", packageText);
-
-		while (!isPackageDelimitingComma(text, packageText, commaIndex)) {
-			commaIndex = text.indexOf(',', packageText.length());
-			if (commaIndex == -1) {
-				packageText = text; // No trailing comma indicates embedding
-									// text is the package text.
-				break;
-			} else {
-				packageText = text.substring(0, commaIndex + 1);
-			}
-
-			// If there is a syntax error (missing closing quotes) return what
-			// we have
-			if (!hasEvenNumberOfOccurrencesOfChar(text, '\"')) {
-				break;
-			}
-		}
-
-		debug("getPackageAttributeText returning: [ {} ]", packageText);
-		return packageText;
-	}
-
-	/**
-	 * Tell if the first non-white space character of the parameter is a
-	 * semi-colon.
-	 *
-	 * @param s string
-	 * @return true if first char is semi colon.
-	 */
-	protected boolean firstCharIsSemicolon(String s) {
-		for (int i = 0; i < s.length(); i++) {
-			if (Character.isWhitespace(s.charAt(i))) {
-				continue;
-			}
-			if (s.charAt(i) == ';') {
-				return true;
-			}
-			return false;
-		}
-		return false;
-	}
-
-	protected int indexOfNextNonWhiteSpaceChar(String s, int currentIndex) {
-		for (int i = currentIndex; i < s.length(); i++) {
-			if (Character.isWhitespace(s.charAt(i))) {
-				continue;
-			}
-			return i;
-		}
-		return -1;
-	}
-
-	/**
-	 * @param testString - The entire remaining unprocessed text of a
-	 *            MANIFEST.MF attribute that immediately follows a package name
-	 * @param packageText - Text that immediately follows a package name in a
-	 *            MANIFEST.MF attribute
-	 * @param indexOfComma
-	 * @return
-	 */
-	private boolean isPackageDelimitingComma(String testString, String packageText, int indexOfComma) {
-
-		int indexOfNextNonWhiteSpaceCharAfterComma = indexOfNextNonWhiteSpaceChar(testString, indexOfComma + 1);
-		char characterAfterComma = testString.charAt(indexOfNextNonWhiteSpaceCharAfterComma);
-		if (Character.isAlphabetic(characterAfterComma)) {
-			if (!hasEvenNumberOfOccurrencesOfChar(packageText, '\"')) {
-				return false;
-			}
-			return true;
+	protected PackageHeaderRewriter getHeaderRewriter() {
+		if (headerRewriter == null) {
+			headerRewriter = new PackageHeaderRewriter(getPackageRenames(), getPackageVersions(),
+				getSignatureRule().getRuleHits());
 		}
-
-		return false;
-	}
-
-	private boolean hasEvenNumberOfOccurrencesOfChar(String testString, @SuppressWarnings("unused") char testChar) {
-		long occurrences = testString.chars()
-			.filter(ch -> ch == '\"')
-			.count();
-		return ((occurrences % 2) == 0);
+		return headerRewriter;
 	}
 
 	//
@@ -719,7 +510,9 @@ public class ManifestActionImpl extends ActionImpl {
 			isWildcard = false;
 			matchCase = "identity update";
 		}
-		debug("Input [ {} ] symbolic name [ {} ] has {}", inputName, initialSymbolicName, matchCase);
+		if (isDebugEnabled()) {
+			debug("Input [ {} ] symbolic name [ {} ] has {}", inputName, initialSymbolicName, matchCase);
+		}
 		if (!matched) {
 			return false;
 		}
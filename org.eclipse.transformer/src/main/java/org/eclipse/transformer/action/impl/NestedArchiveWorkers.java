@@ -0,0 +1,93 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Workers used to transform the nested archives of a container as independent
+ * tasks.
+ * <p>
+ * Each task borrows an action tree of its own: Actions record changes and
+ * hold buffers, and may not be used by more than one task at a time. A tree is
+ * returned after its changes were recorded into the enclosing container, and
+ * is reused by later tasks.
+ * <p>
+ * The executor should be a work stealing pool, for example, a
+ * {@link java.util.concurrent.ForkJoinPool}: Tasks wait for the tasks of their
+ * own nested archives, and a work stealing pool runs other tasks while a task
+ * waits.
+ */
+public class NestedArchiveWorkers {
+	public NestedArchiveWorkers(ExecutorService executor, Supplier<? extends CompositeActionImpl> treeSupplier) {
+		this.executor = executor;
+		this.treeSupplier = treeSupplier;
+		this.idleTrees = new ConcurrentLinkedQueue<>();
+	}
+
+	//
+
+	private final ExecutorService executor;
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	//
+
+	private final Supplier<? extends CompositeActionImpl>	treeSupplier;
+	private final Queue<CompositeActionImpl>				idleTrees;
+
+	/**
+	 * Borrow an action tree. A new tree is created if no idle tree is
+	 * available.
+	 *
+	 * @return An action tree for the exclusive use of the caller.
+	 */
+	public CompositeActionImpl borrow() {
+		CompositeActionImpl tree = idleTrees.poll();
+		if (tree == null) {
+			tree = treeSupplier.get();
+		}
+		return tree;
+	}
+
+	/**
+	 * Return a borrowed action tree.
+	 *
+	 * @param tree The tree which is returned.
+	 */
+	public void release(CompositeActionImpl tree) {
+		idleTrees.add(tree);
+	}
+
+	/**
+	 * Answer the container action of a tree which has the same type as a
+	 * container action of another tree.
+	 *
+	 * @param tree The tree which is to be searched.
+	 * @param containerAction The container action which is to be matched.
+	 * @return The matching container action of the tree.
+	 */
+	public static ContainerActionImpl getAction(CompositeActionImpl tree, ContainerActionImpl containerAction) {
+		for (ActionImpl action : tree.getActions()) {
+			if (action.getClass() == containerAction.getClass()) {
+				return (ContainerActionImpl) action;
+			}
+		}
+		throw new IllegalStateException("No worker action of type [ " + containerAction.getName() + " ]");
+	}
+}
@@ -50,6 +50,12 @@ public class NullActionImpl extends ActionImpl {
 		return true;
 	}
 
+	/** Null actions copy files without reading them. */
+	@Override
+	public boolean isPassthrough() {
+		return true;
+	}
+
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
 
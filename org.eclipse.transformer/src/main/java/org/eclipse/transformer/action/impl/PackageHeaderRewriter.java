@@ -0,0 +1,376 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.util.RuleHits;
+
+/**
+ * Single pass rewriter of OSGi manifest headers, such as "Import-Package",
+ * "Export-Package", and "Provide-Capability".
+ * <p>
+ * A header is a comma separated list of clauses. Each clause is a semicolon
+ * separated list of paths followed by attributes ("name=value") and
+ * directives ("name:=value"). Commas and semicolons inside quotation marks
+ * are not separators.
+ * <p>
+ * The header is scanned once. Package names in the paths and in the values of
+ * attributes and directives (for example, in "uses:=" directives and in
+ * "objectClass" attributes) are renamed by looking up the name, and its
+ * prefixes, in maps of the package renames. When a path is renamed and a
+ * version is assigned to the renamed package, the value of the "version"
+ * attribute of the clause is replaced. All other text is copied unchanged.
+ * Versions are not replaced in a header which has unbalanced quotation marks,
+ * since the extent of the version values of such a header is not known.
+ * <p>
+ * A package name is matched according to
+ * {@link SignatureRuleImpl#isTruePackageMatch(String, int, int, boolean)}:
+ * A rename of "javax.servlet" matches "javax.servlet" and
+ * "javax.servlet.Servlet", but not "javax.servlet.http", while a rename of
+ * "javax.servlet.*" matches all three. When several renames match, the
+ * longest match is used.
+ */
+public class PackageHeaderRewriter {
+	public static final String	VERSION_ATTRIBUTE	= "version";
+
+	public static final char	QUOTE_CHAR			= '"';
+	public static final char	CLAUSE_SEPARATOR	= ',';
+	public static final char	PARAMETER_SEPARATOR	= ';';
+
+	public PackageHeaderRewriter(Map<String, String> packageRenames, Map<String, String> packageVersions) {
+		this(packageRenames, packageVersions, null);
+	}
+
+	/**
+	 * Create a rewriter which counts the hits of the package renames and of
+	 * the package versions.
+	 *
+	 * @param packageRenames The package renames.
+	 * @param packageVersions The versions of renamed packages.
+	 * @param ruleHits The counts of rule hits. May be null.
+	 */
+	public PackageHeaderRewriter(Map<String, String> packageRenames, Map<String, String> packageVersions,
+		RuleHits ruleHits) {
+		this.ruleHits = ruleHits;
+		this.exactRenames = new HashMap<>();
+		this.wildcardRenames = new HashMap<>();
+		this.leadingSegments = new HashSet<>();
+
+		for (Map.Entry<String, String> renameEntry : packageRenames.entrySet()) {
+			String key = renameEntry.getKey();
+			if (SignatureRuleImpl.containsWildcard(key)) {
+				key = SignatureRuleImpl.stripWildcard(key);
+				wildcardRenames.put(key, renameEntry.getValue());
+			} else {
+				exactRenames.put(key, renameEntry.getValue());
+			}
+
+			int dotOffset = key.indexOf('.');
+			leadingSegments.add((dotOffset == -1) ? key : key.substring(0, dotOffset));
+		}
+
+		this.packageVersions = packageVersions;
+	}
+
+	//
+
+	private final Map<String, String>	exactRenames;
+	private final Map<String, String>	wildcardRenames;
+
+	/** The first segment of every rename key: Used to quickly reject names. */
+	private final Set<String>			leadingSegments;
+
+	private final Map<String, String>	packageVersions;
+
+	private final RuleHits				ruleHits;
+
+	//
+
+	/**
+	 * Rewrite a header.
+	 *
+	 * @param text The header text.
+	 * @return The rewritten header text. Null if the header was not changed.
+	 */
+	public String rewrite(String text) {
+		int textLength = text.length();
+
+		StringBuilder builder = null;
+		int copied = 0; // Text before this offset was handled.
+
+		boolean replaceVersions = hasBalancedQuotes(text);
+
+		boolean atPath = true; // True until the first attribute or directive.
+		String clauseVersion = null; // Version of the first renamed path.
+
+		int segmentStart = 0;
+		int equalsOffset = -1;
+		boolean inQuotes = false;
+
+		for (int offset = 0; offset <= textLength; offset++) {
+			char c = ((offset < textLength) ? text.charAt(offset) : CLAUSE_SEPARATOR);
+
+			if (c == QUOTE_CHAR) {
+				inQuotes = !inQuotes;
+				continue;
+			} else if (inQuotes && (offset < textLength)) {
+				continue;
+			} else if ((c == '=') && (equalsOffset == -1)) {
+				equalsOffset = offset;
+				continue;
+			} else if ((c != CLAUSE_SEPARATOR) && (c != PARAMETER_SEPARATOR)) {
+				continue;
+			}
+
+			// A segment is complete: A path, an attribute, or a directive.
+
+			int segmentEnd = offset;
+
+			if (equalsOffset == -1) {
+				if (atPath) {
+					String newPackage = renameSegment(text, segmentStart, segmentEnd);
+					if (newPackage != null) {
+						if (builder == null) {
+							builder = new StringBuilder(textLength + 16);
+						}
+						builder.append(text, copied, segmentStart);
+						builder.append(renamed);
+						copied = segmentEnd;
+
+						if (clauseVersion == null) {
+							clauseVersion = packageVersions.get(newPackage);
+							if ((clauseVersion != null) && (ruleHits != null)) {
+								ruleHits.hit(RuleHits.VERSION, newPackage);
+							}
+						}
+					}
+				}
+
+			} else {
+				atPath = false;
+
+				String replacement = null;
+				int replacementStart = segmentStart;
+				if ((clauseVersion != null) && replaceVersions && isVersion(text, segmentStart, equalsOffset)) {
+					replacement = replaceValue(text, equalsOffset + 1, segmentEnd, clauseVersion);
+					replacementStart = equalsOffset + 1;
+				} else if (renameAll(text, segmentStart, segmentEnd)) {
+					replacement = renamed.toString();
+				}
+
+				if (replacement != null) {
+					if (builder == null) {
+						builder = new StringBuilder(textLength + 16);
+					}
+					builder.append(text, copied, replacementStart);
+					builder.append(replacement);
+					copied = segmentEnd;
+				}
+			}
+
+			if (c == CLAUSE_SEPARATOR) {
+				atPath = true;
+				clauseVersion = null;
+			}
+			segmentStart = offset + 1;
+			equalsOffset = -1;
+		}
+
+		if (builder == null) {
+			return null;
+		}
+		builder.append(text, copied, textLength);
+
+		String newText = builder.toString();
+		return (newText.equals(text) ? null : newText);
+	}
+
+	//
+
+	/** Buffer for renamed text. Rewriters are not thread safe. */
+	private final StringBuilder renamed = new StringBuilder();
+
+	/**
+	 * Rename the package names of a path segment. Place the renamed segment
+	 * in {@link #renamed}.
+	 *
+	 * @return The new name of the path, if the path is a single package name
+	 *         which was renamed. Null if the segment was not changed.
+	 */
+	private String renameSegment(String text, int start, int end) {
+		if (!renameAll(text, start, end)) {
+			return null;
+		}
+
+		int nameStart = start;
+		while ((nameStart < end) && Character.isWhitespace(text.charAt(nameStart))) {
+			nameStart++;
+		}
+		int nameEnd = end;
+		while ((nameEnd > nameStart) && Character.isWhitespace(text.charAt(nameEnd - 1))) {
+			nameEnd--;
+		}
+
+		int renamedStart = nameStart - start;
+		int renamedEnd = renamed.length() - (end - nameEnd);
+		return renamed.substring(renamedStart, renamedEnd);
+	}
+
+	/**
+	 * Rename all package names of a range of text. Place the renamed range in
+	 * {@link #renamed}.
+	 *
+	 * @return True or false telling if any package name was renamed.
+	 */
+	private boolean renameAll(String text, int start, int end) {
+		renamed.setLength(0);
+
+		boolean changed = false;
+
+		int offset = start;
+		while (offset < end) {
+			char c = text.charAt(offset);
+			if (!isNameChar(c) || (c == '.')) {
+				renamed.append(c);
+				offset++;
+				continue;
+			}
+
+			int nameEnd = offset + 1;
+			while ((nameEnd < end) && isNameChar(text.charAt(nameEnd))) {
+				nameEnd++;
+			}
+
+			int matchEnd = match(text, offset, nameEnd);
+			if (matchEnd == -1) {
+				renamed.append(text, offset, nameEnd);
+			} else {
+				renamed.append(matchedValue);
+				renamed.append(text, matchEnd, nameEnd);
+				changed = true;
+			}
+			offset = nameEnd;
+		}
+
+		return changed;
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isJavaIdentifierPart(c) || (c == '.');
+	}
+
+	/** The rename value of the last successful match. */
+	private String matchedValue;
+
+	/**
+	 * Match the longest package name prefix of a name. Prefixes end at a dot
+	 * or at the end of the name.
+	 *
+	 * @return The end offset of the longest matching prefix. -1 if no prefix
+	 *         matches.
+	 */
+	private int match(String text, int start, int end) {
+		int firstDot = text.indexOf('.', start);
+		if ((firstDot == -1) || (firstDot > end)) {
+			firstDot = end;
+		}
+		if (!leadingSegments.contains(text.substring(start, firstDot))) {
+			return -1;
+		}
+
+		int prefixEnd = end;
+		while (prefixEnd > start) {
+			if ((prefixEnd == end) || (text.charAt(prefixEnd) == '.')) {
+				String prefix = text.substring(start, prefixEnd);
+				int prefixLength = prefixEnd - start;
+
+				String value = exactRenames.get(prefix);
+				if ((value != null) && SignatureRuleImpl.isTruePackageMatch(text, start, prefixLength, false)) {
+					matchedValue = value;
+					if (ruleHits != null) {
+						ruleHits.hit(RuleHits.RENAME, prefix);
+					}
+					return prefixEnd;
+				}
+				value = wildcardRenames.get(prefix);
+				if ((value != null) && SignatureRuleImpl.isTruePackageMatch(text, start, prefixLength, true)) {
+					matchedValue = value;
+					if (ruleHits != null) {
+						ruleHits.hit(RuleHits.RENAME, prefix + ".*");
+					}
+					return prefixEnd;
+				}
+			}
+			prefixEnd--;
+		}
+		return -1;
+	}
+
+	//
+
+	private static boolean hasBalancedQuotes(String text) {
+		boolean balanced = true;
+		for (int offset = text.indexOf(QUOTE_CHAR); offset != -1; offset = text.indexOf(QUOTE_CHAR, offset + 1)) {
+			balanced = !balanced;
+		}
+		return balanced;
+	}
+
+	private static boolean isVersion(String text, int start, int equalsOffset) {
+		int nameStart = start;
+		while ((nameStart < equalsOffset) && Character.isWhitespace(text.charAt(nameStart))) {
+			nameStart++;
+		}
+		int nameEnd = equalsOffset;
+		while ((nameEnd > nameStart) && Character.isWhitespace(text.charAt(nameEnd - 1))) {
+			nameEnd--;
+		}
+		return ((nameEnd - nameStart) == VERSION_ATTRIBUTE.length())
+			&& text.regionMatches(nameStart, VERSION_ATTRIBUTE, 0, VERSION_ATTRIBUTE.length());
+	}
+
+	/**
+	 * Replace an attribute value. White space around the value and the
+	 * quotation marks of the value are retained. Quotation marks are added
+	 * when the new value contains separators.
+	 */
+	private static String replaceValue(String text, int start, int end, String newValue) {
+		int valueStart = start;
+		while ((valueStart < end) && Character.isWhitespace(text.charAt(valueStart))) {
+			valueStart++;
+		}
+		int valueEnd = end;
+		while ((valueEnd > valueStart) && Character.isWhitespace(text.charAt(valueEnd - 1))) {
+			valueEnd--;
+		}
+
+		boolean quoted = (((valueEnd - valueStart) >= 2) && (text.charAt(valueStart) == QUOTE_CHAR)
+			&& (text.charAt(valueEnd - 1) == QUOTE_CHAR))
+			|| (newValue.indexOf(CLAUSE_SEPARATOR) != -1) || (newValue.indexOf(PARAMETER_SEPARATOR) != -1);
+
+		StringBuilder builder = new StringBuilder((end - start) + newValue.length());
+		builder.append(text, start, valueStart);
+		if (quoted) {
+			builder.append(QUOTE_CHAR)
+				.append(newValue)
+				.append(QUOTE_CHAR);
+		} else {
+			builder.append(newValue);
+		}
+		builder.append(text, valueEnd, end);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,176 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fast test of whether text may reference any of a collection of packages.
+ * <p>
+ * A package is referenced when the package name, followed by the package
+ * separator, occurs in the text. This is a superset of the references which
+ * are matched by parsing the text as a descriptor or as a signature, since
+ * every class type of a descriptor or signature has its package name
+ * followed by a separator.
+ * <p>
+ * Package names, with a trailing separator, are compiled into a single
+ * character trie. A Bloom filter of the first two characters of the package
+ * names is used to skip positions of the text before walking the trie. Text
+ * is scanned without allocating, and most text which references none of the
+ * packages is rejected after a single filter test per character.
+ * <p>
+ * Tries are immutable and may be used concurrently.
+ */
+public class PackageTrie {
+	/** Size of the Bloom filter, in bits. Must be a power of two. */
+	private static final int	FILTER_BITS	= 1024;
+
+	/**
+	 * Create a trie of package names.
+	 *
+	 * @param packageNames The package names. Empty names are ignored.
+	 * @param separator The package separator, '/' for binary package names,
+	 *            and '.' for package names.
+	 */
+	public PackageTrie(Collection<String> packageNames, char separator) {
+		long[] useFilter = new long[FILTER_BITS / 64];
+
+		BuildNode buildRoot = new BuildNode();
+		for (String packageName : packageNames) {
+			if (packageName.isEmpty()) {
+				continue;
+			}
+			String pattern = packageName + separator;
+
+			BuildNode node = buildRoot;
+			for (int offset = 0; offset < pattern.length(); offset++) {
+				node = node.children.computeIfAbsent(pattern.charAt(offset), c -> new BuildNode());
+			}
+			node.terminal = true;
+
+			int hash = hash(pattern.charAt(0), pattern.charAt(1));
+			setBit(useFilter, hash);
+			setBit(useFilter, rehash(hash));
+		}
+
+		this.root = buildRoot.freeze();
+		this.filter = useFilter;
+		this.isEmpty = (root.chars.length == 0);
+	}
+
+	//
+
+	/** Mutable trie node, used while compiling package names. */
+	private static class BuildNode {
+		final TreeMap<Character, BuildNode>	children	= new TreeMap<>();
+		boolean								terminal;
+
+		Node freeze() {
+			char[] chars = new char[children.size()];
+			Node[] nodes = new Node[children.size()];
+			int childNo = 0;
+			for (Map.Entry<Character, BuildNode> child : children.entrySet()) {
+				chars[childNo] = child.getKey();
+				nodes[childNo] = child.getValue()
+					.freeze();
+				childNo++;
+			}
+			return new Node(chars, nodes, terminal);
+		}
+	}
+
+	/** Immutable trie node. Children are sorted by character. */
+	private static class Node {
+		final char[]	chars;
+		final Node[]	nodes;
+		final boolean	terminal;
+
+		Node(char[] chars, Node[] nodes, boolean terminal) {
+			this.chars = chars;
+			this.nodes = nodes;
+			this.terminal = terminal;
+		}
+
+		Node child(char c) {
+			int childNo = Arrays.binarySearch(chars, c);
+			return ((childNo < 0) ? null : nodes[childNo]);
+		}
+	}
+
+	private final Node		root;
+	private final long[]	filter;
+	private final boolean	isEmpty;
+
+	private static int hash(char c0, char c1) {
+		return (c0 * 31) + c1;
+	}
+
+	private static int rehash(int hash) {
+		return (hash * 0x9E3779B1) >>> 16;
+	}
+
+	private static void setBit(long[] bits, int hash) {
+		int bit = hash & (FILTER_BITS - 1);
+		bits[bit >>> 6] |= (1L << bit);
+	}
+
+	private static boolean getBit(long[] bits, int hash) {
+		int bit = hash & (FILTER_BITS - 1);
+		return ((bits[bit >>> 6] & (1L << bit)) != 0L);
+	}
+
+	//
+
+	/**
+	 * Tell if the trie has no package names.
+	 *
+	 * @return True or false telling if the trie has no package names.
+	 */
+	public boolean isEmpty() {
+		return isEmpty;
+	}
+
+	/**
+	 * Tell if text contains any of the package names followed by the package
+	 * separator.
+	 *
+	 * @param text The text which is to be tested.
+	 * @return True or false telling if the text may reference any of the
+	 *         packages.
+	 */
+	public boolean containsPackage(String text) {
+		if (isEmpty) {
+			return false;
+		}
+
+		long[] useFilter = filter;
+		int limit = text.length() - 1;
+		for (int offset = 0; offset < limit; offset++) {
+			int hash = hash(text.charAt(offset), text.charAt(offset + 1));
+			if (!getBit(useFilter, hash) || !getBit(useFilter, rehash(hash))) {
+				continue;
+			}
+
+			Node node = root;
+			for (int scan = offset; (scan <= limit) && ((node = node.child(text.charAt(scan))) != null); scan++) {
+				if (node.terminal) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
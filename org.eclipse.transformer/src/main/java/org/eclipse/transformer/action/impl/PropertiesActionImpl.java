@@ -13,6 +13,7 @@ package org.eclipse.transformer.action.impl;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.BufferData;
 import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 
@@ -46,6 +47,29 @@ public class PropertiesActionImpl extends ActionImpl {
 		}
 	}
 
+	/** Properties files are relocated without being read. */
+	@Override
+	public boolean isStreamed() {
+		return true;
+	}
+
+	/**
+	 * Relocate buffer data. The data is not changed, and is not copied into
+	 * the java heap.
+	 */
+	@Override
+	public BufferData apply(String inputName, BufferData inputData) throws TransformException {
+		String outputName = transformBinaryType(inputName);
+		if (outputName != null) {
+			verbose("Properties file %s, relocated to %s", inputName, outputName);
+			setResourceNames(inputName, outputName);
+			return new BufferData(outputName, inputData.segments);
+		} else {
+			setResourceNames(inputName, inputName);
+			return new BufferData(inputName, inputData.segments);
+		}
+	}
+
 	@Override
 	public String getName() {
 		return "Properties file relocate";
@@ -65,6 +65,22 @@ public class SelectionRuleImpl implements SelectionRule {
 		return logger;
 	}
 
+	public boolean isDebugEnabled() {
+		return getLogger().isDebugEnabled();
+	}
+
+	public void debug(String message) {
+		getLogger().debug(message);
+	}
+
+	public void debug(String message, Object parm) {
+		getLogger().debug(message, parm);
+	}
+
+	public void debug(String message, Object parm1, Object parm2) {
+		getLogger().debug(message, parm1, parm2);
+	}
+
 	public void debug(String message, Object... parms) {
 		getLogger().debug(message, parms);
 	}
@@ -104,19 +120,25 @@ public class SelectionRuleImpl implements SelectionRule {
 		} else {
 			for (String tail : includedHead) {
 				if (resourceName.endsWith(tail)) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match tail", tail);
+					if (isDebugEnabled()) {
+						debug("Include [ {} ]: {} ({})", resourceName, "Match tail", tail);
+					}
 					return true;
 				}
 			}
 			for (String head : includedTail) {
 				if (resourceName.startsWith(head)) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match head", head);
+					if (isDebugEnabled()) {
+						debug("Include [ {} ]: {} ({})", resourceName, "Match head", head);
+					}
 					return true;
 				}
 			}
 			for (String middle : includedAny) {
 				if (resourceName.contains(middle)) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match middle", middle);
+					if (isDebugEnabled()) {
+						debug("Include [ {} ]: {} ({})", resourceName, "Match middle", middle);
+					}
 					return true;
 				}
 			}
@@ -139,19 +161,25 @@ public class SelectionRuleImpl implements SelectionRule {
 		} else {
 			for (String tail : excludedHead) {
 				if (resourceName.endsWith(tail)) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match tail", tail);
+					if (isDebugEnabled()) {
+						debug("Exclude[ {} ]: {} ({})", resourceName, "Match tail", tail);
+					}
 					return true;
 				}
 			}
 			for (String head : excludedTail) {
 				if (resourceName.startsWith(head)) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match head", head);
+					if (isDebugEnabled()) {
+						debug("Exclude[ {} ]: {} ({})", resourceName, "Match head", head);
+					}
 					return true;
 				}
 			}
 			for (String middle : excludedAny) {
 				if (resourceName.contains(middle)) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match middle", middle);
+					if (isDebugEnabled()) {
+						debug("Exclude[ {} ]: {} ({})", resourceName, "Match middle", middle);
+					}
 					return true;
 				}
 			}
@@ -19,10 +19,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.BufferData;
+import org.eclipse.transformer.util.BufferDataOutputStream;
 import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 
@@ -106,7 +109,6 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
-
 		String outputName = renameInput(inputName);
 		if (outputName == null) {
 			outputName = inputName;
@@ -116,11 +118,65 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 		setResourceNames(inputName, outputName);
 
 		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
+		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputLength);
+
+		if (!transform(inputName, inputStream, outputStream)) {
+			return null;
+		}
+
+		byte[] outputBytes = outputStream.toByteArray();
+		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+	}
+
+	/** Service configurations are transformed as a stream. */
+	@Override
+	public boolean isStreamed() {
+		return true;
+	}
+
+	/**
+	 * Transform buffer data. The configuration is read and written as a
+	 * stream, which allows the data to be transformed without being held in
+	 * the java heap.
+	 */
+	@Override
+	public BufferData apply(String inputName, BufferData inputData) throws TransformException {
+		String outputName = renameInput(inputName);
+		if (outputName == null) {
+			outputName = inputName;
+		} else {
+			verbose("Service name  [ {} ] -> [ {} ]", inputName, outputName);
+		}
+		setResourceNames(inputName, outputName);
+
+		BufferDataOutputStream outputStream = openBufferOutput(inputName); // throws
+																			// TransformException
+		try {
+			if (!transform(inputName, inputData.asStream(), outputStream)) {
+				return null;
+			}
+			return toBufferData(inputName, outputStream); // throws
+															// TransformException
+		} finally {
+			outputStream.dispose();
+		}
+	}
+
+	/**
+	 * Transform a service configuration which is read from a stream.
+	 *
+	 * @param inputName The name of the configuration.
+	 * @param inputStream The stream from which to read the configuration.
+	 * @param outputStream The stream to which to write the transformed
+	 *            configuration.
+	 * @return True or false telling if the configuration was changed. False if
+	 *         the transform failed.
+	 */
+	protected boolean transform(String inputName, InputStream inputStream, OutputStream outputStream) {
 		InputStreamReader inputReader = new InputStreamReader(inputStream, UTF_8);
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputLength);
 		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
 
 		BufferedWriter writer = new BufferedWriter(outputWriter);
@@ -129,22 +185,17 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 			transform(reader, writer); // throws IOException
 		} catch (IOException e) {
 			error("Failed to transform [ {} ]", e, inputName);
-			return null;
+			return false;
 		}
 
 		try {
 			writer.flush(); // throws
 		} catch (IOException e) {
 			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
-
-		if (!hasNonResourceNameChanges()) {
-			return null;
+			return false;
 		}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return hasNonResourceNameChanges();
 	}
 
 	protected void transform(BufferedReader reader, BufferedWriter writer) throws IOException {
@@ -11,17 +11,25 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RuleHits;
+import org.eclipse.transformer.util.TransformerEvents;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -77,6 +85,7 @@ public class SignatureRuleImpl implements SignatureRule {
 
 		this.dottedPackageRenames = useRenames;
 		this.slashedPackageRenames = useBinaryRenames;
+		this.slashedPackageTrie = new PackageTrie(useBinaryRenames.keySet(), '/');
 
 		Map<String, String> useVersions;
 		if ((versions != null) && !versions.isEmpty()) {
@@ -94,33 +103,75 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 		this.bundleUpdates = useBundleUpdates;
 
+		this.masterTextUpdates = masterTextUpdates;
+
+		this.textSelectors = new IdentityHashMap<>();
+		if (masterTextUpdates != null) {
+			masterTextUpdates.forEach((selector, substitutions) -> textSelectors.put(substitutions, selector));
+		}
+
 		if ((masterTextUpdates != null) && !masterTextUpdates.isEmpty()) {
 			Map<String, Map<String, String>> useSpecificTextUpdates = new HashMap<>();
-			Map<Pattern, Map<String, String>> useWildCardTextUpdates = new HashMap<>();
+			Map<Pattern, Map<String, String>> useWildCardTextUpdates = new LinkedHashMap<>();
 
+			List<String> wildCardSelectors = new ArrayList<>();
 			for (Map.Entry<String, Map<String, String>> entry : masterTextUpdates.entrySet()) {
 				String matchesFileName = entry.getKey();
-				Map<String, String> substitutions = entry.getValue();
-
 				if ((matchesFileName.indexOf('?') != -1) || (matchesFileName.indexOf('*') != -1)) {
-					matchesFileName = matchesFileName.replace("?", ".?")
-						.replace("*", ".*?");
-					Pattern matchPattern = Pattern.compile(matchesFileName);
-					useWildCardTextUpdates.put(matchPattern, substitutions);
-
+					wildCardSelectors.add(matchesFileName);
 				} else {
-					useSpecificTextUpdates.put(matchesFileName, substitutions);
+					useSpecificTextUpdates.put(matchesFileName, entry.getValue());
+				}
+			}
+			wildCardSelectors.sort(WILDCARD_PRECEDENCE);
+
+			StringBuilder combinedRegex = new StringBuilder();
+			int[] useWildCardGroups = new int[wildCardSelectors.size()];
+			int nextGroup = 1;
+
+			for (int selectorNo = 0; selectorNo < useWildCardGroups.length; selectorNo++) {
+				String matchesFileName = wildCardSelectors.get(selectorNo);
+				Map<String, String> substitutions = masterTextUpdates.get(matchesFileName);
+
+				matchesFileName = matchesFileName.replace("?", ".?")
+					.replace("*", ".*?");
+				Pattern matchPattern = Pattern.compile(matchesFileName);
+				useWildCardTextUpdates.put(matchPattern, substitutions);
+
+				if (selectorNo > 0) {
+					combinedRegex.append('|');
 				}
+				combinedRegex.append('(')
+					.append(matchesFileName)
+					.append(')');
+				useWildCardGroups[selectorNo] = nextGroup;
+				nextGroup += 1 + matchPattern.matcher("")
+					.groupCount();
 			}
 
 			this.specificTextUpdates = useSpecificTextUpdates;
 			this.wildCardTextUpdates = useWildCardTextUpdates;
 
+			if (useWildCardGroups.length == 0) {
+				this.wildCardTextPattern = null;
+				this.wildCardTextSubstitutions = Collections.emptyList();
+			} else {
+				this.wildCardTextPattern = Pattern.compile(combinedRegex.toString());
+				this.wildCardTextSubstitutions = new ArrayList<>(useWildCardTextUpdates.values());
+			}
+			this.wildCardTextGroups = useWildCardGroups;
+
 		} else {
 			this.specificTextUpdates = null;
 			this.wildCardTextUpdates = null;
+
+			this.wildCardTextPattern = null;
+			this.wildCardTextSubstitutions = Collections.emptyList();
+			this.wildCardTextGroups = new int[0];
 		}
 
+		this.textSubstitutions = new HashMap<>();
+
 		Map<String, String> useDirectStrings;
 		if ((directStrings == null) || directStrings.isEmpty()) {
 			useDirectStrings = Collections.emptyMap();
@@ -149,12 +200,161 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	//
 
+	/**
+	 * Answer the strings which must occur in an input for the package renames
+	 * and the text substitutions of these rules to have an effect. These are
+	 * the dotted and slashed forms of the renamed packages, and the keys of
+	 * the text substitutions.
+	 *
+	 * @return The strings which are used to select rules for an input.
+	 */
+	public Set<String> getReferenceCandidates() {
+		Set<String> candidates = new HashSet<>();
+		for (String initialName : dottedPackageRenames.keySet()) {
+			String packageName = stripWildcard(initialName);
+			candidates.add(packageName);
+			candidates.add(packageName.replace('.', '/'));
+		}
+		if (masterTextUpdates != null) {
+			for (Map<String, String> substitutions : masterTextUpdates.values()) {
+				candidates.addAll(substitutions.keySet());
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Create rules which contain only the package renames and the text
+	 * substitutions which are referenced by an input. Package versions are
+	 * retained for retained package renames. Bundle updates, direct strings,
+	 * and per class constants are retained unchanged.
+	 * <p>
+	 * The pruned rules transform the input the same as these rules, since
+	 * renames and substitutions which are not referenced by the input do not
+	 * match anything in the input. Text substitution file selections are
+	 * retained, even when no substitutions remain, so that the same files are
+	 * selected for text transformation.
+	 *
+	 * @param isReferenced Test of whether a candidate string, as answered by
+	 *            {@link #getReferenceCandidates()}, occurs in the input.
+	 * @return Rules which are pruned to the references of the input.
+	 */
+	public SignatureRuleImpl prune(Predicate<String> isReferenced) {
+		Map<String, String> prunedRenames = new HashMap<>();
+		for (Map.Entry<String, String> renameEntry : dottedPackageRenames.entrySet()) {
+			String packageName = stripWildcard(renameEntry.getKey());
+			if (isReferenced.test(packageName) || isReferenced.test(packageName.replace('.', '/'))) {
+				prunedRenames.put(renameEntry.getKey(), renameEntry.getValue());
+			}
+		}
+
+		Map<String, String> prunedVersions = new HashMap<>();
+		for (Map.Entry<String, String> versionEntry : packageVersions.entrySet()) {
+			if (prunedRenames.containsValue(versionEntry.getKey())) {
+				prunedVersions.put(versionEntry.getKey(), versionEntry.getValue());
+			}
+		}
+
+		Map<String, Map<String, String>> prunedTextUpdates;
+		if (masterTextUpdates == null) {
+			prunedTextUpdates = null;
+		} else {
+			prunedTextUpdates = new HashMap<>(masterTextUpdates.size());
+			for (Map.Entry<String, Map<String, String>> masterEntry : masterTextUpdates.entrySet()) {
+				Map<String, String> prunedSubstitutions = new LinkedHashMap<>();
+				for (Map.Entry<String, String> substitution : masterEntry.getValue()
+					.entrySet()) {
+					if (isReferenced.test(substitution.getKey())) {
+						prunedSubstitutions.put(substitution.getKey(), substitution.getValue());
+					}
+				}
+				prunedTextUpdates.put(masterEntry.getKey(), prunedSubstitutions);
+			}
+		}
+
+		SignatureRuleImpl prunedRule = new SignatureRuleImpl(logger, prunedRenames, prunedVersions, bundleUpdates,
+			prunedTextUpdates, directStrings, perClassConstantStrings);
+		prunedRule.setRuleHits(ruleHits);
+		return prunedRule;
+	}
+
+	/**
+	 * Create a copy of these rules. The copy has the same rules data, but has
+	 * its own caches, and may be used by a different thread than these rules.
+	 *
+	 * @return A copy of these rules.
+	 */
+	public SignatureRuleImpl copy() {
+		SignatureRuleImpl copyRule = new SignatureRuleImpl(logger, dottedPackageRenames, packageVersions,
+			bundleUpdates, masterTextUpdates, directStrings, perClassConstantStrings);
+		copyRule.setRuleHits(ruleHits);
+		return copyRule;
+	}
+
+	//
+
+	private RuleHits ruleHits;
+
+	public RuleHits getRuleHits() {
+		return ruleHits;
+	}
+
+	/**
+	 * Set the counts of rule hits. All of the rules are declared to the
+	 * counts, so that rules which are not hit are reported.
+	 * <p>
+	 * While hits are counted, the caches of changed types, descriptors, and
+	 * signatures are not used, so that every use of a rule is counted. This
+	 * slows the transformation of classes.
+	 *
+	 * @param ruleHits The counts of rule hits. Null to not count rule hits.
+	 */
+	public void setRuleHits(RuleHits ruleHits) {
+		this.ruleHits = ruleHits;
+		if (ruleHits == null) {
+			return;
+		}
+
+		dottedPackageRenames.keySet()
+			.forEach(rule -> ruleHits.declare(RuleHits.RENAME, rule));
+		packageVersions.keySet()
+			.forEach(rule -> ruleHits.declare(RuleHits.VERSION, rule));
+		bundleUpdates.keySet()
+			.forEach(rule -> ruleHits.declare(RuleHits.BUNDLE, rule));
+		directStrings.keySet()
+			.forEach(rule -> ruleHits.declare(RuleHits.DIRECT, rule));
+		if (masterTextUpdates != null) {
+			masterTextUpdates.forEach((selector, substitutions) -> substitutions.keySet()
+				.forEach(key -> ruleHits.declare(RuleHits.TEXT, selector + ':' + key)));
+		}
+		perClassConstantStrings.forEach((clazz, constants) -> constants.keySet()
+			.forEach(key -> ruleHits.declare(RuleHits.CONSTANT, clazz + ':' + key)));
+	}
+
+	//
+
 	private final Logger logger;
 
 	public Logger getLogger() {
 		return logger;
 	}
 
+	public boolean isDebugEnabled() {
+		return getLogger().isDebugEnabled();
+	}
+
+	public void debug(String message) {
+		getLogger().debug(message);
+	}
+
+	public void debug(String message, Object parm) {
+		getLogger().debug(message, parm);
+	}
+
+	public void debug(String message, Object parm1, Object parm2) {
+		getLogger().debug(message, parm1, parm2);
+	}
+
 	public void debug(String message, Object... parms) {
 		getLogger().debug(message, parms);
 	}
@@ -165,11 +365,21 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	@Override
 	public BundleData getBundleUpdate(String symbolicName) {
-		return bundleUpdates.get(symbolicName);
+		BundleData bundleUpdate = bundleUpdates.get(symbolicName);
+		if ((bundleUpdate != null) && (ruleHits != null)) {
+			ruleHits.hit(RuleHits.BUNDLE, symbolicName);
+		}
+		return bundleUpdate;
 	}
 
 	//
 
+	/** The text updates, as provided. Retained for pruning. */
+	private final Map<String, Map<String, String>>	masterTextUpdates;
+
+	/** The file selectors of the text updates, keyed by substitutions identity. */
+	private final Map<Map<String, String>, String>	textSelectors;
+
 	private final Map<String, Map<String, String>>	specificTextUpdates;
 	private final Map<Pattern, Map<String, String>>	wildCardTextUpdates;
 
@@ -177,17 +387,70 @@ public class SignatureRuleImpl implements SignatureRule {
 		return specificTextUpdates;
 	}
 
+	/**
+	 * Answer the wildcard text updates, in order of precedence.
+	 *
+	 * @return The wildcard text updates.
+	 */
 	public Map<Pattern, Map<String, String>> getWildCardTextUpdates() {
 		return wildCardTextUpdates;
 	}
 
+	/**
+	 * Precedence of wildcard file name selectors: Selectors with more non-wild
+	 * characters are more specific and are tried first. Selectors with the
+	 * same count of non-wild characters are ordered by name.
+	 */
+	public static final Comparator<String> WILDCARD_PRECEDENCE = (selector1, selector2) -> {
+		int literals1 = countLiterals(selector1);
+		int literals2 = countLiterals(selector2);
+		if (literals1 != literals2) {
+			return (literals2 - literals1);
+		} else {
+			return selector1.compareTo(selector2);
+		}
+	};
+
+	private static int countLiterals(String selector) {
+		int literals = 0;
+		for (int offset = 0; offset < selector.length(); offset++) {
+			char c = selector.charAt(offset);
+			if ((c != '?') && (c != '*')) {
+				literals++;
+			}
+		}
+		return literals;
+	}
+
+	/**
+	 * All wildcard file name selectors, compiled as a single alternation.
+	 * Alternatives are in order of precedence: A file name is matched against
+	 * the alternatives in order, and the first alternative which matches
+	 * selects the substitutions of the file.
+	 */
+	private final Pattern					wildCardTextPattern;
+	/** Group numbers of the alternatives of the wildcard pattern. */
+	private final int[]						wildCardTextGroups;
+	/** Substitutions of the alternatives of the wildcard pattern. */
+	private final List<Map<String, String>>	wildCardTextSubstitutions;
+
+	/** Text substitutions which were resolved, keyed by simple file name. */
+	private final Map<String, Map<String, String>>	textSubstitutions;
+
+	/** Marker for files which have no text substitutions. */
+	private static final Map<String, String>		NO_TEXT_SUBSTITUTIONS	= Collections.emptyMap();
+
 	//
 
 	private final Map<String, String> directStrings;
 
 	@Override
 	public String getDirectString(String initialValue) {
-		return directStrings.get(initialValue);
+		String finalValue = directStrings.get(initialValue);
+		if ((finalValue != null) && (ruleHits != null)) {
+			ruleHits.hit(RuleHits.DIRECT, initialValue);
+		}
+		return finalValue;
 	}
 
 	private final Map<String, Map<String, String>> perClassConstantStrings;
@@ -203,7 +466,12 @@ public class SignatureRuleImpl implements SignatureRule {
 		// Do we have a direct mapping?
 		String full = m.get(initialValue);
 		if (full != null) {
-			debug("Per class direct replacement:[%s], %s=> %s", clazz, initialValue, full);
+			if (isDebugEnabled()) {
+				debug("Per class direct replacement:[%s], %s=> %s", clazz, initialValue, full);
+			}
+			if (ruleHits != null) {
+				ruleHits.hit(RuleHits.CONSTANT, clazz + ':' + initialValue);
+			}
 			return full;
 		}
 		String transformedString = initialValue;
@@ -213,7 +481,12 @@ public class SignatureRuleImpl implements SignatureRule {
 			//  The 'contains' test might be changed to use regular expressions in the future
 			if (transformedString.contains(k)) {
 				transformedString = transformedString.replace(k, m.get(k));
-				debug("Per class token replacement:[%s], key=%s, initialValue=%s", clazz, k, initialValue);
+				if (isDebugEnabled()) {
+					debug("Per class token replacement:[%s], key=%s, initialValue=%s", clazz, k, initialValue);
+				}
+				if (ruleHits != null) {
+					ruleHits.hit(RuleHits.CONSTANT, clazz + ':' + k);
+				}
 				transformed = true;
 			}
 		}
@@ -233,6 +506,13 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected final Map<String, String>	dottedPackageRenames;
 	protected final Map<String, String>	slashedPackageRenames;
 
+	/**
+	 * Trie of the binary renamed packages. Used to reject types, descriptors,
+	 * and signatures which cannot reference a renamed package, without
+	 * parsing them.
+	 */
+	protected final PackageTrie			slashedPackageTrie;
+
 	@Override
 	public Map<String, String> getPackageRenames() {
 		return dottedPackageRenames;
@@ -257,7 +537,11 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replacePackage(String initialName) {
-		return dottedPackageRenames.getOrDefault(initialName, null);
+		String finalName = dottedPackageRenames.getOrDefault(initialName, null);
+		if ((finalName != null) && (ruleHits != null)) {
+			ruleHits.hit(RuleHits.RENAME, initialName);
+		}
+		return finalName;
 	}
 
 	/**
@@ -274,6 +558,9 @@ public class SignatureRuleImpl implements SignatureRule {
 		String finalName = slashedPackageRenames.getOrDefault(initialName, null);
 		// System.out.println("Initial binary [ " + initialName + " ] Final [ "
 		// + finalName + " ]");
+		if ((finalName != null) && (ruleHits != null)) {
+			ruleHits.hit(RuleHits.RENAME, initialName.replace('/', '.'));
+		}
 		return finalName;
 	}
 
@@ -322,6 +609,11 @@ public class SignatureRuleImpl implements SignatureRule {
 					continue;
 				}
 
+				if (ruleHits != null) {
+					ruleHits.hit(RuleHits.RENAME, renameEntry.getKey()
+						.replace('/', '.'));
+				}
+
 				String value = renameEntry.getValue();
 				int valueLen = value.length();
 
@@ -438,17 +730,50 @@ public class SignatureRuleImpl implements SignatureRule {
 		return m.matches();
 	}
 
+	/**
+	 * Answer the text substitutions of a file. Substitutions are selected by
+	 * the simple name of the file: A specific selector which matches the file
+	 * name is used first. Otherwise, the first wildcard selector, in order of
+	 * precedence, which matches the file name is used. Results are retained
+	 * for each simple file name.
+	 *
+	 * @param inputFileName The name of the file.
+	 * @return The text substitutions of the file. Null if the file has no
+	 *         text substitutions.
+	 */
 	public Map<String, String> getTextSubstitutions(String inputFileName) {
+		if (specificTextUpdates == null) {
+			return null;
+		}
+
 		String simpleFileName = FileUtils.getFileNameFromFullyQualifiedFileName(inputFileName);
 
-		Map<String, String> specificUpdates = getSpecificTextUpdates().get(simpleFileName);
+		Map<String, String> substitutions = textSubstitutions.get(simpleFileName);
+		if (substitutions == null) {
+			substitutions = selectTextSubstitutions(simpleFileName);
+			if (substitutions == null) {
+				substitutions = NO_TEXT_SUBSTITUTIONS;
+			}
+			textSubstitutions.put(simpleFileName, substitutions);
+		}
+
+		return ((substitutions == NO_TEXT_SUBSTITUTIONS) ? null : substitutions);
+	}
+
+	private Map<String, String> selectTextSubstitutions(String simpleFileName) {
+		Map<String, String> specificUpdates = specificTextUpdates.get(simpleFileName);
 		if (specificUpdates != null) {
 			return specificUpdates;
 		}
 
-		for (Map.Entry<Pattern, Map<String, String>> wildcardEntry : getWildCardTextUpdates().entrySet()) {
-			if (matches(wildcardEntry.getKey(), simpleFileName)) {
-				return wildcardEntry.getValue();
+		if (wildCardTextPattern != null) {
+			Matcher matcher = wildCardTextPattern.matcher(simpleFileName);
+			if (matcher.matches()) {
+				for (int selectorNo = 0; selectorNo < wildCardTextGroups.length; selectorNo++) {
+					if (matcher.start(wildCardTextGroups[selectorNo]) != -1) {
+						return wildCardTextSubstitutions.get(selectorNo);
+					}
+				}
 			}
 		}
 
@@ -462,38 +787,42 @@ public class SignatureRuleImpl implements SignatureRule {
 				"Input [ " + inputFileName + " ] selected for TEXT transformation, but found no substitutions");
 		}
 
-		String initialText = text;
-
-		for (Map.Entry<String, String> entry : substitutions.entrySet()) {
-			String key = entry.getKey();
-			int keyLen = key.length();
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
+		return replaceText(substitutions, text);
+	}
 
-				String value = entry.getValue();
-				int valueLen = value.length();
+	/**
+	 * Apply text substitutions to text. Used when the substitutions of a file
+	 * have already been obtained using {@link #getTextSubstitutions(String)}.
+	 * All keys are replaced in a single pass, using the longest key at each
+	 * position: See {@link TextReplacer}.
+	 *
+	 * @param substitutions The text substitutions.
+	 * @param text The text to update.
+	 * @return The updated text. Null if the text was not changed.
+	 */
+	public String replaceText(Map<String, String> substitutions, String text) {
+		TextReplacer replacer = getTextReplacer(substitutions);
+		if (ruleHits == null) {
+			return replacer.replace(text);
+		}
 
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-				text = head + value + tail;
+		String selector = textSelectors.get(substitutions);
+		String rulePrefix = ((selector == null) ? "" : (selector + ':'));
+		return replacer.replace(text, key -> ruleHits.hit(RuleHits.TEXT, rulePrefix + key));
+	}
 
-				lastMatchEnd = matchStart + valueLen;
-				textLimit += (valueLen - keyLen);
-			}
-		}
+	/** Replacers of text substitutions, keyed by substitutions map identity. */
+	private final Map<Map<String, String>, TextReplacer> textReplacers = new IdentityHashMap<>();
 
-		if (initialText == text) {
-			return null;
-		} else {
-			return text;
-		}
+	/**
+	 * Answer the compiled replacer of text substitutions. Replacers are
+	 * compiled on first use, and are retained for each substitutions map.
+	 *
+	 * @param substitutions The text substitutions.
+	 * @return The replacer of the substitutions.
+	 */
+	public TextReplacer getTextReplacer(Map<String, String> substitutions) {
+		return textReplacers.computeIfAbsent(substitutions, TextReplacer::new);
 	}
 
 	//
@@ -534,17 +863,28 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected String transformBinaryType(String inputName, boolean allowSimpleSubstitution) {
 		// System.out.println("Input type [ " + inputName + " ]");
 
+		// Fast reject: A type which does not reference a renamed package is
+		// not changed, unless simple substitutions are allowed.
+		if (!allowSimpleSubstitution && !slashedPackageTrie.containsPackage(inputName)) {
+			return null;
+		}
+
 		if (unchangedBinaryTypes.contains(inputName)) {
 			// System.out.println("Unchanged (Prior)");
+			TransformerEvents.rulesCacheLookup(TransformerEvents.BINARY_TYPE_CACHE, inputName, true);
 			return null;
 		}
 
-		String outputName = changedBinaryTypes.get(inputName);
+		// Rules are not hit when a cached change is used.
+		String outputName = ((ruleHits == null) ? changedBinaryTypes.get(inputName) : null);
 		if (outputName != null) {
 			// System.out.println("Change to [ " + outputName + " ] (Prior)");
+			TransformerEvents.rulesCacheLookup(TransformerEvents.BINARY_TYPE_CACHE, inputName, true);
 			return outputName;
 		}
 
+		TransformerEvents.rulesCacheLookup(TransformerEvents.BINARY_TYPE_CACHE, inputName, false);
+
 		char c = inputName.charAt(0);
 		if ((c == '[') || ((c == 'L') && (inputName.charAt(inputName.length() - 1) == ';'))) {
 			JavaTypeSignature inputSignature = JavaTypeSignature.of(inputName.replace('$', '.'));
@@ -616,15 +956,23 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	@Override
 	public String transformDescriptor(String inputDescriptor, boolean allowSimpleSubstitution) {
+		if (!allowSimpleSubstitution && !slashedPackageTrie.containsPackage(inputDescriptor)) {
+			return null;
+		}
+
 		if (unchangedDescriptors.contains(inputDescriptor)) {
+			TransformerEvents.rulesCacheLookup(TransformerEvents.DESCRIPTOR_CACHE, inputDescriptor, true);
 			return null;
 		}
 
-		String outputDescriptor = changedDescriptors.get(inputDescriptor);
+		String outputDescriptor = ((ruleHits == null) ? changedDescriptors.get(inputDescriptor) : null);
 		if (outputDescriptor != null) {
+			TransformerEvents.rulesCacheLookup(TransformerEvents.DESCRIPTOR_CACHE, inputDescriptor, true);
 			return outputDescriptor;
 		}
 
+		TransformerEvents.rulesCacheLookup(TransformerEvents.DESCRIPTOR_CACHE, inputDescriptor, false);
+
 		char c = inputDescriptor.charAt(0);
 		if (c == '(') {
 			String inputSignature = inputDescriptor.replace('$', '.');
@@ -681,15 +1029,23 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String transform(String input, SignatureType signatureType) {
+		if (!slashedPackageTrie.containsPackage(input)) {
+			return null;
+		}
+
 		if (unchangedSignatures.contains(input)) {
+			TransformerEvents.rulesCacheLookup(TransformerEvents.SIGNATURE_CACHE, input, true);
 			return null;
 		}
 
-		String output = changedSignatures.get(input);
+		String output = ((ruleHits == null) ? changedSignatures.get(input) : null);
 		if (output != null) {
+			TransformerEvents.rulesCacheLookup(TransformerEvents.SIGNATURE_CACHE, input, true);
 			return output;
 		}
 
+		TransformerEvents.rulesCacheLookup(TransformerEvents.SIGNATURE_CACHE, input, false);
+
 		if (signatureType == SignatureType.CLASS) {
 			ClassSignature inputSignature = ClassSignature.of(input);
 			ClassSignature outputSignature = transform(inputSignature);
@@ -19,10 +19,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Map;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.BufferData;
+import org.eclipse.transformer.util.BufferDataOutputStream;
 import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 
@@ -66,17 +70,60 @@ public class TextActionImpl extends ActionImpl {
 
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
+		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputLength);
+
+		if (!transform(inputName, inputStream, outputStream)) {
+			return null;
+		}
+
+		byte[] outputBytes = outputStream.toByteArray();
+		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+	}
+
+	/** Text is transformed as a stream. */
+	@Override
+	public boolean isStreamed() {
+		return true;
+	}
 
+	/**
+	 * Transform buffer data. Text is read and written as a stream, which
+	 * allows the data to be transformed without being held in the java heap.
+	 */
+	@Override
+	public BufferData apply(String inputName, BufferData inputData) throws TransformException {
+		BufferDataOutputStream outputStream = openBufferOutput(inputName); // throws
+																			// TransformException
+		try {
+			if (!transform(inputName, inputData.asStream(), outputStream)) {
+				return null;
+			}
+			return toBufferData(inputName, outputStream); // throws
+															// TransformException
+		} finally {
+			outputStream.dispose();
+		}
+	}
+
+	/**
+	 * Transform text which is read from a stream.
+	 *
+	 * @param inputName The name of the text.
+	 * @param inputStream The stream from which to read the text.
+	 * @param outputStream The stream to which to write the transformed text.
+	 * @return True or false telling if the text was changed. False if the
+	 *         transform failed.
+	 */
+	protected boolean transform(String inputName, InputStream inputStream, OutputStream outputStream) {
 		String outputName = inputName;
 
 		setResourceNames(inputName, outputName);
 
-		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
 		InputStreamReader inputReader = new InputStreamReader(inputStream, UTF_8);
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputBytes.length);
 		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
 
 		BufferedWriter writer = new BufferedWriter(outputWriter);
@@ -85,31 +132,32 @@ public class TextActionImpl extends ActionImpl {
 			transform(inputName, reader, writer); // throws IOException
 		} catch (IOException e) {
 			error("Failed to transform [ {} ]", e, inputName);
-			return null;
+			return false;
 		}
 
 		try {
 			writer.flush(); // throws
 		} catch (IOException e) {
 			error("Failed to flush [ {} ]", e, inputName);
-			return null;
+			return false;
 		}
 
-		if (!hasNonResourceNameChanges()) {
-			return null;
-		}
-
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return hasNonResourceNameChanges();
 	}
 
 	//
 
 	protected void transform(String inputName, BufferedReader reader, BufferedWriter writer) throws IOException {
 
+		Map<String, String> substitutions = getTextSubstitutions(inputName);
+		if (substitutions == null) {
+			throw new IllegalStateException(
+				"Input [ " + inputName + " ] selected for TEXT transformation, but found no substitutions");
+		}
+
 		String inputLine;
 		while ((inputLine = reader.readLine()) != null) {
-			String outputLine = replaceText(inputName, inputLine);
+			String outputLine = replaceText(substitutions, inputLine);
 			if (outputLine == null) {
 				outputLine = inputLine;
 			} else {
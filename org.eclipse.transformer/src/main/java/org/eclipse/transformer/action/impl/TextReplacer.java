@@ -0,0 +1,203 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Replacer of multiple text keys.
+ * <p>
+ * All keys are compiled into a single character trie. Text is scanned once,
+ * from left to right. At each position, the longest key which starts at that
+ * position is replaced, and scanning resumes after the matched key. When no
+ * key starts at a position, the character at that position is retained and
+ * scanning resumes at the next position.
+ * <p>
+ * Consequently, replacements do not overlap, replacement values are never
+ * scanned for keys, and the result does not depend on the order of the
+ * substitutions map.
+ * <p>
+ * Replacers are immutable and may be used concurrently. A single builder is
+ * retained per thread, and text which contains no key is answered without
+ * allocating.
+ */
+public class TextReplacer {
+	/**
+	 * Create a replacer for substitutions. Empty keys are ignored.
+	 *
+	 * @param substitutions Map of keys to replacement values.
+	 */
+	public TextReplacer(Map<String, String> substitutions) {
+		BuildNode buildRoot = new BuildNode();
+		for (Map.Entry<String, String> substitution : substitutions.entrySet()) {
+			String key = substitution.getKey();
+			if (key.isEmpty()) {
+				continue;
+			}
+			BuildNode node = buildRoot;
+			for (int offset = 0; offset < key.length(); offset++) {
+				node = node.children.computeIfAbsent(key.charAt(offset), c -> new BuildNode());
+			}
+			node.key = key;
+			node.value = substitution.getValue();
+		}
+
+		this.root = buildRoot.freeze();
+
+		char minFirst = Character.MAX_VALUE;
+		char maxFirst = Character.MIN_VALUE;
+		for (char c : root.chars) {
+			minFirst = (char) Math.min(minFirst, c);
+			maxFirst = (char) Math.max(maxFirst, c);
+		}
+		this.minFirst = minFirst;
+		this.maxFirst = maxFirst;
+	}
+
+	//
+
+	/** Mutable trie node, used while compiling keys. */
+	private static class BuildNode {
+		final TreeMap<Character, BuildNode>	children	= new TreeMap<>();
+		String								key;
+		String								value;
+
+		Node freeze() {
+			char[] chars = new char[children.size()];
+			Node[] nodes = new Node[children.size()];
+			int childNo = 0;
+			for (Map.Entry<Character, BuildNode> child : children.entrySet()) {
+				chars[childNo] = child.getKey();
+				nodes[childNo] = child.getValue()
+					.freeze();
+				childNo++;
+			}
+			return new Node(chars, nodes, key, value);
+		}
+	}
+
+	/** Immutable trie node. Children are sorted by character. */
+	private static class Node {
+		final char[]	chars;
+		final Node[]	nodes;
+		final String	key;
+		final String	value;
+
+		Node(char[] chars, Node[] nodes, String key, String value) {
+			this.chars = chars;
+			this.nodes = nodes;
+			this.key = key;
+			this.value = value;
+		}
+
+		Node child(char c) {
+			int childNo = Arrays.binarySearch(chars, c);
+			return ((childNo < 0) ? null : nodes[childNo]);
+		}
+	}
+
+	private final Node	root;
+
+	/** Range of the first characters of the keys: Used to skip positions. */
+	private final char	minFirst;
+	private final char	maxFirst;
+
+	private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+	//
+
+	/**
+	 * Replace all keys of text.
+	 *
+	 * @param text The text to update.
+	 * @return The updated text. Null if no key was found.
+	 */
+	public String replace(String text) {
+		return replace(text, null);
+	}
+
+	/**
+	 * Replace all keys of text, telling each replaced key to a consumer.
+	 *
+	 * @param text The text to update.
+	 * @param keyConsumer Consumer of each replaced key. May be null.
+	 * @return The updated text. Null if no key was found.
+	 */
+	public String replace(String text, Consumer<String> keyConsumer) {
+		int textLength = text.length();
+
+		StringBuilder builder = null;
+		int copied = 0; // Text before this offset was handled.
+
+		int offset = 0;
+		while (offset < textLength) {
+			char c = text.charAt(offset);
+			Node node;
+			if ((c < minFirst) || (c > maxFirst) || ((node = root.child(c)) == null)) {
+				offset++;
+				continue;
+			}
+
+			// Find the longest key which starts at the offset.
+
+			Node match = null;
+			int matchEnd = -1;
+			int scan = offset + 1;
+			while (true) {
+				if (node.key != null) {
+					match = node;
+					matchEnd = scan;
+				}
+				if ((scan == textLength) || ((node = node.child(text.charAt(scan))) == null)) {
+					break;
+				}
+				scan++;
+			}
+
+			if (match == null) {
+				offset++;
+				continue;
+			}
+
+			if (builder == null) {
+				builder = BUILDER.get();
+				builder.setLength(0);
+			}
+			builder.append(text, copied, offset);
+			builder.append(match.value);
+			if (keyConsumer != null) {
+				keyConsumer.accept(match.key);
+			}
+			copied = matchEnd;
+			offset = matchEnd;
+		}
+
+		if (builder == null) {
+			return null;
+		}
+		builder.append(text, copied, textLength);
+
+		String newText = builder.toString();
+		if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+			BUILDER.remove();
+		} else {
+			builder.setLength(0);
+		}
+		return newText;
+	}
+
+	/** Builders which grow beyond this capacity are not retained. */
+	public static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+}
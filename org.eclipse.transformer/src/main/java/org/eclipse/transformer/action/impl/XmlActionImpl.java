@@ -22,12 +22,15 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.util.Map;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.BufferData;
+import org.eclipse.transformer.util.BufferDataOutputStream;
 import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 import org.xml.sax.Attributes;
@@ -107,17 +110,69 @@ public class XmlActionImpl extends ActionImpl {
 
 	@SuppressWarnings("unused")
 	public ByteData applyAsPlainText(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
+		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputLength);
+
+		if (!transformAsPlainText(inputName, inputStream, outputStream)) {
+			return null;
+		}
+
+		byte[] outputBytes = outputStream.toByteArray();
+		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+	}
+
+	/** XML is transformed as a stream. */
+	@Override
+	public boolean isStreamed() {
+		return true;
+	}
+
+	/**
+	 * Transform buffer data. XML is read and written as a stream, which allows
+	 * the data to be transformed without being held in the java heap.
+	 */
+	@Override
+	public BufferData apply(String inputName, BufferData inputData) throws TransformException {
+		BufferDataOutputStream outputStream = openBufferOutput(inputName); // throws
+																			// TransformException
+		try {
+			boolean changed;
+			if (XML_AS_PLAIN_TEXT) {
+				changed = transformAsPlainText(inputName, inputData.asStream(), outputStream);
+			} else {
+				setResourceNames(inputName, inputName);
+				transformUsingSaxParser(inputName, inputData.asStream(), outputStream); // throws
+																						// TransformException
+				changed = hasNonResourceNameChanges();
+			}
+			if (!changed) {
+				return null;
+			}
+			return toBufferData(inputName, outputStream); // throws
+															// TransformException
+		} finally {
+			outputStream.dispose();
+		}
+	}
 
+	/**
+	 * Transform XML as plain text.
+	 *
+	 * @param inputName The name of the XML data.
+	 * @param inputStream The stream from which to read the XML data.
+	 * @param outputStream The stream to which to write the transformed data.
+	 * @return True or false telling if the data was changed. False if the
+	 *         transform failed.
+	 */
+	protected boolean transformAsPlainText(String inputName, InputStream inputStream, OutputStream outputStream) {
 		String outputName = inputName;
 
 		setResourceNames(inputName, outputName);
 
-		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
 		InputStreamReader inputReader = new InputStreamReader(inputStream, UTF_8);
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputBytes.length);
 		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
 
 		BufferedWriter writer = new BufferedWriter(outputWriter);
@@ -127,22 +182,17 @@ public class XmlActionImpl extends ActionImpl {
 																// IOException
 		} catch (IOException e) {
 			error("Failed to transform [ {} ]", e, inputName);
-			return null;
+			return false;
 		}
 
 		try {
 			writer.flush(); // throws
 		} catch (IOException e) {
 			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
-
-		if (!hasNonResourceNameChanges()) {
-			return null;
+			return false;
 		}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return hasNonResourceNameChanges();
 	}
 
 	//
@@ -204,9 +254,15 @@ public class XmlActionImpl extends ActionImpl {
 	protected void transformAsPlainText(String inputName, BufferedReader reader, BufferedWriter writer)
 		throws IOException {
 
+		Map<String, String> substitutions = getTextSubstitutions(inputName);
+		if (substitutions == null) {
+			throw new IllegalStateException(
+				"Input [ " + inputName + " ] selected for TEXT transformation, but found no substitutions");
+		}
+
 		String inputLine;
 		while ((inputLine = reader.readLine()) != null) {
-			String outputLine = replaceText(inputName, inputLine);
+			String outputLine = replaceText(substitutions, inputLine);
 			if (outputLine == null) {
 				outputLine = inputLine;
 			} else {
@@ -222,6 +278,7 @@ public class XmlActionImpl extends ActionImpl {
 	public class XMLContentHandler extends DefaultHandler {
 		public XMLContentHandler(String inputName, InputSource inputSource, OutputStream outputStream) {
 			this.inputName = inputName;
+			this.substitutions = getTextSubstitutions(inputName);
 			this.charset = Charset.forName(inputSource.getEncoding());
 			this.publicId = inputSource.getPublicId();
 			this.systemId = inputSource.getSystemId();
@@ -233,7 +290,8 @@ public class XmlActionImpl extends ActionImpl {
 
 		//
 
-		private final String		inputName;
+		private final String				inputName;
+		private final Map<String, String>	substitutions;
 
 		private final String		publicId;
 		private final String		systemId;
@@ -303,12 +361,12 @@ public class XmlActionImpl extends ActionImpl {
 		}
 
 		protected void append(String text) {
-			debug("appending [" + text + "]");
+			debug("appending [ {} ]", text);
 			lineBuilder.append(text);
 		}
 
 		protected void appendLine(String text) {
-			debug("appendline[" + text + "]");
+			debug("appendline [ {} ]", text);
 			lineBuilder.append(text);
 			lineBuilder.append('\n');
 		}
@@ -352,7 +410,7 @@ public class XmlActionImpl extends ActionImpl {
 			append("<?");
 			append(target);
 			if ((data != null) && data.length() > 0) {
-				debug("processingInstruction: data[" + data + "]");
+				debug("processingInstruction: data [ {} ]", data);
 				append(' ');
 				append(data);
 			}
@@ -378,8 +436,10 @@ public class XmlActionImpl extends ActionImpl {
 		@Override
 		public void startElement(String uri, String localName, String qName, Attributes attributes)
 			throws SAXException {
-			debug("startElement: uri[" + uri + "] localName[" + localName + "] qName[" + qName + "] attributes["
-				+ attributes + "]");
+			if (isDebugEnabled()) {
+				debug("startElement: uri [ {} ] localName [ {} ] qName [ {} ] attributes [ {} ]", uri, localName, qName,
+					attributes);
+			}
 			append('<' + localName);
 			append(uri);
 
@@ -388,10 +448,14 @@ public class XmlActionImpl extends ActionImpl {
 				for (int i = 0; i < numberAttributes; i++) {
 					append(' ');
 					append(attributes.getQName(i));
-					debug("startElement: attributes.getQName(" + i + ")[" + attributes.getQName(i) + "]");
+					if (isDebugEnabled()) {
+						debug("startElement: attributes.getQName({}) [ {} ]", i, attributes.getQName(i));
+					}
 					append("=\"");
 					append(attributes.getValue(i));
-					debug("startElement: attributes.getValue(" + i + ")[" + attributes.getValue(i) + "]");
+					if (isDebugEnabled()) {
+						debug("startElement: attributes.getValue({}) [ {} ]", i, attributes.getValue(i));
+					}
 					append('"');
 				}
 			}
@@ -404,7 +468,9 @@ public class XmlActionImpl extends ActionImpl {
 		@SuppressWarnings("unused")
 		@Override
 		public void endElement(String uri, String localName, String qName) throws SAXException {
-			debug("endElement: uri[" + uri + "] localName[" + localName + "] qName[" + qName + "]");
+			if (isDebugEnabled()) {
+				debug("endElement: uri [ {} ] localName [ {} ] qName [ {} ]", uri, localName, qName);
+			}
 			append("</");
 			append(localName + '>');
 		}
@@ -413,15 +479,16 @@ public class XmlActionImpl extends ActionImpl {
 		@Override
 		public void characters(char[] chars, int start, int length) throws SAXException {
 			String initialText = new String(chars, start, length);
-			debug("characters: initialText[" + initialText + "]");
+			debug("characters: initialText [ {} ]", initialText);
 
-			String finalText = XmlActionImpl.this.replaceText(inputName, initialText);
+			String finalText = ((substitutions == null) ? XmlActionImpl.this.replaceText(inputName, initialText)
+				: XmlActionImpl.this.replaceText(substitutions, initialText));
 			if (finalText == null) {
 				finalText = initialText;
 				XmlActionImpl.this.addReplacement();
 			}
 
-			debug("characters:  finalText[" + finalText + "]");
+			debug("characters:  finalText [ {} ]", finalText);
 			append(finalText);
 		}
 
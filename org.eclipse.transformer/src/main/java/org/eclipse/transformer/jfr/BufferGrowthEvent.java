@@ -0,0 +1,34 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrRecorder.EVENT_PREFIX + "BufferGrowth")
+@Label("Read Buffer Growth")
+@Category(JfrRecorder.CATEGORY)
+@Description("Allocation of a larger buffer while reading input data")
+public class BufferGrowthEvent extends jdk.jfr.Event {
+	@Label("Input")
+	public String	input;
+
+	@Label("Old Size")
+	@DataAmount
+	public int		oldSize;
+
+	@Label("New Size")
+	@DataAmount
+	public int		newSize;
+}
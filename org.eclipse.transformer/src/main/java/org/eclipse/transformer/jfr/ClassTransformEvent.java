@@ -0,0 +1,39 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(JfrRecorder.EVENT_PREFIX + "ClassTransform")
+@Label("Class Transform")
+@Category(JfrRecorder.CATEGORY)
+@Description("Transform of one class")
+@StackTrace(false)
+public class ClassTransformEvent extends jdk.jfr.Event {
+	@Label("Resource")
+	public String	resource;
+
+	@Label("Input Class")
+	public String	inputClass;
+
+	@Label("Output Class")
+	public String	outputClass;
+
+	@Label("Modified Constants")
+	public int		modifiedConstants;
+
+	@Label("Changed")
+	public boolean	changed;
+}
@@ -0,0 +1,45 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(JfrRecorder.EVENT_PREFIX + "Entry")
+@Label("Container Entry")
+@Category(JfrRecorder.CATEGORY)
+@Description("Processing of one entry of a container")
+@StackTrace(false)
+public class EntryEvent extends jdk.jfr.Event {
+	@Label("Container")
+	public String	container;
+
+	@Label("Entry")
+	public String	entry;
+
+	@Label("Action")
+	public String	action;
+
+	@Label("Input Size")
+	@DataAmount
+	public long		inputSize;
+
+	@Label("Output Size")
+	@DataAmount
+	public long		outputSize;
+
+	@Label("Changed")
+	public boolean	changed;
+}
@@ -0,0 +1,110 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+package org.eclipse.transformer.jfr;
+
+import org.eclipse.transformer.util.TransformerEvents;
+
+import jdk.jfr.EventType;
+
+/**
+ * Recorder which emits transformer events as JFR events. This class is
+ * loaded reflectively by {@link TransformerEvents}, and only when the JVM
+ * provides the JFR API.
+ * <p>
+ * Each event type is tested before an event is created: No event is created
+ * unless a recording is active and the event type is enabled.
+ */
+public class JfrRecorder implements TransformerEvents.Recorder {
+	public static final String		EVENT_PREFIX			= "org.eclipse.transformer.";
+	public static final String		CATEGORY				= "Eclipse Transformer";
+
+	private static final EventType	ENTRY_TYPE				= EventType.getEventType(EntryEvent.class);
+	private static final EventType	CLASS_TRANSFORM_TYPE	= EventType.getEventType(ClassTransformEvent.class);
+	private static final EventType	RULES_CACHE_TYPE		= EventType.getEventType(RulesCacheEvent.class);
+	private static final EventType	BUFFER_GROWTH_TYPE		= EventType.getEventType(BufferGrowthEvent.class);
+
+	@Override
+	public Object beginEntry() {
+		if (!ENTRY_TYPE.isEnabled()) {
+			return null;
+		}
+		EntryEvent event = new EntryEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitEntry(Object event, String containerName, String entryName, String actionName,
+		long inputLength, long outputLength, boolean changed) {
+
+		EntryEvent entryEvent = (EntryEvent) event;
+		entryEvent.end();
+		if (entryEvent.shouldCommit()) {
+			entryEvent.container = containerName;
+			entryEvent.entry = entryName;
+			entryEvent.action = actionName;
+			entryEvent.inputSize = inputLength;
+			entryEvent.outputSize = outputLength;
+			entryEvent.changed = changed;
+			entryEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginClassTransform() {
+		if (!CLASS_TRANSFORM_TYPE.isEnabled()) {
+			return null;
+		}
+		ClassTransformEvent event = new ClassTransformEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitClassTransform(Object event, String inputName, String inputClassName,
+		String outputClassName, int modifiedConstants, boolean changed) {
+
+		ClassTransformEvent classEvent = (ClassTransformEvent) event;
+		classEvent.end();
+		if (classEvent.shouldCommit()) {
+			classEvent.resource = inputName;
+			classEvent.inputClass = inputClassName;
+			classEvent.outputClass = outputClassName;
+			classEvent.modifiedConstants = modifiedConstants;
+			classEvent.changed = changed;
+			classEvent.commit();
+		}
+	}
+
+	@Override
+	public void rulesCacheLookup(String cacheName, String key, boolean hit) {
+		if (!RULES_CACHE_TYPE.isEnabled()) {
+			return;
+		}
+		RulesCacheEvent event = new RulesCacheEvent();
+		event.cache = cacheName;
+		event.key = key;
+		event.hit = hit;
+		event.commit();
+	}
+
+	@Override
+	public void bufferGrowth(String inputName, int oldLength, int newLength) {
+		if (!BUFFER_GROWTH_TYPE.isEnabled()) {
+			return;
+		}
+		BufferGrowthEvent event = new BufferGrowthEvent();
+		event.input = inputName;
+		event.oldSize = oldLength;
+		event.newSize = newLength;
+		event.commit();
+	}
+}
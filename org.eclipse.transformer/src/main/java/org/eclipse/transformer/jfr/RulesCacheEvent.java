@@ -0,0 +1,39 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Rules cache lookups are very frequent: This event is disabled unless it is
+ * enabled by the recording settings.
+ */
+@Name(JfrRecorder.EVENT_PREFIX + "RulesCacheLookup")
+@Label("Rules Cache Lookup")
+@Category(JfrRecorder.CATEGORY)
+@Description("Lookup of a binary type, descriptor, or signature in the rules cache")
+@StackTrace(false)
+@Enabled(false)
+public class RulesCacheEvent extends jdk.jfr.Event {
+	@Label("Cache")
+	public String	cache;
+
+	@Label("Key")
+	public String	key;
+
+	@Label("Hit")
+	public boolean	hit;
+}
@@ -0,0 +1,189 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Named data held in byte buffers. Unlike {@link ByteData}, the buffers may be
+ * direct or memory mapped buffers, which keep the data off of the java heap,
+ * and the data is held in segments, which allows data which is larger than the
+ * largest java array.
+ */
+public class BufferData {
+	/** Largest segment of a mapped file. */
+	public static final long		MAX_SEGMENT_LENGTH	= 1024L * 1024L * 1024L;
+
+	public final String				name;
+	public final List<ByteBuffer>	segments;
+	public final long				length;
+
+	/**
+	 * Create buffer data.
+	 *
+	 * @param name A name associated with the data.
+	 * @param segments The buffers which hold the data, from their positions to
+	 *            their limits. The buffers are not modified.
+	 */
+	public BufferData(String name, List<ByteBuffer> segments) {
+		this.name = name;
+		this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+
+		long useLength = 0L;
+		for (ByteBuffer segment : segments) {
+			useLength += segment.remaining();
+		}
+		this.length = useLength;
+	}
+
+	public BufferData(String name, ByteBuffer buffer) {
+		this(name, Collections.singletonList(buffer));
+	}
+
+	public BufferData(ByteData byteData) {
+		this(byteData.name, ByteBuffer.wrap(byteData.data, byteData.offset, byteData.length));
+	}
+
+	/**
+	 * Map a file into memory, read only. The file is mapped in segments of at
+	 * most {@link #MAX_SEGMENT_LENGTH} bytes.
+	 *
+	 * @param name A name associated with the data.
+	 * @param path The file which is to be mapped.
+	 * @return Buffer data which holds the mapped file.
+	 * @throws IOException Thrown if the file could not be mapped.
+	 */
+	public static BufferData map(String name, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) { // throws
+																						// IOException
+			long fileLength = channel.size(); // throws IOException
+			List<ByteBuffer> segments = new ArrayList<>((int) (fileLength / MAX_SEGMENT_LENGTH) + 1);
+			for (long position = 0L; position < fileLength; position += MAX_SEGMENT_LENGTH) {
+				long segmentLength = Math.min(MAX_SEGMENT_LENGTH, fileLength - position);
+				segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position, segmentLength)); // throws
+																									// IOException
+			}
+			// The mappings remain valid after the channel is closed.
+			return new BufferData(name, segments);
+		}
+	}
+
+	/**
+	 * Answer a stream over the data. Reading the stream does not change the
+	 * segments.
+	 *
+	 * @return A stream over the data.
+	 */
+	public InputStream asStream() {
+		return new InputStream() {
+			private int			segmentNo	= 0;
+			private ByteBuffer	segment		= nextSegment();
+
+			private ByteBuffer nextSegment() {
+				while (segmentNo < segments.size()) {
+					ByteBuffer next = segments.get(segmentNo++)
+						.duplicate();
+					if (next.hasRemaining()) {
+						return next;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public int read() {
+				if ((segment != null) && !segment.hasRemaining()) {
+					segment = nextSegment();
+				}
+				return ((segment == null) ? -1 : (segment.get() & 0xFF));
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int count) {
+				if (count == 0) {
+					return 0;
+				}
+				if ((segment != null) && !segment.hasRemaining()) {
+					segment = nextSegment();
+				}
+				if (segment == null) {
+					return -1;
+				}
+				int readCount = Math.min(count, segment.remaining());
+				segment.get(bytes, offset, readCount);
+				return readCount;
+			}
+
+			@Override
+			public int available() {
+				return ((segment == null) ? 0 : segment.remaining());
+			}
+		};
+	}
+
+	/**
+	 * Write the data to a channel. Writing to a file channel does not copy the
+	 * data into the java heap.
+	 *
+	 * @param channel The channel to which to write the data.
+	 * @return The count of bytes which were written.
+	 * @throws IOException Thrown if the write fails.
+	 */
+	public long write(WritableByteChannel channel) throws IOException {
+		for (ByteBuffer segment : segments) {
+			ByteBuffer useSegment = segment.duplicate();
+			while (useSegment.hasRemaining()) {
+				channel.write(useSegment); // throws IOException
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Answer the data as byte data, starting at offset zero. The data is copied
+	 * into a new array, unless the data is a single segment which is backed by
+	 * an array, starting at the beginning of the array.
+	 *
+	 * @return The data as byte data.
+	 * @throws IllegalArgumentException Thrown if the data is larger than the
+	 *             largest java array.
+	 */
+	public ByteData toByteData() {
+		if (segments.size() == 1) {
+			ByteBuffer segment = segments.get(0);
+			if (segment.hasArray() && ((segment.arrayOffset() + segment.position()) == 0)) {
+				return new ByteData(name, segment.array(), segment.arrayOffset() + segment.position(),
+					segment.remaining());
+			}
+		}
+
+		byte[] data = new byte[FileUtils.verifyArray(0, length)];
+		int offset = 0;
+		for (ByteBuffer segment : segments) {
+			ByteBuffer useSegment = segment.duplicate();
+			int segmentLength = useSegment.remaining();
+			useSegment.get(data, offset, segmentLength);
+			offset += segmentLength;
+		}
+		return new ByteData(name, data, 0, data.length);
+	}
+}
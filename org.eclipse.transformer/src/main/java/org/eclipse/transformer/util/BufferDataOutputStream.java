@@ -0,0 +1,105 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Output stream which collects data as buffer data. The data is written to a
+ * temporary file, which is mapped into memory when the data is answered: The
+ * data is not held in the java heap, and is not limited to the size of the
+ * largest java array.
+ * <p>
+ * The temporary file is deleted when the data is answered, or when the stream
+ * is disposed. Where a mapped file cannot be deleted, the file is deleted when
+ * the VM exits.
+ */
+public class BufferDataOutputStream extends OutputStream {
+	/**
+	 * Create a buffer data output stream.
+	 *
+	 * @throws IOException Thrown if the temporary file could not be created.
+	 */
+	public BufferDataOutputStream() throws IOException {
+		this.tempPath = Files.createTempFile("transformer", ".data"); // throws
+																		// IOException
+		this.tempStream = new BufferedOutputStream(Files.newOutputStream(tempPath)); // throws
+																					// IOException
+	}
+
+	private final Path		tempPath;
+	private OutputStream	tempStream;
+	private long			length;
+
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		tempStream.write(b); // throws IOException
+		length++;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		tempStream.write(bytes, offset, count); // throws IOException
+		length += count;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		tempStream.flush(); // throws IOException
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (tempStream != null) {
+			tempStream.close(); // throws IOException
+			tempStream = null;
+		}
+	}
+
+	/**
+	 * Close the stream and answer the written data. The temporary file is
+	 * mapped, then deleted.
+	 *
+	 * @param name A name associated with the data.
+	 * @return Buffer data which holds the written data.
+	 * @throws IOException Thrown if the temporary file could not be mapped.
+	 */
+	public BufferData toBufferData(String name) throws IOException {
+		try {
+			close(); // throws IOException
+			return BufferData.map(name, tempPath); // throws IOException
+		} finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * Close the stream and delete the temporary file.
+	 */
+	public void dispose() {
+		try {
+			close(); // throws IOException
+			Files.deleteIfExists(tempPath); // throws IOException
+		} catch (IOException e) {
+			tempPath.toFile()
+				.deleteOnExit();
+		}
+	}
+}
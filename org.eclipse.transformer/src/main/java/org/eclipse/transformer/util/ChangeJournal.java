@@ -0,0 +1,627 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Append-only journal of the entries processed by a transform.
+ * <p>
+ * A record is written for each entry when the processing of the entry
+ * completes, as a line of JSON (JSON lines). Each record gives the path of
+ * the archive which contains the entry, the entry name, the action which
+ * processed the entry, whether the entry changed, the count of replacements,
+ * the input and output byte counts, and the output name, when the entry was
+ * renamed. The path of a nested archive is prefixed by the paths of the
+ * archives which contain it, separated by "!/". Entries which are not in an
+ * archive have an empty archive path.
+ * <p>
+ * Records are formatted by the recording thread and are written through a
+ * single buffered writer. No records are held in memory, which allows the
+ * journal to be used for transforms of any size. Records may be written
+ * concurrently. A failure to write a record stops the journal, and is
+ * reported when the journal is closed.
+ * <p>
+ * Journals are read back one record at a time using {@link #read}. The
+ * {@link #main} method provides a command line query of a journal.
+ */
+public class ChangeJournal implements Closeable {
+	/** Size of the buffer of the journal writer. */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Create a journal which writes to a file. The file is replaced.
+	 *
+	 * @param journalPath The path of the journal file.
+	 * @return The new journal.
+	 * @throws IOException Thrown if the file cannot be opened.
+	 */
+	public static ChangeJournal open(Path journalPath) throws IOException {
+		return new ChangeJournal(Files.newOutputStream(journalPath)); // throws IOException
+	}
+
+	/**
+	 * Create a journal which writes to a stream. The stream is closed when the
+	 * journal is closed.
+	 *
+	 * @param outputStream The stream to which to write the journal.
+	 */
+	public ChangeJournal(OutputStream outputStream) {
+		this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), BUFFER_SIZE);
+	}
+
+	//
+
+	private final Writer							writer;
+	private long									records;
+	private IOException								failure;
+
+	private final ThreadLocal<Deque<String>>		containers	= ThreadLocal.withInitial(ArrayDeque::new);
+	private final ThreadLocal<StringBuilder>		builders	= ThreadLocal
+		.withInitial(() -> new StringBuilder(256));
+
+	/**
+	 * Record the start of the processing of an archive. Entries which are
+	 * recorded by the current thread are recorded against the archive until
+	 * the archive is exited.
+	 *
+	 * @param archivePath The path of the archive, relative to the archive
+	 *            which contains it.
+	 */
+	public void enterContainer(String archivePath) {
+		Deque<String> useContainers = containers.get();
+		String parentPath = useContainers.peek();
+		useContainers.push((parentPath == null) ? archivePath : (parentPath + "!/" + archivePath));
+	}
+
+	/**
+	 * Resume the processing of an archive on the current thread. Used when
+	 * the entries of an archive are processed by tasks of another thread.
+	 *
+	 * @param containerPath The full path of the archive, as answered by
+	 *            {@link #getContainer()}.
+	 */
+	public void resumeContainer(String containerPath) {
+		containers.get()
+			.push(containerPath);
+	}
+
+	/**
+	 * Record the end of the processing of an archive, or the end of a
+	 * resumed archive.
+	 */
+	public void exitContainer() {
+		containers.get()
+			.pop();
+	}
+
+	/**
+	 * Answer the full path of the archive against which entries of the
+	 * current thread are recorded.
+	 *
+	 * @return The path of the current archive. Empty if the current thread is
+	 *         not processing an archive.
+	 */
+	public String getContainer() {
+		String container = containers.get()
+			.peek();
+		return ((container == null) ? "" : container);
+	}
+
+	/**
+	 * Record the completion of an entry.
+	 *
+	 * @param entryName The name of the entry.
+	 * @param actionName The name of the action which processed the entry.
+	 *            Null if the entry was copied without being transformed.
+	 * @param outputName The name of the output entry. Null or the entry name
+	 *            if the entry was not renamed.
+	 * @param changed True or false telling if the entry was changed.
+	 * @param replacements The count of replacements made to the entry. For
+	 *            classes, the count of modified constants.
+	 * @param inputBytes The count of input bytes of the entry.
+	 * @param outputBytes The count of output bytes of the entry.
+	 */
+	public void record(String entryName, String actionName, String outputName, boolean changed, int replacements,
+		long inputBytes, long outputBytes) {
+
+		StringBuilder builder = builders.get();
+		builder.setLength(0);
+		builder.append("{\"container\":");
+		appendString(builder, getContainer());
+		builder.append(",\"entry\":");
+		appendString(builder, entryName);
+		builder.append(",\"action\":");
+		appendString(builder, actionName);
+		builder.append(",\"changed\":")
+			.append(changed)
+			.append(",\"replacements\":")
+			.append(replacements)
+			.append(",\"inputBytes\":")
+			.append(inputBytes)
+			.append(",\"outputBytes\":")
+			.append(outputBytes);
+		if ((outputName != null) && !outputName.equals(entryName)) {
+			builder.append(",\"output\":");
+			appendString(builder, outputName);
+		}
+		builder.append("}\n");
+
+		synchronized (writer) {
+			if (failure != null) {
+				return;
+			}
+			try {
+				writer.append(builder); // throws IOException
+				records++;
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	private static void appendString(StringBuilder builder, String text) {
+		if (text == null) {
+			builder.append("null");
+			return;
+		}
+
+		builder.append('"');
+		for (int charNo = 0; charNo < text.length(); charNo++) {
+			char c = text.charAt(charNo);
+			if ((c == '"') || (c == '\\')) {
+				builder.append('\\')
+					.append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+
+	/**
+	 * Answer the count of records which were written.
+	 *
+	 * @return The count of records which were written.
+	 */
+	public long getRecords() {
+		synchronized (writer) {
+			return records;
+		}
+	}
+
+	/**
+	 * Close the journal, flushing the records which are buffered.
+	 *
+	 * @throws IOException Thrown if a record could not be written, or if the
+	 *             journal could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (writer) {
+			try {
+				writer.close(); // throws IOException
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	//
+
+	/**
+	 * A record of the journal, as read back from a journal file.
+	 */
+	public static class Entry {
+		public String	container;
+		public String	entry;
+		public String	action;
+		public boolean	changed;
+		public int		replacements;
+		public long		inputBytes;
+		public long		outputBytes;
+		public String	output;
+
+		/**
+		 * Answer the full path of the entry.
+		 *
+		 * @return The path of the entry, prefixed by the path of its archive.
+		 */
+		public String getPath() {
+			return (container.isEmpty() ? entry : (container + "!/" + entry));
+		}
+
+		public boolean isRenamed() {
+			return (output != null);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append(getPath());
+			builder.append(" [ ")
+				.append((action == null) ? "Copied" : action)
+				.append(" ]");
+			if (changed) {
+				builder.append(" Changed [ ")
+					.append(replacements)
+					.append(" ]");
+			}
+			if (output != null) {
+				builder.append(" Renamed [ ")
+					.append(output)
+					.append(" ]");
+			}
+			builder.append(" Bytes [ ")
+				.append(inputBytes)
+				.append(" ] [ ")
+				.append(outputBytes)
+				.append(" ]");
+			return builder.toString();
+		}
+
+		/**
+		 * Parse a journal record.
+		 *
+		 * @param line The text of the record.
+		 * @return The parsed record.
+		 * @throws IllegalArgumentException Thrown if the record is not valid.
+		 */
+		public static Entry parse(String line) {
+			Entry entry = new Entry();
+			RecordParser parser = new RecordParser(line);
+			parser.expect('{');
+			if (!parser.accept('}')) {
+				do {
+					String key = parser.parseString();
+					parser.expect(':');
+					Object value = parser.parseValue();
+					if ((value == null) && !key.equals("action") && !key.equals("output")) {
+						throw parser.fail("Null value of [ " + key + " ]");
+					}
+					try {
+						entry.set(key, value);
+					} catch (ClassCastException e) {
+						throw parser.fail("Invalid value of [ " + key + " ]");
+					}
+				} while (parser.accept(','));
+				parser.expect('}');
+			}
+			if ((entry.container == null) || (entry.entry == null)) {
+				throw new IllegalArgumentException("Incomplete journal record [ " + line + " ]");
+			}
+			return entry;
+		}
+
+		private void set(String key, Object value) {
+			switch (key) {
+				case "container":
+					container = (String) value;
+					break;
+				case "entry":
+					entry = (String) value;
+					break;
+				case "action":
+					action = (String) value;
+					break;
+				case "changed":
+					changed = (Boolean) value;
+					break;
+				case "replacements":
+					replacements = ((Long) value).intValue();
+					break;
+				case "inputBytes":
+					inputBytes = (Long) value;
+					break;
+				case "outputBytes":
+					outputBytes = (Long) value;
+					break;
+				case "output":
+					output = (String) value;
+					break;
+				default:
+					// Ignore unknown keys.
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Parser of journal records. Records are flat JSON objects, with string,
+	 * integer, boolean, and null values.
+	 */
+	private static class RecordParser {
+		private final String	text;
+		private int				offset;
+
+		RecordParser(String text) {
+			this.text = text;
+		}
+
+		IllegalArgumentException fail(String reason) {
+			return new IllegalArgumentException(
+				"Invalid journal record [ " + text + " ]: " + reason + " at [ " + offset + " ]");
+		}
+
+		private void skipSpace() {
+			while ((offset < text.length()) && Character.isWhitespace(text.charAt(offset))) {
+				offset++;
+			}
+		}
+
+		boolean accept(char c) {
+			skipSpace();
+			if ((offset < text.length()) && (text.charAt(offset) == c)) {
+				offset++;
+				return true;
+			}
+			return false;
+		}
+
+		void expect(char c) {
+			if (!accept(c)) {
+				throw fail("Expected '" + c + "'");
+			}
+		}
+
+		Object parseValue() {
+			skipSpace();
+			if (offset >= text.length()) {
+				throw fail("Missing value");
+			}
+			char c = text.charAt(offset);
+			if (c == '"') {
+				return parseString();
+			} else if (text.startsWith("null", offset)) {
+				offset += 4;
+				return null;
+			} else if (text.startsWith("true", offset)) {
+				offset += 4;
+				return Boolean.TRUE;
+			} else if (text.startsWith("false", offset)) {
+				offset += 5;
+				return Boolean.FALSE;
+			} else {
+				int start = offset;
+				if (c == '-') {
+					offset++;
+				}
+				while ((offset < text.length()) && Character.isDigit(text.charAt(offset))) {
+					offset++;
+				}
+				try {
+					return Long.valueOf(text.substring(start, offset));
+				} catch (NumberFormatException e) {
+					throw fail("Invalid number");
+				}
+			}
+		}
+
+		String parseString() {
+			expect('"');
+			StringBuilder builder = new StringBuilder();
+			while (true) {
+				if (offset >= text.length()) {
+					throw fail("Unterminated string");
+				}
+				char c = text.charAt(offset++);
+				if (c == '"') {
+					return builder.toString();
+				} else if (c != '\\') {
+					builder.append(c);
+					continue;
+				}
+				if (offset >= text.length()) {
+					throw fail("Unterminated escape");
+				}
+				char escaped = text.charAt(offset++);
+				switch (escaped) {
+					case 'b':
+						builder.append('\b');
+						break;
+					case 'f':
+						builder.append('\f');
+						break;
+					case 'n':
+						builder.append('\n');
+						break;
+					case 'r':
+						builder.append('\r');
+						break;
+					case 't':
+						builder.append('\t');
+						break;
+					case 'u':
+						if (offset + 4 > text.length()) {
+							throw fail("Truncated escape");
+						}
+						try {
+							builder.append((char) Integer.parseInt(text.substring(offset, offset + 4), 16));
+						} catch (NumberFormatException e) {
+							throw fail("Invalid escape");
+						}
+						offset += 4;
+						break;
+					default:
+						builder.append(escaped);
+						break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the records of a journal, one at a time. Records are not held in
+	 * memory.
+	 *
+	 * @param journalPath The path of the journal file.
+	 * @param filter Filter of the records which are to be processed.
+	 * @param consumer The receiver of the records which pass the filter.
+	 * @return The count of records which passed the filter.
+	 * @throws IOException Thrown if the journal could not be read.
+	 * @throws IllegalArgumentException Thrown if a record is not valid.
+	 */
+	public static long read(Path journalPath, Predicate<? super Entry> filter, Consumer<? super Entry> consumer)
+		throws IOException {
+
+		long matched = 0L;
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(Files.newInputStream(journalPath), UTF_8), BUFFER_SIZE)) { // throws IOException
+			String line;
+			while ((line = reader.readLine()) != null) { // throws IOException
+				if (line.isEmpty()) {
+					continue;
+				}
+				Entry entry = Entry.parse(line);
+				if (filter.test(entry)) {
+					consumer.accept(entry);
+					matched++;
+				}
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * Create a record filter from query terms. All terms must match:
+	 * <ul>
+	 * <li>"changed": The entry was changed.</li>
+	 * <li>"unchanged": The entry was not changed.</li>
+	 * <li>"renamed": The entry was renamed.</li>
+	 * <li>"action=name": The entry was processed by the named action. "Copied"
+	 * matches entries which were copied.</li>
+	 * <li>"container=prefix": The path of the archive of the entry starts with
+	 * the prefix.</li>
+	 * <li>"entry=text": The entry name contains the text.</li>
+	 * </ul>
+	 *
+	 * @param terms The query terms.
+	 * @return A filter which matches records which match all of the terms.
+	 * @throws IllegalArgumentException Thrown if a term is not valid.
+	 */
+	public static Predicate<Entry> filter(String... terms) {
+		Predicate<Entry> filter = entry -> true;
+		for (String term : terms) {
+			int equalsOffset = term.indexOf('=');
+			String name = ((equalsOffset == -1) ? term : term.substring(0, equalsOffset));
+			String value = ((equalsOffset == -1) ? null : term.substring(equalsOffset + 1));
+
+			Predicate<Entry> termFilter;
+			if (name.equals("changed") && (value == null)) {
+				termFilter = entry -> entry.changed;
+			} else if (name.equals("unchanged") && (value == null)) {
+				termFilter = entry -> !entry.changed;
+			} else if (name.equals("renamed") && (value == null)) {
+				termFilter = Entry::isRenamed;
+			} else if (name.equals("action") && (value != null)) {
+				termFilter = entry -> value.equals((entry.action == null) ? "Copied" : entry.action);
+			} else if (name.equals("container") && (value != null)) {
+				termFilter = entry -> entry.container.startsWith(value);
+			} else if (name.equals("entry") && (value != null)) {
+				termFilter = entry -> entry.entry.contains(value);
+			} else {
+				throw new IllegalArgumentException("Unknown query term [ " + term + " ]");
+			}
+			filter = filter.and(termFilter);
+		}
+		return filter;
+	}
+
+	/**
+	 * Query a journal from the command line.
+	 * <p>
+	 * Usage: <code>ChangeJournal journalFile [ --summary ] [ term ... ]</code>
+	 * <p>
+	 * The records which match all of the query terms are displayed, one per
+	 * line. See {@link #filter(String...)} for the query terms. When
+	 * "--summary" is specified, the counts of matching entries, changed
+	 * entries, and replacements of each action are displayed instead.
+	 *
+	 * @param args The journal file, options, and query terms.
+	 * @throws IOException Thrown if the journal could not be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		PrintStream out = System.out;
+		if (args.length == 0) {
+			out.println("Usage: ChangeJournal journalFile [ --summary ] [ term ... ]");
+			out.println("Terms: changed unchanged renamed action=name container=prefix entry=text");
+			return;
+		}
+
+		boolean summary = false;
+		int termCount = 0;
+		String[] terms = new String[args.length - 1];
+		for (int argNo = 1; argNo < args.length; argNo++) {
+			if (args[argNo].equals("--summary")) {
+				summary = true;
+			} else {
+				terms[termCount++] = args[argNo];
+			}
+		}
+		String[] useTerms = new String[termCount];
+		System.arraycopy(terms, 0, useTerms, 0, termCount);
+
+		Path journalPath = Paths.get(args[0]);
+		Predicate<Entry> filter = filter(useTerms);
+
+		if (!summary) {
+			long matched = read(journalPath, filter, out::println); // throws IOException
+			out.println("Matched [ " + matched + " ]");
+			return;
+		}
+
+		// Counts of entries, changed entries, and replacements, per action.
+		Map<String, long[]> counts = new TreeMap<>();
+		long matched = read(journalPath, filter, entry -> {
+			long[] actionCounts = counts.computeIfAbsent((entry.action == null) ? "Copied" : entry.action,
+				a -> new long[3]);
+			actionCounts[0]++;
+			if (entry.changed) {
+				actionCounts[1]++;
+			}
+			actionCounts[2] += entry.replacements;
+		}); // throws IOException
+
+		for (Map.Entry<String, long[]> actionCounts : counts.entrySet()) {
+			long[] useCounts = actionCounts.getValue();
+			out.printf("[ %22s ] Entries [ %8d ] Changed [ %8d ] Replacements [ %8d ]%n", actionCounts.getKey(),
+				useCounts[0], useCounts[1], useCounts[2]);
+		}
+		out.println("Matched [ " + matched + " ]");
+	}
+}
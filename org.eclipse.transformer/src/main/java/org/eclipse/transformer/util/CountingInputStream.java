@@ -0,0 +1,61 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream which counts the bytes read through it.
+ */
+public class CountingInputStream extends FilterInputStream {
+	public CountingInputStream(InputStream inputStream) {
+		super(inputStream);
+	}
+
+	private long count;
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		int result = super.read(bytes, offset, length);
+		if (result > 0) {
+			count += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long length) throws IOException {
+		long result = super.skip(length);
+		count += result;
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
@@ -0,0 +1,45 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which counts the bytes written through it.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+	public CountingOutputStream(OutputStream outputStream) {
+		super(outputStream);
+	}
+
+	private long count;
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+
+	// Override to avoid the byte-at-a-time write of 'FilterOutputStream'.
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length);
+		count += length;
+	}
+}
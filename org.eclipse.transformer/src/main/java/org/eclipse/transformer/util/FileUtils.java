@@ -16,6 +16,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import aQute.lib.utf8properties.UTF8Properties;
 
@@ -107,6 +111,9 @@ public class FileUtils {
 			count = verifyArray(0, count);
 
 			if ((buffer == null) || (count > buffer.length)) {
+				if (buffer != null) {
+					TransformerEvents.bufferGrowth(inputName, buffer.length, count);
+				}
 				buffer = new byte[count];
 			}
 
@@ -163,6 +170,8 @@ public class FileUtils {
 				int nextLength = bytesUsed + BUFFER_ADJUSTMENT;
 				bytesRemaining = BUFFER_ADJUSTMENT;
 
+				TransformerEvents.bufferGrowth(inputName, buffer.length, nextLength);
+
 				byte[] nextBuffer = new byte[nextLength];
 				System.arraycopy(buffer, 0, nextBuffer, 0, bytesUsed);
 				buffer = nextBuffer;
@@ -191,6 +200,67 @@ public class FileUtils {
 		return totalBytesRead;
 	}
 
+	/**
+	 * Copy a file, using a file channel transfer, which lets the operating
+	 * system copy the file without moving the file data through the java heap.
+	 * When requested, the output file is created as a hard link to the input
+	 * file, instead of as a copy. A copy is made when a link cannot be created,
+	 * for example, when the files are on different file systems.
+	 * <p>
+	 * An existing output file which is a link to the input file is removed
+	 * before the output file is written, which prevents the truncation of the
+	 * input file.
+	 *
+	 * @param inputPath The file which is to be copied.
+	 * @param outputPath The file which is to be written.
+	 * @param link Control parameter: Create the output file as a hard link to
+	 *            the input file.
+	 * @return The count of bytes of the output file.
+	 * @throws IOException Thrown if the file could not be copied.
+	 */
+	public static long copyFile(Path inputPath, Path outputPath, boolean link) throws IOException {
+		unlink(inputPath, outputPath); // throws IOException
+
+		if (link) {
+			try {
+				Files.deleteIfExists(outputPath); // throws IOException
+				Files.createLink(outputPath, inputPath); // throws IOException
+				return Files.size(outputPath); // throws IOException
+			} catch (IOException | UnsupportedOperationException | SecurityException e) {
+				// Copy the file instead.
+			}
+		}
+
+		try (FileChannel inputChannel = FileChannel.open(inputPath, StandardOpenOption.READ);
+			FileChannel outputChannel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) { // throws IOException
+			long size = inputChannel.size();
+			long position = 0L;
+			while (position < size) {
+				position += inputChannel.transferTo(position, size - position, outputChannel); // throws
+																								// IOException
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Remove an output file which is the same file as an input file, which is
+	 * the case when the output file was created as a hard link to the input
+	 * file. This must be done before writing the output file, since writing
+	 * the output file would otherwise overwrite the input file.
+	 *
+	 * @param inputPath An input file.
+	 * @param outputPath The output file of the input file.
+	 * @throws IOException Thrown if the files could not be compared, or if the
+	 *             output file could not be removed.
+	 */
+	public static void unlink(Path inputPath, Path outputPath) throws IOException {
+		if (Files.exists(outputPath) && Files.isSameFile(inputPath, outputPath)) { // throws IOException
+			Files.delete(outputPath); // throws IOException
+		}
+	}
+
 	//
 
 	public static final char SLASH = '/';
@@ -0,0 +1,406 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aQute.lib.io.IO;
+
+/**
+ * State of an incremental directory transform.
+ * <p>
+ * The state records, for each transformed or copied file, the size,
+ * modification time, and content hash of the input file, the size,
+ * modification time, and content hash of the output file, and whether the
+ * transform changed the file. A single fingerprint of the transformation
+ * rules, the output settings, and the transformer version is recorded for all
+ * files.
+ * <p>
+ * A file is current when its input and the fingerprint are unchanged since the
+ * last transform, and when its output still exists and is unchanged. Sizes and
+ * modification times are compared first. Content hashes are computed only
+ * when sizes match but modification times differ.
+ * <p>
+ * The state is stored as a UTF-8 text file. The first line holds the rules
+ * fingerprint. Each following line holds the tab separated data of one file.
+ * The state is safe for concurrent use by directory workers.
+ */
+public class IncrementalState {
+	public static final String	HASH_ALGORITHM	= "SHA-256";
+
+	public static final String	HEADER_PREFIX	= "# rules ";
+	public static final char	SEPARATOR		= '\t';
+
+	public IncrementalState(File stateFile, String rulesFingerprint) {
+		this.stateFile = stateFile;
+		this.rulesFingerprint = rulesFingerprint;
+
+		this.priorEntries = new ConcurrentHashMap<>();
+		this.entries = new ConcurrentHashMap<>();
+		this.seenPaths = ConcurrentHashMap.newKeySet();
+	}
+
+	//
+
+	private final File		stateFile;
+	private final String	rulesFingerprint;
+
+	public File getStateFile() {
+		return stateFile;
+	}
+
+	public String getRulesFingerprint() {
+		return rulesFingerprint;
+	}
+
+	//
+
+	/** Entries read from the state file. */
+	private final Map<String, Entry>	priorEntries;
+
+	/** Entries of the current transform. */
+	private final Map<String, Entry>	entries;
+
+	public static class Entry {
+		public final String		outputPath;
+
+		public final long		inputLength;
+		public final long		inputModified;
+		public final String		inputHash;
+
+		public final long		outputLength;
+		public final long		outputModified;
+		public final String		outputHash;
+
+		public final boolean	changed;
+
+		public Entry(String outputPath, long inputLength, long inputModified, String inputHash, long outputLength,
+			long outputModified, String outputHash, boolean changed) {
+
+			this.outputPath = outputPath;
+
+			this.inputLength = inputLength;
+			this.inputModified = inputModified;
+			this.inputHash = inputHash;
+
+			this.outputLength = outputLength;
+			this.outputModified = outputModified;
+			this.outputHash = outputHash;
+
+			this.changed = changed;
+		}
+	}
+
+	/** Paths of all files seen by the current transform. */
+	private final Set<String> seenPaths;
+
+	/**
+	 * Mark a file as seen by the current transform. The outputs of files which
+	 * are not seen are removed by {@link #removeMissing()}.
+	 *
+	 * @param inputPath The path of the input file within the input directory.
+	 */
+	public void markSeen(String inputPath) {
+		seenPaths.add(inputPath);
+	}
+
+	public Entry getPriorEntry(String inputPath) {
+		return priorEntries.get(inputPath);
+	}
+
+	public Entry getEntry(String inputPath) {
+		return entries.get(inputPath);
+	}
+
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	//
+
+	/**
+	 * Read the state file. Prior entries are discarded if the state file does
+	 * not exist, or if the rules fingerprint of the state file does not match
+	 * the current rules fingerprint.
+	 *
+	 * @return True or false telling if prior entries were read.
+	 * @throws IOException Thrown if the state file could not be read.
+	 */
+	public boolean load() throws IOException {
+		priorEntries.clear();
+		entries.clear();
+		seenPaths.clear();
+
+		if (!stateFile.isFile()) {
+			return false;
+		}
+
+		try (BufferedReader reader = IO.reader(stateFile, UTF_8)) {
+			String header = reader.readLine(); // throws IOException
+			if ((header == null) || !header.equals(HEADER_PREFIX + rulesFingerprint)) {
+				return false;
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) { // throws IOException
+				List<String> fields = split(line);
+				if (fields.size() != 9) {
+					continue;
+				}
+				try {
+					priorEntries.put(fields.get(0),
+						new Entry(fields.get(1), Long.parseLong(fields.get(2)), Long.parseLong(fields.get(3)),
+							fields.get(4), Long.parseLong(fields.get(5)), Long.parseLong(fields.get(6)), fields.get(7),
+							Boolean.parseBoolean(fields.get(8))));
+				} catch (NumberFormatException e) {
+					// Ignore damaged lines: The file will be transformed.
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Write the entries of the current transform to the state file.
+	 *
+	 * @throws IOException Thrown if the state file could not be written.
+	 */
+	public void store() throws IOException {
+		File parent = stateFile.getAbsoluteFile()
+			.getParentFile();
+		if (parent != null) {
+			IO.mkdirs(parent);
+		}
+
+		try (BufferedWriter writer = Files.newBufferedWriter(stateFile.toPath(), UTF_8)) {
+			writer.write(HEADER_PREFIX + rulesFingerprint);
+			writer.write('\n');
+
+			for (Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet()) {
+				Entry entry = mapEntry.getValue();
+
+				StringBuilder line = new StringBuilder();
+				line.append(mapEntry.getKey())
+					.append(SEPARATOR)
+					.append(entry.outputPath)
+					.append(SEPARATOR)
+					.append(entry.inputLength)
+					.append(SEPARATOR)
+					.append(entry.inputModified)
+					.append(SEPARATOR)
+					.append(entry.inputHash)
+					.append(SEPARATOR)
+					.append(entry.outputLength)
+					.append(SEPARATOR)
+					.append(entry.outputModified)
+					.append(SEPARATOR)
+					.append(entry.outputHash)
+					.append(SEPARATOR)
+					.append(entry.changed);
+
+				writer.write(line.toString());
+				writer.write('\n');
+			}
+		}
+	}
+
+	private static List<String> split(String line) {
+		List<String> fields = new ArrayList<>(9);
+		int start = 0;
+		int end;
+		while ((end = line.indexOf(SEPARATOR, start)) != -1) {
+			fields.add(line.substring(start, end));
+			start = end + 1;
+		}
+		fields.add(line.substring(start));
+		return fields;
+	}
+
+	//
+
+	/**
+	 * Tell if a file is current. If the file is current, carry its prior entry
+	 * into the current entries.
+	 *
+	 * @param inputPath The path of the input file within the input directory.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 * @return The prior entry of the file, if the file is current. Otherwise,
+	 *         null.
+	 * @throws IOException Thrown if a hash could not be computed.
+	 */
+	public Entry checkCurrent(String inputPath, File inputFile, File outputFile) throws IOException {
+		Entry priorEntry = priorEntries.get(inputPath);
+		if (priorEntry == null) {
+			return null;
+		}
+
+		if (!priorEntry.outputPath.equals(outputFile.getAbsolutePath()) || !isCurrent(outputFile, priorEntry.outputLength,
+			priorEntry.outputModified, priorEntry.outputHash)) {
+			return null;
+		}
+
+		if (!isCurrent(inputFile, priorEntry.inputLength, priorEntry.inputModified, priorEntry.inputHash)) {
+			return null;
+		}
+
+		entries.put(inputPath, priorEntry);
+		return priorEntry;
+	}
+
+	private static boolean isCurrent(File file, long length, long modified, String hash) throws IOException {
+		if (!file.isFile() || (file.length() != length)) {
+			return false;
+		} else if (file.lastModified() == modified) {
+			return true;
+		} else {
+			return hash.equals(hash(file));
+		}
+	}
+
+	/**
+	 * Record the transform of a file.
+	 *
+	 * @param inputPath The path of the input file within the input directory.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 * @param changed True or false telling if the transform changed the file.
+	 * @throws IOException Thrown if a hash could not be computed.
+	 */
+	public void record(String inputPath, File inputFile, File outputFile, boolean changed) throws IOException {
+		entries.put(inputPath,
+			new Entry(outputFile.getAbsolutePath(), inputFile.length(), inputFile.lastModified(), hash(inputFile),
+				outputFile.length(), outputFile.lastModified(), hash(outputFile), changed));
+	}
+
+	/**
+	 * Remove the outputs of files which were recorded by the prior transform
+	 * but which were not seen by the current transform.
+	 *
+	 * @return The paths of the files whose outputs were removed.
+	 */
+	public List<String> removeMissing() {
+		List<String> removed = new ArrayList<>();
+		for (Map.Entry<String, Entry> priorEntry : new TreeMap<>(priorEntries).entrySet()) {
+			String inputPath = priorEntry.getKey();
+			if (!seenPaths.contains(inputPath)) {
+				IO.delete(new File(priorEntry.getValue().outputPath));
+				removed.add(inputPath);
+			}
+		}
+		return removed;
+	}
+
+	//
+
+	public static String hash(File file) throws IOException {
+		MessageDigest digest = newDigest();
+
+		byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+		try (InputStream inputStream = IO.stream(file)) {
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) { // throws
+																	// IOException
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Compute a fingerprint of rules data and of output settings. Maps and collections are placed in
+	 * a canonical order before the fingerprint is computed. Other values are
+	 * converted to strings.
+	 *
+	 * @param ruleData The rules data.
+	 * @return A fingerprint of the rules data.
+	 */
+	public static String fingerprint(Object... ruleData) {
+		StringBuilder builder = new StringBuilder();
+		for (Object data : ruleData) {
+			appendCanonical(builder, data);
+			builder.append('\n');
+		}
+
+		return toHex(newDigest().digest(builder.toString()
+			.getBytes(UTF_8)));
+	}
+
+	private static void appendCanonical(StringBuilder builder, Object data) {
+		if (data instanceof Map) {
+			Map<String, Object> sorted = new TreeMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) data).entrySet()) {
+				sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+			}
+			builder.append('{');
+			for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+				builder.append(entry.getKey())
+					.append('=');
+				appendCanonical(builder, entry.getValue());
+				builder.append(';');
+			}
+			builder.append('}');
+
+		} else if (data instanceof Collection) {
+			Map<String, Object> sorted = new TreeMap<>();
+			for (Object element : (Collection<?>) data) {
+				StringBuilder elementBuilder = new StringBuilder();
+				appendCanonical(elementBuilder, element);
+				sorted.put(elementBuilder.toString(), element);
+			}
+			builder.append('[');
+			for (String element : sorted.keySet()) {
+				builder.append(element)
+					.append(';');
+			}
+			builder.append(']');
+
+		} else {
+			builder.append(data);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unavailable digest [ " + HASH_ALGORITHM + " ]", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0x0F, 16))
+				.append(Character.forDigit(b & 0x0F, 16));
+		}
+		return builder.toString();
+	}
+}
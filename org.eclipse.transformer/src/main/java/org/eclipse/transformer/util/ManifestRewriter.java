@@ -0,0 +1,347 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import aQute.lib.io.ByteBufferOutputStream;
+
+/**
+ * Streaming rewriter of manifest bytes.
+ * <p>
+ * Manifest text is processed directly, without parsing the manifest into
+ * attribute maps. Headers are located by scanning for line ends, with
+ * continuation lines (lines which begin with a single space) appended to the
+ * header which they continue. Only the values of selected headers are decoded.
+ * When a selected header is updated, the header is written in the usual
+ * format, with lines of no more than 72 bytes. All other bytes, including the
+ * bytes of all unselected headers and sections, are copied unchanged.
+ * <p>
+ * This is much less expensive than reading and writing a
+ * {@link java.util.jar.Manifest} when a manifest has many per-entry sections,
+ * as do the manifests of signed archives. Unlike a manifest round trip, the
+ * order and format of headers are retained.
+ */
+public class ManifestRewriter {
+	public static final int		MAX_LINE_LENGTH		= 72;
+
+	public static final String	NAME_HEADER			= "Name";
+
+	/**
+	 * Callback for the update of selected headers.
+	 */
+	@FunctionalInterface
+	public interface Updater {
+		/**
+		 * Update the value of a selected header.
+		 *
+		 * @param sectionName The name of the section of the header. Null for
+		 *            the main section.
+		 * @param headerName The name of the header.
+		 * @param value The value of the header.
+		 * @return The updated value of the header. Null if the header is not
+		 *         to be updated.
+		 */
+		String update(String sectionName, String headerName, String value);
+	}
+
+	/**
+	 * Create a rewriter.
+	 *
+	 * @param mainNames Names of headers which are selected in the main
+	 *            section.
+	 * @param entryNames Names of headers which are selected in per-entry
+	 *            sections.
+	 */
+	public ManifestRewriter(Collection<String> mainNames, Collection<String> entryNames) {
+		this.mainNames = toBytes(mainNames);
+		this.entryNames = toBytes(entryNames);
+	}
+
+	private static byte[][] toBytes(Collection<String> names) {
+		byte[][] nameBytes = new byte[names.size()][];
+		int nameNo = 0;
+		for (String name : names) {
+			nameBytes[nameNo++] = name.getBytes(UTF_8);
+		}
+		return nameBytes;
+	}
+
+	private final byte[][]	mainNames;
+	private final byte[][]	entryNames;
+
+	//
+
+	/**
+	 * Read the values of selected headers of the main section.
+	 *
+	 * @param input Manifest bytes.
+	 * @return The values of the selected headers which are present in the main
+	 *         section, keyed by header name.
+	 * @throws IOException Thrown if the manifest is not valid.
+	 */
+	public Map<String, String> readMain(ByteData input) throws IOException {
+		Map<String, String> values = new HashMap<>();
+
+		byte[] bytes = input.data;
+		int limit = input.offset + input.length;
+
+		int pos = input.offset;
+		while (pos < limit) {
+			int lineEnd = lineEnd(bytes, pos, limit);
+			if (lineEnd == pos) {
+				break; // End of the main section
+			}
+			int headerEnd = headerEnd(bytes, lineEnd, limit);
+
+			int nameEnd = nameEnd(bytes, pos, lineEnd);
+			byte[] name = select(mainNames, bytes, pos, nameEnd);
+			if (name != null) {
+				values.put(new String(name, UTF_8), value(bytes, nameEnd, headerEnd));
+			}
+
+			pos = headerEnd;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Rewrite a manifest. Selected headers are presented to the updater.
+	 * Headers which are given new values are rewritten. All other bytes are
+	 * copied unchanged.
+	 *
+	 * @param input Manifest bytes.
+	 * @param updater Updater of selected headers.
+	 * @return The rewritten manifest bytes. Null if no header was updated.
+	 * @throws IOException Thrown if the manifest is not valid.
+	 */
+	public ByteData rewrite(ByteData input, Updater updater) throws IOException {
+		byte[] bytes = input.data;
+		int limit = input.offset + input.length;
+
+		ByteBufferOutputStream output = null;
+		int copied = input.offset; // Bytes before this offset were handled.
+
+		boolean isMain = true;
+		int sectionNameStart = -1; // The "Name" header of the current section.
+		int sectionNameEnd = -1;
+		String sectionName = null;
+
+		int pos = input.offset;
+		while (pos < limit) {
+			int lineEnd = lineEnd(bytes, pos, limit);
+			if (lineEnd == pos) {
+				// A blank line ends the current section.
+				isMain = false;
+				sectionNameStart = -1;
+				sectionName = null;
+				pos = afterLineEnd(bytes, lineEnd, limit);
+				continue;
+			}
+			int headerEnd = headerEnd(bytes, lineEnd, limit);
+
+			int nameEnd = nameEnd(bytes, pos, lineEnd);
+
+			if (!isMain && (sectionNameStart == -1) && matches(NAME_BYTES, bytes, pos, nameEnd)) {
+				sectionNameStart = nameEnd;
+				sectionNameEnd = headerEnd;
+			}
+
+			byte[] name = select((isMain ? mainNames : entryNames), bytes, pos, nameEnd);
+			if (name != null) {
+				if (!isMain && (sectionName == null) && (sectionNameStart != -1)) {
+					sectionName = value(bytes, sectionNameStart, sectionNameEnd);
+				}
+
+				String headerName = new String(name, UTF_8);
+				String value = value(bytes, nameEnd, headerEnd);
+				String newValue = updater.update(sectionName, headerName, value);
+
+				if ((newValue != null) && !newValue.equals(value)) {
+					if (output == null) {
+						output = new ByteBufferOutputStream(input.length + 128);
+					}
+					output.write(bytes, copied, pos - copied);
+					writeHeader(output, headerName, newValue, bytes, lineEnd, limit);
+					copied = headerEnd;
+				}
+			}
+
+			pos = headerEnd;
+		}
+
+		if (output == null) {
+			return null;
+		}
+		output.write(bytes, copied, limit - copied);
+
+		return new ByteData(input.name, output.toByteArray());
+	}
+
+	//
+
+	private static final byte[] NAME_BYTES = NAME_HEADER.getBytes(UTF_8);
+
+	/** Answer the offset of the line terminator of the line at an offset. */
+	private static int lineEnd(byte[] bytes, int pos, int limit) {
+		while ((pos < limit) && (bytes[pos] != '\r') && (bytes[pos] != '\n')) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/** Answer the offset after the line terminator at an offset. */
+	private static int afterLineEnd(byte[] bytes, int lineEnd, int limit) {
+		if (lineEnd == limit) {
+			return limit;
+		} else if ((bytes[lineEnd] == '\r') && ((lineEnd + 1) < limit) && (bytes[lineEnd + 1] == '\n')) {
+			return lineEnd + 2;
+		} else {
+			return lineEnd + 1;
+		}
+	}
+
+	/**
+	 * Answer the end offset of a header, including the terminators of the
+	 * first line and of all continuation lines.
+	 */
+	private static int headerEnd(byte[] bytes, int lineEnd, int limit) {
+		int headerEnd = afterLineEnd(bytes, lineEnd, limit);
+		while ((headerEnd < limit) && (bytes[headerEnd] == ' ')) {
+			headerEnd = afterLineEnd(bytes, lineEnd(bytes, headerEnd, limit), limit);
+		}
+		return headerEnd;
+	}
+
+	/** Answer the offset of the colon which ends the name of a header. */
+	private static int nameEnd(byte[] bytes, int pos, int lineEnd) throws IOException {
+		for (int offset = pos; offset < lineEnd; offset++) {
+			if (bytes[offset] == ':') {
+				return offset;
+			}
+		}
+		throw new IOException(
+			"Invalid manifest header [ " + new String(bytes, pos, lineEnd - pos, UTF_8) + " ]: No name separator");
+	}
+
+	private static byte[] select(byte[][] names, byte[] bytes, int pos, int nameEnd) {
+		for (byte[] name : names) {
+			if (matches(name, bytes, pos, nameEnd)) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	/** Header names are matched ignoring case, as are manifest attribute names. */
+	private static boolean matches(byte[] name, byte[] bytes, int pos, int nameEnd) {
+		if (name.length != (nameEnd - pos)) {
+			return false;
+		}
+		for (int offset = 0; offset < name.length; offset++) {
+			byte b1 = name[offset];
+			byte b2 = bytes[pos + offset];
+			if ((b1 != b2) && (Character.toLowerCase((char) b1) != Character.toLowerCase((char) b2))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decode the value of a header. The value starts after the colon and the
+	 * single space which follow the name of the header. Continuation lines
+	 * are joined, without their leading spaces and line terminators.
+	 */
+	private static String value(byte[] bytes, int nameEnd, int headerEnd) {
+		int valueStart = nameEnd + 1;
+		if ((valueStart < headerEnd) && (bytes[valueStart] == ' ')) {
+			valueStart++;
+		}
+
+		int lineEnd = lineEnd(bytes, valueStart, headerEnd);
+		int nextLine = afterLineEnd(bytes, lineEnd, headerEnd);
+		if (nextLine == headerEnd) {
+			return new String(bytes, valueStart, lineEnd - valueStart, UTF_8);
+		}
+
+		// Join the continuation lines before decoding: Lines may split
+		// multi-byte characters.
+
+		byte[] joined = new byte[headerEnd - valueStart];
+		int joinedLength = 0;
+		int lineStart = valueStart;
+		while (true) {
+			System.arraycopy(bytes, lineStart, joined, joinedLength, lineEnd - lineStart);
+			joinedLength += lineEnd - lineStart;
+			if (nextLine >= headerEnd) {
+				break;
+			}
+			lineStart = nextLine + 1; // Skip the continuation space
+			lineEnd = lineEnd(bytes, lineStart, headerEnd);
+			nextLine = afterLineEnd(bytes, lineEnd, headerEnd);
+		}
+		return new String(joined, 0, joinedLength, UTF_8);
+	}
+
+	/**
+	 * Write a header. Lines are no longer than 72 bytes, and are split only
+	 * between encoded characters. The line terminator of the original header
+	 * is used.
+	 */
+	private static void writeHeader(ByteBufferOutputStream output, String name, String value, byte[] bytes,
+		int lineEnd, int limit) {
+
+		byte[] terminator;
+		int terminatorLength = afterLineEnd(bytes, lineEnd, limit) - lineEnd;
+		if (terminatorLength == 0) {
+			terminator = new byte[0];
+		} else {
+			terminator = new byte[terminatorLength];
+			System.arraycopy(bytes, lineEnd, terminator, 0, terminatorLength);
+		}
+		byte[] lineBreak = (terminatorLength == 0) ? CRLF : terminator;
+
+		byte[] header = (name + ": " + value).getBytes(UTF_8);
+
+		int pos = 0;
+		int lineCapacity = MAX_LINE_LENGTH;
+		while (true) {
+			int end = pos + lineCapacity;
+			if (end >= header.length) {
+				output.write(header, pos, header.length - pos);
+				break;
+			}
+			// Do not split a multi-byte character: Back up over
+			// continuation bytes.
+			while ((end > pos) && ((header[end] & 0xC0) == 0x80)) {
+				end--;
+			}
+			output.write(header, pos, end - pos);
+			output.write(lineBreak, 0, lineBreak.length);
+			output.write(' ');
+			pos = end;
+			lineCapacity = MAX_LINE_LENGTH - 1;
+		}
+		output.write(terminator, 0, terminator.length);
+	}
+
+	private static final byte[] CRLF = {
+		'\r', '\n'
+	};
+}
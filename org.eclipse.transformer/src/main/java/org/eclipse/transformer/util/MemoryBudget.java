@@ -0,0 +1,202 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import java.io.InterruptedIOException;
+
+/**
+ * A run-wide budget of bytes held by in-flight entry buffers.
+ * <p>
+ * Buffers are of two kinds:
+ * <ul>
+ * <li>Entry buffers, which hold an entry while it is transformed and written.
+ * Entry buffers are reserved using {@link #reserve(long)}, which blocks while
+ * the budget is exhausted. An entry buffer is released without waiting on any
+ * other reservation.</li>
+ * <li>Held buffers, which hold data until other work completes, for example,
+ * the output of a nested archive which waits to be written. Held buffers are
+ * reserved using {@link #tryReserve(long)}, which does not block. The holder
+ * spills the data to a temporary file, or streams the data, when the
+ * reservation fails.</li>
+ * </ul>
+ * A blocking reservation waits only while entry buffers are reserved: Held
+ * buffers may wait on work which itself reserves entry buffers, and waiting on
+ * held buffers could deadlock. A reservation which is larger than the budget
+ * is granted when no entry buffers are reserved. Reservations may therefore
+ * exceed the budget by at most one entry.
+ */
+public class MemoryBudget {
+	/**
+	 * Create a memory budget.
+	 *
+	 * @param capacity The count of bytes which may be reserved.
+	 */
+	public MemoryBudget(long capacity) {
+		if (capacity <= 0L) {
+			throw new IllegalArgumentException("Memory budget [ " + capacity + " ] is not positive");
+		}
+		this.capacity = capacity;
+	}
+
+	private final long	capacity;
+
+	private long		reserved;
+	private long		entryReserved;
+	private long		peak;
+	private long		waits;
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getReserved() {
+		return reserved;
+	}
+
+	/**
+	 * Answer the largest count of bytes which was reserved at one time.
+	 *
+	 * @return The peak count of reserved bytes.
+	 */
+	public synchronized long getPeak() {
+		return peak;
+	}
+
+	/**
+	 * Answer the number of reservations which waited for bytes to be released.
+	 *
+	 * @return The number of reservations which waited.
+	 */
+	public synchronized long getWaits() {
+		return waits;
+	}
+
+	/**
+	 * Reserve the bytes of an entry buffer, waiting while the budget is
+	 * exhausted. Release the bytes using {@link #releaseEntry(long)}.
+	 *
+	 * @param bytes The count of bytes to reserve.
+	 * @throws InterruptedIOException Thrown if the wait was interrupted.
+	 */
+	public synchronized void reserve(long bytes) throws InterruptedIOException {
+		if ((entryReserved > 0L) && (reserved + bytes > capacity)) {
+			waits++;
+			do {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+						.interrupt();
+					throw new InterruptedIOException("Interrupted while reserving [ " + bytes + " ] bytes");
+				}
+			} while ((entryReserved > 0L) && (reserved + bytes > capacity));
+		}
+		entryReserved += bytes;
+		add(bytes);
+	}
+
+	/**
+	 * Grow the reservation of an entry buffer, without waiting: The entry was
+	 * admitted by {@link #reserve(long)}, and waiting while the entry holds
+	 * bytes could deadlock. Used for entries of unknown size, which reserve an
+	 * estimate and grow the reservation as the entry is read. Release the
+	 * bytes using {@link #releaseEntry(long)}.
+	 *
+	 * @param bytes The count of bytes to add to the reservation.
+	 */
+	public synchronized void growEntry(long bytes) {
+		entryReserved += bytes;
+		add(bytes);
+	}
+
+	/**
+	 * Release the bytes of an entry buffer.
+	 *
+	 * @param bytes The count of bytes to release.
+	 */
+	public synchronized void releaseEntry(long bytes) {
+		entryReserved -= bytes;
+		reserved -= bytes;
+		notifyAll();
+	}
+
+	/**
+	 * Reserve the bytes of a held buffer, if the bytes are available. Release
+	 * the bytes using {@link #release(long)}.
+	 *
+	 * @param bytes The count of bytes to reserve.
+	 * @return True or false telling if the bytes were reserved.
+	 */
+	public synchronized boolean tryReserve(long bytes) {
+		if (reserved + bytes > capacity) {
+			return false;
+		}
+		add(bytes);
+		return true;
+	}
+
+	/**
+	 * Release the bytes of a held buffer.
+	 *
+	 * @param bytes The count of bytes to release.
+	 */
+	public synchronized void release(long bytes) {
+		reserved -= bytes;
+		notifyAll();
+	}
+
+	private void add(long bytes) {
+		reserved += bytes;
+		if (reserved > peak) {
+			peak = reserved;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "MemoryBudget [ " + capacity + " ] Reserved [ " + reserved + " ] Peak [ " + peak + " ]";
+	}
+
+	/**
+	 * Parse a count of bytes. The count may have a suffix of "K", "M", or "G".
+	 *
+	 * @param text The text to parse.
+	 * @return The parsed count of bytes.
+	 * @throws NumberFormatException Thrown if the text is not a count of
+	 *             bytes.
+	 */
+	public static long parseBytes(String text) {
+		String useText = text.trim();
+		long multiplier = 1L;
+		if (!useText.isEmpty()) {
+			switch (Character.toUpperCase(useText.charAt(useText.length() - 1))) {
+				case 'K' :
+					multiplier = 1024L;
+					break;
+				case 'M' :
+					multiplier = 1024L * 1024L;
+					break;
+				case 'G' :
+					multiplier = 1024L * 1024L * 1024L;
+					break;
+				default :
+					break;
+			}
+			if (multiplier != 1L) {
+				useText = useText.substring(0, useText.length() - 1)
+					.trim();
+			}
+		}
+		return Math.multiplyExact(Long.parseLong(useText), multiplier);
+	}
+}
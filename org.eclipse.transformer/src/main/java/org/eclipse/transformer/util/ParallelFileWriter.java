@@ -0,0 +1,277 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writer of the files of a directory. Files are written using file channels.
+ * When an executor is provided, files which are provided as byte data are
+ * written concurrently, with the bytes held by pending writes limited to a
+ * maximum.
+ * <p>
+ * File names are relative to the root directory of the writer. Names which
+ * resolve outside of the root directory are rejected.
+ */
+public class ParallelFileWriter {
+	/** Time setting: The modification time of a file is not set. */
+	public static final long	NO_TIME	= -1L;
+
+	/**
+	 * Create a writer of the files of a directory.
+	 *
+	 * @param root The directory which is to receive the files.
+	 * @param executor The executor used to write files. Null to write files
+	 *            on the calling thread.
+	 * @param maxPendingBytes The largest count of bytes which may be held by
+	 *            pending writes.
+	 */
+	public ParallelFileWriter(Path root, ExecutorService executor, long maxPendingBytes) {
+		this.root = root.toAbsolutePath()
+			.normalize();
+		this.executor = executor;
+		this.maxPendingBytes = maxPendingBytes;
+	}
+
+	private final Path				root;
+	private final ExecutorService	executor;
+	private final long				maxPendingBytes;
+
+	private final Set<Path>			directories	= new HashSet<>();
+
+	private static final class PendingWrite {
+		final Future<Long>	result;
+		final long			length;
+
+		PendingWrite(Future<Long> result, long length) {
+			this.result = result;
+			this.length = length;
+		}
+	}
+
+	private final Deque<PendingWrite>	pending	= new ArrayDeque<>();
+	private long						pendingBytes;
+
+	private long						writtenBytes;
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Answer the count of bytes which have been written. Bytes of pending
+	 * writes are not included.
+	 *
+	 * @return The count of bytes which have been written.
+	 */
+	public long getWrittenBytes() {
+		return writtenBytes;
+	}
+
+	/**
+	 * Add to the count of written bytes. Used when files are written by
+	 * another writer, for example, when writing a nested directory.
+	 *
+	 * @param count The count of bytes which were written.
+	 */
+	public void addWrittenBytes(long count) {
+		writtenBytes += count;
+	}
+
+	//
+
+	/**
+	 * Resolve a name against the root directory.
+	 *
+	 * @param name The name which is to be resolved.
+	 * @return The resolved path.
+	 * @throws IOException Thrown if the name resolves outside of the root
+	 *             directory.
+	 */
+	public Path resolve(String name) throws IOException {
+		Path path = root.resolve(name)
+			.normalize();
+		if (!path.startsWith(root) || path.equals(root)) {
+			throw new IOException("Name [ " + name + " ] is not within [ " + root + " ]");
+		}
+		return path;
+	}
+
+	private void createParent(Path path) throws IOException {
+		Path parent = path.getParent();
+		if (directories.add(parent)) {
+			Files.createDirectories(parent); // throws IOException
+		}
+	}
+
+	/**
+	 * Create a directory.
+	 *
+	 * @param name The name of the directory.
+	 * @return The path of the directory.
+	 * @throws IOException Thrown if the name is not valid or if the directory
+	 *             could not be created.
+	 */
+	public Path createDirectory(String name) throws IOException {
+		Path path = resolve(name); // throws IOException
+		if (directories.add(path)) {
+			Files.createDirectories(path); // throws IOException
+		}
+		return path;
+	}
+
+	/**
+	 * Write a file. The write is performed using the executor of this writer,
+	 * if an executor was provided. The data must not be modified until
+	 * {@link #await()} is called.
+	 *
+	 * @param name The name of the file.
+	 * @param data The data of the file.
+	 * @param time The modification time of the file. {@link #NO_TIME} to not
+	 *            set the modification time.
+	 * @throws IOException Thrown if the name is not valid, or if the write
+	 *             failed. Failures of writes performed by the executor are
+	 *             thrown by later calls.
+	 */
+	public void write(String name, ByteBuffer data, long time) throws IOException {
+		Path path = resolve(name); // throws IOException
+		createParent(path); // throws IOException
+
+		if (executor == null) {
+			writtenBytes += writeFile(path, data, time); // throws IOException
+			return;
+		}
+
+		long length = data.remaining();
+		pending.addLast(new PendingWrite(executor.submit(() -> writeFile(path, data, time)), length));
+		pendingBytes += length;
+
+		while (pendingBytes > maxPendingBytes) {
+			completeFirst(); // throws IOException
+		}
+	}
+
+	/**
+	 * Open a stream to a file. The file is written on the calling thread.
+	 *
+	 * @param name The name of the file.
+	 * @param time The modification time of the file, which is set when the
+	 *            stream is closed. {@link #NO_TIME} to not set the
+	 *            modification time.
+	 * @return A stream to the file.
+	 * @throws IOException Thrown if the name is not valid or if the file
+	 *             could not be opened.
+	 */
+	public OutputStream openStream(String name, long time) throws IOException {
+		Path path = resolve(name); // throws IOException
+		createParent(path); // throws IOException
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING); // throws IOException
+
+		OutputStream bufferedStream = new BufferedOutputStream(Channels.newOutputStream(channel),
+			FileUtils.BUFFER_ADJUSTMENT);
+
+		return new CountingOutputStream(bufferedStream) {
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				super.close(); // throws IOException
+				if (time != NO_TIME) {
+					Files.setLastModifiedTime(path, FileTime.fromMillis(time)); // throws
+																				// IOException
+				}
+				writtenBytes += getCount();
+			}
+		};
+	}
+
+	/**
+	 * Wait for all pending writes to complete.
+	 *
+	 * @throws IOException Thrown if any of the pending writes failed. The
+	 *             first failure is thrown, after all writes have completed.
+	 */
+	public void await() throws IOException {
+		IOException failure = null;
+		while (!pending.isEmpty()) {
+			try {
+				completeFirst(); // throws IOException
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void completeFirst() throws IOException {
+		PendingWrite write = pending.removeFirst();
+		pendingBytes -= write.length;
+		try {
+			writtenBytes += write.result.get(); // throws InterruptedException,
+												// ExecutionException
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException("Interrupted while writing");
+			interrupted.initCause(e);
+			throw interrupted;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Failed to write", cause);
+		}
+	}
+
+	static long writeFile(Path path, ByteBuffer data, long time) throws IOException {
+		long length = data.remaining();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) { // throws IOException
+			while (data.hasRemaining()) {
+				channel.write(data); // throws IOException
+			}
+		}
+		if (time != NO_TIME) {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(time)); // throws
+																		// IOException
+		}
+		return length;
+	}
+}
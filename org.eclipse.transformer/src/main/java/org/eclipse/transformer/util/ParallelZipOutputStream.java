@@ -0,0 +1,780 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip output stream which deflates entry data using an executor.
+ * <p>
+ * Entry data is divided into blocks, which are deflated concurrently, both
+ * across entries and within large entries. Each block after the first of an
+ * entry is deflated using the tail of the preceding block as a dictionary, and
+ * all blocks but the last of an entry end with a sync flush, so that the
+ * deflated blocks of an entry join into a single deflate stream. Deflated
+ * blocks are written in order by the thread which writes to this stream. The
+ * output depends only on the written data, the block size, and the
+ * compression level, and does not depend on the scheduling of the blocks.
+ * <p>
+ * As with {@link ZipOutputStream}, deflated entries are written with a data
+ * descriptor, and stored entries must be given their size and CRC before the
+ * entry is put. Unlike {@link ZipOutputStream}, the extra data of entries is
+ * written as given: No extended timestamp field is added for the modification
+ * time of an entry. Entry names and the archive comment are written using
+ * UTF-8.
+ */
+public class ParallelZipOutputStream extends ZipOutputStream {
+	/** Size of the blocks which are deflated concurrently. */
+	public static final int		BLOCK_SIZE			= 128 * 1024;
+
+	/** Largest dictionary used by deflate. */
+	public static final int		DICTIONARY_SIZE		= 32 * 1024;
+
+	/** Initial block size. Blocks grow to {@link #BLOCK_SIZE}. */
+	private static final int	INITIAL_BLOCK_SIZE	= 8 * 1024;
+
+	private static final long	LOCSIG				= 0x04034b50L;
+	private static final long	EXTSIG				= 0x08074b50L;
+	private static final long	CENSIG				= 0x02014b50L;
+	private static final long	ENDSIG				= 0x06054b50L;
+	private static final long	ZIP64_ENDSIG		= 0x06064b50L;
+	private static final long	ZIP64_LOCSIG		= 0x07064b50L;
+
+	private static final long	ZIP64_MAGIC			= 0xFFFFFFFFL;
+	private static final int	ZIP64_MAGIC_COUNT	= 0xFFFF;
+	private static final int	ZIP64_EXTID			= 0x0001;
+
+	private static final int	FLAG_DESCRIPTOR		= 0x0008;
+	private static final int	FLAG_UTF8			= 0x0800;
+
+	/**
+	 * Create a parallel zip output stream which uses the default compression
+	 * level, and which limits the count of pending blocks to four times the
+	 * count of available processors.
+	 *
+	 * @param outputStream The stream to which to write the archive.
+	 * @param executor The executor used to deflate blocks.
+	 */
+	public ParallelZipOutputStream(OutputStream outputStream, ExecutorService executor) {
+		this(outputStream, executor, Deflater.DEFAULT_COMPRESSION, 4 * Runtime.getRuntime()
+			.availableProcessors());
+	}
+
+	/**
+	 * Create a parallel zip output stream.
+	 *
+	 * @param outputStream The stream to which to write the archive.
+	 * @param executor The executor used to deflate blocks.
+	 * @param level The compression level.
+	 * @param maxPending The largest count of blocks which may be pending
+	 *            before a write waits for a block to be written.
+	 */
+	public ParallelZipOutputStream(OutputStream outputStream, ExecutorService executor, int level,
+		int maxPending) {
+		super(outputStream);
+
+		this.executor = executor;
+		setLevel(level);
+		this.maxPending = Math.max(1, maxPending);
+	}
+
+	private final ExecutorService	executor;
+	private final int				maxPending;
+
+	private int						level;
+	private int						defaultMethod	= DEFLATED;
+	private byte[]					comment			= new byte[0];
+
+	@Override
+	public void setLevel(int level) {
+		if ((level < Deflater.DEFAULT_COMPRESSION) || (level > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException("invalid compression level");
+		}
+		this.level = level;
+	}
+
+	@Override
+	public void setMethod(int method) {
+		if ((method != DEFLATED) && (method != STORED)) {
+			throw new IllegalArgumentException("invalid compression method");
+		}
+		this.defaultMethod = method;
+	}
+
+	@Override
+	public void setComment(String comment) {
+		if (comment == null) {
+			this.comment = new byte[0];
+		} else {
+			byte[] commentBytes = comment.getBytes(UTF_8);
+			if (commentBytes.length > 0xFFFF) {
+				throw new IllegalArgumentException("ZIP file comment too long.");
+			}
+			this.comment = commentBytes;
+		}
+	}
+
+	//
+
+	/** Data of an entry which is needed for the central directory. */
+	private static final class EntryRecord {
+		final byte[]	name;
+		final byte[]	extra;
+		final int		method;
+		final int		flag;
+		final long		dosTime;
+
+		long			crc;
+		long			size;
+		long			compressedSize;
+		long			offset;
+
+		EntryRecord(byte[] name, byte[] extra, int method, int flag, long dosTime) {
+			this.name = name;
+			this.extra = extra;
+			this.method = method;
+			this.flag = flag;
+			this.dosTime = dosTime;
+		}
+	}
+
+	/**
+	 * A pending write: The local header of an entry, a block of entry data, or
+	 * the end of an entry. Only data chunks are deflated concurrently.
+	 */
+	private static final class Chunk {
+		static final int				HEADER	= 0;
+		static final int				DATA	= 1;
+		static final int				END		= 2;
+
+		final EntryRecord				entry;
+		final int						kind;
+		final Future<ByteBuffer>	block;
+
+		Chunk(EntryRecord entry, int kind, Future<ByteBuffer> block) {
+			this.entry = entry;
+			this.kind = kind;
+			this.block = block;
+		}
+	}
+
+	private final Deque<Chunk>			pending		= new ArrayDeque<>();
+	private int							pendingBlocks;
+
+	private final List<EntryRecord>	entries		= new ArrayList<>();
+	private final Set<String>			names		= new HashSet<>();
+
+	private long						written;
+	private final byte[]				scratch		= new byte[8];
+
+	private EntryRecord					current;
+	private long						currentSize;
+	private final CRC32					currentCRC	= new CRC32();
+
+	private byte[]						block;
+	private int							blockLength;
+	private byte[]						previousBlock;
+	private int							previousLength;
+
+	private boolean						finished;
+	private boolean						closed;
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	//
+
+	@Override
+	public void putNextEntry(ZipEntry entry) throws IOException {
+		ensureOpen();
+		if (current != null) {
+			closeEntry(); // throws IOException
+		}
+
+		String name = entry.getName();
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+		byte[] nameBytes = name.getBytes(UTF_8);
+		if (nameBytes.length > 0xFFFF) {
+			throw new ZipException("name too long: " + name);
+		}
+
+		long time = entry.getTime();
+		if (time == -1L) {
+			time = System.currentTimeMillis();
+		}
+
+		byte[] extra = removeZip64(entry.getExtra());
+
+		int method = entry.getMethod();
+		if (method == -1) {
+			method = defaultMethod;
+		}
+
+		EntryRecord record;
+		if (method == STORED) {
+			long size = entry.getSize();
+			long compressedSize = entry.getCompressedSize();
+			if (size == -1L) {
+				size = compressedSize;
+			} else if ((compressedSize != -1L) && (compressedSize != size)) {
+				throw new ZipException("STORED entry where compressed != uncompressed size");
+			}
+			if ((size == -1L) || (entry.getCrc() == -1L)) {
+				throw new ZipException("STORED entry missing size, compressed size, or crc-32");
+			}
+			record = new EntryRecord(nameBytes, extra, STORED, FLAG_UTF8, dosTime(time));
+			record.crc = entry.getCrc();
+			record.size = size;
+			record.compressedSize = size;
+		} else if (method == DEFLATED) {
+			record = new EntryRecord(nameBytes, extra, DEFLATED, FLAG_UTF8 | FLAG_DESCRIPTOR, dosTime(time));
+		} else {
+			throw new ZipException("unsupported compression method");
+		}
+
+		current = record;
+		currentSize = 0L;
+		currentCRC.reset();
+
+		add(new Chunk(record, Chunk.HEADER, null)); // throws IOException
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		ensureOpen();
+		if ((offset < 0) || (length < 0) || (offset > bytes.length - length)) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (current == null) {
+			throw new ZipException("no current ZIP entry");
+		}
+		if (length == 0) {
+			return;
+		}
+
+		currentCRC.update(bytes, offset, length);
+		currentSize += length;
+
+		if (current.method == STORED) {
+			// Stored data is written directly, which requires that all
+			// pending writes be completed.
+			drain(true); // throws IOException
+			writeBytes(bytes, offset, length); // throws IOException
+			return;
+		}
+
+		while (length > 0) {
+			if (block == null) {
+				block = new byte[(previousBlock == null) ? INITIAL_BLOCK_SIZE : BLOCK_SIZE];
+			} else if (blockLength == block.length) {
+				if (block.length < BLOCK_SIZE) {
+					block = Arrays.copyOf(block, Math.min(BLOCK_SIZE, block.length * 2));
+				} else {
+					submitBlock(false); // throws IOException
+					continue;
+				}
+			}
+			int copyLength = Math.min(length, block.length - blockLength);
+			System.arraycopy(bytes, offset, block, blockLength, copyLength);
+			blockLength += copyLength;
+			offset += copyLength;
+			length -= copyLength;
+		}
+	}
+
+	@Override
+	public void closeEntry() throws IOException {
+		ensureOpen();
+
+		EntryRecord record = current;
+		if (record == null) {
+			return;
+		}
+
+		if (record.method == DEFLATED) {
+			record.crc = currentCRC.getValue();
+			record.size = currentSize;
+
+			submitBlock(true); // throws IOException
+			previousBlock = null;
+			previousLength = 0;
+
+		} else {
+			if (currentSize != record.size) {
+				throw new ZipException(
+					"invalid entry size (expected " + record.size + " but got " + currentSize + " bytes)");
+			}
+			if (currentCRC.getValue() != record.crc) {
+				throw new ZipException("invalid entry crc-32 (expected 0x" + Long.toHexString(record.crc)
+					+ " but got 0x" + Long.toHexString(currentCRC.getValue()) + ")");
+			}
+		}
+
+		current = null;
+		add(new Chunk(record, Chunk.END, null)); // throws IOException
+	}
+
+	@Override
+	public void finish() throws IOException {
+		ensureOpen();
+		if (finished) {
+			return;
+		}
+		if (current != null) {
+			closeEntry(); // throws IOException
+		}
+		drain(true); // throws IOException
+
+		writeCentral(); // throws IOException
+		finished = true;
+
+		// The deflater of the superclass is never used.
+		def.end();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		out.flush(); // throws IOException
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			finish(); // throws IOException
+		} finally {
+			closed = true;
+			out.close(); // throws IOException
+		}
+	}
+
+	//
+
+	private void submitBlock(boolean last) throws IOException {
+		byte[] data = (block == null) ? new byte[0] : block;
+		int length = blockLength;
+		byte[] dictionary = previousBlock;
+		int dictionaryLength = previousLength;
+		int useLevel = level;
+
+		Future<ByteBuffer> deflated = executor
+			.submit(() -> deflate(useLevel, dictionary, dictionaryLength, data, length, last));
+
+		previousBlock = data;
+		previousLength = length;
+		block = null;
+		blockLength = 0;
+
+		pendingBlocks++;
+		add(new Chunk(current, Chunk.DATA, deflated)); // throws IOException
+	}
+
+	private static final ThreadLocal<Deflater[]> deflaters = ThreadLocal
+		.withInitial(() -> new Deflater[Deflater.BEST_COMPRESSION + 2]);
+
+	/**
+	 * Deflate a block of entry data.
+	 *
+	 * @param level The compression level.
+	 * @param dictionary The preceding block of the entry. Null for the first
+	 *            block of an entry.
+	 * @param dictionaryLength The length of the preceding block.
+	 * @param data The block data.
+	 * @param length The length of the block data.
+	 * @param last True or false telling if this is the last block of the
+	 *            entry.
+	 * @return The deflated block.
+	 */
+	static ByteBuffer deflate(int level, byte[] dictionary, int dictionaryLength, byte[] data, int length,
+		boolean last) {
+
+		// Deflaters are kept per level: Changing the level of a deflater
+		// which has a dictionary may flush an empty block.
+		Deflater[] levelDeflaters = deflaters.get();
+		Deflater deflater = levelDeflaters[level + 1];
+		if (deflater == null) {
+			deflater = new Deflater(level, true);
+			levelDeflaters[level + 1] = deflater;
+		} else {
+			deflater.reset();
+		}
+
+		if (dictionaryLength > 0) {
+			int useLength = Math.min(DICTIONARY_SIZE, dictionaryLength);
+			deflater.setDictionary(dictionary, dictionaryLength - useLength, useLength);
+		}
+		deflater.setInput(data, 0, length);
+		if (last) {
+			deflater.finish();
+		}
+
+		byte[] output = new byte[Math.max(64, length / 2)];
+		int outputLength = 0;
+		while (true) {
+			if (outputLength == output.length) {
+				output = Arrays.copyOf(output, output.length * 2);
+			}
+			int available = output.length - outputLength;
+			if (last) {
+				outputLength += deflater.deflate(output, outputLength, available);
+				if (deflater.finished()) {
+					break;
+				}
+			} else {
+				int deflatedLength = deflater.deflate(output, outputLength, available, Deflater.SYNC_FLUSH);
+				outputLength += deflatedLength;
+				// The flush is complete when the output is not filled.
+				if (deflatedLength < available) {
+					break;
+				}
+			}
+		}
+
+		return ByteBuffer.wrap(output, 0, outputLength);
+	}
+
+	//
+
+	private void add(Chunk chunk) throws IOException {
+		if (pending.isEmpty() && (chunk.block == null)) {
+			writeChunk(chunk); // throws IOException
+		} else {
+			pending.addLast(chunk);
+			drain(false); // throws IOException
+		}
+	}
+
+	/**
+	 * Write pending chunks, in order. Stop at the first chunk which is not yet
+	 * deflated, unless all chunks are to be written or too many blocks are
+	 * pending.
+	 *
+	 * @param all True or false telling if all pending chunks are to be
+	 *            written.
+	 * @throws IOException Thrown if a write fails, or if a block failed to be
+	 *             deflated.
+	 */
+	private void drain(boolean all) throws IOException {
+		Chunk chunk;
+		while ((chunk = pending.peekFirst()) != null) {
+			if (!all && (pendingBlocks <= maxPending) && (chunk.block != null) && !chunk.block.isDone()) {
+				return;
+			}
+			pending.removeFirst();
+			writeChunk(chunk); // throws IOException
+		}
+	}
+
+	private void writeChunk(Chunk chunk) throws IOException {
+		EntryRecord record = chunk.entry;
+		switch (chunk.kind) {
+			case Chunk.HEADER :
+				record.offset = written;
+				writeLocal(record); // throws IOException
+				break;
+
+			case Chunk.DATA :
+				ByteBuffer deflated = getBlock(chunk.block); // throws
+																// IOException
+				pendingBlocks--;
+				int length = deflated.remaining();
+				writeBytes(deflated.array(), deflated.arrayOffset() + deflated.position(), length); // throws
+																									// IOException
+				record.compressedSize += length;
+				break;
+
+			case Chunk.END :
+				if (record.method == DEFLATED) {
+					writeDescriptor(record); // throws IOException
+				}
+				entries.add(record);
+				break;
+
+			default :
+				throw new IllegalStateException("Unknown chunk kind [ " + chunk.kind + " ]");
+		}
+	}
+
+	private static ByteBuffer getBlock(Future<ByteBuffer> block) throws IOException {
+		try {
+			return block.get(); // throws InterruptedException, ExecutionException
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException("Interrupted while deflating");
+			interrupted.initCause(e);
+			throw interrupted;
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to deflate", e.getCause());
+		}
+	}
+
+	//
+
+	private static int version(EntryRecord record, boolean zip64) {
+		if (zip64) {
+			return 45;
+		}
+		return (record.method == DEFLATED) ? 20 : 10;
+	}
+
+	private void writeLocal(EntryRecord record) throws IOException {
+		boolean zip64 = (record.method == STORED) && (record.size >= ZIP64_MAGIC);
+
+		writeInt(LOCSIG);
+		writeShort(version(record, zip64));
+		writeShort(record.flag);
+		writeShort(record.method);
+		writeInt(record.dosTime);
+		if (record.method == DEFLATED) {
+			// The CRC and sizes are written in the data descriptor.
+			writeInt(0L);
+			writeInt(0L);
+			writeInt(0L);
+		} else {
+			writeInt(record.crc);
+			if (zip64) {
+				writeInt(ZIP64_MAGIC);
+				writeInt(ZIP64_MAGIC);
+			} else {
+				writeInt(record.compressedSize);
+				writeInt(record.size);
+			}
+		}
+		writeShort(record.name.length);
+		writeShort(record.extra.length + (zip64 ? 20 : 0));
+		writeBytes(record.name, 0, record.name.length);
+		if (zip64) {
+			writeShort(ZIP64_EXTID);
+			writeShort(16);
+			writeLong(record.size);
+			writeLong(record.compressedSize);
+		}
+		writeBytes(record.extra, 0, record.extra.length);
+	}
+
+	private void writeDescriptor(EntryRecord record) throws IOException {
+		writeInt(EXTSIG);
+		writeInt(record.crc);
+		if ((record.compressedSize >= ZIP64_MAGIC) || (record.size >= ZIP64_MAGIC)) {
+			writeLong(record.compressedSize);
+			writeLong(record.size);
+		} else {
+			writeInt(record.compressedSize);
+			writeInt(record.size);
+		}
+	}
+
+	private void writeCentral() throws IOException {
+		long centralOffset = written;
+		for (EntryRecord record : entries) {
+			writeCentral(record);
+		}
+		long centralLength = written - centralOffset;
+		int count = entries.size();
+
+		boolean zip64 = (count >= ZIP64_MAGIC_COUNT) || (centralOffset >= ZIP64_MAGIC)
+			|| (centralLength >= ZIP64_MAGIC);
+		if (zip64) {
+			long zip64Offset = written;
+
+			writeInt(ZIP64_ENDSIG);
+			writeLong(44L);
+			writeShort(45);
+			writeShort(45);
+			writeInt(0L);
+			writeInt(0L);
+			writeLong(count);
+			writeLong(count);
+			writeLong(centralLength);
+			writeLong(centralOffset);
+
+			writeInt(ZIP64_LOCSIG);
+			writeInt(0L);
+			writeLong(zip64Offset);
+			writeInt(1L);
+		}
+
+		writeInt(ENDSIG);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeInt(Math.min(centralLength, ZIP64_MAGIC));
+		writeInt(Math.min(centralOffset, ZIP64_MAGIC));
+		writeShort(comment.length);
+		writeBytes(comment, 0, comment.length);
+	}
+
+	private void writeCentral(EntryRecord record) throws IOException {
+		int zip64Length = 0;
+		if (record.size >= ZIP64_MAGIC) {
+			zip64Length += 8;
+		}
+		if (record.compressedSize >= ZIP64_MAGIC) {
+			zip64Length += 8;
+		}
+		if (record.offset >= ZIP64_MAGIC) {
+			zip64Length += 8;
+		}
+		boolean zip64 = (zip64Length > 0);
+		int version = version(record, zip64);
+
+		writeInt(CENSIG);
+		writeShort(version); // Version made by
+		writeShort(version); // Version needed
+		writeShort(record.flag);
+		writeShort(record.method);
+		writeInt(record.dosTime);
+		writeInt(record.crc);
+		writeInt(Math.min(record.compressedSize, ZIP64_MAGIC));
+		writeInt(Math.min(record.size, ZIP64_MAGIC));
+		writeShort(record.name.length);
+		writeShort(record.extra.length + (zip64 ? 4 + zip64Length : 0));
+		writeShort(0); // Comment length
+		writeShort(0); // Disk number
+		writeShort(0); // Internal attributes
+		writeInt(0L); // External attributes
+		writeInt(Math.min(record.offset, ZIP64_MAGIC));
+		writeBytes(record.name, 0, record.name.length);
+		if (zip64) {
+			writeShort(ZIP64_EXTID);
+			writeShort(zip64Length);
+			if (record.size >= ZIP64_MAGIC) {
+				writeLong(record.size);
+			}
+			if (record.compressedSize >= ZIP64_MAGIC) {
+				writeLong(record.compressedSize);
+			}
+			if (record.offset >= ZIP64_MAGIC) {
+				writeLong(record.offset);
+			}
+		}
+		writeBytes(record.extra, 0, record.extra.length);
+	}
+
+	//
+
+	private void writeShort(int value) throws IOException {
+		scratch[0] = (byte) value;
+		scratch[1] = (byte) (value >>> 8);
+		writeBytes(scratch, 0, 2);
+	}
+
+	private void writeInt(long value) throws IOException {
+		for (int byteNo = 0; byteNo < 4; byteNo++) {
+			scratch[byteNo] = (byte) (value >>> (byteNo * 8));
+		}
+		writeBytes(scratch, 0, 4);
+	}
+
+	private void writeLong(long value) throws IOException {
+		for (int byteNo = 0; byteNo < 8; byteNo++) {
+			scratch[byteNo] = (byte) (value >>> (byteNo * 8));
+		}
+		writeBytes(scratch, 0, 8);
+	}
+
+	private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length); // throws IOException
+		written += length;
+	}
+
+	//
+
+	/**
+	 * Convert a java time to a DOS time, using the default time zone, as is
+	 * done by {@link ZipEntry}.
+	 *
+	 * @param time A java time, in milliseconds since the epoch.
+	 * @return The DOS time.
+	 */
+	static long dosTime(long time) {
+		LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+		int year = dateTime.getYear();
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16); // 1980-01-01T00:00:00
+		} else if (year > 2107) {
+			year = 2107;
+		}
+		return (((long) (year - 1980) << 25) | (dateTime.getMonthValue() << 21) | (dateTime.getDayOfMonth() << 16)
+			| (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1)) & ZIP64_MAGIC;
+	}
+
+	/**
+	 * Remove ZIP64 fields from extra data. ZIP64 fields are written as needed
+	 * by this stream.
+	 *
+	 * @param extra Extra data. May be null.
+	 * @return The extra data without ZIP64 fields. An empty array if the
+	 *         extra data is null. The extra data is returned unchanged if it
+	 *         is not well formed.
+	 */
+	static byte[] removeZip64(byte[] extra) {
+		if (extra == null) {
+			return new byte[0];
+		}
+
+		byte[] kept = new byte[extra.length];
+		int keptLength = 0;
+
+		int offset = 0;
+		while (offset + 4 <= extra.length) {
+			int id = (extra[offset] & 0xFF) | ((extra[offset + 1] & 0xFF) << 8);
+			int size = (extra[offset + 2] & 0xFF) | ((extra[offset + 3] & 0xFF) << 8);
+			int next = offset + 4 + size;
+			if (next > extra.length) {
+				return extra;
+			}
+			if (id != ZIP64_EXTID) {
+				System.arraycopy(extra, offset, kept, keptLength, next - offset);
+				keptLength += next - offset;
+			}
+			offset = next;
+		}
+		if (offset != extra.length) {
+			return extra;
+		}
+		return (keptLength == extra.length) ? extra : Arrays.copyOf(kept, keptLength);
+	}
+}
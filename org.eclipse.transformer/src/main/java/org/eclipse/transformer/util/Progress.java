@@ -0,0 +1,280 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Progress of a transform, which is reported periodically to a sink.
+ * <p>
+ * Progress counts the entries which have been processed, including the
+ * entries of nested archives, and the bytes of the input which have been
+ * read. The bytes are read from the outermost archive, when the input is an
+ * archive, and are otherwise the sum of the lengths of the processed
+ * entries which are not within an archive: The bytes of an archive are
+ * counted once, as the length of the archive. An estimate of the time
+ * remaining is available when the length of the outermost archive, or the
+ * total length of the input files, is known.
+ * <p>
+ * Progress is updated by the transforming threads, and is read by the
+ * reporting thread. Values which are read while the transform is running are
+ * approximate.
+ */
+public class Progress {
+	/**
+	 * Create progress.
+	 *
+	 * @param sink The sink which receives reports.
+	 * @param periodMillis The period of reports, in milliseconds. Zero or less
+	 *            to report only when the transform completes.
+	 */
+	public Progress(ProgressSink sink, long periodMillis) {
+		this.sink = sink;
+		this.periodMillis = periodMillis;
+		this.startNanos = System.nanoTime();
+	}
+
+	private final ProgressSink				sink;
+	private final long						periodMillis;
+	private ScheduledExecutorService		timer;
+
+	private volatile long					startNanos;
+	private volatile long					endNanos		= -1L;
+
+	private final LongAdder					entries			= new LongAdder();
+	private final LongAdder					entryBytes		= new LongAdder();
+
+	private volatile LongSupplier			inputBytes;
+	private volatile long					totalBytes		= -1L;
+
+	private volatile String					currentPath;
+
+	private final ThreadLocal<Deque<String>>	archivePrefixes	= ThreadLocal.withInitial(ArrayDeque::new);
+
+	public ProgressSink getSink() {
+		return sink;
+	}
+
+	public long getPeriodMillis() {
+		return periodMillis;
+	}
+
+	/**
+	 * Start reporting progress. Reports are made by a daemon thread.
+	 */
+	public synchronized void start() {
+		startNanos = System.nanoTime();
+		endNanos = -1L;
+
+		if ((periodMillis > 0L) && (timer == null)) {
+			timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Transformer Progress");
+				thread.setDaemon(true);
+				return thread;
+			});
+			timer.scheduleAtFixedRate(() -> sink.report(this, false), periodMillis, periodMillis,
+				TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stop reporting progress, and make a final report. The final report
+	 * follows any periodic report.
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			try {
+				timer.awaitTermination(1L, TimeUnit.SECONDS); // throws InterruptedException
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+			}
+			timer = null;
+		}
+		endNanos = System.nanoTime();
+
+		sink.report(this, true);
+	}
+
+	/**
+	 * Record the start of the processing of an archive. The first archive
+	 * which is started before any entry is processed is the outermost
+	 * archive, which provides the count of input bytes.
+	 *
+	 * @param archivePath The path of the archive.
+	 * @param archiveLength The length of the archive. -1 if unknown.
+	 * @param archiveBytes Supplier of the count of bytes read from the
+	 *            archive.
+	 */
+	public void enterArchive(String archivePath, long archiveLength, LongSupplier archiveBytes) {
+		Deque<String> prefixes = archivePrefixes.get();
+		if (prefixes.isEmpty() && (inputBytes == null) && (entries.sum() == 0L)) {
+			synchronized (this) {
+				if (inputBytes == null) {
+					inputBytes = archiveBytes;
+					totalBytes = archiveLength;
+				}
+			}
+		}
+
+		String parentPrefix = prefixes.peek();
+		prefixes.push((parentPrefix == null) ? (archivePath + "!/") : (parentPrefix + archivePath + "!/"));
+	}
+
+	/**
+	 * Add to the total count of input bytes, when the input is not an archive.
+	 * For example, add the lengths of the files of an input directory as the
+	 * directory is walked.
+	 *
+	 * @param bytes The count of bytes to add to the total.
+	 */
+	public synchronized void addTotalBytes(long bytes) {
+		if (inputBytes == null) {
+			totalBytes = ((totalBytes == -1L) ? bytes : (totalBytes + bytes));
+		}
+	}
+
+	/**
+	 * Resume the processing of an archive on the current thread. Used when
+	 * the entries of an archive are processed by tasks of another thread.
+	 *
+	 * @param archivePrefix The prefix of the paths of the entries of the
+	 *            archive, as answered by {@link #getArchivePrefix()}.
+	 */
+	public void resumeArchive(String archivePrefix) {
+		archivePrefixes.get()
+			.push(archivePrefix);
+	}
+
+	/**
+	 * Answer the prefix of the paths of the entries of the archive which is
+	 * processed by the current thread.
+	 *
+	 * @return The prefix of the current archive. Null if the current thread is
+	 *         not processing an archive.
+	 */
+	public String getArchivePrefix() {
+		return archivePrefixes.get()
+			.peek();
+	}
+
+	/**
+	 * Record the end of the processing of an archive, or the end of a
+	 * resumed archive.
+	 */
+	public void exitArchive() {
+		archivePrefixes.get()
+			.pop();
+	}
+
+	/**
+	 * Record the processing of an entry.
+	 *
+	 * @param entryName The name of the entry.
+	 * @param entryLength The length of the entry. -1 if unknown.
+	 */
+	public void addEntry(String entryName, long entryLength) {
+		entries.increment();
+
+		String prefix = archivePrefixes.get()
+			.peek();
+
+		// The bytes of entries within an archive are counted by the archive.
+		if ((prefix == null) && (entryLength > 0L)) {
+			entryBytes.add(entryLength);
+		}
+		currentPath = ((prefix == null) ? entryName : (prefix + entryName));
+	}
+
+	public long getEntries() {
+		return entries.sum();
+	}
+
+	/**
+	 * Answer the count of input bytes which were processed.
+	 *
+	 * @return The count of input bytes which were processed.
+	 */
+	public long getBytes() {
+		LongSupplier useInputBytes = inputBytes;
+		return ((useInputBytes == null) ? entryBytes.sum() : useInputBytes.getAsLong());
+	}
+
+	/**
+	 * Answer the total count of input bytes.
+	 *
+	 * @return The total count of input bytes. -1 if unknown.
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Answer the path of the entry which was last processed. The path of an
+	 * entry of a nested archive is prefixed by the paths of the archives
+	 * which contain the entry.
+	 *
+	 * @return The path of the last processed entry. Null if no entry has been
+	 *         processed.
+	 */
+	public String getCurrentPath() {
+		return currentPath;
+	}
+
+	public long getElapsedNanos() {
+		long useEndNanos = endNanos;
+		return ((useEndNanos == -1L) ? System.nanoTime() : useEndNanos) - startNanos;
+	}
+
+	public double getEntriesPerSecond() {
+		return perSecond(getEntries());
+	}
+
+	public double getBytesPerSecond() {
+		return perSecond(getBytes());
+	}
+
+	private double perSecond(long count) {
+		long elapsedNanos = getElapsedNanos();
+		return ((elapsedNanos <= 0L) ? 0.0 : ((count * 1_000_000_000.0) / elapsedNanos));
+	}
+
+	/**
+	 * Answer the estimated time remaining, based on the rate at which input
+	 * bytes have been processed. The central directory of an archive is
+	 * not read, and the processed bytes may fall short of the total bytes
+	 * when the transform completes.
+	 *
+	 * @return The estimated seconds remaining. Zero if progress has stopped.
+	 *         -1 if no estimate is possible.
+	 */
+	public long getEtaSeconds() {
+		if (endNanos != -1L) {
+			return 0L;
+		}
+		long useTotalBytes = totalBytes;
+		double bytesPerSecond = getBytesPerSecond();
+		if ((useTotalBytes <= 0L) || (bytesPerSecond <= 0.0)) {
+			return -1L;
+		}
+		long remainingBytes = Math.max(0L, useTotalBytes - getBytes());
+		return (long) Math.ceil(remainingBytes / bytesPerSecond);
+	}
+}
@@ -0,0 +1,122 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+
+/**
+ * Receiver of progress reports.
+ */
+@FunctionalInterface
+public interface ProgressSink {
+	/**
+	 * Report progress.
+	 *
+	 * @param progress The progress to report.
+	 * @param done True if the transform has completed.
+	 */
+	void report(Progress progress, boolean done);
+
+	/**
+	 * Format progress as a single line of text.
+	 *
+	 * @param progress The progress to format.
+	 * @return The formatted progress.
+	 */
+	static String format(Progress progress) {
+		long etaSeconds = progress.getEtaSeconds();
+		String currentPath = progress.getCurrentPath();
+		return String.format(Locale.ROOT,
+			"Entries [ %d ] [ %.1f/s ] Bytes [ %d of %s ] [ %.2f MB/s ] ETA [ %s ] [ %s ]", progress.getEntries(),
+			progress.getEntriesPerSecond(), progress.getBytes(),
+			((progress.getTotalBytes() == -1L) ? "unknown" : Long.toString(progress.getTotalBytes())),
+			progress.getBytesPerSecond() / (1024 * 1024), ((etaSeconds == -1L) ? "unknown" : (etaSeconds + "s")),
+			((currentPath == null) ? "" : currentPath));
+	}
+
+	/**
+	 * Create a sink which overwrites a single console line. The line is ended
+	 * when the transform completes.
+	 *
+	 * @param printStream The console stream.
+	 * @return A console sink.
+	 */
+	static ProgressSink console(PrintStream printStream) {
+		return (progress, done) -> {
+			printStream.print("\rProgress: " + format(progress));
+			if (done) {
+				printStream.println();
+			}
+			printStream.flush();
+		};
+	}
+
+	/**
+	 * Create a sink which writes a log line for each report.
+	 *
+	 * @param logger The logger which receives the reports.
+	 * @return A logger sink.
+	 */
+	static ProgressSink log(Logger logger) {
+		return (progress, done) -> logger.info("{}: {}", (done ? "Completed" : "Progress"), format(progress));
+	}
+
+	/**
+	 * Create a sink which writes a JSON object on a line for each report.
+	 *
+	 * @param printStream The stream which receives the reports.
+	 * @return A JSON sink.
+	 */
+	static ProgressSink json(PrintStream printStream) {
+		// { "done": false, "elapsedNanos": 4200000, "entries": 12,
+		// "entriesPerSecond": 2.9, "bytes": 1024, "totalBytes": 4096,
+		// "bytesPerSecond": 243.8, "etaSeconds": 13, "path": "a.war!/b.jar" }
+
+		return (progress, done) -> {
+			String line = String.format(Locale.ROOT,
+				"{ \"done\": %s, \"elapsedNanos\": %d, \"entries\": %d, \"entriesPerSecond\": %.1f,"
+					+ " \"bytes\": %d, \"totalBytes\": %d, \"bytesPerSecond\": %.1f, \"etaSeconds\": %d,"
+					+ " \"path\": %s }",
+				done, progress.getElapsedNanos(), progress.getEntries(), progress.getEntriesPerSecond(),
+				progress.getBytes(), progress.getTotalBytes(), progress.getBytesPerSecond(), progress.getEtaSeconds(),
+				quoteJson(progress.getCurrentPath()));
+			printStream.println(line);
+			printStream.flush();
+		};
+	}
+
+	static String quoteJson(String text) {
+		if (text == null) {
+			return "null";
+		}
+
+		StringBuilder builder = new StringBuilder(text.length() + 2);
+		builder.append('"');
+		for (int charNo = 0; charNo < text.length(); charNo++) {
+			char c = text.charAt(charNo);
+			if ((c == '"') || (c == '\\')) {
+				builder.append('\\')
+					.append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+		return builder.toString();
+	}
+}
@@ -0,0 +1,332 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Scanner which determines which of a collection of candidate strings occur
+ * in files. Candidates are matched against the UTF-8 bytes of file names and
+ * of file contents, using a single pass over the bytes. Archives, including
+ * nested archives, are read as streams, and their entry names and entry
+ * contents are scanned.
+ * <p>
+ * Class files store names as modified UTF-8, which is the same as UTF-8 for
+ * the ASCII candidates of package renames, meaning that class files may be
+ * scanned as raw bytes.
+ */
+public class ReferenceScanner {
+	private static final int	BUFFER_SIZE	= 32 * 1024;
+
+	/**
+	 * Create a scanner for candidate strings. Empty candidates are ignored.
+	 *
+	 * @param candidates The strings which are to be located.
+	 */
+	public ReferenceScanner(Collection<String> candidates) {
+		Map<String, byte[]> useCandidates = new LinkedHashMap<>();
+		for (String candidate : candidates) {
+			if (!candidate.isEmpty()) {
+				useCandidates.putIfAbsent(candidate, candidate.getBytes(UTF_8));
+			}
+		}
+
+		this.candidates = new HashMap<>(useCandidates.size());
+		for (String candidate : useCandidates.keySet()) {
+			this.candidates.put(candidate, this.candidates.size());
+		}
+		this.found = new boolean[useCandidates.size()];
+		this.remaining = useCandidates.size();
+
+		// Compact the byte alphabet to the bytes which occur in candidates.
+		// Class 0 is used for all other bytes, and always leads back to the
+		// root state.
+
+		int[] useByteClasses = new int[256];
+		int classCount = 1;
+		for (byte[] bytes : useCandidates.values()) {
+			for (byte b : bytes) {
+				if (useByteClasses[b & 0xFF] == 0) {
+					useByteClasses[b & 0xFF] = classCount++;
+				}
+			}
+		}
+		this.byteClasses = useByteClasses;
+		this.classCount = classCount;
+
+		// Build a trie of the candidates, then complete the trie as an
+		// Aho-Corasick automaton, in which every state has a transition for
+		// every byte class.
+
+		List<int[]> transitions = new ArrayList<>();
+		List<int[]> outputs = new ArrayList<>();
+		transitions.add(new int[classCount]);
+		outputs.add(null);
+
+		int candidateNo = 0;
+		for (byte[] bytes : useCandidates.values()) {
+			int state = 0;
+			for (byte b : bytes) {
+				int byteClass = useByteClasses[b & 0xFF];
+				int next = transitions.get(state)[byteClass];
+				if (next == 0) {
+					next = transitions.size();
+					transitions.add(new int[classCount]);
+					outputs.add(null);
+					transitions.get(state)[byteClass] = next;
+				}
+				state = next;
+			}
+			outputs.set(state, append(outputs.get(state), candidateNo++));
+		}
+
+		int stateCount = transitions.size();
+		int[] fail = new int[stateCount];
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int byteClass = 1; byteClass < classCount; byteClass++) {
+			int next = transitions.get(0)[byteClass];
+			if (next != 0) {
+				queue.add(next);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			int[] stateTransitions = transitions.get(state);
+			int[] failTransitions = transitions.get(fail[state]);
+			for (int byteClass = 1; byteClass < classCount; byteClass++) {
+				int next = stateTransitions[byteClass];
+				if (next == 0) {
+					stateTransitions[byteClass] = failTransitions[byteClass];
+				} else {
+					fail[next] = failTransitions[byteClass];
+					int[] failOutputs = outputs.get(fail[next]);
+					if (failOutputs != null) {
+						for (int output : failOutputs) {
+							outputs.set(next, append(outputs.get(next), output));
+						}
+					}
+					queue.add(next);
+				}
+			}
+		}
+
+		int[] useDelta = new int[stateCount * classCount];
+		for (int state = 0; state < stateCount; state++) {
+			int[] stateTransitions = transitions.get(state);
+			for (int byteClass = 0; byteClass < classCount; byteClass++) {
+				useDelta[state * classCount + byteClass] = stateTransitions[byteClass];
+			}
+		}
+		this.delta = useDelta;
+		this.outputs = outputs.toArray(new int[0][]);
+	}
+
+	private static int[] append(int[] values, int value) {
+		if (values == null) {
+			return new int[] {
+				value
+			};
+		}
+		int[] newValues = Arrays.copyOf(values, values.length + 1);
+		newValues[values.length] = value;
+		return newValues;
+	}
+
+	private final Map<String, Integer>	candidates;
+	private final boolean[]				found;
+	private int							remaining;
+
+	private final int[]					byteClasses;
+	private final int					classCount;
+
+	/**
+	 * Transitions of the automaton. The transition of a state for a byte
+	 * class is at the state number times the count of byte classes plus the
+	 * byte class.
+	 */
+	private final int[]					delta;
+	/** Candidates which are matched on entering each state. */
+	private final int[][]				outputs;
+
+	private long						scannedBytes;
+
+	//
+
+	/**
+	 * Tell if a candidate was found in the scanned files.
+	 *
+	 * @param candidate A candidate string.
+	 * @return True or false telling if the candidate was found.
+	 */
+	public boolean isReferenced(String candidate) {
+		Integer candidateNo = candidates.get(candidate);
+		return ((candidateNo != null) && found[candidateNo]);
+	}
+
+	/**
+	 * Answer the candidates which were found in the scanned files.
+	 *
+	 * @return The found candidates, in sorted order.
+	 */
+	public Set<String> getReferenced() {
+		Set<String> referenced = new TreeSet<>();
+		for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+			if (found[candidate.getValue()]) {
+				referenced.add(candidate.getKey());
+			}
+		}
+		return referenced;
+	}
+
+	/**
+	 * Tell if all candidates were found. Scanning stops once all candidates
+	 * are found.
+	 *
+	 * @return True or false telling if all candidates were found.
+	 */
+	public boolean isComplete() {
+		return (remaining == 0);
+	}
+
+	/**
+	 * Answer the count of content bytes which were scanned.
+	 *
+	 * @return The count of scanned content bytes.
+	 */
+	public long getScannedBytes() {
+		return scannedBytes;
+	}
+
+	//
+
+	/**
+	 * Scan a file or a directory. The files of a directory are scanned
+	 * recursively. Archives are scanned as archives.
+	 *
+	 * @param file The file or directory which is to be scanned.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public void scan(File file) throws IOException {
+		if (isComplete()) {
+			return;
+		}
+		scanName(file.getName());
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					scan(child); // throws IOException
+				}
+			}
+		} else {
+			try (InputStream input = Files.newInputStream(file.toPath())) { // throws IOException
+				scan(input); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Scan a name.
+	 *
+	 * @param name The name which is to be scanned.
+	 */
+	public void scanName(String name) {
+		byte[] bytes = name.getBytes(UTF_8);
+		scan(0, bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Scan the contents of a stream. A stream which holds an archive is
+	 * scanned as an archive. The stream is not closed.
+	 *
+	 * @param input The stream which is to be scanned.
+	 * @throws IOException Thrown if the stream cannot be read.
+	 */
+	public void scan(InputStream input) throws IOException {
+		if (isComplete()) {
+			return;
+		}
+
+		BufferedInputStream bufferedInput = new BufferedInputStream(input, BUFFER_SIZE);
+		if (isArchive(bufferedInput)) { // throws IOException
+			ZipInputStream zipInput = new ZipInputStream(bufferedInput);
+			for (ZipEntry entry; !isComplete() && ((entry = zipInput.getNextEntry()) != null);) { // throws IOException
+				scanName(entry.getName());
+				if (!entry.isDirectory()) {
+					scan(zipInput); // throws IOException
+				}
+			}
+			return;
+		}
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int state = 0;
+		for (int count; !isComplete() && ((count = bufferedInput.read(buffer)) != -1);) { // throws IOException
+			scannedBytes += count;
+			state = scan(state, buffer, 0, count);
+		}
+	}
+
+	private static boolean isArchive(BufferedInputStream input) throws IOException {
+		input.mark(4);
+		try {
+			return (input.read() == 'P') && (input.read() == 'K') && (input.read() == 3) && (input.read() == 4);
+		} finally {
+			input.reset();
+		}
+	}
+
+	/**
+	 * Scan bytes, starting from a state of the automaton.
+	 *
+	 * @return The state of the automaton after scanning the bytes.
+	 */
+	private int scan(int state, byte[] bytes, int offset, int length) {
+		int[] useDelta = delta;
+		int[] useByteClasses = byteClasses;
+		int useClassCount = classCount;
+
+		for (int limit = offset + length; offset < limit; offset++) {
+			state = useDelta[state * useClassCount + useByteClasses[bytes[offset] & 0xFF]];
+			int[] matched = outputs[state];
+			if (matched != null) {
+				for (int candidateNo : matched) {
+					if (!found[candidateNo]) {
+						found[candidateNo] = true;
+						remaining--;
+					}
+				}
+			}
+		}
+		return state;
+	}
+}
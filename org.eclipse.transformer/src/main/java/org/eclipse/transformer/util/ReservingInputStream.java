@@ -0,0 +1,110 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream which reserves the bytes of an entry of unknown size from a
+ * memory budget as the entry is read.
+ * <p>
+ * An estimate is reserved when the stream is created. The reservation is
+ * grown, at least doubling, when the bytes read, multiplied by the hold
+ * factor, exceed the reservation. Growth does not wait: See
+ * {@link MemoryBudget#growEntry(long)}.
+ * <p>
+ * {@link #release()} must be called when the entry data is no longer held.
+ */
+public class ReservingInputStream extends FilterInputStream {
+	/**
+	 * Create a reserving input stream, reserving an estimate of the bytes of
+	 * the entry.
+	 *
+	 * @param inputStream The stream from which to read the entry.
+	 * @param budget The budget from which bytes are reserved.
+	 * @param holdFactor The count of copies of the entry data which are held.
+	 * @param estimate The count of bytes which is initially reserved.
+	 * @throws InterruptedIOException Thrown if the initial reservation was
+	 *             interrupted.
+	 */
+	public ReservingInputStream(InputStream inputStream, MemoryBudget budget, int holdFactor, long estimate)
+		throws InterruptedIOException {
+		super(inputStream);
+
+		this.budget = budget;
+		this.holdFactor = holdFactor;
+
+		budget.reserve(estimate); // throws InterruptedIOException
+		this.reservedBytes = estimate;
+	}
+
+	private final MemoryBudget	budget;
+	private final int			holdFactor;
+
+	private long				reservedBytes;
+	private long				count;
+
+	public long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			grow(1);
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		int result = super.read(bytes, offset, length);
+		if (result > 0) {
+			grow(result);
+		}
+		return result;
+	}
+
+	private void grow(int readCount) {
+		count += readCount;
+
+		long heldBytes = holdFactor * count;
+		if (heldBytes > reservedBytes) {
+			long increment = Math.max(heldBytes - reservedBytes, reservedBytes);
+			budget.growEntry(increment);
+			reservedBytes += increment;
+		}
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Release the reserved bytes. Later calls do nothing.
+	 */
+	public void release() {
+		if (reservedBytes != 0L) {
+			budget.releaseEntry(reservedBytes);
+			reservedBytes = 0L;
+		}
+	}
+}
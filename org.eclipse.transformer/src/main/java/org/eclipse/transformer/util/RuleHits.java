@@ -0,0 +1,406 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the hits of transformation rules, per rule and per artifact.
+ * <p>
+ * Rules are identified by a kind and a rule name:
+ * <ul>
+ * <li>{@link #RENAME}: A package rename. The rule name is the renamed
+ * package, as written in the rules.</li>
+ * <li>{@link #VERSION}: A package version. The rule name is the package.</li>
+ * <li>{@link #BUNDLE}: A bundle identity update. The rule name is the bundle
+ * symbolic name, or "*".</li>
+ * <li>{@link #DIRECT}: A direct string replacement. The rule name is the
+ * replaced string.</li>
+ * <li>{@link #TEXT}: A text substitution. The rule name is the file selector
+ * and the replaced text, separated by a colon.</li>
+ * <li>{@link #CONSTANT}: A per class constant replacement. The rule name is
+ * the class and the replaced text, separated by a colon.</li>
+ * </ul>
+ * Artifacts are the archives which contain the transformed resources. The
+ * path of a nested archive is prefixed by the paths of the archives which
+ * contain it, separated by "!/". Resources which are not in an archive are
+ * counted against the root artifact.
+ * <p>
+ * Rules are declared before they are counted, so that rules which are never
+ * hit are reported. Hits may be recorded concurrently. Reports are written as
+ * CSV, and may be read back and merged, which allows the hits of several runs
+ * to be accumulated into a single report.
+ */
+public class RuleHits {
+	public static final String	RENAME		= "rename";
+	public static final String	VERSION		= "version";
+	public static final String	BUNDLE		= "bundle";
+	public static final String	DIRECT		= "direct";
+	public static final String	TEXT		= "text";
+	public static final String	CONSTANT	= "constant";
+
+	public static final String	CSV_HEADER	= "kind,rule,artifact,hits";
+
+	/**
+	 * Create rule hits.
+	 *
+	 * @param rootArtifact The artifact against which to count resources which
+	 *            are not in an archive.
+	 */
+	public RuleHits(String rootArtifact) {
+		this.rootArtifact = rootArtifact;
+	}
+
+	private final String						rootArtifact;
+
+	/** Hits: Kind to rule to artifact to count. */
+	private final ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, LongAdder>>> hits = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Deque<String>>	artifacts	= ThreadLocal.withInitial(ArrayDeque::new);
+
+	public String getRootArtifact() {
+		return rootArtifact;
+	}
+
+	private ConcurrentMap<String, LongAdder> ruleHits(String kind, String rule) {
+		return hits.computeIfAbsent(kind, k -> new ConcurrentHashMap<>())
+			.computeIfAbsent(rule, r -> new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * Declare a rule. A declared rule is reported even when it has no hits.
+	 *
+	 * @param kind The kind of the rule.
+	 * @param rule The name of the rule.
+	 */
+	public void declare(String kind, String rule) {
+		ruleHits(kind, rule);
+	}
+
+	/**
+	 * Record the start of the processing of an archive. Hits are counted
+	 * against the archive until the processing of the archive ends.
+	 *
+	 * @param archivePath The path of the archive.
+	 */
+	public void enterArtifact(String archivePath) {
+		Deque<String> useArtifacts = artifacts.get();
+		String parentPath = useArtifacts.peek();
+		useArtifacts.push((parentPath == null) ? archivePath : (parentPath + "!/" + archivePath));
+	}
+
+	/**
+	 * Resume the processing of an archive on the current thread. Used when
+	 * the entries of an archive are processed by tasks of another thread.
+	 *
+	 * @param artifactPath The full path of the archive, as answered by
+	 *            {@link #getArtifact()}.
+	 */
+	public void resumeArtifact(String artifactPath) {
+		artifacts.get()
+			.push(artifactPath);
+	}
+
+	/**
+	 * Record the end of the processing of an archive, or the end of a
+	 * resumed archive.
+	 */
+	public void exitArtifact() {
+		artifacts.get()
+			.pop();
+	}
+
+	/**
+	 * Answer the artifact against which hits are currently counted.
+	 *
+	 * @return The current artifact.
+	 */
+	public String getArtifact() {
+		String artifact = artifacts.get()
+			.peek();
+		return ((artifact == null) ? rootArtifact : artifact);
+	}
+
+	/**
+	 * Record a hit of a rule against the current artifact.
+	 *
+	 * @param kind The kind of the rule.
+	 * @param rule The name of the rule.
+	 */
+	public void hit(String kind, String rule) {
+		add(kind, rule, getArtifact(), 1L);
+	}
+
+	private void add(String kind, String rule, String artifact, long count) {
+		LongAdder adder = ruleHits(kind, rule).computeIfAbsent(artifact, a -> new LongAdder());
+		if (count != 0L) {
+			adder.add(count);
+		}
+	}
+
+	/**
+	 * Answer the total hits of a rule.
+	 *
+	 * @param kind The kind of the rule.
+	 * @param rule The name of the rule.
+	 * @return The total hits of the rule. Zero if the rule is not known.
+	 */
+	public long getHits(String kind, String rule) {
+		long total = 0L;
+		for (LongAdder adder : kindHits(kind).getOrDefault(rule, EMPTY_HITS)
+			.values()) {
+			total += adder.sum();
+		}
+		return total;
+	}
+
+	private static final ConcurrentMap<String, LongAdder> EMPTY_HITS = new ConcurrentHashMap<>();
+
+	private Map<String, ConcurrentMap<String, LongAdder>> kindHits(String kind) {
+		Map<String, ConcurrentMap<String, LongAdder>> kindHits = hits.get(kind);
+		return ((kindHits == null) ? Collections.emptyMap() : kindHits);
+	}
+
+	/**
+	 * Answer the hits of a rule per artifact.
+	 *
+	 * @param kind The kind of the rule.
+	 * @param rule The name of the rule.
+	 * @return The hits of the rule, keyed and sorted by artifact. Artifacts
+	 *         with no hits are not included.
+	 */
+	public Map<String, Long> getArtifactHits(String kind, String rule) {
+		Map<String, Long> artifactHits = new TreeMap<>();
+		kindHits(kind).getOrDefault(rule, EMPTY_HITS)
+			.forEach((artifact, adder) -> {
+				long count = adder.sum();
+				if (count != 0L) {
+					artifactHits.put(artifact, count);
+				}
+			});
+		return artifactHits;
+	}
+
+	/**
+	 * Answer the rules of a kind.
+	 *
+	 * @param kind The kind of the rules.
+	 * @return The sorted names of the declared and hit rules of the kind.
+	 */
+	public List<String> getRules(String kind) {
+		List<String> rules = new ArrayList<>(kindHits(kind).keySet());
+		Collections.sort(rules);
+		return rules;
+	}
+
+	/**
+	 * Answer the kinds of the rules.
+	 *
+	 * @return The sorted kinds of the declared and hit rules.
+	 */
+	public List<String> getKinds() {
+		List<String> kinds = new ArrayList<>(hits.keySet());
+		Collections.sort(kinds);
+		return kinds;
+	}
+
+	/**
+	 * Answer the rules of a kind which have no hits.
+	 *
+	 * @param kind The kind of the rules.
+	 * @return The sorted names of the rules which have no hits.
+	 */
+	public List<String> getUnused(String kind) {
+		List<String> unused = new ArrayList<>();
+		for (String rule : getRules(kind)) {
+			if (getHits(kind, rule) == 0L) {
+				unused.add(rule);
+			}
+		}
+		return unused;
+	}
+
+	/**
+	 * Merge other rule hits into these rule hits. Declarations are merged,
+	 * and hits of the same rule and artifact are added.
+	 *
+	 * @param other The rule hits to merge.
+	 */
+	public void merge(RuleHits other) {
+		other.hits.forEach((kind, kindHits) -> kindHits.forEach((rule, artifactHits) -> {
+			declare(kind, rule);
+			artifactHits.forEach((artifact, adder) -> add(kind, rule, artifact, adder.sum()));
+		}));
+	}
+
+	//
+
+	/**
+	 * Write the rule hits as CSV. A row is written for each rule and artifact
+	 * which has hits. A single row, which has an empty artifact and zero hits,
+	 * is written for each rule which has no hits.
+	 *
+	 * @param printStream The stream which receives the CSV.
+	 */
+	public void writeCsv(PrintStream printStream) {
+		// kind,rule,artifact,hits
+		// rename,javax.servlet,sample.war!/WEB-INF/lib/sample.jar,12
+		// rename,javax.xml.bind,,0
+
+		printStream.print(CSV_HEADER);
+		printStream.print('\n');
+
+		for (String kind : getKinds()) {
+			for (String rule : getRules(kind)) {
+				Map<String, Long> artifactHits = getArtifactHits(kind, rule);
+				if (artifactHits.isEmpty()) {
+					writeCsv(printStream, kind, rule, "", 0L);
+				} else {
+					artifactHits.forEach((artifact, count) -> writeCsv(printStream, kind, rule, artifact, count));
+				}
+			}
+		}
+	}
+
+	private static void writeCsv(PrintStream printStream, String kind, String rule, String artifact, long count) {
+		printStream.print(quoteCsv(kind));
+		printStream.print(',');
+		printStream.print(quoteCsv(rule));
+		printStream.print(',');
+		printStream.print(quoteCsv(artifact));
+		printStream.print(',');
+		printStream.print(count);
+		printStream.print('\n');
+	}
+
+	protected static String quoteCsv(String text) {
+		if ((text.indexOf(',') == -1) && (text.indexOf('"') == -1) && (text.indexOf('\n') == -1)
+			&& (text.indexOf('\r') == -1)) {
+			return text;
+		} else {
+			return '"' + text.replace("\"", "\"\"") + '"';
+		}
+	}
+
+	/**
+	 * Read rule hits which were written as CSV.
+	 *
+	 * @param csvPath The path of the CSV file.
+	 * @param rootArtifact The root artifact of the rule hits.
+	 * @return The rule hits of the file.
+	 * @throws IOException Thrown if the file cannot be read, or is not a
+	 *             rule hits report.
+	 */
+	public static RuleHits readCsv(Path csvPath, String rootArtifact) throws IOException {
+		RuleHits ruleHits = new RuleHits(rootArtifact);
+
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(Files.newInputStream(csvPath), UTF_8))) { // throws IOException
+
+			String header = reader.readLine(); // throws IOException
+			if (!CSV_HEADER.equals(header)) {
+				throw new IOException("Rule hits [ " + csvPath + " ] has header [ " + header + " ], not [ "
+					+ CSV_HEADER + " ]");
+			}
+
+			List<String> fields;
+			while ((fields = readCsvRow(reader)) != null) { // throws IOException
+				if (fields.size() != 4) {
+					throw new IOException("Rule hits [ " + csvPath + " ] has malformed row " + fields);
+				}
+				long count;
+				try {
+					count = Long.parseLong(fields.get(3));
+				} catch (NumberFormatException e) {
+					throw new IOException("Rule hits [ " + csvPath + " ] has malformed count " + fields, e);
+				}
+
+				String kind = fields.get(0);
+				String rule = fields.get(1);
+				if (count == 0L) {
+					ruleHits.declare(kind, rule);
+				} else {
+					ruleHits.add(kind, rule, fields.get(2), count);
+				}
+			}
+		}
+
+		return ruleHits;
+	}
+
+	/**
+	 * Read a CSV row. Quoted fields may contain separators, quotes, and line
+	 * breaks.
+	 *
+	 * @return The fields of the row. Null at the end of the input.
+	 */
+	private static List<String> readCsvRow(BufferedReader reader) throws IOException {
+		int c = reader.read(); // throws IOException
+		if (c == -1) {
+			return null;
+		}
+
+		List<String> fields = new ArrayList<>(4);
+		StringBuilder field = new StringBuilder();
+		boolean inQuotes = false;
+
+		while (true) {
+			if (inQuotes) {
+				if (c == -1) {
+					throw new IOException("Unterminated quoted field [ " + field + " ]");
+				} else if (c == '"') {
+					reader.mark(1);
+					int next = reader.read(); // throws IOException
+					if (next == '"') {
+						field.append('"');
+					} else {
+						inQuotes = false;
+						reader.reset();
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if ((c == -1) || (c == '\n')) {
+				fields.add(field.toString());
+				return fields;
+			} else if (c == '\r') {
+				// Ignore
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '"') {
+				inQuotes = true;
+			} else {
+				field.append((char) c);
+			}
+			c = reader.read(); // throws IOException
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+
+package org.eclipse.transformer.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import aQute.lib.io.ByteBufferOutputStream;
+
+/**
+ * Output stream which holds data in memory while the bytes of the data can be
+ * reserved from a memory budget, and which spills the data to a temporary
+ * file when a reservation fails. The size and the CRC of the data are
+ * computed as the data is written.
+ * <p>
+ * {@link #dispose()} must be called when the data is no longer needed: That
+ * releases the reserved bytes and deletes the temporary file.
+ */
+public class SpillingOutputStream extends OutputStream {
+	/** Smallest count of bytes which is reserved at one time. */
+	public static final long RESERVE_INCREMENT = 1024L * 1024L;
+
+	/**
+	 * Create a spilling output stream.
+	 *
+	 * @param budget The budget from which bytes are reserved. Null to hold all
+	 *            data in memory.
+	 * @param initialSize The initial size of the memory buffer.
+	 */
+	public SpillingOutputStream(MemoryBudget budget, int initialSize) {
+		this.budget = budget;
+		this.memoryStream = new ByteBufferOutputStream(initialSize);
+		this.crc = new CRC32();
+	}
+
+	private final MemoryBudget		budget;
+	private long					reservedBytes;
+
+	private ByteBufferOutputStream	memoryStream;
+
+	private Path					spillPath;
+	private OutputStream			spillStream;
+
+	private long					length;
+	private final CRC32				crc;
+
+	public long getLength() {
+		return length;
+	}
+
+	public long getCrc() {
+		return crc.getValue();
+	}
+
+	public boolean isSpilled() {
+		return (spillPath != null);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] {
+			(byte) b
+		}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		crc.update(bytes, offset, count);
+		length += count;
+
+		if ((spillStream == null) && (budget != null) && (length > reservedBytes)) {
+			long increment = Math.max(length - reservedBytes, RESERVE_INCREMENT);
+			if (budget.tryReserve(increment)) {
+				reservedBytes += increment;
+			} else {
+				spill(); // throws IOException
+			}
+		}
+
+		if (spillStream != null) {
+			spillStream.write(bytes, offset, count); // throws IOException
+		} else {
+			memoryStream.write(bytes, offset, count);
+		}
+	}
+
+	private void spill() throws IOException {
+		spillPath = Files.createTempFile("transformer", ".spill"); // throws
+																	// IOException
+		spillStream = new BufferedOutputStream(Files.newOutputStream(spillPath)); // throws
+																					// IOException
+
+		ByteBuffer memoryData = memoryStream.toByteBuffer();
+		spillStream.write(memoryData.array(), memoryData.arrayOffset() + memoryData.position(),
+			memoryData.remaining()); // throws IOException
+		memoryStream = null;
+
+		releaseReserved();
+	}
+
+	private void releaseReserved() {
+		if (reservedBytes != 0L) {
+			budget.release(reservedBytes);
+			reservedBytes = 0L;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (spillStream != null) {
+			spillStream.flush(); // throws IOException
+		}
+	}
+
+	/**
+	 * Complete the writing of data. The data remains available until the
+	 * stream is disposed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (spillStream != null) {
+			spillStream.close(); // throws IOException
+		}
+	}
+
+	/**
+	 * Write the data to another stream. The stream must have been closed.
+	 *
+	 * @param outputStream The stream to which to write the data.
+	 * @param buffer Buffer used to copy spilled data.
+	 * @throws IOException Thrown if the data could not be read or written.
+	 */
+	public void writeTo(OutputStream outputStream, byte[] buffer) throws IOException {
+		if (spillPath == null) {
+			ByteBuffer memoryData = memoryStream.toByteBuffer();
+			outputStream.write(memoryData.array(), memoryData.arrayOffset() + memoryData.position(),
+				memoryData.remaining()); // throws IOException
+		} else {
+			try (InputStream spillInput = Files.newInputStream(spillPath)) { // throws
+																				// IOException
+				FileUtils.transfer(spillInput, outputStream, buffer); // throws
+																		// IOException
+			}
+		}
+	}
+
+	/**
+	 * Release the reserved bytes and delete the temporary file, if the data
+	 * was spilled.
+	 */
+	public void dispose() {
+		memoryStream = null;
+		releaseReserved();
+
+		if (spillPath != null) {
+			try {
+				if (spillStream != null) {
+					spillStream.close(); // throws IOException
+				}
+				Files.deleteIfExists(spillPath); // throws IOException
+			} catch (IOException e) {
+				spillPath.toFile()
+					.deleteOnExit();
+			}
+		}
+	}
+}
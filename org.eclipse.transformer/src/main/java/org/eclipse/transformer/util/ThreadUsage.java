@@ -0,0 +1,122 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Resource usage of the current thread.
+ * <p>
+ * CPU time is obtained from the platform thread bean, and is available once
+ * {@link #enableCpuTime()} has been called. Allocated bytes are
+ * obtained from the HotSpot extension of the thread bean, which is accessed
+ * reflectively so that no dependency on {@code com.sun.management} is
+ * created. Either value is {@link #UNAVAILABLE} when the running JVM does not
+ * support it.
+ */
+public class ThreadUsage {
+	public static final long			UNAVAILABLE	= -1L;
+
+	private static final ThreadMXBean	threadBean;
+	private static final boolean		cpuTimeSupported;
+	private static final Method			getThreadAllocatedBytes;
+
+	static {
+		ThreadMXBean useThreadBean = ManagementFactory.getThreadMXBean();
+
+		boolean useCpuTimeSupported;
+		try {
+			useCpuTimeSupported = useThreadBean.isCurrentThreadCpuTimeSupported();
+		} catch (UnsupportedOperationException | SecurityException e) {
+			useCpuTimeSupported = false;
+		}
+
+		Method useGetThreadAllocatedBytes;
+		try {
+			Class<?> extendedBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+			if (extendedBeanClass.isInstance(useThreadBean)) {
+				useGetThreadAllocatedBytes = extendedBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+				Method isSupported = extendedBeanClass.getMethod("isThreadAllocatedMemorySupported");
+				if (!((Boolean) isSupported.invoke(useThreadBean))) {
+					useGetThreadAllocatedBytes = null;
+				}
+			} else {
+				useGetThreadAllocatedBytes = null;
+			}
+		} catch (Exception e) {
+			useGetThreadAllocatedBytes = null;
+		}
+
+		threadBean = useThreadBean;
+		cpuTimeSupported = useCpuTimeSupported;
+		getThreadAllocatedBytes = useGetThreadAllocatedBytes;
+	}
+
+	public static boolean isCpuTimeSupported() {
+		return cpuTimeSupported;
+	}
+
+	/**
+	 * Enable thread CPU time measurement, which is a JVM wide setting. This is
+	 * done only when metrics are requested, and not when this class is loaded.
+	 *
+	 * @return True or false telling if CPU time measurement is enabled.
+	 */
+	public static boolean enableCpuTime() {
+		if (!cpuTimeSupported) {
+			return false;
+		}
+		try {
+			if (!threadBean.isThreadCpuTimeEnabled()) {
+				threadBean.setThreadCpuTimeEnabled(true);
+			}
+			return true;
+		} catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+
+	public static boolean isAllocatedBytesSupported() {
+		return (getThreadAllocatedBytes != null);
+	}
+
+	/**
+	 * Answer the CPU time of the current thread.
+	 *
+	 * @return The CPU time of the current thread, in nanoseconds.
+	 *         {@link #UNAVAILABLE} if CPU time is not supported, or is not
+	 *         enabled.
+	 */
+	public static long cpuTime() {
+		return (cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : UNAVAILABLE);
+	}
+
+	/**
+	 * Answer the count of bytes allocated by the current thread.
+	 *
+	 * @return The count of bytes allocated by the current thread.
+	 *         {@link #UNAVAILABLE} if allocation counts are not supported.
+	 */
+	public static long allocatedBytes() {
+		if (getThreadAllocatedBytes == null) {
+			return UNAVAILABLE;
+		}
+		try {
+			return ((Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread()
+				.getId())).longValue();
+		} catch (Exception e) {
+			return UNAVAILABLE;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+/**
+ * Flight recorder events of the transformer.
+ * <p>
+ * Events are emitted for container entries, for class transforms, for rules
+ * cache lookups, and for read buffer growth. Events are emitted through a
+ * recorder which is selected once, when this class is initialized:
+ * <p>
+ * When the JVM provides the {@code jdk.jfr} API, and the JFR recorder classes
+ * are available, events are emitted as JFR events. The JFR recorder classes
+ * are compiled separately for Java 11, and are not available when the
+ * transformer is built or run with Java 8. Otherwise, or when the system
+ * property {@link #DISABLE_PROPERTY_NAME} is "true", events are discarded by
+ * a recorder which does nothing.
+ * <p>
+ * Events are emitted only when a recording is active and the event type is
+ * enabled. The "begin" methods answer null when the event type is not
+ * enabled, and the "commit" methods ignore a null event. The no-op recorder
+ * is a constant: Calls to it are removed by the JIT.
+ */
+public class TransformerEvents {
+	public static final String	DISABLE_PROPERTY_NAME	= "org.eclipse.transformer.jfr.disable";
+
+	public static final String	JFR_CLASS_NAME			= "jdk.jfr.Event";
+	public static final String	RECORDER_CLASS_NAME		= "org.eclipse.transformer.jfr.JfrRecorder";
+
+	public static final String	BINARY_TYPE_CACHE		= "Binary Type";
+	public static final String	DESCRIPTOR_CACHE		= "Descriptor";
+	public static final String	SIGNATURE_CACHE			= "Signature";
+
+	/**
+	 * Emitter of transformer events.
+	 */
+	public interface Recorder {
+		Object beginEntry();
+
+		void commitEntry(Object event, String containerName, String entryName, String actionName, long inputLength,
+			long outputLength, boolean changed);
+
+		Object beginClassTransform();
+
+		void commitClassTransform(Object event, String inputName, String inputClassName, String outputClassName,
+			int modifiedConstants, boolean changed);
+
+		void rulesCacheLookup(String cacheName, String key, boolean hit);
+
+		void bufferGrowth(String inputName, int oldLength, int newLength);
+	}
+
+	public static class NullRecorder implements Recorder {
+		@Override
+		public Object beginEntry() {
+			return null;
+		}
+
+		@Override
+		public void commitEntry(Object event, String containerName, String entryName, String actionName,
+			long inputLength, long outputLength, boolean changed) {
+			// Empty
+		}
+
+		@Override
+		public Object beginClassTransform() {
+			return null;
+		}
+
+		@Override
+		public void commitClassTransform(Object event, String inputName, String inputClassName,
+			String outputClassName, int modifiedConstants, boolean changed) {
+			// Empty
+		}
+
+		@Override
+		public void rulesCacheLookup(String cacheName, String key, boolean hit) {
+			// Empty
+		}
+
+		@Override
+		public void bufferGrowth(String inputName, int oldLength, int newLength) {
+			// Empty
+		}
+	}
+
+	private static final Recorder recorder = createRecorder();
+
+	private static Recorder createRecorder() {
+		if (Boolean.getBoolean(DISABLE_PROPERTY_NAME)) {
+			return new NullRecorder();
+		}
+
+		try {
+			Class.forName(JFR_CLASS_NAME);
+			return (Recorder) Class.forName(RECORDER_CLASS_NAME)
+				.getDeclaredConstructor()
+				.newInstance();
+		} catch (Throwable th) {
+			// The JVM does not support JFR, or the JFR recorder was not built
+			// or cannot be loaded.
+			return new NullRecorder();
+		}
+	}
+
+	public static Recorder getRecorder() {
+		return recorder;
+	}
+
+	public static boolean isActive() {
+		return !(recorder instanceof NullRecorder);
+	}
+
+	//
+
+	/**
+	 * Begin the processing of a container entry.
+	 *
+	 * @return An entry event. Null if entry events are not enabled.
+	 */
+	public static Object beginEntry() {
+		return recorder.beginEntry();
+	}
+
+	/**
+	 * Complete the processing of a container entry.
+	 *
+	 * @param event The event which was answered by {@link #beginEntry()}.
+	 *            Ignored if null.
+	 * @param containerName The name of the container.
+	 * @param entryName The name of the entry.
+	 * @param actionName The name of the action which processed the entry.
+	 *            Null if the entry was copied.
+	 * @param inputLength The count of input bytes of the entry.
+	 * @param outputLength The count of output bytes of the entry.
+	 * @param changed True or false telling if the entry was changed.
+	 */
+	public static void commitEntry(Object event, String containerName, String entryName, String actionName,
+		long inputLength, long outputLength, boolean changed) {
+		if (event != null) {
+			recorder.commitEntry(event, containerName, entryName, actionName, inputLength, outputLength, changed);
+		}
+	}
+
+	public static Object beginClassTransform() {
+		return recorder.beginClassTransform();
+	}
+
+	public static void commitClassTransform(Object event, String inputName, String inputClassName,
+		String outputClassName, int modifiedConstants, boolean changed) {
+		if (event != null) {
+			recorder.commitClassTransform(event, inputName, inputClassName, outputClassName, modifiedConstants,
+				changed);
+		}
+	}
+
+	public static void rulesCacheLookup(String cacheName, String key, boolean hit) {
+		recorder.rulesCacheLookup(cacheName, key, hit);
+	}
+
+	public static void bufferGrowth(String inputName, int oldLength, int newLength) {
+		recorder.bufferGrowth(inputName, oldLength, newLength);
+	}
+}